@@ -109,6 +109,18 @@ public final class CanonicalNodeNameOrder implements Comparator<String>, Seriali
         return hashOrder.compare(longBits1, p1, longBits2, p2);
     }
 
+    /**
+     * Compares two node names by their {@link #hashCodeLong(String) hash codes} only, as
+     * {@link #compare(long, String, long, String)} does before falling back to comparing the names
+     * themselves.
+     *
+     * @return the canonical order of the names, or {@code 0} if they fall on the same bucket at
+     *         every depth, in which case the order is given by the names natural order
+     */
+    public static int compareBuckets(final long longBits1, final long longBits2) {
+        return hashOrder.compareBuckets(longBits1, longBits2);
+    }
+
     /**
      * Returns the canonical max size of a leaf tree for the given depth index; hard limit, can't be
      * changed or would affect the hash of trees.
@@ -258,6 +270,19 @@ public final class CanonicalNodeNameOrder implements Comparator<String>, Seriali
 
         private int compare(final long longBits1, final String p1, final long longBits2,
                 final String p2) {
+            final int c = compareBuckets(longBits1, longBits2);
+            if (c != 0) {
+                return c;
+            }
+            if (!p1.equals(p2)) {
+                // They fall on the same bucket all the way down to the last level. Fall back to
+                // canonical string sorting
+                return p1.compareTo(p2);
+            }
+            return 0;
+        }
+
+        private int compareBuckets(final long longBits1, final long longBits2) {
             for (int i = 0; i < 8; i++) {
                 int bucket1 = bucket(longBits1, i);
                 int bucket2 = bucket(longBits2, i);
@@ -267,11 +292,6 @@ public final class CanonicalNodeNameOrder implements Comparator<String>, Seriali
                     return -1;
                 }
             }
-            if (!p1.equals(p2)) {
-                // They fall on the same bucket all the way down to the last level. Fall back to
-                // canonical string sorting
-                return p1.compareTo(p2);
-            }
             return 0;
         }
 
@@ -53,6 +53,25 @@ public abstract class Node implements Bounded, Comparable<Node> {
         return getExtraData().get(key);
     }
 
+    /**
+     * @return whether this node and {@code other} point to the same object, that is, whether they
+     *         have the same {@link #getType() type} and {@link #getObjectId() object id},
+     *         regardless of their names; implementations that don't hold their object id as an
+     *         {@link ObjectId} instance may override it to avoid creating one
+     */
+    public boolean isSameObject(Node other) {
+        return getType() == other.getType() && getObjectId().equals(other.getObjectId());
+    }
+
+    /**
+     * Compares this node to {@code other} in {@link CanonicalNodeOrder canonical storage order};
+     * implementations that don't hold their name as a {@code String} may override it to avoid
+     * creating one
+     */
+    protected int compareCanonical(Node other) {
+        return CanonicalNodeNameOrder.INSTANCE.compare(getName(), other.getName());
+    }
+
     /**
      * Provides for natural ordering of {@code Node}, based on {@link #getName() name}
      */
@@ -15,8 +15,11 @@ import java.util.SortedSet;
 import java.util.function.BooleanSupplier;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
 import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
 import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
 
@@ -44,6 +47,16 @@ public interface RevTreeBuilder {
 
     public RevTreeBuilder original(RevTree original);
 
+    /**
+     * Sets the scheduler whose {@link WorkClass#TREE_BUILD} pool builds the tree, defaults to
+     * {@link GeogigScheduler#defaultInstance()}. The default implementation ignores it.
+     * 
+     * @return {@code this}
+     */
+    public default RevTreeBuilder scheduler(@NonNull GeogigScheduler scheduler) {
+        return this;
+    }
+
     /**
      * Add a node to the mutable tree representation.
      */
@@ -125,4 +138,10 @@ public interface RevTreeBuilder {
         return QuadTreeBuilder.create(source, target, original, maxBounds);
     }
 
+    public static RevTreeBuilder attributeBuilder(@NonNull ObjectStore source,
+            @NonNull ObjectStore target, @NonNull RevTree original,
+            @NonNull String attributeName) {
+        return AttributeTreeBuilder.create(source, target, original, attributeName);
+    }
+
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.model.internal.ClusteringStrategy;
 import org.locationtech.geogig.model.internal.DAGTreeBuilder;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.base.Preconditions;
@@ -33,6 +34,8 @@ public abstract @Accessors(fluent = true) class AbstractTreeBuilder implements R
 
     protected @Setter RevTree original;
 
+    protected @Setter @NonNull GeogigScheduler scheduler = GeogigScheduler.defaultInstance();
+
     protected final AtomicBoolean disposed = new AtomicBoolean(false);
 
     protected AbstractTreeBuilder(final ObjectStore store) {
@@ -83,7 +86,7 @@ public abstract @Accessors(fluent = true) class AbstractTreeBuilder implements R
         RevTree tree;
         final ClusteringStrategy clusteringStrategy = clusteringStrategy();
         try {
-            tree = DAGTreeBuilder.build(clusteringStrategy, target, abortFlag);
+            tree = DAGTreeBuilder.build(clusteringStrategy, target, abortFlag, scheduler);
             if (!abortFlag.getAsBoolean()) {
                 Preconditions.checkState(tree != null);
                 Preconditions.checkState(target.exists(tree.getId()), "tree not saved %s", tree);
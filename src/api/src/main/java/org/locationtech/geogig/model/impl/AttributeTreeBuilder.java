@@ -0,0 +1,56 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import org.locationtech.geogig.model.NodeOrdering;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.model.internal.ClusteringStrategy;
+import org.locationtech.geogig.model.internal.ClusteringStrategyBuilder;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import lombok.NonNull;
+
+/**
+ * {@link RevTreeBuilder} for attribute index trees, clustered by the value of a single
+ * materialized attribute
+ * 
+ * @since 2.0
+ */
+public class AttributeTreeBuilder extends AbstractTreeBuilder implements RevTreeBuilder {
+
+    private final ClusteringStrategy clusteringStrategy;
+
+    protected AttributeTreeBuilder(ObjectStore store, RevTree original,
+            ClusteringStrategy strategy) {
+        super(store, original);
+        clusteringStrategy = strategy;
+    }
+
+    protected final @Override ClusteringStrategy clusteringStrategy() {
+        return clusteringStrategy;
+    }
+
+    public static AttributeTreeBuilder create(final @NonNull ObjectStore source,
+            final @NonNull ObjectStore target, final @NonNull RevTree original,
+            final @NonNull String attributeName) {
+
+        ClusteringStrategy strategy = ClusteringStrategyBuilder//
+                .attribute(source)//
+                .original(original)//
+                .attributeName(attributeName)//
+                .build();
+        return new AttributeTreeBuilder(target, RevTree.EMPTY, strategy);
+    }
+
+    public static NodeOrdering nodeOrdering(String attributeName) {
+        return ClusteringStrategyBuilder.attributeOrdering(attributeName);
+    }
+}
@@ -0,0 +1,48 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import java.util.List;
+
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevTreeImpl.ColumnarLeafTree;
+
+import lombok.NonNull;
+
+/**
+ * {@link RevObjectFactory} that creates leaf {@link RevTree trees} holding their nodes in
+ * {@link NodeColumns columnar} (struct-of-arrays) form rather than as an array of {@link Node}
+ * objects, reducing the heap footprint and object count of trees kept in memory (e.g. by the
+ * object caches) and improving locality when traversing them.
+ * <p>
+ * All other objects are created as by {@link RevObjectFactoryImpl}. This factory is not
+ * registered as a service, in order to use it set the {@code RevObjectFactory} System property
+ * or environment variable to this class name, as explained in
+ * {@link RevObjectFactory#defaultInstance()}.
+ *
+ * @since 2.0
+ */
+public class ColumnarRevObjectFactory extends RevObjectFactoryImpl {
+
+    public @Override @NonNull RevTree createTree(final @NonNull ObjectId id, final long size,
+            @NonNull List<Node> trees, @NonNull List<Node> features) {
+        if (size < 0L) {
+            throw new IllegalArgumentException("Cannot create a tree with negative size: " + size);
+        }
+        checkNodes(trees.toArray(new Node[trees.size()]), TYPE.TREE);
+        checkNodes(features.toArray(new Node[features.size()]), TYPE.FEATURE);
+        return new ColumnarLeafTree(id, size, NodeColumns.of(TYPE.FEATURE, features),
+                NodeColumns.of(TYPE.TREE, trees));
+    }
+}
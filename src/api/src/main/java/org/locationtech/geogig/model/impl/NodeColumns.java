@@ -0,0 +1,417 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import lombok.NonNull;
+
+/**
+ * Struct-of-arrays storage for the nodes of a leaf tree, all of the same {@link TYPE type}.
+ * <p>
+ * Instead of one object graph per node (name string, object id, bounds, metadata id, and extra
+ * data), the nodes are held in a few packed arrays: names as a single UTF-8 encoded byte array
+ * plus offsets, object ids as a single byte array of {@link ObjectId#NUM_BYTES} per node, and
+ * bounds as a single float array of four ordinates per node (with {@code xmin > xmax} meaning no
+ * bounds). Metadata ids are dictionary encoded since all the nodes in a tree usually share the
+ * same one or none at all, and extra data, usually absent, is only allocated for the nodes that
+ * have it.
+ * <p>
+ * {@link Node} instances are {@link ColumnarNode flyweight views} over a position in the arrays,
+ * created on demand, whose {@link Node#intersects(Envelope) bounds checks} are resolved against
+ * the float array directly and whose name and object id are only decoded if requested. The
+ * {@link CanonicalNodeOrder canonical order} and {@link Node#isSameObject same object} checks
+ * between two flyweights, the ones a diff traversal performs for every pair of nodes, are
+ * resolved against the arrays too, using the name hashes precomputed when the columns are
+ * created.
+ *
+ * @since 2.0
+ */
+final class NodeColumns {
+
+    private static final int ID_SIZE = ObjectId.NUM_BYTES;
+
+    private final TYPE type;
+
+    private final int size;
+
+    private final byte[] names;
+
+    private final int[] nameOffsets;
+
+    /**
+     * {@link CanonicalNodeNameOrder#hashCodeLong(String) canonical hash} of each name
+     */
+    private final long[] nameHashes;
+
+    private final byte[] ids;
+
+    private final @Nullable float[] bounds;
+
+    private final @Nullable ObjectId[] metadataIds;
+
+    private final @Nullable int[] metadataIdIndexes;
+
+    private final @Nullable ExtraData[] extraData;
+
+    private NodeColumns(TYPE type, int size, byte[] names, int[] nameOffsets, long[] nameHashes,
+            byte[] ids, @Nullable float[] bounds, @Nullable ObjectId[] metadataIds,
+            @Nullable int[] metadataIdIndexes, @Nullable ExtraData[] extraData) {
+        this.type = type;
+        this.size = size;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.nameHashes = nameHashes;
+        this.ids = ids;
+        this.bounds = bounds;
+        this.metadataIds = metadataIds;
+        this.metadataIdIndexes = metadataIdIndexes;
+        this.extraData = extraData;
+    }
+
+    /**
+     * @return the columnar representation of {@code nodes}, which are assumed to be all of the
+     *         given {@code type}, or {@code null} if {@code nodes} is empty
+     */
+    static @Nullable NodeColumns of(@NonNull TYPE type, @NonNull List<Node> nodes) {
+        final int size = nodes.size();
+        if (size == 0) {
+            return null;
+        }
+        byte[][] encodedNames = new byte[size][];
+        int[] nameOffsets = new int[size + 1];
+        long[] nameHashes = new long[size];
+        byte[] ids = new byte[size * ID_SIZE];
+        float[] bounds = null;
+        int[] metadataIdIndexes = null;
+        Map<ObjectId, Integer> metadataIds = null;
+        ExtraData[] extraData = null;
+
+        for (int i = 0; i < size; i++) {
+            final Node node = nodes.get(i);
+            encodedNames[i] = node.getName().getBytes(UTF_8);
+            nameHashes[i] = CanonicalNodeNameOrder.INSTANCE.hashCodeLong(node.getName())
+                    .longValue();
+            nameOffsets[i + 1] = nameOffsets[i] + encodedNames[i].length;
+            writeId(node.getObjectId(), ids, i * ID_SIZE);
+
+            Envelope env = node.bounds().orElse(null);
+            if (env != null) {
+                if (bounds == null) {
+                    bounds = new float[4 * size];
+                    for (int n = 0; n < i; n++) {
+                        setNullBounds(bounds, n);
+                    }
+                }
+                Float32Bounds b = Float32Bounds.valueOf(env);
+                bounds[4 * i] = b.xmin;
+                bounds[4 * i + 1] = b.xmax;
+                bounds[4 * i + 2] = b.ymin;
+                bounds[4 * i + 3] = b.ymax;
+            } else if (bounds != null) {
+                setNullBounds(bounds, i);
+            }
+
+            ObjectId metadataId = node.getMetadataId().orElse(null);
+            if (metadataId != null && !metadataId.isNull()) {
+                if (metadataIds == null) {
+                    metadataIds = new LinkedHashMap<>();
+                    metadataIdIndexes = new int[size];
+                    Arrays.fill(metadataIdIndexes, 0, i, -1);
+                }
+                Integer index = metadataIds.get(metadataId);
+                if (index == null) {
+                    index = Integer.valueOf(metadataIds.size());
+                    metadataIds.put(metadataId, index);
+                }
+                metadataIdIndexes[i] = index.intValue();
+            } else if (metadataIdIndexes != null) {
+                metadataIdIndexes[i] = -1;
+            }
+
+            Map<String, Object> extra = node.getExtraData();
+            if (extra != null && !extra.isEmpty()) {
+                if (extraData == null) {
+                    extraData = new ExtraData[size];
+                }
+                extraData[i] = ExtraData.of(extra);
+            }
+        }
+
+        byte[] names = new byte[nameOffsets[size]];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(encodedNames[i], 0, names, nameOffsets[i], encodedNames[i].length);
+        }
+        ObjectId[] mdIds = metadataIds == null ? null
+                : metadataIds.keySet().toArray(new ObjectId[metadataIds.size()]);
+        return new NodeColumns(type, size, names, nameOffsets, nameHashes, ids, bounds, mdIds,
+                metadataIdIndexes, extraData);
+    }
+
+    private static void setNullBounds(float[] bounds, int index) {
+        bounds[4 * index] = 0;
+        bounds[4 * index + 1] = -1;
+        bounds[4 * index + 2] = 0;
+        bounds[4 * index + 3] = -1;
+    }
+
+    private static void writeId(ObjectId id, byte[] target, int offset) {
+        final int h1 = RevObjects.h1(id);
+        final long h2 = RevObjects.h2(id);
+        final long h3 = RevObjects.h3(id);
+        for (int i = 0; i < 4; i++) {
+            target[offset + i] = (byte) (h1 >>> (24 - 8 * i));
+        }
+        for (int i = 0; i < 8; i++) {
+            target[offset + 4 + i] = (byte) (h2 >>> (56 - 8 * i));
+            target[offset + 12 + i] = (byte) (h3 >>> (56 - 8 * i));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Node get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return new ColumnarNode(this, index);
+    }
+
+    public void forEach(Consumer<Node> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(new ColumnarNode(this, i));
+        }
+    }
+
+    public List<Node> asList() {
+        return new AbstractList<Node>() {
+            public @Override Node get(int index) {
+                return NodeColumns.this.get(index);
+            }
+
+            public @Override int size() {
+                return size;
+            }
+        };
+    }
+
+    String name(int index) {
+        final int offset = nameOffsets[index];
+        return new String(names, offset, nameOffsets[index + 1] - offset, UTF_8);
+    }
+
+    ObjectId objectId(int index) {
+        final int offset = index * ID_SIZE;
+        int h1 = 0;
+        long h2 = 0, h3 = 0;
+        for (int i = 0; i < 4; i++) {
+            h1 = (h1 << 8) | (ids[offset + i] & 0xFF);
+        }
+        for (int i = 0; i < 8; i++) {
+            h2 = (h2 << 8) | (ids[offset + 4 + i] & 0xFF);
+            h3 = (h3 << 8) | (ids[offset + 12 + i] & 0xFF);
+        }
+        return ObjectId.create(h1, h2, h3);
+    }
+
+    /**
+     * Compares the names at {@code index} and {@code other}'s {@code otherIndex} in canonical
+     * order, only decoding them if their hashes fall on the same buckets but the names differ
+     */
+    int compareNames(int index, NodeColumns other, int otherIndex) {
+        int c = CanonicalNodeNameOrder.compareBuckets(nameHashes[index],
+                other.nameHashes[otherIndex]);
+        if (c == 0 && !nameEquals(index, other, otherIndex)) {
+            c = name(index).compareTo(other.name(otherIndex));
+        }
+        return c;
+    }
+
+    private boolean nameEquals(int index, NodeColumns other, int otherIndex) {
+        final int offset = nameOffsets[index];
+        final int otherOffset = other.nameOffsets[otherIndex];
+        final int length = nameOffsets[index + 1] - offset;
+        if (length != other.nameOffsets[otherIndex + 1] - otherOffset) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (names[offset + i] != other.names[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean objectIdEquals(int index, NodeColumns other, int otherIndex) {
+        final int offset = index * ID_SIZE;
+        final int otherOffset = otherIndex * ID_SIZE;
+        for (int i = 0; i < ID_SIZE; i++) {
+            if (ids[offset + i] != other.ids[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    ObjectId metadataId(int index) {
+        if (metadataIdIndexes == null) {
+            return null;
+        }
+        final int mdIndex = metadataIdIndexes[index];
+        return mdIndex == -1 ? null : metadataIds[mdIndex];
+    }
+
+    @Nullable
+    ExtraData extraData(int index) {
+        return extraData == null ? null : extraData[index];
+    }
+
+    boolean isBoundsNull(int index) {
+        return bounds == null || bounds[4 * index] > bounds[4 * index + 1];
+    }
+
+    boolean intersects(int index, Envelope env) {
+        if (isBoundsNull(index) || env.isNull()) {
+            return false;
+        }
+        final int offset = 4 * index;
+        // same logic as Float32Bounds.intersects, without creating any intermediate object
+        return !(env.getMinX() > bounds[offset + 1] || //
+                env.getMaxX() < bounds[offset] || //
+                env.getMinY() > bounds[offset + 3] || //
+                env.getMaxY() < bounds[offset + 2]);
+    }
+
+    @Nullable
+    Float32Bounds bounds(int index) {
+        if (isBoundsNull(index)) {
+            return null;
+        }
+        final int offset = 4 * index;
+        return Float32Bounds.valueOf(bounds[offset], bounds[offset + 1], bounds[offset + 2],
+                bounds[offset + 3]);
+    }
+
+    /**
+     * Flyweight {@link Node} view over a position of a {@link NodeColumns}
+     */
+    static final class ColumnarNode extends Node {
+
+        private final NodeColumns columns;
+
+        private final int index;
+
+        private String name;
+
+        private ObjectId objectId;
+
+        ColumnarNode(NodeColumns columns, int index) {
+            this.columns = columns;
+            this.index = index;
+        }
+
+        public @Override TYPE getType() {
+            return columns.type;
+        }
+
+        public @Override String getName() {
+            String n = name;
+            if (n == null) {
+                name = n = columns.name(index);
+            }
+            return n;
+        }
+
+        public @Override ObjectId getObjectId() {
+            ObjectId id = objectId;
+            if (id == null) {
+                objectId = id = columns.objectId(index);
+            }
+            return id;
+        }
+
+        /**
+         * @return whether the name or object id of this node have been decoded
+         */
+        @VisibleForTesting
+        boolean isDecoded() {
+            return name != null || objectId != null;
+        }
+
+        public @Override boolean isSameObject(Node other) {
+            if (other instanceof ColumnarNode) {
+                ColumnarNode o = (ColumnarNode) other;
+                return columns.type == o.columns.type
+                        && columns.objectIdEquals(index, o.columns, o.index);
+            }
+            return super.isSameObject(other);
+        }
+
+        protected @Override int compareCanonical(Node other) {
+            if (other instanceof ColumnarNode) {
+                ColumnarNode o = (ColumnarNode) other;
+                return columns.compareNames(index, o.columns, o.index);
+            }
+            return super.compareCanonical(other);
+        }
+
+        public @Override Optional<ObjectId> getMetadataId() {
+            return Optional.ofNullable(columns.metadataId(index));
+        }
+
+        public @Override Map<String, Object> getExtraData() {
+            ExtraData extraData = columns.extraData(index);
+            return extraData == null ? ExtraData.of(null).asMap() : extraData.asMap();
+        }
+
+        public @Override @Nullable Object getExtraData(String key) {
+            ExtraData extraData = columns.extraData(index);
+            return extraData == null ? null : extraData.get(key);
+        }
+
+        public @Override boolean intersects(Envelope env) {
+            return columns.intersects(index, env);
+        }
+
+        public @Override void expand(Envelope env) {
+            Float32Bounds bounds = columns.bounds(index);
+            if (bounds != null) {
+                bounds.expand(env);
+            }
+        }
+
+        public @Override Optional<Envelope> bounds() {
+            Float32Bounds bounds = columns.bounds(index);
+            return Optional.ofNullable(bounds == null ? null : bounds.asEnvelope());
+        }
+    }
+}
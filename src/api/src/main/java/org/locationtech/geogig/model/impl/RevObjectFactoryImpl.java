@@ -83,7 +83,7 @@ public class RevObjectFactoryImpl implements RevObjectFactory {
         return new LeafTree(id, size, f, t);
     }
 
-    private void checkNodes(Node[] nodes, TYPE type) {
+    void checkNodes(Node[] nodes, TYPE type) {
         if (nodes == null) {
             return;
         }
@@ -93,6 +93,69 @@ abstract class RevTreeImpl extends AbstractRevObject implements RevTree {
 
     }
 
+    /**
+     * Leaf tree whose nodes are held in {@link NodeColumns columnar} form
+     */
+    static final class ColumnarLeafTree extends RevTreeImpl {
+
+        private final @Nullable NodeColumns features;
+
+        private final @Nullable NodeColumns trees;
+
+        public ColumnarLeafTree(final ObjectId id, final long size,
+                final @Nullable NodeColumns features, final @Nullable NodeColumns trees) {
+            super(id, size);
+            this.features = features;
+            this.trees = trees;
+        }
+
+        public @Override List<Node> features() {
+            return features == null ? Collections.emptyList() : features.asList();
+        }
+
+        public @Override List<Node> trees() {
+            return trees == null ? Collections.emptyList() : trees.asList();
+        }
+
+        public @Override int numTrees() {
+            return trees == null ? 0 : trees.size();
+        }
+
+        public @Override int treesSize() {
+            return numTrees();// being a leaf tree, numTrees and treesSize are the same
+        }
+
+        public @Override Node getTree(int index) {
+            if (trees == null) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: 0");
+            }
+            return trees.get(index);
+        }
+
+        public @Override void forEachTree(Consumer<Node> consumer) {
+            if (trees != null) {
+                trees.forEach(consumer);
+            }
+        }
+
+        public @Override int featuresSize() {
+            return features == null ? 0 : features.size();
+        }
+
+        public @Override Node getFeature(int index) {
+            if (features == null) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: 0");
+            }
+            return features.get(index);
+        }
+
+        public @Override void forEachFeature(Consumer<Node> consumer) {
+            if (features != null) {
+                features.forEach(consumer);
+            }
+        }
+    }
+
     static final class NodeTree extends RevTreeImpl {
 
         private final int childTreeCount;
@@ -0,0 +1,151 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.UnsignedLongs;
+
+import lombok.NonNull;
+
+/**
+ * Clustering strategy for attribute indexes, partitions the tree by the
+ * {@link AttributeIndexKey key} of the value of a single attribute, which must be
+ * {@link IndexInfo#FEATURE_ATTRIBUTES_EXTRA_DATA materialized} in the nodes' extra data.
+ * <p>
+ * The bucket a node falls into at depth {@code d} is the {@code d}th digit of its attribute value
+ * key, hence the tree is a range partitioned trie in key order, where each bucket holds a
+ * contiguous range of attribute values. Nodes with {@code null} or non indexable values are kept in
+ * the {@link #unpromotableBucketIndex() unpromotables} bucket at depth zero, as well as nodes with
+ * the same key once all its digits have been consumed, both organized canonically beneath it.
+ * <p>
+ * Leaf trees hold their nodes in {@link #KEY_ORDER key order}, so a pre-order traversal of the
+ * buckets, other than the unpromotables one at depth zero, visits the nodes sorted by key.
+ */
+final class AttributeClusteringStrategy extends ClusteringStrategy {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Orders nodes by the unsigned value of their key, {@code null} keys first, and then by
+     * {@link CanonicalClusteringStrategy#CANONICAL_ORDER canonical order}
+     */
+    static final Ordering<NodeId> KEY_ORDER = new Ordering<NodeId>() {
+        public @Override int compare(NodeId left, NodeId right) {
+            final @Nullable Long k1 = left.value();
+            final @Nullable Long k2 = right.value();
+            int c;
+            if (k1 == null) {
+                c = k2 == null ? 0 : -1;
+            } else {
+                c = k2 == null ? 1 : UnsignedLongs.compare(k1.longValue(), k2.longValue());
+            }
+            return c == 0 ? CanonicalClusteringStrategy.CANONICAL_ORDER.compare(left, right) : c;
+        }
+    };
+
+    private final String attributeName;
+
+    AttributeClusteringStrategy(RevTree original, DAGStorageProvider storageProvider,
+            @NonNull String attributeName) {
+        super(original, storageProvider);
+        this.attributeName = attributeName;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    /**
+     * The fixed maximun size of a leaf {@link RevTree}, at any depth, when built as an attribute
+     * index.
+     *
+     * @return {@code 128}
+     */
+    public int normalizedSizeLimit() {
+        return 128;
+    }
+
+    /**
+     * @see #normalizedSizeLimit()
+     */
+    public @Override int normalizedSizeLimit(final int depthIndex) {
+        return normalizedSizeLimit();
+    }
+
+    protected @Override Comparator<NodeId> getNodeOrdering() {
+        return KEY_ORDER;
+    }
+
+    /**
+     * Returns the bucket index in the range {@code [0, RADIX)} corresponding to the key digit of
+     * this node at the specified depth, or {@code -1} if the node has no key or all the key digits
+     * have been consumed.
+     */
+    public @Override int bucket(final NodeId nodeId, final int depthIndex) {
+        final @Nullable Long key = nodeId.value();
+        if (key == null) {
+            return -1;
+        }
+        return AttributeIndexKey.bucket(key.longValue(), depthIndex);
+    }
+
+    protected @Override int unpromotableBucketIndex(final int depthIndex) {
+        return unpromotableBucketIndex();
+    }
+
+    public int unpromotableBucketIndex() {
+        return AttributeIndexKey.RADIX;
+    }
+
+    /**
+     * @return a {@link NodeId} whose {@link NodeId#value() value} is the
+     *         {@link AttributeIndexKey#key(Object) key} of the node's materialized attribute value,
+     *         or {@code null}
+     */
+    public @Override NodeId computeId(final Node node) {
+        @Nullable
+        Object value = IndexInfo.getMaterializedAttribute(attributeName, node);
+        return new NodeId(node.getName(), AttributeIndexKey.key(value));
+    }
+
+    public @Override int put(final Node node) {
+        Preconditions.checkArgument(TYPE.FEATURE == node.getType(),
+                "Can't add non feature nodes to attribute index: %s", node);
+        return super.put(node);
+    }
+
+    /**
+     * Overrides to avoid calling remove and then put when the attribute value didn't change, since
+     * the {@code NodeId} is guaranteed to lay on the same bucket at any depth.
+     */
+    public @Override int update(Node oldNode, Node newNode) {
+        Object oldValue = IndexInfo.getMaterializedAttribute(attributeName, oldNode);
+        Object newValue = IndexInfo.getMaterializedAttribute(attributeName, newNode);
+        if (Objects.equals(AttributeIndexKey.key(oldValue), AttributeIndexKey.key(newValue))) {
+            Preconditions.checkArgument(oldNode.getName().equals(newNode.getName()));
+            int delta = put(newNode);
+            if (delta == 0 && !oldNode.equals(newNode)) {
+                delta = 1;
+            }
+            return delta;
+        }
+        return super.update(oldNode, newNode);
+    }
+}
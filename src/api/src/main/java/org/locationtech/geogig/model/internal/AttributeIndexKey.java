@@ -0,0 +1,177 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Maps attribute values to the order preserving, unsigned 64-bit keys an attribute index tree is
+ * clustered by.
+ * <p>
+ * Keys are computed such that if {@code a < b} then {@code key(a) <= key(b)} (in unsigned order),
+ * for values of the same kind: numbers (compared by their {@code double} value), strings (compared
+ * lexicographically, only the first {@link #STRING_PREFIX_LENGTH} characters are encoded), dates,
+ * and booleans. Hence a bucket, which holds all the keys sharing a given prefix, can be discarded
+ * by range queries whose key range doesn't intersect the bucket's.
+ * <p>
+ * Buckets partition the key space in {@link #RADIX} ranges at each depth, the bucket index at
+ * depth {@code d} being the {@code d}th 4-bit digit of the key, starting from the most significant
+ * one.
+ *
+ * @since 2.0
+ */
+public final class AttributeIndexKey {
+
+    /**
+     * Number of buckets each tree depth partitions the key range into
+     */
+    public static final int RADIX = 16;
+
+    /**
+     * Number of key digits, and hence the maximum depth the tree is partitioned by key value
+     */
+    public static final int MAX_DEPTH = 16;
+
+    /**
+     * Number of string characters encoded in a key
+     */
+    public static final int STRING_PREFIX_LENGTH = 4;
+
+    private AttributeIndexKey() {
+        // static utility class
+    }
+
+    /**
+     * @return whether values of the given type can be indexed
+     */
+    public static boolean isIndexable(Class<?> binding) {
+        return Number.class.isAssignableFrom(binding)
+                || CharSequence.class.isAssignableFrom(binding)
+                || Date.class.isAssignableFrom(binding) || Boolean.class.equals(binding);
+    }
+
+    /**
+     * @return whether distinct values of the given type always map to distinct keys (but for the
+     *         sign of floating point zeros), in which case nodes sorted by key are also sorted by
+     *         value. Not the case for strings, whose keys only encode a prefix, nor for numbers
+     *         not exactly representable as a {@code double}.
+     */
+    public static boolean isUniqueKey(Class<?> binding) {
+        return Byte.class.equals(binding) || Short.class.equals(binding)
+                || Integer.class.equals(binding) || Float.class.equals(binding)
+                || Double.class.equals(binding) || Boolean.class.equals(binding)
+                || (Date.class.isAssignableFrom(binding)
+                        && !Timestamp.class.isAssignableFrom(binding));
+    }
+
+    /**
+     * @return the order preserving key of {@code value}, or {@code null} if it's {@code null} or
+     *         of an unsupported type
+     */
+    public static @Nullable Long key(@Nullable Object value) {
+        if (value instanceof Number) {
+            return key(((Number) value).doubleValue());
+        }
+        if (value instanceof CharSequence) {
+            return key((CharSequence) value);
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime() ^ Long.MIN_VALUE;
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? 1L : 0L;
+        }
+        return null;
+    }
+
+    private static @Nullable Long key(double value) {
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        // normalize -0.0
+        final long bits = Double.doubleToLongBits(value == 0d ? 0d : value);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    private static Long key(CharSequence value) {
+        long key = 0;
+        final int length = value.length();
+        for (int i = 0; i < STRING_PREFIX_LENGTH; i++) {
+            key <<= Character.SIZE;
+            if (i < length) {
+                key |= value.charAt(i);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return the bucket index for {@code key} at the given depth index, in the range
+     *         {@code [0, RADIX)}, or {@code -1} if {@code depthIndex >= MAX_DEPTH}
+     */
+    public static int bucket(long key, int depthIndex) {
+        if (depthIndex >= MAX_DEPTH) {
+            return -1;
+        }
+        final int shift = 4 * (MAX_DEPTH - 1 - depthIndex);
+        return (int) ((key >>> shift) & 0xF);
+    }
+
+    /**
+     * @return the lowest key in the bucket at the given index path, where each element is the
+     *         bucket index at the corresponding depth
+     */
+    public static long lowerBound(int[] bucketPath) {
+        long key = 0;
+        final int depth = prefixLength(bucketPath);
+        for (int i = 0; i < depth; i++) {
+            key |= ((long) bucketPath[i]) << (4 * (MAX_DEPTH - 1 - i));
+        }
+        return key;
+    }
+
+    /**
+     * @return the highest key in the bucket at the given index path, where each element is the
+     *         bucket index at the corresponding depth
+     */
+    public static long upperBound(int[] bucketPath) {
+        final int depth = prefixLength(bucketPath);
+        final long lower = lowerBound(bucketPath);
+        if (depth == 0) {
+            return -1L;
+        }
+        if (depth == MAX_DEPTH) {
+            return lower;
+        }
+        return lower | (-1L >>> (4 * depth));
+    }
+
+    /**
+     * @return whether the bucket at the given index path holds nodes with no key (i.e.
+     *         {@code null} or unsupported values), which are kept in the unpromotables bucket at
+     *         depth zero
+     */
+    public static boolean isNullValues(int[] bucketPath) {
+        return bucketPath.length > 0 && bucketPath[0] == RADIX;
+    }
+
+    private static int prefixLength(int[] bucketPath) {
+        final int max = Math.min(MAX_DEPTH, bucketPath.length);
+        for (int i = 0; i < max; i++) {
+            if (bucketPath[i] >= RADIX) {
+                return i;
+            }
+        }
+        return max;
+    }
+}
@@ -85,6 +85,14 @@ public abstract class ClusteringStrategyBuilder {
         return QuadTreeClusteringStrategyBuilder.buildNodeOrdering(maxBounds);
     }
 
+    public static AttributeClusteringStrategyBuilder attribute(ObjectStore treeStore) {
+        return new AttributeClusteringStrategyBuilder(treeStore);
+    }
+
+    public static NodeOrdering attributeOrdering(String attributeName) {
+        return AttributeClusteringStrategyBuilder.buildNodeOrdering(attributeName);
+    }
+
     public static class CanonicalClusteringStrategyBuilder extends ClusteringStrategyBuilder {
 
         CanonicalClusteringStrategyBuilder(ObjectStore treeStore) {
@@ -174,4 +182,37 @@ public abstract class ClusteringStrategyBuilder {
             return this;
         }
     }
+
+    public static class AttributeClusteringStrategyBuilder extends ClusteringStrategyBuilder {
+
+        private String attributeName;
+
+        AttributeClusteringStrategyBuilder(ObjectStore treeStore) {
+            super(treeStore);
+        }
+
+        public @Override AttributeClusteringStrategyBuilder original(RevTree original) {
+            super.original(original);
+            return this;
+        }
+
+        public @Override AttributeClusteringStrategy build() {
+            return (AttributeClusteringStrategy) super.build();
+        }
+
+        public static NodeOrdering buildNodeOrdering(@NonNull String attributeName) {
+            return new AttributeClusteringStrategy(RevTree.EMPTY, new HeapDAGStorageProvider(null),
+                    attributeName);
+        }
+
+        protected @Override ClusteringStrategy buildInternal(DAGStorageProvider dagStoreProvider) {
+            checkState(attributeName != null, "Index attribute name was not set");
+            return new AttributeClusteringStrategy(original, dagStoreProvider, attributeName);
+        }
+
+        public AttributeClusteringStrategyBuilder attributeName(@NonNull String attributeName) {
+            this.attributeName = attributeName;
+            return this;
+        }
+    }
 }
@@ -11,7 +11,6 @@ package org.locationtech.geogig.model.internal;
 
 import static com.google.common.base.Preconditions.checkState;
 
-import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -24,7 +23,6 @@ import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -41,13 +39,14 @@ import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.model.internal.DAG.STATE;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.base.Throwables;
 
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
-import lombok.extern.slf4j.Slf4j;
 
 /**
  * Builds a {@link RevTree} (immutable data structure) out of a {@link DAG} (mutable data
@@ -58,23 +57,7 @@ import lombok.extern.slf4j.Slf4j;
  * <p>
  * {@link ClusteringStrategy} is responsible of creating the appropriate structure.
  */
-public @Slf4j @UtilityClass class DAGTreeBuilder {
-
-    private static final ForkJoinPool FORK_JOIN_POOL;
-
-    static {
-        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactoryShared = pool -> {
-            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
-                    .newThread(pool);
-            worker.setName("DAGTreeBuilder-shared-" + worker.getPoolIndex());
-            return worker;
-        };
-
-        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
-        UncaughtExceptionHandler eh = (t, e) -> log
-                .error("Uncaught ForkJoinPool exception at thread " + t.getName(), e);
-        FORK_JOIN_POOL = new ForkJoinPool(parallelism, threadFactoryShared, eh, false);
-    }
+public @UtilityClass class DAGTreeBuilder {
 
     private static class SharedState {
         public final ObjectStore targetStore;
@@ -173,6 +156,12 @@ public @Slf4j @UtilityClass class DAGTreeBuilder {
 
     public static @Nullable RevTree build(final @NonNull ClusteringStrategy clusteringStrategy,
             final @NonNull ObjectStore targetStore, final @NonNull BooleanSupplier abortFlag) {
+        return build(clusteringStrategy, targetStore, abortFlag, GeogigScheduler.defaultInstance());
+    }
+
+    public static @Nullable RevTree build(final @NonNull ClusteringStrategy clusteringStrategy,
+            final @NonNull ObjectStore targetStore, final @NonNull BooleanSupplier abortFlag,
+            final @NonNull GeogigScheduler scheduler) {
         SharedState state = new SharedState(targetStore, clusteringStrategy, abortFlag);
 
         final DAG root = clusteringStrategy.buildRoot();
@@ -184,7 +173,7 @@ public @Slf4j @UtilityClass class DAGTreeBuilder {
         @Nullable
         RevTree tree;
         try {
-            ForkJoinPool forkJoinPool = FORK_JOIN_POOL;
+            ForkJoinPool forkJoinPool = scheduler.forkJoinPool(WorkClass.TREE_BUILD);
             tree = forkJoinPool.invoke(task);
         } catch (Exception e) {
             Throwables.throwIfUnchecked(e);
@@ -0,0 +1,149 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.NonNull;
+
+/**
+ * An {@link ExecutorService} view over a {@link GeogigScheduler} executor that runs at most
+ * {@code maxConcurrency} of its tasks at a time, queuing the rest.
+ * <p>
+ * Shutting down this executor does not affect the underlying one, {@link #shutdownNow()} interrupts
+ * only the tasks submitted through this view.
+ */
+final class BoundedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    private final int maxConcurrency;
+
+    private final LongAdder sharedQueueCount;
+
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+
+    private final Set<FutureTask<?>> running = ConcurrentHashMap.newKeySet();
+
+    private int inFlight;
+
+    private boolean shutdown;
+
+    BoundedExecutorService(ExecutorService delegate, int maxConcurrency,
+            LongAdder sharedQueueCount) {
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.sharedQueueCount = sharedQueueCount;
+    }
+
+    public @Override void execute(@NonNull Runnable command) {
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            if (inFlight >= maxConcurrency) {
+                queue.add(command);
+                sharedQueueCount.increment();
+                return;
+            }
+            inFlight++;
+        }
+        dispatch(command);
+    }
+
+    private void dispatch(Runnable command) {
+        final FutureTask<Void> task = new FutureTask<Void>(command, null) {
+            /**
+             * Completion is tracked here rather than in {@code done()}, which a {@code cancel}
+             * call runs right away, while the command may still be running
+             */
+            public @Override void run() {
+                try {
+                    super.run();
+                } finally {
+                    running.remove(this);
+                    taskDone();
+                }
+            }
+        };
+        running.add(task);
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            running.remove(task);
+            taskDone();
+            throw e;
+        }
+    }
+
+    private void taskDone() {
+        final Runnable next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                inFlight--;
+                notifyAll();
+                return;
+            }
+            sharedQueueCount.decrement();
+        }
+        dispatch(next);
+    }
+
+    public @Override synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    public @Override List<Runnable> shutdownNow() {
+        List<Runnable> pending;
+        synchronized (this) {
+            shutdown = true;
+            pending = new ArrayList<>(queue);
+            sharedQueueCount.add(-queue.size());
+            queue.clear();
+        }
+        running.forEach(f -> f.cancel(true));
+        return pending;
+    }
+
+    public @Override synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    public @Override synchronized boolean isTerminated() {
+        return shutdown && inFlight == 0;
+    }
+
+    public @Override synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + remaining;
+        while (!isTerminated()) {
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return true;
+    }
+}
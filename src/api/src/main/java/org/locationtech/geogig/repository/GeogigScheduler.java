@@ -0,0 +1,491 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Central provider of the thread pools used by GeoGig subsystems, so that concurrent operations
+ * share a bounded number of threads per kind of work instead of each subsystem creating its own
+ * pool sized to the number of cores.
+ * <p>
+ * Work is classified in {@link WorkClass work classes}:
+ * <ul>
+ * <li>{@link WorkClass#TREE_BUILD tree-build} and {@link WorkClass#DIFF_WALK diff-walk} are served
+ * by {@link ForkJoinPool}s, as they're recursive, CPU bound tasks.
+ * <li>{@link WorkClass#ENCODE encode} is served by a fixed size thread pool with an unbounded
+ * queue, for CPU bound, non recursive tasks.
+ * <li>{@link WorkClass#STORAGE_IO storage-io} is served by an elastic pool that keeps
+ * {@code parallelism} threads alive and creates more on demand instead of queuing. Storage tasks
+ * are usually producers that block on a consumer running on another thread, so queuing them could
+ * dead-lock. Use {@link #boundedExecutor} to limit the concurrency of a given storage backend.
+ * </ul>
+ * Periodic tasks are run on the executor of their work class through
+ * {@link #scheduleWithFixedDelay}, a single JVM wide timer thread only takes care of triggering
+ * them.
+ * <p>
+ * <h3>Configuration</h3> The {@link #defaultInstance() default instance} sizes each work class
+ * after the number of available processors, and can be overridden by the
+ * {@code geogig.scheduler.<work class>.parallelism} System properties (e.g.
+ * {@code -Dgeogig.scheduler.tree-build.parallelism=4}).
+ * <p>
+ * A repository can be given a different configuration through its {@link Hints}, using the
+ * {@link WorkClass#hintKey() hint key} of each work class, or the {@link Hints#PLATFORM platform}
+ * hint's {@link Platform#availableProcessors() available processors}. {@link #get(Hints)} returns
+ * the same instance for all the hints with the same resolved configuration. Such an instance is
+ * {@link #retain() retained} by each repository opened with it, and its executors are shut down
+ * once the last one {@link #release() releases} it on close.
+ * <p>
+ * The default instance is registered as an MXBean named {@code org.geogig:type=scheduler}, reporting
+ * per work class queue depth and active tasks.
+ *
+ * @since 2.0
+ */
+@Slf4j
+public class GeogigScheduler implements GeogigSchedulerBean {
+
+    public static enum WorkClass {
+        TREE_BUILD("tree-build"), DIFF_WALK("diff-walk"), STORAGE_IO("storage-io"), ENCODE(
+                "encode");
+
+        private final @Getter String name;
+
+        private WorkClass(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the {@link Hints} key to set this work class parallelism as an {@code Integer}
+         */
+        public String hintKey() {
+            return "SCHEDULER_PARALLELISM_" + name();
+        }
+
+        /**
+         * @return the System property name to override the default instance parallelism
+         */
+        public String systemProperty() {
+            return "geogig.scheduler." + name + ".parallelism";
+        }
+
+        boolean isForkJoin() {
+            return this == TREE_BUILD || this == DIFF_WALK;
+        }
+
+        int defaultParallelism(int availableProcessors) {
+            final int cpus = Math.max(2, availableProcessors);
+            return this == STORAGE_IO ? 2 * cpus : cpus;
+        }
+    }
+
+    /**
+     * Point in time statistics for a {@link WorkClass}
+     */
+    public static @Value class WorkClassStats {
+        WorkClass workClass;
+
+        int parallelism;
+
+        long queueDepth;
+
+        int activeTasks;
+    }
+
+    /**
+     * Schedulers by resolved configuration, guarded by itself
+     */
+    private static final Map<List<Integer>, GeogigScheduler> INSTANCES = new HashMap<>();
+
+    private static final UncaughtExceptionHandler UNCAUGHT_EXCEPTION_HANDLER = (t, e) -> log
+            .error("Uncaught exception at thread " + t.getName(), e);
+
+    /**
+     * Triggers the tasks given to {@link #scheduleWithFixedDelay}, which run on their work class
+     * executor
+     */
+    private static final ScheduledExecutorService TIMER = Executors
+            .newSingleThreadScheduledExecutor(
+                    threadFactory("geogig-timer-", UNCAUGHT_EXCEPTION_HANDLER));
+
+    private static final GeogigScheduler DEFAULT;
+    static {
+        DEFAULT = get(null);
+        registerMBean(DEFAULT);
+    }
+
+    private final EnumMap<WorkClass, Integer> parallelism;
+
+    private final List<Integer> key;
+
+    /**
+     * Number of {@link #retain()} calls not yet {@link #release() released}, guarded by
+     * {@link #INSTANCES}
+     */
+    private int references;
+
+    private boolean shutdown;
+
+    private final EnumMap<WorkClass, ExecutorService> executors = new EnumMap<>(WorkClass.class);
+
+    /**
+     * Number of tasks waiting on {@link #boundedExecutor bounded executors}, per work class
+     */
+    private final EnumMap<WorkClass, LongAdder> boundedQueued = new EnumMap<>(WorkClass.class);
+
+    private GeogigScheduler(List<Integer> key, EnumMap<WorkClass, Integer> parallelism) {
+        this.key = key;
+        this.parallelism = parallelism;
+        for (WorkClass wc : WorkClass.values()) {
+            boundedQueued.put(wc, new LongAdder());
+        }
+    }
+
+    /**
+     * @return the JVM wide scheduler configured after the number of available processors and any
+     *         System property override
+     */
+    public static GeogigScheduler defaultInstance() {
+        return DEFAULT;
+    }
+
+    /**
+     * Resolves the scheduler for the given hints, which is the {@link #defaultInstance() default
+     * instance} unless the hints provide a different configuration.
+     */
+    public static GeogigScheduler get(@Nullable Hints hints) {
+        final int availableProcessors = resolveAvailableProcessors(hints);
+        EnumMap<WorkClass, Integer> config = new EnumMap<>(WorkClass.class);
+        for (WorkClass wc : WorkClass.values()) {
+            config.put(wc, resolveParallelism(wc, hints, availableProcessors));
+        }
+        List<Integer> key = Arrays.asList(config.values().toArray(new Integer[0]));
+        synchronized (INSTANCES) {
+            return INSTANCES.computeIfAbsent(key, k -> new GeogigScheduler(k, config));
+        }
+    }
+
+    /**
+     * Shorthand for {@code get(hints).retain()} that can't race with the last {@link #release()}
+     * of the same configuration.
+     */
+    public static GeogigScheduler acquire(@Nullable Hints hints) {
+        synchronized (INSTANCES) {
+            return get(hints).retain();
+        }
+    }
+
+    /**
+     * Keeps this scheduler's executors alive until a matching call to {@link #release()}. Called
+     * by a repository when it's opened.
+     * 
+     * @return {@code this}
+     * @throws IllegalStateException if this scheduler was already shut down
+     */
+    public GeogigScheduler retain() {
+        synchronized (INSTANCES) {
+            checkState(INSTANCES.get(key) == this, "scheduler is shut down");
+            references++;
+        }
+        return this;
+    }
+
+    /**
+     * Releases a previous {@link #retain()}. Once no references are left the scheduler is no
+     * longer handed out by {@link #get(Hints)} and its executors are shut down, except for the
+     * {@link #defaultInstance() default instance} which lives as long as the JVM.
+     */
+    public void release() {
+        synchronized (INSTANCES) {
+            checkState(references > 0, "scheduler was not retained");
+            if (--references > 0 || this == DEFAULT) {
+                return;
+            }
+            INSTANCES.remove(key);
+        }
+        shutdown();
+    }
+
+    private synchronized void shutdown() {
+        shutdown = true;
+        executors.values().forEach(ExecutorService::shutdown);
+        log.debug("Shut down scheduler with parallelism {}", parallelism);
+    }
+
+    private static int resolveAvailableProcessors(@Nullable Hints hints) {
+        Optional<Platform> platform = hints == null ? Optional.empty()
+                : hints.get(Hints.PLATFORM).filter(Platform.class::isInstance)
+                        .map(Platform.class::cast);
+        return platform.map(Platform::availableProcessors)
+                .orElseGet(() -> Runtime.getRuntime().availableProcessors());
+    }
+
+    private static int resolveParallelism(WorkClass wc, @Nullable Hints hints,
+            int availableProcessors) {
+        if (hints != null) {
+            Optional<Integer> hint = hints.get(wc.hintKey()).filter(Integer.class::isInstance)
+                    .map(Integer.class::cast);
+            if (hint.isPresent()) {
+                checkArgument(hint.get().intValue() > 0, "%s must be > 0: %s", wc.hintKey(),
+                        hint.get());
+                return hint.get().intValue();
+            }
+        }
+        String sysProp = System.getProperty(wc.systemProperty());
+        if (!Strings.isNullOrEmpty(sysProp)) {
+            try {
+                int value = Integer.parseInt(sysProp.trim());
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // fall back to default
+            }
+            log.warn("Ignoring invalid System property {}={}", wc.systemProperty(), sysProp);
+        }
+        return wc.defaultParallelism(availableProcessors);
+    }
+
+    public int parallelism(@NonNull WorkClass workClass) {
+        return parallelism.get(workClass).intValue();
+    }
+
+    /**
+     * @return the executor service for the given work class, which is a {@link ForkJoinPool} for
+     *         {@link WorkClass#TREE_BUILD tree-build} and {@link WorkClass#DIFF_WALK diff-walk}.
+     *         Its lifecycle is managed by the scheduler, so calling {@code shutdown()} on it is an
+     *         error.
+     */
+    public synchronized ExecutorService executor(@NonNull WorkClass workClass) {
+        if (shutdown) {
+            throw new RejectedExecutionException("scheduler is shut down");
+        }
+        return executors.computeIfAbsent(workClass, this::create);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code workClass} is not served by a fork-join pool
+     */
+    public ForkJoinPool forkJoinPool(@NonNull WorkClass workClass) {
+        checkArgument(workClass.isForkJoin(), "%s is not a fork-join work class", workClass);
+        return (ForkJoinPool) executor(workClass);
+    }
+
+    /**
+     * Creates an executor service that runs its tasks on the {@code workClass} executor but never
+     * more than {@code maxConcurrency} at the same time, queuing the rest. Shutting it down only
+     * affects the tasks submitted through it.
+     */
+    public ExecutorService boundedExecutor(@NonNull WorkClass workClass, int maxConcurrency) {
+        checkArgument(maxConcurrency > 0, "maxConcurrency must be > 0");
+        return new BoundedExecutorService(executor(workClass), maxConcurrency,
+                boundedQueued.get(workClass));
+    }
+
+    /**
+     * Runs {@code task} on the {@code workClass} executor, first after {@code initialDelay} and
+     * then with {@code delay} between the end of a run and the start of the next one, the same as
+     * {@link ScheduledExecutorService#scheduleWithFixedDelay}. If a run throws an exception the
+     * task is not run again, and the returned future completes with that exception.
+     *
+     * @return a future that can be cancelled to stop running the task, and never completes
+     *         normally
+     */
+    public Future<?> scheduleWithFixedDelay(@NonNull WorkClass workClass, @NonNull Runnable task,
+            long initialDelay, long delay, @NonNull TimeUnit unit) {
+        checkArgument(initialDelay >= 0, "initialDelay must be >= 0");
+        checkArgument(delay > 0, "delay must be > 0");
+        PeriodicTask periodic = new PeriodicTask(executor(workClass), task, delay, unit);
+        periodic.schedule(initialDelay);
+        return periodic;
+    }
+
+    private static class PeriodicTask extends CompletableFuture<Void> implements Runnable {
+
+        private final ExecutorService executor;
+
+        private final Runnable task;
+
+        private final long delay;
+
+        private final TimeUnit unit;
+
+        PeriodicTask(ExecutorService executor, Runnable task, long delay, TimeUnit unit) {
+            this.executor = executor;
+            this.task = task;
+            this.delay = delay;
+            this.unit = unit;
+        }
+
+        void schedule(long delay) {
+            if (!isDone()) {
+                TIMER.schedule(this::submit, delay, unit);
+            }
+        }
+
+        private void submit() {
+            if (!isDone()) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    completeExceptionally(e);
+                }
+            }
+        }
+
+        public @Override void run() {
+            if (isDone()) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                completeExceptionally(e);
+                return;
+            }
+            schedule(delay);
+        }
+    }
+
+    public WorkClassStats stats(@NonNull WorkClass workClass) {
+        final int parallelism = parallelism(workClass);
+        final ExecutorService executor;
+        synchronized (this) {
+            executor = executors.get(workClass);
+        }
+        long queueDepth = boundedQueued.get(workClass).sum();
+        int active = 0;
+        if (executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            queueDepth += pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+            active = pool.getActiveThreadCount();
+        } else if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            queueDepth += pool.getQueue().size();
+            active = pool.getActiveCount();
+        }
+        return new WorkClassStats(workClass, parallelism, queueDepth, active);
+    }
+
+    public @Override Map<String, Integer> getParallelism() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (WorkClass wc : WorkClass.values()) {
+            map.put(wc.getName(), parallelism(wc));
+        }
+        return map;
+    }
+
+    public @Override Map<String, Long> getQueueDepth() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (WorkClass wc : WorkClass.values()) {
+            map.put(wc.getName(), stats(wc).getQueueDepth());
+        }
+        return map;
+    }
+
+    public @Override Map<String, Integer> getActiveTasks() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (WorkClass wc : WorkClass.values()) {
+            map.put(wc.getName(), stats(wc).getActiveTasks());
+        }
+        return map;
+    }
+
+    private ExecutorService create(WorkClass workClass) {
+        final int parallelism = parallelism(workClass);
+        final String namePrefix = "geogig-" + workClass.getName() + "-";
+        final UncaughtExceptionHandler eh = UNCAUGHT_EXCEPTION_HANDLER;
+        log.debug("Creating {} executor with parallelism {}", workClass.getName(), parallelism);
+        switch (workClass) {
+        case TREE_BUILD:
+        case DIFF_WALK: {
+            ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+                final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                        .newThread(pool);
+                worker.setName(namePrefix + worker.getPoolIndex());
+                return worker;
+            };
+            // diff walks emit events to consumers, async (FIFO) mode is more appropriate for
+            // event-style tasks
+            final boolean asyncMode = workClass == WorkClass.DIFF_WALK;
+            return new ForkJoinPool(parallelism, threadFactory, eh, asyncMode);
+        }
+        case ENCODE: {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60L,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory(namePrefix, eh));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+        case STORAGE_IO: {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, Integer.MAX_VALUE,
+                    60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    threadFactory(namePrefix, eh));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+        default:
+            throw new IllegalArgumentException("Unknown work class: " + workClass);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String namePrefix,
+            UncaughtExceptionHandler eh) {
+        return new ThreadFactoryBuilder().setDaemon(true).setNameFormat(namePrefix + "%d")
+                .setUncaughtExceptionHandler(eh).build();
+    }
+
+    private static void registerMBean(GeogigScheduler scheduler) {
+        MBeanServer mbeanserver = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName beanName = new ObjectName("org.geogig:type=scheduler");
+            mbeanserver.registerMBean(scheduler, beanName);
+            log.info("Registered GeoGig scheduler MBean as " + beanName);
+        } catch (Exception e) {
+            log.warn("Unable to register GeoGig scheduler MBean", e);
+        }
+    }
+}
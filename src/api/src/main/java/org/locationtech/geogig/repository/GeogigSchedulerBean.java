@@ -0,0 +1,42 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.repository;
+
+import java.util.Map;
+
+import javax.management.MXBean;
+
+/**
+ * Interface for monitoring the {@link GeogigScheduler#defaultInstance() default}
+ * {@link GeogigScheduler} through a MBeans client such as JConsole.
+ * <p>
+ * All maps are keyed by {@link GeogigScheduler.WorkClass#getName() work class name}.
+ * 
+ * @see GeogigScheduler
+ * @since 2.0
+ */
+@MXBean
+public interface GeogigSchedulerBean {
+
+    /**
+     * @return the configured number of threads per work class
+     */
+    Map<String, Integer> getParallelism();
+
+    /**
+     * @return the number of tasks waiting to be executed per work class
+     */
+    Map<String, Long> getQueueDepth();
+
+    /**
+     * @return the approximate number of threads actively executing tasks per work class
+     */
+    Map<String, Integer> getActiveTasks();
+}
@@ -54,6 +54,13 @@ public class Hints implements Serializable {
      */
     public static final String PLATFORM = "PLATFORM";
 
+    /**
+     * Key for the {@code Boolean} hint to fetch trees ahead of time and in large batches when
+     * computing diffs, which pays off with storage backends where each read is a round trip to a
+     * remote server.
+     */
+    public static final String DIFF_PREFETCH = "DIFF_PREFETCH";
+
     private Map<String, Serializable> hintsMap = new HashMap<>();
 
     public Hints() {
@@ -31,7 +31,12 @@ import lombok.ToString;
 
 public @ToString final class IndexInfo {
     public static enum IndexType {
-        QUADTREE
+        QUADTREE,
+        /**
+         * Clusters the feature tree by the value of a single, non geometry, attribute, with buckets
+         * partitioning the attribute's value range
+         */
+        ATTRIBUTE
     }
 
     /**
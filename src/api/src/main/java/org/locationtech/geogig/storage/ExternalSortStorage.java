@@ -0,0 +1,39 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+/**
+ * Temporary key/value storage where an external merge sort spills its sorted runs once they exceed
+ * its memory budget.
+ * <p>
+ * Keys are iterated in unsigned lexicographical order. Instances are not meant to be shared, and
+ * are discarded, along with any resource they hold, through {@link #dispose()}.
+ *
+ * @see ExternalSortStorageFactory
+ * @since 2.0
+ */
+public interface ExternalSortStorage {
+
+    /**
+     * Saves the given key/value pair, replacing any previous value for the same key
+     */
+    public void put(byte[] key, byte[] value);
+
+    /**
+     * @return the values of all the keys starting with {@code keyPrefix}, in unsigned
+     *         lexicographical key order
+     */
+    public AutoCloseableIterator<byte[]> values(byte[] keyPrefix);
+
+    /**
+     * Releases all the resources held by this storage, which can't be used afterwards
+     */
+    public void dispose();
+}
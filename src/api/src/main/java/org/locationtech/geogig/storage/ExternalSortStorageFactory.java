@@ -0,0 +1,35 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import org.locationtech.geogig.model.PriorityService;
+import org.locationtech.geogig.model.ServiceFinder;
+
+/**
+ * Service provider interface for {@link ExternalSortStorage}, the default implementation is looked
+ * up through {@link ServiceFinder}, either by the {@code SORT_STORAGE_FACTORY} environment
+ * variable or system property, or the one with the highest {@link #getPriority() priority}.
+ *
+ * @since 2.0
+ */
+public interface ExternalSortStorageFactory extends PriorityService {
+
+    public static final String ENV_VARIABLE = "SORT_STORAGE_FACTORY";
+
+    public ExternalSortStorage newInstance();
+
+    public static ExternalSortStorageFactory defaultInstance() {
+        ServiceFinder serviceFinder = new ServiceFinder().environmentVariable(ENV_VARIABLE)
+                .systemProperty(ENV_VARIABLE);
+        ExternalSortStorageFactory factory = serviceFinder
+                .lookupDefaultService(ExternalSortStorageFactory.class);
+        return factory;
+    }
+}
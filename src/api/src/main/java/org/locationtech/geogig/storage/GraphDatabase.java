@@ -31,6 +31,12 @@ public interface GraphDatabase extends Store {
      */
     public static final String SPARSE_FLAG = "sparse";
 
+    /**
+     * Value returned by {@link #getGeneration(ObjectId)} when the generation number of a commit is
+     * not known
+     */
+    public static final int GENERATION_UNKNOWN = 0;
+
     /**
      * Enumeration describing a relationship direction between two {@code GraphNode}s.
      */
@@ -181,12 +187,45 @@ public interface GraphDatabase extends Store {
     /**
      * Gets the number of ancestors of the commit until it reaches one with no parents, for example
      * the root or an orphaned commit.
+     * <p>
+     * Implementations persist the depth of each commit whose ancestry is complete when it's
+     * {@link #put added}, making this a lookup, and resort to traversing the graph otherwise.
      * 
      * @param commitId the commit id to start from
      * @return the depth of the commit
      */
     public int getDepth(final ObjectId commitId);
 
+    /**
+     * Gets the generation number of the commit: {@code 1} for root commits and
+     * {@code 1 + max(parent generations)} otherwise.
+     * <p>
+     * A commit's generation number is always greater than any of its ancestors', hence history
+     * traversals can stop at commits with a lower generation than the ones they're looking for.
+     * 
+     * @param commitId the commit id
+     * @return the generation number of the commit, or {@link #GENERATION_UNKNOWN} if it's not
+     *         known, for example if the commit is not in the graph, any of its ancestors is missing
+     *         (e.g. in a shallow clone), or the graph was created before generation numbers were
+     *         introduced and has not been {@link #updateGeneration updated}
+     */
+    public default int getGeneration(ObjectId commitId) {
+        return GENERATION_UNKNOWN;
+    }
+
+    /**
+     * Recomputes and stores the generation number and depth of the given commit out of its
+     * parents', and of its descendants if they changed as a result.
+     * <p>
+     * {@link #put} already does this for the added commits, this method allows to backfill the
+     * graph entries created before generation numbers were introduced.
+     * 
+     * @param commitId the id of a commit already in the graph
+     */
+    public default void updateGeneration(ObjectId commitId) {
+        // no-op by default
+    }
+
     /**
      * Set a property on the provided commit node.
      * 
@@ -9,7 +9,6 @@
  */
 package org.locationtech.geogig.storage;
 
-import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -18,44 +17,28 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.storage.IndexDatabase.IndexTreeMapping;
 
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
 
-import lombok.extern.slf4j.Slf4j;
+import lombok.NonNull;
 
 /**
  * Helper class to copy all the spatial indexes from one {@link IndexDatabase} to another.
  * 
  * @see IndexDatabase#copyIndexesTo(IndexDatabase)
  */
-public @Slf4j class IndexDuplicator {
-
-    private static final ForkJoinPool FORK_JOIN_POOL;
-
-    static {
-        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactoryShared = pool -> {
-            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
-                    .newThread(pool);
-            worker.setName("Index-duplicator-" + worker.getPoolIndex());
-            return worker;
-        };
-
-        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
-        UncaughtExceptionHandler eh = (t, e) -> log
-                .error("Uncaught ForkJoinPool exception at thread " + t.getName(), e);
-
-        FORK_JOIN_POOL = new ForkJoinPool(parallelism, threadFactoryShared, eh, false);
-    }
+public class IndexDuplicator {
 
     private final IndexDatabase srcIndex;
 
@@ -63,22 +46,35 @@ public @Slf4j class IndexDuplicator {
 
     private IndexInfo index;
 
+    private GeogigScheduler scheduler;
+
     public IndexDuplicator(IndexDatabase srcIndex, IndexDatabase targetIndex) {
         this(srcIndex, targetIndex, null);
     }
 
     public IndexDuplicator(IndexDatabase srcIndex, IndexDatabase targetIndex, IndexInfo index) {
+        this(srcIndex, targetIndex, index, GeogigScheduler.defaultInstance());
+    }
+
+    /**
+     * @param scheduler the scheduler whose {@link WorkClass#TREE_BUILD tree-build} pool copies the
+     *        indexes
+     */
+    public IndexDuplicator(IndexDatabase srcIndex, IndexDatabase targetIndex, IndexInfo index,
+            @NonNull GeogigScheduler scheduler) {
         this.srcIndex = srcIndex;
         this.targetIndex = targetIndex;
         this.index = index;
+        this.scheduler = scheduler;
     }
 
     public void run() {
+        final ForkJoinPool forkJoinPool = scheduler.forkJoinPool(WorkClass.TREE_BUILD);
         List<ForkJoinTask<?>> tasks = new ArrayList<>();
         List<IndexInfo> indexInfos = index == null ? srcIndex.getIndexInfos()
                 : Collections.singletonList(index);
         for (IndexInfo index : indexInfos) {
-            ForkJoinTask<Void> task = FORK_JOIN_POOL
+            ForkJoinTask<Void> task = forkJoinPool
                     .submit(new IndexCopyTask(index, srcIndex, targetIndex));
             tasks.add(task);
         }
@@ -236,6 +236,19 @@ public interface ObjectStore extends Store {
      */
     public void deleteAll(Iterator<ObjectId> ids, BulkOpListener listener);
 
+    /**
+     * Returns the ids of all the objects in this store, in no particular order.
+     * <p>
+     * Meant for maintenance tasks that need to visit the whole store, like garbage collection.
+     * Objects added or deleted while the iterator is being consumed may or may not be reported.
+     * 
+     * @throws UnsupportedOperationException if this kind of store can't enumerate its contents
+     */
+    public default AutoCloseableIterator<ObjectId> getAllIds() {
+        throw new UnsupportedOperationException(
+                getClass().getSimpleName() + " does not support enumerating its objects");
+    }
+
     @Beta
     public <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
             Iterator<NodeRef> nodes, BulkOpListener listener, Class<T> type);
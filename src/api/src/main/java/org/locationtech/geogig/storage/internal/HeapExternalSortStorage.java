@@ -0,0 +1,70 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.internal;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ExternalSortStorage;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Heap based {@link ExternalSortStorage}, only useful as a fallback when no disk based
+ * implementation is available, since it doesn't really relieve the heap from holding the spilled
+ * runs.
+ */
+class HeapExternalSortStorage implements ExternalSortStorage {
+
+    private NavigableMap<byte[], byte[]> map = new ConcurrentSkipListMap<>(
+            UnsignedBytes.lexicographicalComparator());
+
+    public @Override void put(byte[] key, byte[] value) {
+        map.put(key.clone(), value.clone());
+    }
+
+    public @Override AutoCloseableIterator<byte[]> values(byte[] keyPrefix) {
+        final Iterator<Entry<byte[], byte[]>> entries = map.tailMap(keyPrefix, true).entrySet()
+                .iterator();
+        // entries are sorted, so stop at the first one not matching the prefix
+        Iterator<byte[]> values = new AbstractIterator<byte[]>() {
+            protected @Override byte[] computeNext() {
+                if (entries.hasNext()) {
+                    Entry<byte[], byte[]> next = entries.next();
+                    if (startsWith(next.getKey(), keyPrefix)) {
+                        return next.getValue();
+                    }
+                }
+                return endOfData();
+            }
+        };
+        return AutoCloseableIterator.fromIterator(values);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public @Override void dispose() {
+        map.clear();
+    }
+}
@@ -0,0 +1,27 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.internal;
+
+import org.locationtech.geogig.storage.ExternalSortStorage;
+import org.locationtech.geogig.storage.ExternalSortStorageFactory;
+
+public class HeapExternalSortStorageFactory implements ExternalSortStorageFactory {
+
+    /**
+     * @return {@code 0}, lowest priority
+     */
+    public @Override int getPriority() {
+        return 0;
+    }
+
+    public @Override ExternalSortStorage newInstance() {
+        return new HeapExternalSortStorage();
+    }
+}
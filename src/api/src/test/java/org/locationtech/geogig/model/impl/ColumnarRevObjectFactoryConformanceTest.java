@@ -0,0 +1,21 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevObjectFactoryConformanceTest;
+
+public class ColumnarRevObjectFactoryConformanceTest extends RevObjectFactoryConformanceTest {
+
+    protected @Override RevObjectFactory newFactory() {
+        return new ColumnarRevObjectFactory();
+    }
+
+}
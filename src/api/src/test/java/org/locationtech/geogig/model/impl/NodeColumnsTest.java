@@ -0,0 +1,94 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.impl.NodeColumns.ColumnarNode;
+
+public class NodeColumnsTest {
+
+    private final RevObjectFactory factory = new RevObjectFactoryImpl();
+
+    private List<Node> nodes(int from, int to, long idSeed) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ObjectId id = ObjectId.create(i, idSeed, i * 31L);
+            nodes.add(factory.createNode("node-" + i, id, ObjectId.NULL, TYPE.FEATURE, null,
+                    null));
+        }
+        nodes.sort(CanonicalNodeOrder.INSTANCE);
+        return nodes;
+    }
+
+    @Test
+    public void testCanonicalOrderAndSameObject() {
+        // overlapping names, half of the common ones pointing to the same objects
+        List<Node> left = nodes(0, 100, 1);
+        List<Node> right = nodes(50, 75, 1);
+        right.addAll(nodes(75, 150, 2));
+        right.sort(CanonicalNodeOrder.INSTANCE);
+        NodeColumns leftColumns = NodeColumns.of(TYPE.FEATURE, left);
+        NodeColumns rightColumns = NodeColumns.of(TYPE.FEATURE, right);
+
+        for (int l = 0; l < left.size(); l++) {
+            for (int r = 0; r < right.size(); r++) {
+                Node expectedLeft = left.get(l);
+                Node expectedRight = right.get(r);
+                Node columnarLeft = leftColumns.get(l);
+                Node columnarRight = rightColumns.get(r);
+
+                int expected = CanonicalNodeOrder.INSTANCE.compare(expectedLeft, expectedRight);
+                int actual = CanonicalNodeOrder.INSTANCE.compare(columnarLeft, columnarRight);
+                assertEquals(Integer.signum(expected), Integer.signum(actual));
+                assertEquals(expectedLeft.isSameObject(expectedRight),
+                        columnarLeft.isSameObject(columnarRight));
+
+                // resolved against the columns, without decoding names nor ids
+                assertFalse(((ColumnarNode) columnarLeft).isDecoded());
+                assertFalse(((ColumnarNode) columnarRight).isDecoded());
+            }
+        }
+    }
+
+    @Test
+    public void testMixedNodeImplementations() {
+        List<Node> nodes = nodes(0, 10, 1);
+        NodeColumns columns = NodeColumns.of(TYPE.FEATURE, nodes);
+        for (int i = 0; i < nodes.size(); i++) {
+            Node columnar = columns.get(i);
+            assertEquals(0, CanonicalNodeOrder.INSTANCE.compare(columnar, nodes.get(i)));
+            assertEquals(0, CanonicalNodeOrder.INSTANCE.compare(nodes.get(i), columnar));
+            assertTrue(columnar.isSameObject(nodes.get(i)));
+            assertTrue(nodes.get(i).isSameObject(columnar));
+        }
+    }
+
+    @Test
+    public void testDecodedOnce() {
+        NodeColumns columns = NodeColumns.of(TYPE.FEATURE, nodes(0, 1, 1));
+        Node node = columns.get(0);
+        assertFalse(((ColumnarNode) node).isDecoded());
+        assertTrue(node.getObjectId() == node.getObjectId());
+        assertTrue(node.getName() == node.getName());
+        assertTrue(((ColumnarNode) node).isDecoded());
+    }
+}
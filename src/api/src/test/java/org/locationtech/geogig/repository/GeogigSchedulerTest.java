@@ -0,0 +1,219 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClassStats;
+
+public class GeogigSchedulerTest {
+
+    @Test
+    public void testDefaultInstance() {
+        GeogigScheduler scheduler = GeogigScheduler.defaultInstance();
+        assertSame(scheduler, GeogigScheduler.get(null));
+        assertSame(scheduler, GeogigScheduler.get(new Hints()));
+        for (WorkClass wc : WorkClass.values()) {
+            assertTrue(scheduler.parallelism(wc) >= 2);
+            assertSame(scheduler.executor(wc), scheduler.executor(wc));
+        }
+        assertTrue(scheduler.executor(WorkClass.TREE_BUILD) instanceof ForkJoinPool);
+        assertTrue(scheduler.executor(WorkClass.DIFF_WALK) instanceof ForkJoinPool);
+        assertNotSame(scheduler.executor(WorkClass.TREE_BUILD),
+                scheduler.executor(WorkClass.DIFF_WALK));
+    }
+
+    @Test
+    public void testForkJoinPoolIllegalWorkClass() {
+        try {
+            GeogigScheduler.defaultInstance().forkJoinPool(WorkClass.STORAGE_IO);
+            fail("Expected IAE");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("STORAGE_IO"));
+        }
+    }
+
+    @Test
+    public void testHintsParallelism() {
+        Hints hints = new Hints();
+        hints.set(WorkClass.TREE_BUILD.hintKey(), Integer.valueOf(3));
+        GeogigScheduler scheduler = GeogigScheduler.get(hints);
+        assertNotSame(GeogigScheduler.defaultInstance(), scheduler);
+        assertSame(scheduler, GeogigScheduler.get(hints));
+        assertEquals(3, scheduler.parallelism(WorkClass.TREE_BUILD));
+        assertEquals(3, scheduler.forkJoinPool(WorkClass.TREE_BUILD).getParallelism());
+        assertEquals(GeogigScheduler.defaultInstance().parallelism(WorkClass.DIFF_WALK),
+                scheduler.parallelism(WorkClass.DIFF_WALK));
+    }
+
+    @Test
+    public void testRetainRelease() {
+        Hints hints = new Hints();
+        hints.set(WorkClass.TREE_BUILD.hintKey(), Integer.valueOf(5));
+        GeogigScheduler scheduler = GeogigScheduler.acquire(hints);
+        assertSame(scheduler, GeogigScheduler.acquire(hints));
+        ForkJoinPool pool = scheduler.forkJoinPool(WorkClass.TREE_BUILD);
+
+        scheduler.release();
+        assertFalse(pool.isShutdown());
+        assertSame(scheduler, GeogigScheduler.get(hints));
+
+        scheduler.release();
+        assertTrue(pool.isShutdown());
+        assertThrows(RejectedExecutionException.class,
+                () -> scheduler.executor(WorkClass.ENCODE));
+        assertThrows(IllegalStateException.class, () -> scheduler.retain());
+        assertThrows(IllegalStateException.class, () -> scheduler.release());
+
+        GeogigScheduler recreated = GeogigScheduler.get(hints);
+        assertNotSame(scheduler, recreated);
+        assertFalse(recreated.forkJoinPool(WorkClass.TREE_BUILD).isShutdown());
+    }
+
+    @Test
+    public void testDefaultInstanceNotShutDownOnRelease() {
+        GeogigScheduler scheduler = GeogigScheduler.acquire(null);
+        assertSame(GeogigScheduler.defaultInstance(), scheduler);
+        scheduler.release();
+        assertFalse(scheduler.executor(WorkClass.TREE_BUILD).isShutdown());
+        assertSame(scheduler, GeogigScheduler.get(null));
+    }
+
+    @Test
+    public void testBoundedExecutor() throws Exception {
+        final int maxConcurrency = 2;
+        ExecutorService executor = GeogigScheduler.defaultInstance()
+                .boundedExecutor(WorkClass.STORAGE_IO, maxConcurrency);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        WorkClassStats stats = GeogigScheduler.defaultInstance().stats(WorkClass.STORAGE_IO);
+        assertTrue(stats.getQueueDepth() >= 8);
+
+        release.countDown();
+        for (Future<?> f : futures) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(maxConcurrency, maxRunning.get());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertTrue(executor.shutdownNow().isEmpty());
+    }
+
+    @Test
+    public void testBoundedExecutorShutdownNow() throws Exception {
+        ExecutorService executor = GeogigScheduler.defaultInstance()
+                .boundedExecutor(WorkClass.ENCODE, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            // keep working for a while after being interrupted
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.submit(() -> {
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.shutdownNow().size());
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        // not terminated until the cancelled task actually stops running
+        assertFalse(executor.isTerminated());
+        assertFalse(executor.awaitTermination(10, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // the shared executor is not affected
+        assertEquals("ok", GeogigScheduler.defaultInstance().executor(WorkClass.ENCODE)
+                .submit(() -> "ok").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testScheduleWithFixedDelay() throws Exception {
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        final CountDownLatch runs = new CountDownLatch(3);
+        Future<?> future = GeogigScheduler.defaultInstance().scheduleWithFixedDelay(
+                WorkClass.STORAGE_IO, () -> {
+                    threads.add(Thread.currentThread().getName());
+                    runs.countDown();
+                }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        for (String thread : threads) {
+            assertTrue(thread, thread.startsWith("geogig-storage-io-"));
+        }
+        final int count = threads.size();
+        Thread.sleep(100);
+        // at most a run that was already submitted when cancelled
+        assertTrue(threads.size() <= count + 1);
+    }
+
+    @Test
+    public void testScheduleWithFixedDelayStopsOnError() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        Future<?> future = GeogigScheduler.defaultInstance().scheduleWithFixedDelay(
+                WorkClass.ENCODE, () -> {
+                    runs.incrementAndGet();
+                    throw new IllegalStateException("failed");
+                }, 0, 10, TimeUnit.MILLISECONDS);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Thread.sleep(100);
+        assertEquals(1, runs.get());
+    }
+}
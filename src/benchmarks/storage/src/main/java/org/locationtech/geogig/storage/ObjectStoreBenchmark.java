@@ -0,0 +1,101 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.geogig.model.RevObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reports the throughput of the {@link ObjectStore} operations for each backend, over synthetic
+ * feature-heavy or tree-heavy datasets.
+ * <p>
+ * Single object operations are reported as operations per second, batch and streaming ones as
+ * the average time per batch or full dataset traversal respectively.
+ * 
+ * @see ObjectStoreBenchmarkState
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms1G", "-Xmx4G" })
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class ObjectStoreBenchmark {
+
+    public @Benchmark void get(Blackhole bh, ObjectStoreBenchmarkState state) {
+        bh.consume(state.store().get(state.randomId()));
+    }
+
+    public @Benchmark void put(Blackhole bh, ObjectStoreBenchmarkState state) {
+        bh.consume(state.store().put(state.newObject()));
+    }
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public @Benchmark void getAll(Blackhole bh, ObjectStoreBenchmarkState state) {
+        Iterator<RevObject> objects = state.store().getAll(state.randomIds());
+        objects.forEachRemaining(bh::consume);
+    }
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public @Benchmark void putAll(ObjectStoreBenchmarkState state) {
+        List<RevObject> objects = state.newObjects();
+        state.store().putAll(objects.iterator());
+    }
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public @Benchmark void getObjects(Blackhole bh, ObjectStoreBenchmarkState state) {
+        try (AutoCloseableIterator<ObjectInfo<RevObject>> objects = state.store().getObjects(
+                state.refs().iterator(), BulkOpListener.NOOP_LISTENER, RevObject.class)) {
+            objects.forEachRemaining(bh::consume);
+        }
+    }
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public @Benchmark void getDiffObjects(Blackhole bh, ObjectStoreBenchmarkState state) {
+        try (AutoCloseableIterator<DiffObjectInfo<RevObject>> objects = state.store()
+                .getDiffObjects(state.diffs().iterator(), RevObject.class)) {
+            objects.forEachRemaining(bh::consume);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()//
+                .include(ObjectStoreBenchmark.class.getSimpleName())//
+                .warmupIterations(1)//
+                .measurementIterations(3)//
+                .forks(0)//
+                .param("storeType", "heap", "rocksdb")//
+                .param("datasetSize", "10000")//
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,174 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.rocksdb.RocksdbObjectDatabase;
+import org.locationtech.geogig.storage.SyntheticDataset.Workload;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.geogig.storage.postgresql.config.Environment;
+import org.locationtech.geogig.storage.postgresql.config.EnvironmentBuilder;
+import org.locationtech.geogig.storage.postgresql.config.PGStorage;
+import org.locationtech.geogig.storage.postgresql.v9.PGConfigDatabase;
+import org.locationtech.geogig.storage.postgresql.v9.PGObjectDatabase;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+
+/**
+ * Benchmark state for {@link ObjectStoreBenchmark}, creates an {@link ObjectStore} of the
+ * requested {@link #storeType} and pre-loads it with {@link #datasetSize} synthetic objects of
+ * the requested {@link #workload}, generated from {@link #seed}.
+ * <p>
+ * The {@code postgres} store type requires a local PostgreSQL database, given by the
+ * {@code geogig.benchmarks.pgURI} System property as a repository URI (e.g.
+ * {@code postgresql://localhost:5432/geogig/public/benchmarks?user=geogig&password=geogig}).
+ * The repository is deleted after the benchmark.
+ */
+@State(Scope.Benchmark)
+public class ObjectStoreBenchmarkState {
+
+    @Param(value = { "heap", "rocksdb", "postgres" })
+    public String storeType;
+
+    @Param(value = { "features", "trees" })
+    public Workload workload;
+
+    @Param(value = { "100000" })
+    public int datasetSize;
+
+    @Param(value = { "10", "100", "1000" })
+    public int batchSize;
+
+    @Param(value = { "1" })
+    public long seed;
+
+    private ObjectStore store;
+
+    private File tmpFolder;
+
+    private Environment pgEnvironment;
+
+    private List<ObjectId> ids;
+
+    private List<NodeRef> refs;
+
+    private List<DiffEntry> diffs;
+
+    private Random random;
+
+    // source of objects not in the store yet, for the put benchmarks
+    private SyntheticDataset newObjects;
+
+    public @Setup(Level.Trial) void setUp() throws Exception {
+        store = createObjectStore();
+        store.open();
+        SyntheticDataset dataset = new SyntheticDataset(workload, seed);
+        List<RevObject> objects = new ArrayList<>(datasetSize);
+        ids = new ArrayList<>(datasetSize);
+        for (int i = 0; i < datasetSize; i += 1000) {
+            List<RevObject> batch = dataset.next(Math.min(1000, datasetSize - i));
+            store.putAll(batch.iterator());
+            objects.addAll(batch);
+        }
+        objects.forEach(o -> ids.add(o.getId()));
+        refs = SyntheticDataset.refs(objects);
+        diffs = SyntheticDataset.diffs(objects);
+        random = new Random(seed);
+        newObjects = dataset;
+    }
+
+    public @TearDown(Level.Trial) void tearDown() throws Exception {
+        store.close();
+        if (pgEnvironment != null) {
+            PGStorage.deleteRepository(pgEnvironment);
+        }
+        if (tmpFolder != null) {
+            MoreFiles.deleteRecursively(tmpFolder.toPath(), RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    private ObjectStore createObjectStore() throws Exception {
+        switch (storeType) {
+        case "heap":
+            return new HeapObjectStore();
+        case "rocksdb":
+            tmpFolder = Files.createTempDirectory("geogig-benchmark").toFile();
+            return new RocksdbObjectDatabase(tmpFolder, false);
+        case "postgres":
+            String uri = System.getProperty("geogig.benchmarks.pgURI");
+            Preconditions.checkState(uri != null,
+                    "geogig.benchmarks.pgURI System property not provided");
+            pgEnvironment = new EnvironmentBuilder(URI.create(uri)).build();
+            PGStorage.createNewRepo(pgEnvironment);
+            return new PGObjectDatabase(new PGConfigDatabase(pgEnvironment), pgEnvironment);
+        default:
+            throw new IllegalStateException("Unknown store type: " + storeType);
+        }
+    }
+
+    public ObjectStore store() {
+        return store;
+    }
+
+    /**
+     * @return the id of a random object in the store
+     */
+    public ObjectId randomId() {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * @return {@link #batchSize} ids of objects in the store, starting at a random position
+     */
+    public List<ObjectId> randomIds() {
+        int from = random.nextInt(Math.max(1, ids.size() - batchSize));
+        return ids.subList(from, Math.min(ids.size(), from + batchSize));
+    }
+
+    /**
+     * @return an object not yet in the store
+     */
+    public RevObject newObject() {
+        return newObjects.next();
+    }
+
+    /**
+     * @return {@link #batchSize} objects not yet in the store
+     */
+    public List<RevObject> newObjects() {
+        return newObjects.next(batchSize);
+    }
+
+    public List<NodeRef> refs() {
+        return refs;
+    }
+
+    public List<DiffEntry> diffs() {
+        return diffs;
+    }
+}
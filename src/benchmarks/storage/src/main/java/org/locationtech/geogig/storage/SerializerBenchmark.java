@@ -0,0 +1,100 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reports the encoding and decoding throughput of each {@link RevObjectSerializer} for
+ * feature-heavy and tree-heavy workloads.
+ * <p>
+ * {@link #decode} only parses the objects, while {@link #decodeAndTraverse} also accesses all
+ * feature values or tree nodes, to account for serializers that decode lazily.
+ *
+ * @see SerializerBenchmarkState
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms1G", "-Xmx4G" })
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class SerializerBenchmark {
+
+    public @Benchmark void encode(Blackhole bh, SerializerBenchmarkState state)
+            throws IOException {
+        final RevObjectSerializer serializer = state.serializer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (RevObject o : state.objects()) {
+            out.reset();
+            serializer.write(o, out);
+            bh.consume(out.size());
+        }
+    }
+
+    public @Benchmark void decode(Blackhole bh, SerializerBenchmarkState state)
+            throws IOException {
+        final RevObjectSerializer serializer = state.serializer();
+        final List<RevObject> objects = state.objects();
+        final List<byte[]> encoded = state.encoded();
+        for (int i = 0; i < encoded.size(); i++) {
+            byte[] data = encoded.get(i);
+            bh.consume(serializer.read(objects.get(i).getId(), data, 0, data.length));
+        }
+    }
+
+    public @Benchmark void decodeAndTraverse(Blackhole bh, SerializerBenchmarkState state)
+            throws IOException {
+        final RevObjectSerializer serializer = state.serializer();
+        final List<RevObject> objects = state.objects();
+        final List<byte[]> encoded = state.encoded();
+        for (int i = 0; i < encoded.size(); i++) {
+            byte[] data = encoded.get(i);
+            RevObject o = serializer.read(objects.get(i).getId(), data, 0, data.length);
+            if (o instanceof RevFeature) {
+                ((RevFeature) o).forEach(bh::consume);
+            } else if (o instanceof RevTree) {
+                ((RevTree) o).forEachFeature(bh::consume);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()//
+                .include(SerializerBenchmark.class.getSimpleName())//
+                .warmupIterations(1)//
+                .measurementIterations(3)//
+                .forks(0)//
+                .build();
+
+        new Runner(opt).run();
+    }
+}
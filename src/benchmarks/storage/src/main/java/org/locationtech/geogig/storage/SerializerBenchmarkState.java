@@ -0,0 +1,112 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.SyntheticDataset.Workload;
+import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV1;
+import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV2;
+import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV2_2;
+import org.locationtech.geogig.storage.format.lz4.RevObjectSerializerLZ4;
+import org.locationtech.geogig.storage.format.lzf.RevObjectSerializerLZF;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark state for {@link SerializerBenchmark}, holds {@link #datasetSize} synthetic objects of
+ * the requested {@link #workload} generated from {@link #seed}, and their encoded form for the
+ * requested {@link #serializer}.
+ */
+@State(Scope.Benchmark)
+public class SerializerBenchmarkState {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SerializerBenchmarkState.class);
+
+    @Param(value = { "datastream-v1", "datastream-v2", "datastream-v2.2", "flatbuffers",
+            "lz4-datastream-v2.2", "lz4-flatbuffers", "lzf-datastream-v2.2" })
+    public String serializer;
+
+    @Param(value = { "features", "trees" })
+    public Workload workload;
+
+    @Param(value = { "10000" })
+    public int datasetSize;
+
+    @Param(value = { "1" })
+    public long seed;
+
+    private RevObjectSerializer encoder;
+
+    private List<RevObject> objects;
+
+    private List<byte[]> encoded;
+
+    private long encodedSize;
+
+    public @Setup(Level.Trial) void setUp() throws IOException {
+        encoder = createSerializer(serializer);
+        objects = new SyntheticDataset(workload, seed).next(datasetSize);
+        encoded = new ArrayList<>(datasetSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (RevObject o : objects) {
+            out.reset();
+            encoder.write(o, out);
+            byte[] bytes = out.toByteArray();
+            encodedSize += bytes.length;
+            encoded.add(bytes);
+        }
+        LOG.info("{}/{}: {} objects, {} bytes encoded", serializer, workload, datasetSize,
+                encodedSize);
+    }
+
+    static RevObjectSerializer createSerializer(String name) {
+        switch (name) {
+        case "datastream-v1":
+            return DataStreamRevObjectSerializerV1.INSTANCE;
+        case "datastream-v2":
+            return DataStreamRevObjectSerializerV2.INSTANCE;
+        case "datastream-v2.2":
+            return DataStreamRevObjectSerializerV2_2.INSTANCE;
+        case "flatbuffers":
+            return new FlatBuffersRevObjectSerializer();
+        case "lz4-datastream-v2.2":
+            return new RevObjectSerializerLZ4(DataStreamRevObjectSerializerV2_2.INSTANCE);
+        case "lz4-flatbuffers":
+            return new RevObjectSerializerLZ4(new FlatBuffersRevObjectSerializer());
+        case "lzf-datastream-v2.2":
+            return new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2_2.INSTANCE);
+        default:
+            throw new IllegalArgumentException("Unknown serializer: " + name);
+        }
+    }
+
+    public RevObjectSerializer serializer() {
+        return encoder;
+    }
+
+    public List<RevObject> objects() {
+        return objects;
+    }
+
+    public List<byte[]> encoded() {
+        return encoded;
+    }
+}
@@ -0,0 +1,166 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+/**
+ * Generates reproducible synthetic {@link RevObject}s for the storage and serialization
+ * benchmarks. The same seed and workload always produce the same sequence of objects.
+ * <ul>
+ * <li>{@link Workload#features features}: features with a mix of scalar attributes and a polygon
+ * geometry of a random number of vertices
+ * <li>{@link Workload#trees trees}: leaf trees with up to 512 feature nodes, each with bounds and
+ * a random object id
+ * </ul>
+ */
+public class SyntheticDataset {
+
+    public static enum Workload {
+        features, trees
+    }
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private final Workload workload;
+
+    private final Random random;
+
+    private int sequence;
+
+    public SyntheticDataset(Workload workload, long seed) {
+        this.workload = workload;
+        this.random = new Random(seed);
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public RevObject next() {
+        sequence++;
+        return workload == Workload.features ? feature() : tree();
+    }
+
+    public List<RevObject> next(int count) {
+        List<RevObject> objects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            objects.add(next());
+        }
+        return objects;
+    }
+
+    /**
+     * @return a node ref pointing to each object
+     */
+    public static List<NodeRef> refs(List<RevObject> objects) {
+        List<NodeRef> refs = new ArrayList<>(objects.size());
+        for (RevObject o : objects) {
+            refs.add(ref(o));
+        }
+        return refs;
+    }
+
+    /**
+     * @return one diff entry for each pair of consecutive objects, as if the first one was
+     *         changed to the second one
+     */
+    public static List<DiffEntry> diffs(List<RevObject> objects) {
+        List<DiffEntry> diffs = new ArrayList<>(objects.size() / 2);
+        for (int i = 0; i + 1 < objects.size(); i += 2) {
+            RevObject left = objects.get(i);
+            RevObject right = objects.get(i + 1);
+            NodeRef leftRef = ref(left, String.valueOf(i));
+            NodeRef rightRef = ref(right, String.valueOf(i));
+            diffs.add(new DiffEntry(leftRef, rightRef));
+        }
+        return diffs;
+    }
+
+    private static NodeRef ref(RevObject o) {
+        return ref(o, o.getId().toString());
+    }
+
+    private static NodeRef ref(RevObject o, String name) {
+        TYPE type = o.getType() == TYPE.TREE ? TYPE.TREE : TYPE.FEATURE;
+        Node node = RevObjectFactory.defaultInstance().createNode(name, o.getId(), ObjectId.NULL,
+                type, null, null);
+        return NodeRef.create(NodeRef.ROOT, node);
+    }
+
+    private RevFeature feature() {
+        return RevFeature.builder()//
+                .addValue(Integer.valueOf(sequence))//
+                .addValue(Long.valueOf(random.nextLong()))//
+                .addValue(Double.valueOf(random.nextDouble()))//
+                .addValue(string(8 + random.nextInt(56)))//
+                .addValue(Boolean.valueOf(random.nextBoolean()))//
+                .addValue(new Date(random.nextInt()))//
+                .addValue(random.nextInt(10) == 0 ? null : string(16))//
+                .addValue(polygon(4 + random.nextInt(60)))//
+                .build();
+    }
+
+    private RevTree tree() {
+        final int size = 32 + random.nextInt(512 - 32);
+        List<Node> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = sequence + "." + i;
+            ObjectId id = ObjectId.create(random.nextInt(), random.nextLong(), random.nextLong());
+            double x = -180 + 360 * random.nextDouble();
+            double y = -90 + 180 * random.nextDouble();
+            Envelope bounds = new Envelope(x, x + random.nextDouble(), y, y + random.nextDouble());
+            nodes.add(RevObjectFactory.defaultInstance().createNode(name, id, ObjectId.NULL,
+                    TYPE.FEATURE, bounds, null));
+        }
+        nodes.sort(CanonicalNodeOrder.INSTANCE);
+        return RevTreeBuilder.build(size, 0, null, nodes, null);
+    }
+
+    private String string(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private Geometry polygon(int numVertices) {
+        final double cx = -180 + 360 * random.nextDouble();
+        final double cy = -90 + 180 * random.nextDouble();
+        Coordinate[] ring = new Coordinate[numVertices + 1];
+        for (int i = 0; i < numVertices; i++) {
+            double angle = 2 * Math.PI * i / numVertices;
+            double radius = 0.001 + 0.01 * random.nextDouble();
+            ring[i] = new Coordinate(cx + radius * Math.cos(angle), cy + radius * Math.sin(angle));
+        }
+        ring[numVertices] = ring[0];
+        return GEOMETRY_FACTORY.createPolygon(ring);
+    }
+}
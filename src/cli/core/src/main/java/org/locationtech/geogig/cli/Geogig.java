@@ -32,6 +32,7 @@ import org.locationtech.geogig.cli.porcelain.Config;
 import org.locationtech.geogig.cli.porcelain.Conflicts;
 import org.locationtech.geogig.cli.porcelain.Diff;
 import org.locationtech.geogig.cli.porcelain.FormatPatch;
+import org.locationtech.geogig.cli.porcelain.Gc;
 import org.locationtech.geogig.cli.porcelain.Init;
 import org.locationtech.geogig.cli.porcelain.Log;
 import org.locationtech.geogig.cli.porcelain.Ls;
@@ -75,6 +76,7 @@ import picocli.CommandLine.Spec;
                 , Diff.class//
                 , DiffTree.class//
                 , FormatPatch.class//
+                , Gc.class//
                 , VerifyPatch.class//
                 , Init.class//
                 , Insert.class//
@@ -0,0 +1,86 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cli.porcelain;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.Console;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.porcelain.GcOp;
+import org.locationtech.geogig.porcelain.GcReport;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Deletes the objects no longer reachable from any ref. Must not be run while other operations
+ * are writing to the repository.
+ * 
+ * @see GcOp
+ */
+@Command(name = "gc", description = "Deletes objects that are no longer reachable from any ref")
+public class Gc extends AbstractCommand implements CLICommand {
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([smhd]?)");
+
+    @Option(names = { "--dry-run",
+            "-n" }, description = "Don't actually delete anything, just report what would be done.")
+    private boolean dryRun;
+
+    @Option(names = "--grace-period", paramLabel = "<duration>", description = "How long an "
+            + "object must have been found unreachable before it's deleted, as a number followed "
+            + "by s, m, h or d (e.g. 30m). 0 deletes all unreachable objects at once. Defaults to "
+            + "1h. Either way, don't run gc while other operations write to the repository.")
+    private String gracePeriod;
+
+    public @Override void runInternal(GeogigCLI cli) throws IOException {
+        GcOp op = cli.getGeogig().command(GcOp.class).setDryRun(dryRun);
+        if (gracePeriod != null) {
+            op.setGracePeriod(parseDuration(gracePeriod));
+        }
+        GcReport report = op.setProgressListener(cli.getProgressListener()).call();
+
+        final Console console = cli.getConsole();
+        console.println(String.format("Reachable objects: %,d, index trees: %,d",
+                report.getReachableObjects(), report.getReachableIndexObjects()));
+        console.println(String.format("Unreachable objects: %,d, index trees: %,d",
+                report.getUnreachableObjects(), report.getUnreachableIndexObjects()));
+        console.println(String.format("%s objects: %,d, index trees: %,d",
+                dryRun ? "Would delete" : "Deleted", report.getDeletedObjects(),
+                report.getDeletedIndexObjects()));
+        if (report.getPendingObjects() > 0) {
+            console.println(String.format(
+                    "%,d unreachable objects kept within the grace period, "
+                            + "to be deleted by a later run",
+                    report.getPendingObjects()));
+        }
+    }
+
+    private long parseDuration(String value) {
+        Matcher matcher = DURATION.matcher(value.trim());
+        checkParameter(matcher.matches(), "Invalid grace period: %s", value);
+        final long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+        case "m":
+            return TimeUnit.MINUTES.toMillis(amount);
+        case "h":
+            return TimeUnit.HOURS.toMillis(amount);
+        case "d":
+            return TimeUnit.DAYS.toMillis(amount);
+        default:
+            return TimeUnit.SECONDS.toMillis(amount);
+        }
+    }
+}
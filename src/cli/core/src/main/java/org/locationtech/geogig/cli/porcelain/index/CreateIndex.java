@@ -18,8 +18,10 @@ import org.locationtech.geogig.cli.CommandFailedException;
 import org.locationtech.geogig.cli.GeogigCLI;
 import org.locationtech.geogig.cli.InvalidParameterException;
 import org.locationtech.geogig.cli.annotation.RequiresRepository;
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
 import org.locationtech.geogig.porcelain.index.Index;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.jts.geom.Envelope;
@@ -28,7 +30,7 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 @RequiresRepository(true)
-@Command(name = "create", aliases = "cr", description = "Creates a spatial index for the specified feature tree")
+@Command(name = "create", aliases = "cr", description = "Creates a spatial or attribute index for the specified feature tree")
 public class CreateIndex extends AbstractCommand implements CLICommand {
 
     @Option(names = "--tree", required = true, description = "Name or path of the feature tree to create the index for.")
@@ -38,6 +40,9 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
             "--attribute" }, required = false, description = "Attribute to create the index for.")
     private String attribute;
 
+    @Option(names = "--type", description = "Index type, QUADTREE or ATTRIBUTE. Attribute indexes require the --attribute argument. Defaults to QUADTREE.")
+    private IndexType indexType = IndexType.QUADTREE;
+
     @Option(names = "--index-history", description = "If specified, indexes will be created for all commits in the history.")
     private boolean indexHistory = false;
 
@@ -53,18 +58,28 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
 
         Repository repo = cli.getGeogig().getRepository();
 
-        Envelope envelope = SpatialOps.parseNonReferencedBBOX(bbox);
-
         Index index;
         try {
-            index = repo.command(CreateQuadTree.class)//
-                    .setTreeRefSpec(treeRefSpec)//
-                    .setGeometryAttributeName(attribute)//
-                    .setExtraAttributes(extraAttributes)//
-                    .setIndexHistory(indexHistory)//
-                    .setBounds(envelope)//
-                    .setProgressListener(cli.getProgressListener())//
-                    .call();
+            if (IndexType.ATTRIBUTE == indexType) {
+                checkParameter(bbox == null, "--bounds only applies to spatial indexes");
+                index = repo.command(CreateAttributeIndex.class)//
+                        .setTreeRefSpec(treeRefSpec)//
+                        .setAttributeName(attribute)//
+                        .setExtraAttributes(extraAttributes)//
+                        .setIndexHistory(indexHistory)//
+                        .setProgressListener(cli.getProgressListener())//
+                        .call();
+            } else {
+                Envelope envelope = SpatialOps.parseNonReferencedBBOX(bbox);
+                index = repo.command(CreateQuadTree.class)//
+                        .setTreeRefSpec(treeRefSpec)//
+                        .setGeometryAttributeName(attribute)//
+                        .setExtraAttributes(extraAttributes)//
+                        .setIndexHistory(indexHistory)//
+                        .setBounds(envelope)//
+                        .setProgressListener(cli.getProgressListener())//
+                        .call();
+            }
         } catch (IllegalStateException e) {
             throw new CommandFailedException(e.getMessage(), true);
         } catch (IllegalArgumentException e) {
@@ -9,6 +9,7 @@
  */
 package org.locationtech.geogig.data.retrieve;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -44,6 +45,11 @@ import lombok.NonNull;
  *
  * c) getGeoToolsFeatures w/Schema - (high level) this returns Features for the requested NodeRefs.
  * It ignores the FeatureType Metadata and uses the supplied schema to construct features.
+ *
+ * d) getFeatureBatches - (low level) decodes only a subset of the attributes of the requested
+ * NodeRefs, column by column, into a reusable {@link FeatureBatch}. getGeoToolsFeatures w/Schema
+ * and attribute indices builds Features out of those batches, leaving the non requested
+ * attributes {@code null}.
  */
 public class BulkFeatureRetriever {
     static final String FLATTENED_ATTNAME_PREFIX_NEW = "new_";
@@ -52,6 +58,11 @@ public class BulkFeatureRetriever {
 
     public static final String DIFF_FEATURE_CHANGETYPE_ATTNAME = "geogig.changeType";
 
+    /**
+     * Number of features decoded at once by the projected retrieval methods
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
     private ObjectStore odb;
 
     private ObjectStore leftDb;
@@ -137,6 +148,66 @@ public class BulkFeatureRetriever {
         return AutoCloseableIterator.transform(fis, funcBuildFeature);
     }
 
+    /**
+     * Given a bunch of NodeRefs, decode the values of the requested attributes of their features
+     * in batches.
+     * <p>
+     * The same {@link FeatureBatch} instance is returned by each call to {@code next()}, refilled
+     * with the following features, hence the values of a batch shall be consumed before requesting
+     * the next one.
+     *
+     * @param refs list of node refs to fetch {@link RevFeature}s for
+     * @param nativeType the feature type the features adhere to
+     * @param attributes the indices in {@code nativeType} of the attributes to decode
+     * @param batchSize the maximum number of features in each batch
+     * @param geometryFactory the geometry factory to create geometry attributes with, or
+     *        {@code null} to use the default one
+     */
+    public AutoCloseableIterator<FeatureBatch> getFeatureBatches(
+            AutoCloseableIterator<NodeRef> refs, RevFeatureType nativeType, int[] attributes,
+            int batchSize, @Nullable GeometryFactory geometryFactory) {
+
+        final FeatureBatch batch = new FeatureBatch(nativeType.type(), attributes, batchSize);
+        AutoCloseableIterator<List<ObjectInfo<RevFeature>>> partitions = AutoCloseableIterator
+                .partition(getGeoGIGFeatures(refs), batchSize);
+
+        return AutoCloseableIterator.transform(partitions, infos -> {
+            batch.fill(infos, geometryFactory);
+            return batch;
+        });
+    }
+
+    /**
+     * Given a bunch of NodeRefs, create Features of {@code nativeType} whose only non
+     * {@code null} values are the ones of the requested {@code attributes}, which are the only
+     * ones decoded.
+     *
+     * @param refs list of node refs to fetch {@link RevFeature}s for
+     * @param nativeType the feature type the features adhere to
+     * @param attributes the indices in {@code nativeType} of the attributes to decode
+     * @param geometryFactory the geometry factory to create geometry attributes with
+     * @see #getFeatureBatches
+     */
+    public AutoCloseableIterator<Feature> getGeoToolsFeatures(AutoCloseableIterator<NodeRef> refs,
+            RevFeatureType nativeType, int[] attributes, @Nullable GeometryFactory geometryFactory) {
+
+        final FeatureType type = nativeType.type();
+        AutoCloseableIterator<FeatureBatch> batches = getFeatureBatches(refs, nativeType,
+                attributes, DEFAULT_BATCH_SIZE, geometryFactory);
+
+        // features are built out of the whole batch before the batch buffers are reused
+        AutoCloseableIterator<Iterator<Feature>> features = AutoCloseableIterator
+                .transform(batches, batch -> {
+                    final int size = batch.size();
+                    List<Feature> list = new ArrayList<>(size);
+                    for (int row = 0; row < size; row++) {
+                        list.add(ProjectedFeature.build(batch, row, type, attributes));
+                    }
+                    return list.iterator();
+                });
+        return AutoCloseableIterator.concat(features);
+    }
+
     public AutoCloseableIterator<DiffObjectInfo<RevFeature>> getDiffFeatures(
             Iterator<DiffEntry> refs) {
         AutoCloseableIterator<DiffObjectInfo<RevFeature>> objects;
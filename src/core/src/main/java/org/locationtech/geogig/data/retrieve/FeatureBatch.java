@@ -0,0 +1,149 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.data.retrieve;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import lombok.NonNull;
+
+/**
+ * A fixed capacity batch of features holding only a subset of their attribute values, decoded
+ * column by column into buffers that are reused for every batch.
+ * <p>
+ * Column {@code c} holds the values of the attribute at index {@link #attributes()
+ * attributes()[c]} of the feature type, for rows {@code [0, size())}. The contents of a batch are
+ * only valid until the next batch is requested from the iterator that returned it.
+ *
+ * @see BulkFeatureRetriever#getFeatureBatches
+ * @since 2.0
+ */
+public final class FeatureBatch {
+
+    private final int[] attributes;
+
+    private final boolean[] geometries;
+
+    private final Object[][] columns;
+
+    private final String[] ids;
+
+    private final ObjectId[] versions;
+
+    private int size;
+
+    FeatureBatch(@NonNull FeatureType type, @NonNull int[] attributes, int capacity) {
+        checkArgument(capacity > 0, "capacity shall be > 0");
+        final int typeSize = type.getSize();
+        this.attributes = attributes.clone();
+        this.geometries = new boolean[attributes.length];
+        this.columns = new Object[attributes.length][capacity];
+        for (int c = 0; c < attributes.length; c++) {
+            checkElementIndex(attributes[c], typeSize, "attribute index");
+            geometries[c] = type.getDescriptor(attributes[c]).isGeometryDescriptor();
+        }
+        this.ids = new String[capacity];
+        this.versions = new ObjectId[capacity];
+    }
+
+    /**
+     * @return the indices in the feature type of the attributes held by each column
+     */
+    public int[] attributes() {
+        return attributes.clone();
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String id(int row) {
+        checkElementIndex(row, size);
+        return ids[row];
+    }
+
+    public ObjectId version(int row) {
+        checkElementIndex(row, size);
+        return versions[row];
+    }
+
+    public @Nullable Object get(int column, int row) {
+        checkElementIndex(row, size);
+        return columns[column][row];
+    }
+
+    /**
+     * @return the buffer backing the given column, only elements up to {@link #size()} are valid
+     */
+    public Object[] column(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Replaces the contents of this batch by the projected values of {@code features}, decoding
+     * one attribute at a time for all the features so that each value is parsed only once and
+     * non projected values are not parsed at all.
+     */
+    void fill(List<ObjectInfo<RevFeature>> features, @Nullable GeometryFactory geometryFactory) {
+        final int count = features.size();
+        checkArgument(count <= capacity(), "batch capacity exceeded");
+        clear();
+        for (int r = 0; r < count; r++) {
+            ObjectInfo<RevFeature> info = features.get(r);
+            ids[r] = info.node().getName();
+            versions[r] = info.object().getId();
+        }
+        for (int c = 0; c < attributes.length; c++) {
+            final int index = attributes[c];
+            final Object[] column = columns[c];
+            if (geometries[c] && geometryFactory != null) {
+                for (int r = 0; r < count; r++) {
+                    column[r] = features.get(r).object().get(index, geometryFactory).orElse(null);
+                }
+            } else {
+                for (int r = 0; r < count; r++) {
+                    column[r] = features.get(r).object().get(index).orElse(null);
+                }
+            }
+        }
+        this.size = count;
+    }
+
+    /**
+     * Releases the references to the previous batch's values
+     */
+    void clear() {
+        final int size = this.size;
+        for (Object[] column : columns) {
+            Arrays.fill(column, 0, size, null);
+        }
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(versions, 0, size, null);
+        this.size = 0;
+    }
+}
@@ -0,0 +1,64 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.data.retrieve;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.model.ObjectId;
+
+import lombok.NonNull;
+
+/**
+ * A feature of the full feature type whose values are only set for the attributes of a
+ * {@link FeatureBatch} projection, the rest being {@code null}.
+ */
+class ProjectedFeature extends Feature {
+
+    private final Object[] values;
+
+    ProjectedFeature(@NonNull String id, @NonNull FeatureType type, ObjectId version,
+            @NonNull Object[] values) {
+        super(id, type, version);
+        this.values = values;
+    }
+
+    static ProjectedFeature build(FeatureBatch batch, int row, FeatureType type,
+            int[] attributes) {
+        Object[] values = new Object[type.getSize()];
+        for (int c = 0; c < attributes.length; c++) {
+            values[attributes[c]] = batch.column(c)[row];
+        }
+        return new ProjectedFeature(batch.id(row), type, batch.version(row), values);
+    }
+
+    public @Override String getVersion() {
+        ObjectId version = getRevision();
+        return version == null ? null : version.toString();
+    }
+
+    public @Override Object getAttribute(int index) {
+        return values[index];
+    }
+
+    public @Override void setAttribute(int index, Object value) {
+        values[index] = validate(index, value);
+    }
+
+    public @Override Iterator<Object> iterator() {
+        return Arrays.asList(values).iterator();
+    }
+
+    public @Override Feature createCopy(@NonNull String newId) {
+        return new ProjectedFeature(newId, getType(), getRevision(), values.clone());
+    }
+}
@@ -12,6 +12,7 @@ package org.locationtech.geogig.dsl;
 import java.util.Optional;
 
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.plumbing.ChangedPathsIndex;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.storage.GraphDatabase;
@@ -30,6 +31,10 @@ public @RequiredArgsConstructor class CommitGraph {
         return db().getMapping(objectId);
     }
 
+    public ChangedPathsIndex changedPaths() {
+        return new ChangedPathsIndex(context.blobStore());
+    }
+
     public Optional<ObjectId> commonAncestor(@NonNull ObjectId left, @NonNull ObjectId right) {
         return context.command(FindCommonAncestor.class).setLeftId(left).setRightId(right).call();
     }
@@ -0,0 +1,205 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.hooks.builtin;
+
+import static org.locationtech.geogig.model.Ref.CHERRY_PICK_HEAD;
+import static org.locationtech.geogig.model.Ref.HEAD;
+import static org.locationtech.geogig.model.Ref.MERGE_HEAD;
+import static org.locationtech.geogig.model.Ref.ORIG_HEAD;
+import static org.locationtech.geogig.model.Ref.STAGE_HEAD;
+import static org.locationtech.geogig.model.Ref.WORK_HEAD;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.hooks.CannotRunGeogigOperationException;
+import org.locationtech.geogig.hooks.CommandHook;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.ChangedPathsIndex;
+import org.locationtech.geogig.plumbing.UpdateChangedPathsIndexOp;
+import org.locationtech.geogig.plumbing.UpdateRefs;
+import org.locationtech.geogig.repository.Command;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.RefChange;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hooks into {@link UpdateRefs} to incrementally update the {@link ChangedPathsIndex} with the new
+ * commits of every updated branch.
+ * <p>
+ * Only up to {@link #SYNC_MAX_COMMITS} commits are indexed while the ref update runs, which covers
+ * regular commits and merges. Updates bringing in larger histories (e.g. a clone or fetch) leave
+ * the rest to a background task on the repository's {@link WorkClass#DIFF_WALK diff-walk}
+ * executor, which resumes from the index {@link ChangedPathsIndex#getFrontier() frontier} in
+ * batches of {@link #MAX_COMMITS} commits until the history is fully indexed or the repository is
+ * closed. There's at most one such task per repository, and while it runs it takes over the tips of
+ * further updates too. Commits not yet indexed are simply not skipped by path limited history
+ * traversals.
+ */
+@Slf4j(topic = "geogig.hooks")
+public class UpdateChangedPathsIndexHook implements CommandHook {
+
+    static final int SYNC_MAX_COMMITS = 32;
+
+    static final int MAX_COMMITS = 1000;
+
+    private static final Map<Repository, CatchUp> CATCH_UPS = new ConcurrentHashMap<>();
+
+    private static final ImmutableSet<String> WORK_REFS = ImmutableSet.of(HEAD, STAGE_HEAD,
+            WORK_HEAD, MERGE_HEAD, CHERRY_PICK_HEAD, ORIG_HEAD);
+
+    public @Override boolean appliesTo(Class<? extends AbstractGeoGigOp<?>> clazz) {
+        return UpdateRefs.class.equals(clazz);
+    }
+
+    public @Override <C extends Command<?>> C pre(C command)
+            throws CannotRunGeogigOperationException {
+        return command;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Override <T> T post(Command<T> command, @Nullable Object retVal,
+            @Nullable RuntimeException exception) throws Exception {
+        if (exception != null) {
+            return (T) retVal;
+        }
+        Preconditions.checkState(command instanceof UpdateRefs);
+        List<RefChange> updated = (List<RefChange>) retVal;
+        List<ObjectId> tips = updated.stream().map(RefChange::newValue)
+                .filter(Optional::isPresent).map(Optional::get).filter(this::isIndexable)
+                .map(Ref::getObjectId).distinct().collect(Collectors.toList());
+        final Context context = command.context();
+        for (ObjectId tip : tips) {
+            CatchUp running = CATCH_UPS.get(context.repository());
+            if (running != null && running.offer(tip)) {
+                continue;
+            }
+            try {
+                if (index(context, tip, SYNC_MAX_COMMITS) == SYNC_MAX_COMMITS) {
+                    catchUp(context, tip);
+                }
+            } catch (Exception e) {
+                log.error("Error updating changed paths index at {}", tip, e);
+            }
+        }
+        return (T) retVal;
+    }
+
+    private static int index(Context context, ObjectId tip, int maxCommits) {
+        int count = context.command(UpdateChangedPathsIndexOp.class)//
+                .setTip(tip)//
+                .setMaxCommits(maxCommits)//
+                .call();
+        log.debug("Indexed changed paths of {} commits up to {}", count, tip);
+        return count;
+    }
+
+    private static void catchUp(Context context, ObjectId tip) {
+        final Repository repository = context.repository();
+        CatchUp task = new CatchUp(context, repository);
+        task.offer(tip);
+        CatchUp running = CATCH_UPS.putIfAbsent(repository, task);
+        if (running != null && running.offer(tip)) {
+            return;
+        }
+        if (running != null) {
+            // the running task just finished, take its place
+            CATCH_UPS.put(repository, task);
+        }
+        try {
+            GeogigScheduler.get(context.hints()).executor(WorkClass.DIFF_WALK).execute(task);
+        } catch (RejectedExecutionException e) {
+            CATCH_UPS.remove(repository, task);
+            log.debug("Not indexing the remaining changed paths at {}, scheduler is shut down",
+                    tip);
+        }
+    }
+
+    /**
+     * Indexes the history of the offered tips in batches of {@link #MAX_COMMITS} commits, until
+     * there are no more tips to index or the repository is closed.
+     */
+    private static @RequiredArgsConstructor class CatchUp implements Runnable {
+
+        private final Context context;
+
+        private final Repository repository;
+
+        private final Set<ObjectId> tips = ConcurrentHashMap.newKeySet();
+
+        private boolean finished;
+
+        /**
+         * @return {@code false} if the task is finished and won't index {@code tip}
+         */
+        synchronized boolean offer(ObjectId tip) {
+            if (finished) {
+                return false;
+            }
+            tips.add(tip);
+            return true;
+        }
+
+        private synchronized boolean finish() {
+            if (tips.isEmpty() || !repository.isOpen()) {
+                finished = true;
+                CATCH_UPS.remove(repository, this);
+            }
+            return finished;
+        }
+
+        public @Override void run() {
+            try {
+                while (!finish()) {
+                    for (ObjectId tip : new ArrayList<>(tips)) {
+                        if (!repository.isOpen()) {
+                            break;
+                        }
+                        if (index(context, tip, MAX_COMMITS) < MAX_COMMITS) {
+                            tips.remove(tip);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Error updating changed paths index in the background", e);
+                synchronized (this) {
+                    finished = true;
+                    CATCH_UPS.remove(repository, this);
+                }
+            }
+        }
+    }
+
+    private boolean isIndexable(@NonNull Ref ref) {
+        return !ref.getObjectId().isNull() //
+                && !(ref instanceof SymRef) //
+                && !WORK_REFS.contains(Ref.simpleName(ref.getName())) //
+                && Ref.isChild(Ref.REFS_PREFIX, ref.getName());
+    }
+}
@@ -0,0 +1,131 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.hooks.builtin;
+
+import static org.locationtech.geogig.model.Ref.CHERRY_PICK_HEAD;
+import static org.locationtech.geogig.model.Ref.HEAD;
+import static org.locationtech.geogig.model.Ref.MERGE_HEAD;
+import static org.locationtech.geogig.model.Ref.ORIG_HEAD;
+import static org.locationtech.geogig.model.Ref.STAGE_HEAD;
+import static org.locationtech.geogig.model.Ref.WORK_HEAD;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.hooks.CannotRunGeogigOperationException;
+import org.locationtech.geogig.hooks.CommandHook;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.FindFeatureTypeTrees;
+import org.locationtech.geogig.plumbing.UpdateRefs;
+import org.locationtech.geogig.plumbing.stats.ComputeTreeStats;
+import org.locationtech.geogig.plumbing.stats.TreeStatsStore;
+import org.locationtech.geogig.repository.Command;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RefChange;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hooks into {@link UpdateRefs} to incrementally update the stored
+ * {@link org.locationtech.geogig.plumbing.stats.TreeStats tree stats} of the feature trees
+ * changed by every updated branch.
+ * <p>
+ * Stats are only maintained for the feature trees whose previous version already has stats, so
+ * that layers nobody asked stats for don't pay the price of computing them on each commit. Since
+ * stats are stored per tree id, only the subtrees changed by the update are computed.
+ */
+@Slf4j(topic = "geogig.hooks")
+public class UpdateTreeStatsHook implements CommandHook {
+
+    private static final ImmutableSet<String> WORK_REFS = ImmutableSet.of(HEAD, STAGE_HEAD,
+            WORK_HEAD, MERGE_HEAD, CHERRY_PICK_HEAD, ORIG_HEAD);
+
+    public @Override boolean appliesTo(Class<? extends AbstractGeoGigOp<?>> clazz) {
+        return UpdateRefs.class.equals(clazz);
+    }
+
+    public @Override <C extends Command<?>> C pre(C command)
+            throws CannotRunGeogigOperationException {
+        return command;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Override <T> T post(Command<T> command, @Nullable Object retVal,
+            @Nullable RuntimeException exception) throws Exception {
+        if (exception != null) {
+            return (T) retVal;
+        }
+        Preconditions.checkState(command instanceof UpdateRefs);
+        List<RefChange> updated = (List<RefChange>) retVal;
+        for (RefChange change : updated) {
+            if (change.oldValue().isPresent() && change.newValue().isPresent()
+                    && isUpdatable(change.newValue().get())) {
+                try {
+                    update(command.context(), change.oldValue().get(), change.newValue().get());
+                } catch (Exception e) {
+                    log.error("Error updating tree stats at {}", change.name(), e);
+                }
+            }
+        }
+        return (T) retVal;
+    }
+
+    private void update(Context context, Ref oldRef, Ref newRef) {
+        final ObjectStore odb = context.objectDatabase();
+        final Optional<RevTree> oldRoot = rootTree(odb, oldRef);
+        final Optional<RevTree> newRoot = rootTree(odb, newRef);
+        if (!oldRoot.isPresent() || !newRoot.isPresent()) {
+            return;
+        }
+        final TreeStatsStore store = new TreeStatsStore(context.blobStore());
+        Map<String, NodeRef> oldTrees = featureTypeTrees(context, oldRoot.get());
+        for (NodeRef newTree : featureTypeTrees(context, newRoot.get()).values()) {
+            NodeRef oldTree = oldTrees.get(newTree.path());
+            if (oldTree == null || oldTree.equals(newTree)
+                    || store.exists(newTree.getObjectId(), newTree.getMetadataId())
+                    || !store.exists(oldTree.getObjectId(), oldTree.getMetadataId())) {
+                continue;
+            }
+            log.debug("Updating stats of {} at {}", newTree.path(), newRef.getName());
+            context.command(ComputeTreeStats.class).setTree(newTree).call();
+        }
+    }
+
+    private Optional<RevTree> rootTree(ObjectStore odb, Ref ref) {
+        RevCommit commit = odb.getIfPresent(ref.getObjectId(), RevCommit.class);
+        return Optional.ofNullable(commit == null ? null : odb.getTree(commit.getTreeId()));
+    }
+
+    private Map<String, NodeRef> featureTypeTrees(Context context, RevTree root) {
+        return context.command(FindFeatureTypeTrees.class).setRootTree(root).call().stream()
+                .collect(Collectors.toMap(NodeRef::path, Function.identity()));
+    }
+
+    private boolean isUpdatable(@NonNull Ref ref) {
+        return !ref.getObjectId().isNull() //
+                && !(ref instanceof SymRef) //
+                && !WORK_REFS.contains(Ref.simpleName(ref.getName())) //
+                && Ref.isChild(Ref.REFS_PREFIX, ref.getName());
+    }
+}
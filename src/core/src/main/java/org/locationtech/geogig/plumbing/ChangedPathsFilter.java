@@ -0,0 +1,165 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevCommit;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+
+import lombok.NonNull;
+
+/**
+ * Commit-graph index entry for a single {@link RevCommit commit}, holding a Bloom filter of the
+ * paths (features and trees) that changed between the commit and any of its parents, and the
+ * commit's generation number.
+ * <p>
+ * {@link #mightContain(String)} returning {@code false} means the path definitely didn't change,
+ * hence history traversals limited to a set of paths can skip the commit without comparing its
+ * trees against its parents'. For commits that changed more than {@link #MAX_CHANGED_PATHS} paths
+ * no Bloom filter is kept, and {@link #mightContain(String)} always returns {@code true}.
+ * <p>
+ * The generation number is {@code 1} for root commits and {@code 1 + max(parent generations)}
+ * otherwise, or {@link #GENERATION_UNKNOWN} if any parent generation is unknown (e.g. the parent
+ * is missing in a shallow clone, or was not indexed).
+ *
+ * @see ChangedPathsIndex
+ * @since 2.0
+ */
+public final class ChangedPathsFilter {
+
+    public static final int GENERATION_UNKNOWN = 0;
+
+    /**
+     * Maximum number of changed paths to add to a commit's Bloom filter, commits changing more
+     * paths than this are not filtered at all
+     */
+    public static final int MAX_CHANGED_PATHS = 512;
+
+    static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final byte VERSION = 1;
+
+    private static final Funnel<CharSequence> FUNNEL = Funnels
+            .stringFunnel(StandardCharsets.UTF_8);
+
+    private final int generation;
+
+    private final @Nullable BloomFilter<CharSequence> filter;
+
+    private ChangedPathsFilter(int generation, @Nullable BloomFilter<CharSequence> filter) {
+        checkArgument(generation >= 0, "generation can't be negative: %s", generation);
+        this.generation = generation;
+        this.filter = filter;
+    }
+
+    /**
+     * Creates a filter for the given changed paths, adding each path's parent paths as well since
+     * a change to a node implies a change to all its parent trees.
+     */
+    public static ChangedPathsFilter of(int generation,
+            @NonNull Collection<String> changedPaths) {
+        if (changedPaths.size() > MAX_CHANGED_PATHS) {
+            return unfiltered(generation);
+        }
+        Set<String> paths = new HashSet<>();
+        for (String path : changedPaths) {
+            String p = path;
+            while (p != null && !p.isEmpty() && paths.add(p)) {
+                p = NodeRef.parentPath(p);
+            }
+        }
+        BloomFilter<CharSequence> filter = BloomFilter.create(FUNNEL, Math.max(1, paths.size()),
+                FALSE_POSITIVE_PROBABILITY);
+        paths.forEach(filter::put);
+        return new ChangedPathsFilter(generation, filter);
+    }
+
+    /**
+     * Creates a filter for a commit that changed too many paths, for which
+     * {@link #mightContain(String)} always returns {@code true}
+     */
+    public static ChangedPathsFilter unfiltered(int generation) {
+        return new ChangedPathsFilter(generation, null);
+    }
+
+    public int generation() {
+        return generation;
+    }
+
+    /**
+     * @return {@code false} if the path didn't change in the commit, {@code true} if it might have
+     *         changed
+     */
+    public boolean mightContain(@NonNull String path) {
+        return filter == null || filter.mightContain(path);
+    }
+
+    /**
+     * @return {@code false} if the commit changed more than {@link #MAX_CHANGED_PATHS} paths and
+     *         hence {@link #mightContain(String)} always returns {@code true}
+     */
+    public boolean isFiltered() {
+        return filter != null;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buff);
+        try {
+            out.writeByte(VERSION);
+            out.writeInt(generation);
+            out.writeBoolean(filter != null);
+            if (filter != null) {
+                filter.writeTo(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buff.toByteArray();
+    }
+
+    public static ChangedPathsFilter decode(@NonNull byte[] encoded) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        try {
+            final byte version = in.readByte();
+            checkArgument(VERSION == version, "Unknown changed paths filter version: %s",
+                    version);
+            final int generation = in.readInt();
+            final boolean filtered = in.readBoolean();
+            BloomFilter<CharSequence> filter = filtered ? BloomFilter.readFrom(in, FUNNEL) : null;
+            return new ChangedPathsFilter(generation, filter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public @Override String toString() {
+        return String.format("%s[generation: %d, filtered: %s]", getClass().getSimpleName(),
+                generation, isFiltered());
+    }
+}
@@ -0,0 +1,104 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.BlobStore;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent commit-graph side index of {@link ChangedPathsFilter}s, stored in the repository's
+ * {@link BlobStore} under the {@code commit-graph/changed-paths/} namespace, one blob per commit.
+ * <p>
+ * The index is a cache, a missing or unreadable entry only means the commit can't be skipped
+ * without inspecting its trees.
+ *
+ * @see UpdateChangedPathsIndexOp
+ * @since 2.0
+ */
+@Slf4j
+public @RequiredArgsConstructor class ChangedPathsIndex {
+
+    static final String BLOB_PREFIX = "commit-graph/changed-paths/";
+
+    static final String FRONTIER_KEY = "commit-graph/changed-paths-frontier";
+
+    private final @NonNull BlobStore store;
+
+    public Optional<ChangedPathsFilter> get(@NonNull ObjectId commitId) {
+        Optional<byte[]> blob = store.getBlob(key(commitId));
+        if (blob.isPresent()) {
+            try {
+                return Optional.of(ChangedPathsFilter.decode(blob.get()));
+            } catch (RuntimeException e) {
+                log.warn("Unable to decode changed paths filter for commit {}", commitId, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean exists(@NonNull ObjectId commitId) {
+        return store.getBlob(key(commitId)).isPresent();
+    }
+
+    public void put(@NonNull ObjectId commitId, @NonNull ChangedPathsFilter filter) {
+        store.putBlob(key(commitId), filter.encode());
+    }
+
+    public void remove(@NonNull ObjectId commitId) {
+        store.removeBlob(key(commitId));
+    }
+
+    /**
+     * @return the ids of the not yet indexed commits a previous, {@link UpdateChangedPathsIndexOp
+     *         capped}, update stopped at
+     */
+    public List<ObjectId> getFrontier() {
+        Optional<byte[]> blob = store.getBlob(FRONTIER_KEY);
+        if (!blob.isPresent() || blob.get().length % ObjectId.NUM_BYTES != 0) {
+            return Collections.emptyList();
+        }
+        final byte[] raw = blob.get();
+        List<ObjectId> ids = new ArrayList<>(raw.length / ObjectId.NUM_BYTES);
+        for (int offset = 0; offset < raw.length; offset += ObjectId.NUM_BYTES) {
+            ids.add(ObjectId.create(Arrays.copyOfRange(raw, offset, offset + ObjectId.NUM_BYTES)));
+        }
+        return ids;
+    }
+
+    public void setFrontier(@NonNull Collection<ObjectId> commitIds) {
+        if (commitIds.isEmpty()) {
+            store.removeBlob(FRONTIER_KEY);
+            return;
+        }
+        byte[] raw = new byte[commitIds.size() * ObjectId.NUM_BYTES];
+        int offset = 0;
+        for (ObjectId id : commitIds) {
+            System.arraycopy(id.getRawValue(), 0, raw, offset, ObjectId.NUM_BYTES);
+            offset += ObjectId.NUM_BYTES;
+        }
+        store.putBlob(FRONTIER_KEY, raw);
+    }
+
+    static String key(ObjectId commitId) {
+        String hex = commitId.toString();
+        return BLOB_PREFIX + hex.substring(0, 2) + "/" + hex;
+    }
+}
@@ -23,9 +23,11 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.DiffSummary;
+import org.locationtech.geogig.plumbing.diff.DiffSummaryStore;
 import org.locationtech.geogig.plumbing.diff.PathFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
@@ -34,11 +36,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Computes the bounds of the difference between the two trees instead of the actual diffs.
  * 
  */
+@Slf4j
 public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>> {
 
     private ObjectStore leftSource, rightSource;
@@ -51,6 +55,8 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
 
     private boolean compareStaged;
 
+    private boolean useCache;
+
     public DiffBounds setLeftSource(ObjectStore leftSource) {
         this.leftSource = leftSource;
         return this;
@@ -90,6 +96,16 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
         return this;
     }
 
+    /**
+     * @param useCache whether to look up the bounds in the {@link DiffSummaryStore persistent diff
+     *        summary cache} before computing them, and to save them there once computed. Defaults
+     *        to {@code false}
+     */
+    public DiffBounds setUseCache(boolean useCache) {
+        this.useCache = useCache;
+        return this;
+    }
+
     protected @Override DiffSummary<Envelope, Envelope> _call() {
         checkArgument(compareStaged && oldVersion == null && oldTree == null || !compareStaged,
                 String.format(
@@ -108,7 +124,18 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
         RevTree left = resolveTree(oldTree, oldVersion, leftSource);
         RevTree right = resolveTree(newTree, newVersion, rightSource);
 
+        final DiffSummaryStore cache = useCache ? new DiffSummaryStore(context().blobStore())
+                : null;
+        if (cache != null) {
+            Optional<DiffSummary<Envelope, Envelope>> cached = cache.getBounds(left.getId(),
+                    right.getId(), pathFilters);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
         PreOrderDiffWalk visitor = new PreOrderDiffWalk(left, right, leftSource, rightSource);
+        visitor.scheduler(GeogigScheduler.get(context == null ? null : context.hints()));
         BoundsWalk walk = new BoundsWalk(leftSource, rightSource);
         PreOrderDiffWalk.Consumer consumer = walk;
         if (!pathFilters.isEmpty()) {
@@ -116,6 +143,13 @@ public class DiffBounds extends AbstractGeoGigOp<DiffSummary<Envelope, Envelope>
         }
         visitor.walk(consumer);
         DiffSummary<Envelope, Envelope> diffBounds = walk.getResult();
+        if (cache != null) {
+            try {
+                cache.putBounds(left.getId(), right.getId(), pathFilters, diffBounds);
+            } catch (RuntimeException e) {
+                log.debug("Unable to cache diff bounds of {}..{}", left.getId(), right.getId(), e);
+            }
+        }
         return diffBounds;
     }
 
@@ -18,19 +18,25 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.DiffCountConsumer;
+import org.locationtech.geogig.plumbing.diff.DiffSummaryStore;
 import org.locationtech.geogig.plumbing.diff.PathFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import com.google.common.collect.Lists;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Counts differences between two trees.
  * 
  * @see DiffCountConsumer
  */
+@Slf4j
 public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
 
     private final List<String> pathFilters = Lists.newLinkedList();
@@ -43,6 +49,10 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
 
     private RevTree oldTree, newTree;
 
+    private Boolean prefetch;
+
+    private boolean useCache;
+
     public DiffCount setOldVersion(String refSpec) {
         this.oldRefSpec = refSpec;
         this.oldTreeId = null;
@@ -87,6 +97,34 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
         return this;
     }
 
+    /**
+     * @param prefetch whether to fetch the trees needed at the next depth of the diff ahead of
+     *        time and in large batches, see {@link PreOrderDiffWalk#prefetch(boolean)}. Defaults
+     *        to the repository's {@link Hints#DIFF_PREFETCH} hint, {@code false} if not set
+     */
+    public DiffCount setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    private boolean prefetch() {
+        if (prefetch != null) {
+            return prefetch.booleanValue();
+        }
+        Hints hints = context == null ? null : context.hints();
+        return hints != null && hints.getBoolean(Hints.DIFF_PREFETCH);
+    }
+
+    /**
+     * @param useCache whether to look up the counts in the {@link DiffSummaryStore persistent diff
+     *        summary cache} before computing them, and to save them there once computed. Defaults
+     *        to {@code false}
+     */
+    public DiffCount setUseCache(boolean useCache) {
+        this.useCache = useCache;
+        return this;
+    }
+
     /**
      * @param path the path filter to use during the diff operation
      * @return {@code this}
@@ -123,8 +161,20 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
         final RevTree oldTree = getTree(oldRefSpec, oldTreeId, this.oldTree, leftSource);
         final RevTree newTree = getTree(newRefSpec, newTreeId, this.newTree, rightSource);
 
+        final DiffSummaryStore cache = useCache ? new DiffSummaryStore(context().blobStore())
+                : null;
+        if (cache != null) {
+            Optional<DiffObjectCount> cached = cache.getCount(oldTree.getId(), newTree.getId(),
+                    pathFilters);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
         DiffObjectCount diffCount;
         PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource, rightSource);
+        visitor.scheduler(GeogigScheduler.get(context == null ? null : context.hints()));
+        visitor.prefetch(prefetch());
 
         DiffCountConsumer counter = new DiffCountConsumer(leftSource, rightSource);
         PreOrderDiffWalk.Consumer filter = counter;
@@ -134,6 +184,14 @@ public class DiffCount extends AbstractGeoGigOp<DiffObjectCount> {
         visitor.walk(filter);
         diffCount = counter.get();
 
+        if (cache != null) {
+            try {
+                cache.putCount(oldTree.getId(), newTree.getId(), pathFilters, diffCount);
+            } catch (RuntimeException e) {
+                log.debug("Unable to cache diff count of {}..{}", oldTree.getId(),
+                        newTree.getId(), e);
+            }
+        }
         return diffCount;
     }
 
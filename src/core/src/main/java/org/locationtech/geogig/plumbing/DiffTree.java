@@ -19,8 +19,6 @@ import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,11 +32,15 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.diff.BoundsFilteringDiffConsumer;
+import org.locationtech.geogig.plumbing.diff.BucketIndexFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PathFilteringDiffConsumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.ForwardingConsumer;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.ObjectDatabase;
@@ -52,7 +54,6 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Compares the content and metadata links of blobs found via two tree objects on the repository's
@@ -81,6 +82,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private Predicate<Bounded> customFilter;
 
+    private Predicate<BucketIndex> bucketFilter;
+
     private Long limit;
 
     private ObjectId metadataId;
@@ -91,7 +94,7 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private boolean preserveIterationOrder = false;
 
-    private static ExecutorService producerThreads;
+    private Boolean prefetch;
 
     private Stats stats;
 
@@ -101,12 +104,6 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
 
     private ForwardingConsumer wrapper;
 
-    static {
-        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
-                .setNameFormat("geogig-difftree-pool-%d").build();
-        producerThreads = Executors.newCachedThreadPool(threadFactory);
-    }
-
     /**
      * Constructs a new instance of the {@code DiffTree} operation with the given parameters.
      */
@@ -189,6 +186,25 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * @param prefetch whether to fetch the trees needed at the next depth of the diff ahead of
+     *        time and in large batches, see {@link PreOrderDiffWalk#prefetch(boolean)}. Defaults
+     *        to the repository's {@link Hints#DIFF_PREFETCH} hint, {@code false} if not set
+     * @return {@code this}
+     */
+    public DiffTree setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    private boolean prefetch() {
+        if (prefetch != null) {
+            return prefetch.booleanValue();
+        }
+        Hints hints = context == null ? null : context.hints();
+        return hints != null && hints.getBoolean(Hints.DIFF_PREFETCH);
+    }
+
     /**
      * @param path the path filter to use during the diff operation, replaces any other filter
      *        previously set
@@ -221,6 +237,15 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         return this;
     }
 
+    /**
+     * @param bucketFilter if provided, buckets whose {@link BucketIndex} don't pass the filter are
+     *        not traversed at all
+     */
+    public DiffTree setBucketFilter(@Nullable Predicate<BucketIndex> bucketFilter) {
+        this.bucketFilter = bucketFilter;
+        return this;
+    }
+
     public DiffTree setChangeTypeFilter(@Nullable ChangeType changeType) {
         this.changeTypeFilter = changeType;
         return this;
@@ -255,6 +280,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
                 rightSource, preserveIterationOrder);
         visitor.setDefaultMetadataId(this.metadataId);
+        visitor.scheduler(GeogigScheduler.get(context == null ? null : context.hints()));
+        visitor.prefetch(prefetch());
         visitor.walk(consumer);
     }
 
@@ -286,6 +313,8 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
         final PreOrderDiffWalk visitor = new PreOrderDiffWalk(oldTree, newTree, leftSource,
                 rightSource, preserveIterationOrder);
         visitor.setDefaultMetadataId(this.metadataId);
+        visitor.scheduler(GeogigScheduler.get(context == null ? null : context.hints()));
+        visitor.prefetch(prefetch());
         visitor.reportFeatures(reportFeatures);
         if (this.nodeOrdering != null) {
             visitor.nodeOrder(nodeOrdering);
@@ -318,6 +347,9 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 if (boundsFilter != null) {
                     consumer = new BoundsFilteringDiffConsumer(boundsFilter, consumer);
                 }
+                if (bucketFilter != null) {
+                    consumer = new BucketIndexFilteringDiffConsumer(bucketFilter, consumer);
+                }
                 if (!pathFilters.isEmpty()) {// evaluated the former
                     consumer = new PathFilteringDiffConsumer(pathFilters, consumer);
                 }
@@ -340,6 +372,9 @@ public class DiffTree extends AbstractGeoGigOp<AutoCloseableIterator<DiffEntry>>
                 }
             }
         };
+        // storage-io never queues, the producer blocks on the consumer below
+        final ExecutorService producerThreads = GeogigScheduler
+                .get(context == null ? null : context.hints()).executor(WorkClass.STORAGE_IO);
         producerThreads.submit(producer);
 
         AutoCloseableIterator<DiffEntry> consumerIterator = new AutoCloseableIterator<DiffEntry>() {
@@ -9,15 +9,21 @@
  */
 package org.locationtech.geogig.plumbing;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
@@ -30,6 +36,12 @@ import com.google.common.base.Preconditions;
 
 /**
  * Finds the common {@link RevCommit commit} ancestor of two commits.
+ * <p>
+ * When both commits come from the same {@link GraphDatabase} and it knows the
+ * {@link GraphDatabase#getGeneration generation numbers} of the visited commits, the history is
+ * traversed in decreasing generation number order and the search stops at the first commit
+ * reachable from both, without visiting its ancestors. Otherwise both histories are traversed
+ * breadth first until they meet.
  */
 public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
@@ -116,6 +128,14 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
      *         {@link Optional#empty()} if a common ancestor could not be found.
      */
     public Optional<ObjectId> findLowestCommonAncestor(ObjectId leftId, ObjectId rightId) {
+        final GraphDatabase leftGraph = leftSource.get();
+        if (leftGraph == rightSource.get()) {
+            @Nullable
+            Optional<ObjectId> ancestor = findByGeneration(leftGraph, leftId, rightId);
+            if (ancestor != null) {
+                return ancestor;
+            }
+        }
         Set<GraphNode> leftSet = new HashSet<GraphNode>();
         Set<GraphNode> rightSet = new HashSet<GraphNode>();
 
@@ -152,6 +172,62 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
         return ancestor;
     }
 
+    /**
+     * Finds the lowest common ancestor visiting commits in decreasing generation number order,
+     * flagging each with the sides it's reachable from. A commit's generation number is greater
+     * than all its ancestors', so when a commit is visited all its descendants have already
+     * propagated their flags to it, and the first one flagged by both sides is the lowest common
+     * ancestor.
+     * 
+     * @return the lowest common ancestor, or {@code null} if the generation number of any visited
+     *         commit is unknown
+     */
+    private @Nullable Optional<ObjectId> findByGeneration(GraphDatabase graph, ObjectId leftId,
+            ObjectId rightId) {
+        if (leftId.equals(rightId)) {
+            return Optional.of(leftId);
+        }
+        final int LEFT = 1, RIGHT = 2, BOTH = LEFT | RIGHT;
+
+        final Map<ObjectId, Integer> flags = new HashMap<>();
+        final Map<ObjectId, Integer> generations = new HashMap<>();
+        final PriorityQueue<ObjectId> queue = new PriorityQueue<>(
+                Comparator.comparingInt((ObjectId id) -> generations.get(id)).reversed());
+
+        for (ObjectId tip : Arrays.asList(leftId, rightId)) {
+            int generation = graph.getGeneration(tip);
+            if (generation == GraphDatabase.GENERATION_UNKNOWN) {
+                return null;
+            }
+            generations.put(tip, generation);
+            flags.put(tip, tip.equals(leftId) ? LEFT : RIGHT);
+            queue.add(tip);
+        }
+
+        while (!queue.isEmpty()) {
+            final ObjectId commit = queue.poll();
+            final int commitFlags = flags.get(commit);
+            if (commitFlags == BOTH) {
+                return Optional.of(commit);
+            }
+            for (ObjectId parent : graph.getParents(commit)) {
+                final Integer parentFlags = flags.get(parent);
+                if (parentFlags == null) {
+                    int generation = graph.getGeneration(parent);
+                    if (generation == GraphDatabase.GENERATION_UNKNOWN) {
+                        return null;
+                    }
+                    generations.put(parent, generation);
+                    flags.put(parent, commitFlags);
+                    queue.add(parent);
+                } else {
+                    flags.put(parent, parentFlags | commitFlags);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
     /**
      * Process a commit to see if it has already been seen. If it has, prevent unnecessary work from
      * continuing on the other traversal queue. If it hasn't, add it's parents to the traversal
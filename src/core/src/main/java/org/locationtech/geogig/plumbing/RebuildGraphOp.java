@@ -9,9 +9,13 @@
  */
 package org.locationtech.geogig.plumbing;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
@@ -28,6 +32,9 @@ import com.google.common.collect.ImmutableList;
 /**
  * Rebuilds the {@link GraphDatabase} and returns a list of {@link ObjectId}s that were found to be
  * missing or incomplete.
+ * <p>
+ * Also backfills the {@link GraphDatabase#getGeneration generation numbers} of all the commits,
+ * which graphs created before they were introduced lack.
  */
 public class RebuildGraphOp extends AbstractGeoGigOp<ImmutableList<ObjectId>> {
 
@@ -47,6 +54,8 @@ public class RebuildGraphOp extends AbstractGeoGigOp<ImmutableList<ObjectId>> {
 
         GraphDatabase graphDb = repository.context().graphDatabase();
 
+        Set<ObjectId> visited = new HashSet<>();
+        Deque<ObjectId> parentsFirst = new ArrayDeque<>();
         for (Ref ref : branches) {
             Iterator<RevCommit> commits = command(LogOp.class).setUntil(ref.getObjectId()).call();
             while (commits.hasNext()) {
@@ -54,8 +63,14 @@ public class RebuildGraphOp extends AbstractGeoGigOp<ImmutableList<ObjectId>> {
                 if (graphDb.put(next.getId(), next.getParentIds())) {
                     updated.add(next.getId());
                 }
+                if (visited.add(next.getId())) {
+                    parentsFirst.push(next.getId());
+                }
             }
         }
+        // generations propagate to descendants, updating oldest commits first saves recomputing
+        // them over and over
+        parentsFirst.forEach(graphDb::updateGeneration);
 
         return ImmutableList.copyOf(updated);
     }
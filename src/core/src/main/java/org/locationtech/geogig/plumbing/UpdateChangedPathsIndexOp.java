@@ -0,0 +1,179 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+
+import lombok.NonNull;
+
+/**
+ * Incrementally updates the {@link ChangedPathsIndex} for the history of a given commit, computing
+ * the {@link ChangedPathsFilter} of every commit reachable from it that's not already indexed.
+ * <p>
+ * The traversal stops at already indexed commits, so after the initial run only the new commits
+ * are processed. {@link #setMaxCommits(int)} bounds the number of commits processed by a single
+ * call, indexing the newest ones first; the commits the traversal didn't get to are saved as the
+ * index {@link ChangedPathsIndex#getFrontier() frontier}, and the next run resumes from them, so
+ * that the whole history ends up indexed over several capped runs. Returns the number of commits
+ * indexed.
+ * <p>
+ * The generation number of each filter is the one maintained by the
+ * {@link GraphDatabase#getGeneration(ObjectId) graph database}.
+ *
+ * @since 2.0
+ */
+public class UpdateChangedPathsIndexOp extends AbstractGeoGigOp<Integer> {
+
+    private ObjectId tip;
+
+    private int maxCommits = Integer.MAX_VALUE;
+
+    /**
+     * @param tip the commit whose history to index, non commit ids (e.g. tags) are ignored
+     */
+    public UpdateChangedPathsIndexOp setTip(@NonNull ObjectId tip) {
+        this.tip = tip;
+        return this;
+    }
+
+    public UpdateChangedPathsIndexOp setMaxCommits(int maxCommits) {
+        checkArgument(maxCommits > 0, "maxCommits must be > 0");
+        this.maxCommits = maxCommits;
+        return this;
+    }
+
+    protected @Override Integer _call() {
+        checkArgument(tip != null, "tip commit not provided");
+        final ObjectDatabase odb = objectDatabase();
+        final GraphDatabase graph = graphDatabase();
+        final ChangedPathsIndex index = new ChangedPathsIndex(context().blobStore());
+        final ProgressListener progress = getProgressListener();
+
+        final List<ObjectId> frontier = index.getFrontier();
+        final Set<ObjectId> pending = new LinkedHashSet<>();
+        final Map<ObjectId, RevCommit> missing = findMissing(odb, index, frontier, pending);
+        if (missing.isEmpty()) {
+            updateFrontier(index, frontier, pending);
+            return 0;
+        }
+        progress.setDescription(
+                String.format("Updating changed paths index for %,d commits", missing.size()));
+
+        int count = 0;
+        for (RevCommit commit : missing.values()) {
+            if (progress.isCanceled()) {
+                // resume from the ones not indexed next time
+                pending.add(commit.getId());
+                continue;
+            }
+            final int generation = graph.getGeneration(commit.getId());
+            final List<String> changedPaths = changedPaths(commit, odb);
+            ChangedPathsFilter filter = ChangedPathsFilter.of(generation, changedPaths);
+            index.put(commit.getId(), filter);
+            progress.setProgress(++count);
+        }
+        updateFrontier(index, frontier, pending);
+        return count;
+    }
+
+    private void updateFrontier(ChangedPathsIndex index, List<ObjectId> previous,
+            Set<ObjectId> pending) {
+        if (!previous.equals(new ArrayList<>(pending))) {
+            index.setFrontier(pending);
+        }
+    }
+
+    /**
+     * Breadth first search of the commits reachable from {@link #tip} and the frontier left by a
+     * previous run that are not yet indexed, up to {@link #maxCommits}.
+     *
+     * @param pending collects the not indexed commits the search didn't get to
+     */
+    private Map<ObjectId, RevCommit> findMissing(ObjectDatabase odb, ChangedPathsIndex index,
+            List<ObjectId> frontier, Set<ObjectId> pending) {
+        Map<ObjectId, RevCommit> missing = new LinkedHashMap<>();
+        Set<ObjectId> seen = new HashSet<>();
+        Deque<ObjectId> queue = new ArrayDeque<>();
+        queue.add(tip);
+        queue.addAll(frontier);
+        while (!queue.isEmpty() && missing.size() < maxCommits) {
+            ObjectId id = queue.poll();
+            if (id.isNull() || !seen.add(id) || index.exists(id)) {
+                continue;
+            }
+            RevCommit commit = odb.getIfPresent(id, RevCommit.class);
+            if (commit != null) {
+                missing.put(id, commit);
+                queue.addAll(commit.getParentIds());
+            }
+        }
+        for (ObjectId id : queue) {
+            if (!id.isNull() && !seen.contains(id) && !index.exists(id)) {
+                pending.add(id);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Computes the paths that changed between the commit and any of its parents, stopping once
+     * there are more than {@link ChangedPathsFilter#MAX_CHANGED_PATHS}. Missing parents (e.g. in a
+     * shallow clone) are compared as the empty tree.
+     */
+    private List<String> changedPaths(RevCommit commit, ObjectDatabase odb) {
+        List<ObjectId> parentTrees = new ArrayList<>();
+        for (ObjectId parentId : commit.getParentIds()) {
+            Optional<RevCommit> parent = Optional
+                    .ofNullable(odb.getIfPresent(parentId, RevCommit.class));
+            parentTrees.add(parent.map(RevCommit::getTreeId).orElse(RevTree.EMPTY_TREE_ID));
+        }
+        if (parentTrees.isEmpty()) {
+            parentTrees.add(RevTree.EMPTY_TREE_ID);
+        }
+        final Set<String> paths = new HashSet<>();
+        for (ObjectId parentTree : parentTrees) {
+            if (parentTree.equals(commit.getTreeId())) {
+                continue;
+            }
+            try (AutoCloseableIterator<DiffEntry> diffs = command(DiffTree.class)
+                    .setOldTree(parentTree).setNewTree(commit.getTreeId()).setReportTrees(true)
+                    .call()) {
+                while (diffs.hasNext()) {
+                    paths.add(diffs.next().path());
+                    if (paths.size() > ChangedPathsFilter.MAX_CHANGED_PATHS) {
+                        return new ArrayList<>(paths);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(paths);
+    }
+}
@@ -24,6 +24,7 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -262,6 +263,7 @@ public class WriteTree extends AbstractGeoGigOp<ObjectId> {
                     treeBuilder = RevTreeBuilder.builder(repositoryDatabase);
                 }
             }
+            treeBuilder.scheduler(GeogigScheduler.get(context().hints()));
             treeCache.put(treePath, treeBuilder);
         }
         return treeBuilder;
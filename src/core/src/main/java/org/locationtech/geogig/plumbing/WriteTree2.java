@@ -32,6 +32,7 @@ import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
 import org.locationtech.geogig.plumbing.diff.MutableTree;
 import org.locationtech.geogig.plumbing.diff.TreeDifference;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.impl.SpatialOps;
@@ -325,7 +326,8 @@ public class WriteTree2 extends AbstractGeoGigOp<ObjectId> {
 
         final RevTree currentLeftTree = repositoryDatabase.getTree(leftTreeId);
 
-        final RevTreeBuilder builder = RevTreeBuilder.builder(repositoryDatabase, currentLeftTree);
+        final RevTreeBuilder builder = RevTreeBuilder.builder(repositoryDatabase, currentLeftTree)
+                .scheduler(GeogigScheduler.get(context().hints()));
 
         // create the new trees taking into account all the nodes
         DiffTree diffs = command(DiffTree.class).setRecursive(false).setReportTrees(false)
@@ -0,0 +1,47 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
+
+import com.google.common.base.Predicate;
+
+/**
+ * A {@link Consumer} decorator that skips whole buckets based on their {@link BucketIndex}, for
+ * index trees where the bucket position determines the range of values its features hold.
+ */
+public final class BucketIndexFilteringDiffConsumer extends PreOrderDiffWalk.ForwardingConsumer {
+
+    private final Predicate<BucketIndex> bucketFilter;
+
+    public BucketIndexFilteringDiffConsumer(Predicate<BucketIndex> bucketFilter,
+            PreOrderDiffWalk.Consumer delegate) {
+        super(delegate);
+        this.bucketFilter = bucketFilter;
+    }
+
+    public @Override boolean bucket(NodeRef lparent, NodeRef rparent, BucketIndex bucketIndex,
+            Bucket left, Bucket right) {
+        if (bucketFilter.apply(bucketIndex)) {
+            return super.bucket(lparent, rparent, bucketIndex, left, right);
+        }
+        return false;
+    }
+
+    public @Override void endBucket(NodeRef lparent, NodeRef rparent, BucketIndex bucketIndex,
+            Bucket left, Bucket right) {
+        if (bucketFilter.apply(bucketIndex)) {
+            super.endBucket(lparent, rparent, bucketIndex, left, right);
+        }
+    }
+}
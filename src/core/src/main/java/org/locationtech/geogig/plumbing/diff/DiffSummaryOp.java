@@ -126,7 +126,7 @@ public @Builder class DiffSummaryOp extends AbstractGeoGigOp<List<LayerDiffSumma
         CompletableFuture<DiffObjectCount> diffCount = CompletableFuture.supplyAsync(() -> {
             DiffObjectCount count = command(DiffCount.class).setOldTree(leftTree)
                     .setNewTree(rightTree).setLeftSource(leftSource).setRightSource(rightSource)
-                    .call();
+                    .setUseCache(true).call();
             return count;
         });
 
@@ -134,7 +134,8 @@ public @Builder class DiffSummaryOp extends AbstractGeoGigOp<List<LayerDiffSumma
         diffBounds = CompletableFuture.supplyAsync(() -> {
             DiffSummary<Envelope, Envelope> boundsDiff;
             boundsDiff = command(DiffBounds.class).setOldVersion(leftTree).setNewVersion(rightTree)
-                    .setLeftSource(leftSource).setRightSource(rightSource).call();
+                    .setLeftSource(leftSource).setRightSource(rightSource).setUseCache(true)
+                    .call();
             return boundsDiff;
         });
 
@@ -0,0 +1,248 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent cache of the {@link DiffObjectCount counts} and bounds of the differences between two
+ * trees, stored in the repository's {@link BlobStore} under the {@code diffs/} namespace.
+ * <p>
+ * Each pair of trees, path filters, and kind of summary is hashed to one of {@code maxEntries}
+ * slots, each stored as a blob that also records the entry it holds. Storing an entry evicts
+ * whatever other entry was in its slot, so the cache never grows past {@code maxEntries} blobs,
+ * regardless of whether the trees it refers to are still reachable, without the need to
+ * enumerate the blob store.
+ * <p>
+ * Trees are immutable, so an entry never gets stale, though it can be removed at any time. A
+ * missing or unreadable entry only means the summary needs to be computed out of the trees.
+ *
+ * @see org.locationtech.geogig.plumbing.DiffCount#setUseCache(boolean)
+ * @see org.locationtech.geogig.plumbing.DiffBounds#setUseCache(boolean)
+ * @since 2.0
+ */
+@Slf4j
+public class DiffSummaryStore {
+
+    static final String BLOB_PREFIX = "diffs/";
+
+    public static final int DEFAULT_MAX_ENTRIES = 64 * 1024;
+
+    private static final byte VERSION = 2;
+
+    private static final String COUNT = "count";
+
+    private static final String BOUNDS = "bounds";
+
+    private final BlobStore store;
+
+    private final int maxEntries;
+
+    public DiffSummaryStore(@NonNull BlobStore store) {
+        this(store, DEFAULT_MAX_ENTRIES);
+    }
+
+    public DiffSummaryStore(@NonNull BlobStore store, int maxEntries) {
+        checkArgument(maxEntries > 0, "maxEntries must be > 0");
+        this.store = store;
+        this.maxEntries = maxEntries;
+    }
+
+    public Optional<DiffObjectCount> getCount(@NonNull ObjectId left, @NonNull ObjectId right,
+            @NonNull Collection<String> pathFilters) {
+        final String key = key(left, right, pathFilters, COUNT);
+        Optional<byte[]> blob = store.getBlob(blobPath(key));
+        if (blob.isPresent()) {
+            try (DataInputStream in = open(blob.get())) {
+                if (!key.equals(in.readUTF())) {
+                    return Optional.empty();
+                }
+                DiffObjectCount count = new DiffObjectCount();
+                count.addedFeatures(in.readLong());
+                count.removedFeatures(in.readLong());
+                count.changedFeatures(in.readLong());
+                count.addedTrees(in.readInt());
+                count.removedTrees(in.readInt());
+                count.changedTrees(in.readInt());
+                return Optional.of(count);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to decode diff count of {}..{}", left, right, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void putCount(@NonNull ObjectId left, @NonNull ObjectId right,
+            @NonNull Collection<String> pathFilters, @NonNull DiffObjectCount count) {
+        final String key = key(left, right, pathFilters, COUNT);
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buff)) {
+            out.writeByte(VERSION);
+            out.writeUTF(key);
+            out.writeLong(count.getFeaturesAdded());
+            out.writeLong(count.getFeaturesRemoved());
+            out.writeLong(count.getFeaturesChanged());
+            out.writeInt(count.getTreesAdded());
+            out.writeInt(count.getTreesRemoved());
+            out.writeInt(count.getTreesChanged());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        store.putBlob(blobPath(key), buff.toByteArray());
+    }
+
+    public Optional<DiffSummary<Envelope, Envelope>> getBounds(@NonNull ObjectId left,
+            @NonNull ObjectId right, @NonNull Collection<String> pathFilters) {
+        final String key = key(left, right, pathFilters, BOUNDS);
+        Optional<byte[]> blob = store.getBlob(blobPath(key));
+        if (blob.isPresent()) {
+            try (DataInputStream in = open(blob.get())) {
+                if (!key.equals(in.readUTF())) {
+                    return Optional.empty();
+                }
+                Envelope leftBounds = readEnvelope(in);
+                Envelope rightBounds = readEnvelope(in);
+                Envelope merged = in.readBoolean() ? readEnvelope(in) : null;
+                return Optional.of(new DiffSummary<>(leftBounds, rightBounds, merged));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to decode diff bounds of {}..{}", left, right, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void putBounds(@NonNull ObjectId left, @NonNull ObjectId right,
+            @NonNull Collection<String> pathFilters,
+            @NonNull DiffSummary<Envelope, Envelope> bounds) {
+        final String key = key(left, right, pathFilters, BOUNDS);
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buff)) {
+            out.writeByte(VERSION);
+            out.writeUTF(key);
+            writeEnvelope(bounds.getLeft(), out);
+            writeEnvelope(bounds.getRight(), out);
+            Optional<Envelope> merged = bounds.getMergedResult();
+            out.writeBoolean(merged.isPresent());
+            if (merged.isPresent()) {
+                writeEnvelope(merged.get(), out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        store.putBlob(blobPath(key), buff.toByteArray());
+    }
+
+    /**
+     * Evicts all the summaries of the diff between {@code left} and {@code right} with the given
+     * path filters
+     */
+    public void remove(@NonNull ObjectId left, @NonNull ObjectId right,
+            @NonNull Collection<String> pathFilters) {
+        remove(key(left, right, pathFilters, COUNT));
+        remove(key(left, right, pathFilters, BOUNDS));
+    }
+
+    /**
+     * Removes the entry's blob only if its slot is not taken by another entry
+     */
+    private void remove(String key) {
+        final String path = blobPath(key);
+        Optional<byte[]> blob = store.getBlob(path);
+        if (blob.isPresent()) {
+            boolean holdsKey;
+            try (DataInputStream in = open(blob.get())) {
+                holdsKey = key.equals(in.readUTF());
+            } catch (IOException | RuntimeException unreadable) {
+                holdsKey = true;
+            }
+            if (holdsKey) {
+                store.removeBlob(path);
+            }
+        }
+    }
+
+    private static DataInputStream open(byte[] blob) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+        final byte version = in.readByte();
+        checkArgument(VERSION == version, "Unknown diff summary version: %s", version);
+        return in;
+    }
+
+    private static void writeEnvelope(@Nullable Envelope env, DataOutput out) throws IOException {
+        final boolean isNull = env == null || env.isNull();
+        out.writeBoolean(isNull);
+        if (!isNull) {
+            out.writeDouble(env.getMinX());
+            out.writeDouble(env.getMaxX());
+            out.writeDouble(env.getMinY());
+            out.writeDouble(env.getMaxY());
+        }
+    }
+
+    private static Envelope readEnvelope(DataInput in) throws IOException {
+        if (in.readBoolean()) {
+            return new Envelope();
+        }
+        double minx = in.readDouble();
+        double maxx = in.readDouble();
+        double miny = in.readDouble();
+        double maxy = in.readDouble();
+        return new Envelope(minx, maxx, miny, maxy);
+    }
+
+    /**
+     * @return the name of the blob for the slot {@code key} is hashed to
+     */
+    String blobPath(String key) {
+        int hash = Hashing.murmur3_32().hashString(key, UTF_8).asInt();
+        return BLOB_PREFIX + Integer.toHexString(Math.floorMod(hash, maxEntries));
+    }
+
+    /**
+     * Path filters are order independent, so they're sorted before hashing them into the key
+     */
+    static String key(ObjectId left, ObjectId right, Collection<String> pathFilters,
+            String kind) {
+        StringBuilder key = new StringBuilder().append(left).append('.').append(right);
+        if (!pathFilters.isEmpty()) {
+            Hasher hasher = Hashing.murmur3_128().newHasher();
+            for (String filter : new TreeSet<>(pathFilters)) {
+                hasher.putString(filter, UTF_8).putByte((byte) 0);
+            }
+            key.append('.').append(hasher.hash());
+        }
+        return key.append('.').append(kind).toString();
+    }
+}
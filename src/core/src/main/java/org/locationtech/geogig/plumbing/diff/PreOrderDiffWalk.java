@@ -51,6 +51,8 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjectFactory;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
@@ -92,28 +94,36 @@ public class PreOrderDiffWalk {
         return worker;
     };
 
-    // this is the same as the defaultForkJoinWorkerThreadFactory but gives the threads a
-    // different name (easier to see in debugger)
-    static ForkJoinPool.ForkJoinWorkerThreadFactory threadFactoryShared = pool -> {
-        final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory
-                .newThread(pool);
-        worker.setName("PreOrderDiffWalk-shared-" + worker.getPoolIndex());
-        return worker;
-    };
+    /**
+     * @return the scheduler's {@link WorkClass#DIFF_WALK diff-walk} pool, which runs in async
+     *         (FIFO) mode, more appropriate than the default stack-based mode when worker threads
+     *         only process event-style asynchronous tasks
+     */
+    private static ForkJoinPool sharedForkJoinPool() {
+        return GeogigScheduler.defaultInstance().forkJoinPool(WorkClass.DIFF_WALK);
+    }
 
-    private static final ForkJoinPool SHARED_FORK_JOIN_POOL;
+    private static int defaultParallelism() {
+        return GeogigScheduler.defaultInstance().parallelism(WorkClass.DIFF_WALK);
+    }
 
-    private static final int DEFAULT_PARALLELISM = Math.max(2,
-            Runtime.getRuntime().availableProcessors());
+    /**
+     * Default number of tree ids coalesced in a single {@link ObjectStore#getAll getAll} call by
+     * the {@link #prefetch(boolean) prefetching} walk mode
+     */
+    public static final int DEFAULT_PREFETCH_BATCH_SIZE = 1_000;
 
-    static {
-        // if true, establishes local first-in-first-out scheduling mode for forked
-        // more appropriate than default locally stack-based mode when
-        // worker threads only process event-style asynchronous tasks
-        final boolean asyncMode = true;
-        SHARED_FORK_JOIN_POOL = new ForkJoinPool(DEFAULT_PARALLELISM, threadFactoryShared, null,
-                asyncMode);
-    }
+    /**
+     * Default max number of trees fetched ahead of the walk by the {@link #prefetch(boolean)
+     * prefetching} walk mode
+     */
+    public static final int DEFAULT_PREFETCH_WINDOW_SIZE = 10_000;
+
+    /**
+     * Max number of {@link ObjectStore#getAll getAll} batches in flight at any given time per
+     * object store in the {@link #prefetch(boolean) prefetching} walk mode
+     */
+    private static final int MAX_CONCURRENT_PREFETCHES = 4;
 
     public NodeOrdering ORDER = CanonicalNodeOrder.INSTANCE;
 
@@ -250,19 +260,25 @@ public class PreOrderDiffWalk {
 
     private ForkJoinPool forkJoinPool;
 
+    private GeogigScheduler scheduler = GeogigScheduler.defaultInstance();
+
     private CancellableConsumer walkConsumer = null;
 
     private AtomicBoolean finished = new AtomicBoolean(false);
 
     private boolean reportFeatures = true;
 
+    private int prefetchBatchSize = 0;
+
+    private int prefetchWindowSize = 0;
+
     public PreOrderDiffWalk(@NonNull RevTree left, @NonNull RevTree right,
             @NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource) {
         this.left = left;
         this.right = right;
         this.leftSource = leftSource;
         this.rightSource = rightSource;
-        this.forkJoinPool = SHARED_FORK_JOIN_POOL;
+        this.forkJoinPool = sharedForkJoinPool();
     }
 
     public PreOrderDiffWalk(@NonNull RevTree left, @NonNull RevTree right,
@@ -270,7 +286,7 @@ public class PreOrderDiffWalk {
             boolean preserveIterationOrder) {
 
         this(left, right, leftSource, rightSource,
-                preserveIterationOrder ? 1 : DEFAULT_PARALLELISM);
+                preserveIterationOrder ? 1 : defaultParallelism());
     }
 
     public @VisibleForTesting PreOrderDiffWalk(@NonNull RevTree left, @NonNull RevTree right,
@@ -279,8 +295,8 @@ public class PreOrderDiffWalk {
         this.right = right;
         this.leftSource = leftSource;
         this.rightSource = rightSource;
-        if (DEFAULT_PARALLELISM == parallelism) {
-            this.forkJoinPool = SHARED_FORK_JOIN_POOL;
+        if (defaultParallelism() == parallelism) {
+            this.forkJoinPool = sharedForkJoinPool();
         } else {
             this.forkJoinPool = new ForkJoinPool(parallelism, threadFactoryPrivate, null, true);
         }
@@ -297,9 +313,31 @@ public class PreOrderDiffWalk {
         @Nullable
         final NodeRef parentRef;
 
-        SideInfo(ObjectStore source, NodeRef parentRef) {
+        @Nullable
+        final TreePrefetcher prefetcher;
+
+        SideInfo(ObjectStore source, NodeRef parentRef, @Nullable TreePrefetcher prefetcher) {
             this.source = source;
             this.parentRef = parentRef;
+            this.prefetcher = prefetcher;
+        }
+
+        RevTree getTree(ObjectId id) {
+            return prefetcher == null ? source.getTree(id) : prefetcher.getTree(id);
+        }
+
+        Map<ObjectId, RevTree> getAll(Iterable<ObjectId> ids) {
+            if (prefetcher == null) {
+                return Streams.stream(source.getAll(ids, NOOP_LISTENER, RevTree.class))
+                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
+            }
+            return prefetcher.getAll(ids);
+        }
+
+        void prefetch(List<ObjectId> ids) {
+            if (prefetcher != null && !ids.isEmpty()) {
+                prefetcher.prefetch(ids);
+            }
         }
     }
 
@@ -324,9 +362,13 @@ public class PreOrderDiffWalk {
             this.reportFeatures = reportFeatures;
         }
 
+        boolean prefetching() {
+            return left.prefetcher != null || right.prefetcher != null;
+        }
+
         public WalkInfo child(NodeRef leftChild, NodeRef rightChild) {
-            SideInfo leftInfo = new SideInfo(left.source, leftChild);
-            SideInfo rightInfo = new SideInfo(right.source, rightChild);
+            SideInfo leftInfo = new SideInfo(left.source, leftChild, left.prefetcher);
+            SideInfo rightInfo = new SideInfo(right.source, rightChild, right.prefetcher);
             return new WalkInfo(consumer, leftInfo, rightInfo, nodeOrder, reportFeatures);
         }
     }
@@ -380,8 +422,17 @@ public class PreOrderDiffWalk {
 
         this.walkConsumer = new CancellableConsumer(consumer);
 
-        SideInfo leftInfo = new SideInfo(leftSource, leftRef);
-        SideInfo rightInfo = new SideInfo(rightSource, rightRef);
+        TreePrefetcher leftPrefetcher = null;
+        TreePrefetcher rightPrefetcher = null;
+        if (prefetchBatchSize > 0) {
+            leftPrefetcher = new TreePrefetcher(leftSource, prefetchBatchSize, prefetchWindowSize,
+                    MAX_CONCURRENT_PREFETCHES, scheduler);
+            rightPrefetcher = leftSource == rightSource ? leftPrefetcher
+                    : new TreePrefetcher(rightSource, prefetchBatchSize, prefetchWindowSize,
+                            MAX_CONCURRENT_PREFETCHES, scheduler);
+        }
+        SideInfo leftInfo = new SideInfo(leftSource, leftRef, leftPrefetcher);
+        SideInfo rightInfo = new SideInfo(rightSource, rightRef, rightPrefetcher);
 
         WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo, ORDER, reportFeatures);
 
@@ -398,18 +449,70 @@ public class PreOrderDiffWalk {
                 throw new RuntimeException(e);
             }
         } finally {
+            if (leftPrefetcher != null) {
+                leftPrefetcher.close();
+                rightPrefetcher.close();
+            }
             finished.set(true);
             cleanupForkJoinPool();
         }
     }
 
+    /**
+     * Sets the scheduler whose {@link WorkClass#DIFF_WALK diff-walk} pool runs the walk and whose
+     * {@link WorkClass#STORAGE_IO storage-io} executor runs the prefetches, defaults to
+     * {@link GeogigScheduler#defaultInstance()}. A walk created with a non default parallelism
+     * keeps running on its own private pool.
+     */
+    public PreOrderDiffWalk scheduler(@NonNull GeogigScheduler scheduler) {
+        if (forkJoinPool == this.scheduler.forkJoinPool(WorkClass.DIFF_WALK)) {
+            this.forkJoinPool = scheduler.forkJoinPool(WorkClass.DIFF_WALK);
+        }
+        this.scheduler = scheduler;
+        return this;
+    }
+
     public PreOrderDiffWalk reportFeatures(boolean report) {
         this.reportFeatures = report;
         return this;
     }
 
+    /**
+     * Enables or disables the prefetching walk mode with the
+     * {@link #DEFAULT_PREFETCH_BATCH_SIZE default batch size} and
+     * {@link #DEFAULT_PREFETCH_WINDOW_SIZE window size}.
+     * 
+     * @see #prefetch(int, int)
+     */
+    public PreOrderDiffWalk prefetch(boolean prefetch) {
+        if (prefetch) {
+            return prefetch(DEFAULT_PREFETCH_BATCH_SIZE, DEFAULT_PREFETCH_WINDOW_SIZE);
+        }
+        this.prefetchBatchSize = 0;
+        this.prefetchWindowSize = 0;
+        return this;
+    }
+
+    /**
+     * Enables the prefetching walk mode, where the bucket and named trees needed at the next depth
+     * are requested as soon as their parents are loaded, across all the concurrent branches of the
+     * walk, and fetched in the background in batches of up to {@code batchSize} trees, keeping no
+     * more than {@code windowSize} trees ahead of the walk.
+     * <p>
+     * This trades some wasted fetches (e.g. of trees the {@link Consumer} decides to skip) for far
+     * fewer and larger {@link ObjectStore#getAll getAll} calls, and pays off with object stores
+     * where each call is a round trip to a remote server.
+     */
+    public PreOrderDiffWalk prefetch(int batchSize, int windowSize) {
+        checkArgument(batchSize > 0, "batchSize must be > 0");
+        checkArgument(windowSize >= batchSize, "windowSize must be >= batchSize");
+        this.prefetchBatchSize = batchSize;
+        this.prefetchWindowSize = windowSize;
+        return this;
+    }
+
     private void cleanupForkJoinPool() {
-        if (forkJoinPool == SHARED_FORK_JOIN_POOL)
+        if (forkJoinPool == scheduler.forkJoinPool(WorkClass.DIFF_WALK))
             return; // no need to clean up
         else
             forkJoinPool.shutdown(); // private pool needs cleaning
@@ -511,6 +614,8 @@ public class PreOrderDiffWalk {
             RevTree ltree, rtree;
 
             final List<WalkAction> tasks = new ArrayList<>();
+            final List<ObjectId> nextLeftIds = new ArrayList<>();
+            final List<ObjectId> nextRightIds = new ArrayList<>();
 
             for (BucketIndex index : childBucketIndexes) {
                 lbucket = left.getBucket(index.lastIndex().intValue());
@@ -526,16 +631,59 @@ public class PreOrderDiffWalk {
                     WalkAction task;
                     task = new TraverseBucketBucket(info, ltree, rtree, lbucket, rbucket, index);
                     tasks.add(task);
+                    if (info.prefetching()) {
+                        collectBucketIds(ltree, rtree, nextLeftIds, nextRightIds);
+                    }
                 }
             }
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
             }
-
+            prefetch(nextLeftIds, nextRightIds);
             return tasks;
         }
 
+        /**
+         * Collects the ids of the bucket trees that'll be needed to compare {@code left} and
+         * {@code right}, that is, the ones that differ if both are bucket trees, or all the buckets
+         * of the one that is a bucket tree if the other one is a leaf tree.
+         */
+        protected final void collectBucketIds(RevTree left, RevTree right, List<ObjectId> leftIds,
+                List<ObjectId> rightIds) {
+            if (!info.reportFeatures && left.numTrees() == 0 && right.numTrees() == 0) {
+                return;
+            }
+            final boolean leftIsLeaf = left.bucketsSize() == 0;
+            final boolean rightIsLeaf = right.bucketsSize() == 0;
+            if (leftIsLeaf || rightIsLeaf) {
+                left.forEachBucket(b -> leftIds.add(b.getObjectId()));
+                right.forEachBucket(b -> rightIds.add(b.getObjectId()));
+            } else {
+                left.forEachBucket(b -> {
+                    if (!Optional.of(b).equals(right.getBucket(b.getIndex()))) {
+                        leftIds.add(b.getObjectId());
+                    }
+                });
+                right.forEachBucket(b -> {
+                    if (!Optional.of(b).equals(left.getBucket(b.getIndex()))) {
+                        rightIds.add(b.getObjectId());
+                    }
+                });
+            }
+        }
+
+        /**
+         * Requests the trees that will be needed at the next depth to be fetched ahead of time, if
+         * in prefetching mode
+         */
+        protected final void prefetch(List<ObjectId> leftIds, List<ObjectId> rightIds) {
+            if (info.prefetching() && !info.consumer.isCancelled()) {
+                info.left.prefetch(leftIds);
+                info.right.prefetch(rightIds);
+            }
+        }
+
         private Map<ObjectId, RevTree> loadTrees(final Set<ObjectId> lbucketIds,
                 final Set<ObjectId> rbucketIds) {
 
@@ -544,20 +692,13 @@ public class PreOrderDiffWalk {
             // get all buckets at once, to leverage ObjectStore optimizations
             if (info.left.source == info.right.source) {
                 Set<ObjectId> ids = Sets.union(lbucketIds, rbucketIds);
-                Iterator<RevTree> titer = info.left.source.getAll(ids, NOOP_LISTENER,
-                        RevTree.class);
-                trees = Streams.stream(titer).collect(Collectors.toMap(t -> t.getId(), t -> t));
+                trees = info.left.getAll(ids);
             } else {
-                trees = Streams
-                        .stream(info.left.source.getAll(lbucketIds, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
+                trees = info.left.getAll(lbucketIds);
 
                 // avoid re-fetching objects at both sides
                 Set<ObjectId> missingAtRight = Sets.difference(rbucketIds, lbucketIds);
-                trees.putAll(Streams.stream(
-                        info.right.source.getAll(missingAtRight, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t)));
-
+                trees.putAll(info.right.getAll(missingAtRight));
             }
             return trees;
         }
@@ -590,9 +731,9 @@ public class PreOrderDiffWalk {
                 return Collections.emptyList();
             }
             // get all buckets at once, to leverage ObjectStore optimizations
-            final ObjectStore source = info.right.source;
-            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(source, rightBuckets);
+            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(info.right, rightBuckets);
             List<WalkAction> tasks = new ArrayList<>();
+            List<ObjectId> nextRightIds = new ArrayList<>();
 
             for (BucketIndex childIndex : bucketIndexes) {
                 Bucket rightBucket = rightBuckets.get(childIndex.lastIndex());
@@ -607,12 +748,16 @@ public class PreOrderDiffWalk {
                     task = new TraverseLeafBucket(info, leftNodes.iterator(), left, rightBucket,
                             rightTree, childIndex);
                     tasks.add(task);
+                    if (info.prefetching()) {
+                        rightTree.forEachBucket(b -> nextRightIds.add(b.getObjectId()));
+                    }
                 }
             }
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
             }
+            prefetch(Collections.emptyList(), nextRightIds);
             return tasks;
         }
 
@@ -645,9 +790,9 @@ public class PreOrderDiffWalk {
                 return Collections.emptyList();
             }
             // get all buckets at once, to leverage ObjectStore optimizations
-            final ObjectStore source = info.left.source;
-            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(source, leftBuckets);
+            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(info.left, leftBuckets);
             List<WalkAction> tasks = new ArrayList<>();
+            List<ObjectId> nextLeftIds = new ArrayList<>();
 
             for (BucketIndex childIndex : bucketIndexes) {
                 Bucket leftBucket = leftBuckets.get(childIndex.lastIndex());
@@ -661,24 +806,23 @@ public class PreOrderDiffWalk {
                     TraverseBucketLeaf task = new TraverseBucketLeaf(info, leftBucket, leftTree,
                             rightNodes.iterator(), rightLeaf, childIndex);
                     tasks.add(task);
+                    if (info.prefetching()) {
+                        leftTree.forEachBucket(b -> nextLeftIds.add(b.getObjectId()));
+                    }
                 }
             }
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
             }
+            prefetch(nextLeftIds, Collections.emptyList());
             return tasks;
         }
 
-        private Map<ObjectId, RevTree> loadBucketTrees(final ObjectStore source,
+        private Map<ObjectId, RevTree> loadBucketTrees(final SideInfo side,
                 final SortedMap<Integer, Bucket> buckets) {
-            final Map<ObjectId, RevTree> bucketTrees;
-            {
-                Iterable<ObjectId> ids = transform(buckets.values(), Bucket::getObjectId);
-                bucketTrees = Streams.stream(source.getAll(ids, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
-            }
-            return bucketTrees;
+            Iterable<ObjectId> ids = transform(buckets.values(), Bucket::getObjectId);
+            return side.getAll(ids);
         }
 
         private SortedSet<BucketIndex> getChildBucketIndexes(
@@ -772,10 +916,10 @@ public class PreOrderDiffWalk {
                 RevTree right;
                 left = leftNode == null || RevTree.EMPTY_TREE_ID.equals(leftNode.getObjectId())
                         ? RevTree.EMPTY
-                        : info.left.source.getTree(leftNode.getObjectId());
+                        : info.left.getTree(leftNode.getObjectId());
                 right = rightNode == null || RevTree.EMPTY_TREE_ID.equals(rightNode.getObjectId())
                         ? RevTree.EMPTY
-                        : info.right.source.getTree(rightNode.getObjectId());
+                        : info.right.getTree(rightNode.getObjectId());
 
                 if (info.reportFeatures || (left.numTrees() > 0 || right.numTrees() > 0)) {
                     TraverseTreeContents traverseTreeContents = new TraverseTreeContents(info, left,
@@ -881,15 +1025,14 @@ public class PreOrderDiffWalk {
                     action = node(lref, null);// removal
                 } else if (order == 0) {// change
                     // same feature at both sides of the traversal, consume them and check if its
-                    // changed it or not
+                    // changed it or not. Names are already known to be equal, so compare by type
+                    // and id only, to avoid decoding any other property of lazy nodes
                     Node l = li.next();
                     Node r = ri.next();
-                    if (!Objects.equal(l, r)) {
+                    if (!l.isSameObject(r)) {
                         NodeRef lref = newRef(leftParent, l);
                         NodeRef rref = newRef(rightParent, r);
-                        if (!l.equals(r)) {
-                            action = node(lref, rref);
-                        }
+                        action = node(lref, rref);
                     }
                 } else {
                     NodeRef rref = newRef(rightParent, ri.next());
@@ -920,10 +1063,34 @@ public class PreOrderDiffWalk {
             }
 
             if (!info.consumer.isCancelled()) {
+                prefetchTrees(tasks);
                 invokeAll(tasks);
             }
         }
 
+        /**
+         * Requests the trees of the changed tree nodes to be fetched ahead of time, if in
+         * prefetching mode
+         */
+        private void prefetchTrees(List<WalkAction> tasks) {
+            if (!info.prefetching()) {
+                return;
+            }
+            List<ObjectId> leftIds = new ArrayList<>();
+            List<ObjectId> rightIds = new ArrayList<>();
+            for (WalkAction task : tasks) {
+                NodeRef leftTree = task.info.left.parentRef;
+                NodeRef rightTree = task.info.right.parentRef;
+                if (leftTree != null) {
+                    leftIds.add(leftTree.getObjectId());
+                }
+                if (rightTree != null) {
+                    rightIds.add(rightTree.getObjectId());
+                }
+            }
+            prefetch(leftIds, rightIds);
+        }
+
         private NodeRef newRef(NodeRef parent, Node lnode) {
             return NodeRef.create(parent.path(), lnode, parent.getMetadataId());
         }
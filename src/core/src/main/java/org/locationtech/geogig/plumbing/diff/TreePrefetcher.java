@@ -0,0 +1,300 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * Fetches the trees a {@link PreOrderDiffWalk} is going to need at the next depth ahead of the
+ * walk, coalescing the requests of all its concurrent branches into large
+ * {@link ObjectStore#getAll getAll} batches.
+ * <p>
+ * Requested ids are queued until {@code batchSize} of them are pending or one of them is actually
+ * needed, and then fetched on the {@link WorkClass#STORAGE_IO storage-io} executor, with at most
+ * {@code maxConcurrentFetches} batches in flight. No more than {@code windowSize} trees are kept
+ * ahead of the walk; once the window is full the oldest fetched trees are evicted to make room,
+ * or the request is ignored if they're all still in flight.
+ * <p>
+ * Trees are always resolved the same as if fetched directly from the object store, trees that were
+ * not prefetched, evicted, or whose batch failed are fetched directly when needed.
+ */
+final class TreePrefetcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TreePrefetcher.class);
+
+    /**
+     * Max number of requested ids to inspect when looking for a tree to evict
+     */
+    private static final int MAX_EVICTION_PROBES = 64;
+
+    private final ObjectStore source;
+
+    private final int batchSize;
+
+    private final int windowSize;
+
+    private final ExecutorService fetchers;
+
+    /**
+     * Trees requested and not yet consumed, either pending, in flight, or already fetched, in
+     * request order, guarded by {@code this}
+     */
+    private final Map<ObjectId, CompletableFuture<RevTree>> ahead = new LinkedHashMap<>();
+
+    /**
+     * Requested ids not yet sent to the object store, guarded by {@code this}
+     */
+    private Map<ObjectId, CompletableFuture<RevTree>> pending = new LinkedHashMap<>();
+
+    private volatile boolean closed;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    TreePrefetcher(@NonNull ObjectStore source, int batchSize, int windowSize,
+            int maxConcurrentFetches, @NonNull GeogigScheduler scheduler) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be > 0");
+        Preconditions.checkArgument(windowSize >= batchSize, "windowSize must be >= batchSize");
+        this.source = source;
+        this.batchSize = batchSize;
+        this.windowSize = windowSize;
+        this.fetchers = scheduler.boundedExecutor(WorkClass.STORAGE_IO, maxConcurrentFetches);
+    }
+
+    /**
+     * Requests the trees with the given ids to be fetched ahead of time, ignoring those already
+     * requested and, if the window is full, the ones that don't fit in it.
+     */
+    public void prefetch(Iterable<ObjectId> ids) {
+        if (closed) {
+            return;
+        }
+        Map<ObjectId, CompletableFuture<RevTree>> batch = null;
+        synchronized (this) {
+            for (ObjectId id : ids) {
+                if (RevTree.EMPTY_TREE_ID.equals(id) || ahead.containsKey(id)) {
+                    continue;
+                }
+                if (!reserve()) {
+                    break;
+                }
+                CompletableFuture<RevTree> future = new CompletableFuture<>();
+                ahead.put(id, future);
+                pending.put(id, future);
+            }
+            if (pending.size() >= batchSize) {
+                batch = drainPending();
+            }
+        }
+        if (batch != null) {
+            fetch(batch);
+        }
+    }
+
+    /**
+     * @return the trees for the given ids, taking the prefetched ones and fetching the rest
+     *         directly from the object store in a single call
+     */
+    public Map<ObjectId, RevTree> getAll(Iterable<ObjectId> ids) {
+        Map<ObjectId, CompletableFuture<RevTree>> taken = new HashMap<>();
+        Set<ObjectId> missing = new HashSet<>();
+        take(ids, taken, missing);
+        Map<ObjectId, RevTree> trees = new HashMap<>();
+        taken.forEach((id, future) -> {
+            RevTree tree = join(future);
+            if (tree == null) {
+                missing.add(id);
+            } else {
+                trees.put(id, tree);
+            }
+        });
+        misses.add(missing.size());
+        hits.add(trees.size());
+        if (!missing.isEmpty()) {
+            source.getAll(missing, NOOP_LISTENER, RevTree.class)
+                    .forEachRemaining(t -> trees.put(t.getId(), t));
+        }
+        return trees;
+    }
+
+    /**
+     * @return the tree with the given id, either prefetched or fetched directly from the object
+     *         store
+     */
+    public RevTree getTree(ObjectId id) {
+        Map<ObjectId, CompletableFuture<RevTree>> taken = new HashMap<>(2);
+        take(Collections.singleton(id), taken, new HashSet<>());
+        CompletableFuture<RevTree> future = taken.get(id);
+        RevTree tree = future == null ? null : join(future);
+        if (tree == null) {
+            misses.increment();
+            return source.getTree(id);
+        }
+        hits.increment();
+        return tree;
+    }
+
+    private @Nullable RevTree join(CompletableFuture<RevTree> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Takes the requested trees out of {@link #ahead} into {@code taken}, and the ids not requested
+     * into {@code missing}.
+     * <p>
+     * Sends the pending batch if any of the taken ids is in it, so that waiting for them doesn't
+     * block forever. Requested ids are only removed from the pending batch by sending it, hence
+     * any id not pending is either in flight or fetched.
+     */
+    private void take(Iterable<ObjectId> ids, Map<ObjectId, CompletableFuture<RevTree>> taken,
+            Set<ObjectId> missing) {
+        Map<ObjectId, CompletableFuture<RevTree>> batch = null;
+        synchronized (this) {
+            for (ObjectId id : ids) {
+                CompletableFuture<RevTree> future = ahead.remove(id);
+                if (future == null) {
+                    missing.add(id);
+                } else {
+                    taken.put(id, future);
+                    if (batch == null && pending.containsKey(id)) {
+                        // send all the pending ids, not just the ones needed right now
+                        batch = drainPending();
+                    }
+                }
+            }
+        }
+        if (batch != null) {
+            fetch(batch);
+        }
+    }
+
+    /**
+     * Makes room for a new request in the window, evicting the oldest tree already fetched if it's
+     * full. Called while holding the lock on {@code this}.
+     */
+    private boolean reserve() {
+        if (ahead.size() < windowSize) {
+            return true;
+        }
+        Iterator<CompletableFuture<RevTree>> oldest = ahead.values().iterator();
+        for (int i = 0; i < MAX_EVICTION_PROBES && oldest.hasNext(); i++) {
+            if (oldest.next().isDone()) {
+                oldest.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<ObjectId, CompletableFuture<RevTree>> drainPending() {
+        Map<ObjectId, CompletableFuture<RevTree>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void fetch(Map<ObjectId, CompletableFuture<RevTree>> batch) {
+        try {
+            fetchers.execute(() -> fetchNow(batch));
+        } catch (RejectedExecutionException e) {
+            // closed, consumers fall back to fetching directly
+            batch.values().forEach(f -> f.complete(null));
+        }
+    }
+
+    private void fetchNow(Map<ObjectId, CompletableFuture<RevTree>> batch) {
+        final Map<ObjectId, RevTree> fetched = new HashMap<>();
+        if (!closed) {
+            try {
+                List<ObjectId> ids = new ArrayList<>(batch.keySet());
+                source.getAll(ids, NOOP_LISTENER, RevTree.class)
+                        .forEachRemaining(t -> fetched.put(t.getId(), t));
+                batches.increment();
+            } catch (RuntimeException e) {
+                // consumers will fetch directly and get the error if it's not transient
+                log.debug("Error prefetching {} trees", batch.size(), e);
+            }
+        }
+        batch.forEach((id, future) -> future.complete(fetched.get(id)));
+    }
+
+    /**
+     * @return number of trees that were taken from the prefetched ones
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of trees that had to be fetched directly from the object store
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of batches fetched ahead of the walk
+     */
+    public long batches() {
+        return batches.sum();
+    }
+
+    public @Override void close() {
+        closed = true;
+        Map<ObjectId, CompletableFuture<RevTree>> batch;
+        synchronized (this) {
+            batch = drainPending();
+            ahead.clear();
+        }
+        batch.values().forEach(f -> f.complete(null));
+        fetchers.shutdown();
+        log.debug("Prefetched {} batches, hits: {}, misses: {}", batches(), hits(), misses());
+    }
+
+    public @Override String toString() {
+        return String.format("%s[batches: %,d, hits: %,d, misses: %,d]",
+                getClass().getSimpleName(), batches(), hits(), misses());
+    }
+}
@@ -24,6 +24,7 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.ProgressListener;
@@ -223,9 +224,18 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
             ObjectStore target = source;
             builder = RevTreeBuilder.quadBuilder(source, target, oldIndexTree, maxBounds);
             break;
+        case ATTRIBUTE:
+            final String attributeName = index.getAttributeName();
+            checkState(
+                    IndexInfo.getMaterializedAttributeNames(index).contains(attributeName),
+                    "Attribute index does not materialize the indexed attribute %s",
+                    attributeName);
+            builder = RevTreeBuilder.attributeBuilder(indexDatabase, indexDatabase, oldIndexTree,
+                    attributeName);
+            break;
         default:
             throw new UnsupportedOperationException("Uknown index type: " + indexType);
         }
-        return builder;
+        return builder.scheduler(GeogigScheduler.get(context().hints()));
     }
 }
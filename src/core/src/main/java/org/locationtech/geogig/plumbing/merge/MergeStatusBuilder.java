@@ -111,6 +111,10 @@ public class MergeStatusBuilder extends MergeScenarioConsumer {
         if (!ours) {
             conflictsBuffer.add(conflict);
         }
+        reportConflict(conflict);
+    }
+
+    private void reportConflict(Conflict conflict) {
         if (reportedConflicts.get() < maxReportedConflicts) {
             mergeMsg.append("\t" + conflict.getPath() + "\n");
             conflictMsg.append("CONFLICT: Merge conflict in " + conflict.getPath() + "\n");
@@ -121,18 +125,52 @@ public class MergeStatusBuilder extends MergeScenarioConsumer {
 
     public @Override void unconflicted(DiffEntry diff) {
         unconflictedBuffer.add(diff);
-        changed.set(true);
-        fastForward.set(false);
-        progress.setProgress(1f + progress.getProgress());
+        reportChange();
     }
 
     public @Override void merged(FeatureInfo featureInfo) {
         mergedBuffer.add(featureInfo);
+        reportChange();
+    }
+
+    private void reportChange() {
         changed.set(true);
         fastForward.set(false);
         progress.setProgress(1f + progress.getProgress());
     }
 
+    /**
+     * Returns a consumer that builds the merge and conflicts messages and tracks the merge status
+     * like this one does, but doesn't buffer the merge outcomes, for merge operations that apply
+     * them as they go, like {@link ThreeWayMergeOp}.
+     */
+    public MergeScenarioConsumer reportingConsumer() {
+        return new MergeScenarioConsumer() {
+            public @Override void conflicted(Conflict conflict) {
+                reportConflict(conflict);
+            }
+
+            public @Override void unconflicted(DiffEntry diff) {
+                reportChange();
+            }
+
+            public @Override void merged(FeatureInfo featureInfo) {
+                reportChange();
+            }
+
+            protected @Override void cancelled() {
+                dispose();
+            }
+
+            public @Override void finished() {
+                progress.complete();
+                progress.started();
+                dispose();
+                appendConflictsSummary();
+            }
+        };
+    }
+
     protected @Override void cancelled() {
         dispose();
     }
@@ -168,7 +206,10 @@ public class MergeStatusBuilder extends MergeScenarioConsumer {
         } finally {
             dispose();
         }
+        appendConflictsSummary();
+    }
 
+    private void appendConflictsSummary() {
         if (reportedConflicts.get() > maxReportedConflicts) {
             mergeMsg.append("and " + (reportedConflicts.get() - maxReportedConflicts)
                     + " additional conflicts.\n");
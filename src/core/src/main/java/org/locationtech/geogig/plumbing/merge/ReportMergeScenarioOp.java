@@ -11,15 +11,24 @@ package org.locationtech.geogig.plumbing.merge;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.DiffEntry.ChangeType;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.DiffTree;
@@ -27,12 +36,16 @@ import org.locationtech.geogig.plumbing.FindCommonAncestor;
 import org.locationtech.geogig.plumbing.merge.DiffMergeFeaturesOp.DiffMergeFeatureResult;
 import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 import com.google.common.collect.PeekingIterator;
 
 /**
@@ -49,6 +62,13 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
 
     private MergeScenarioConsumer consumer = null;
 
+    /**
+     * How many merge tuples are processed at a time. The features modified on both branches
+     * within a batch are fetched in bulk and their attribute level merge is computed in parallel,
+     * while the consumer is still notified in order.
+     */
+    static final int BATCH_SIZE = 1_000;
+
     /**
      * @param toMerge the commit with the changes to apply {@link RevCommit}
      */
@@ -176,30 +196,41 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
     private MergeScenarioReport process(Iterator<MergeDiffRef> tupleIterator,
             RevTree ancestorTree) {
 
-        MergeScenarioReport report = new MergeScenarioReport();
-        while (tupleIterator.hasNext()) {
-            MergeDiffRef mr = tupleIterator.next();
+        final ForkJoinPool pool = GeogigScheduler.get(context().hints())
+                .forkJoinPool(WorkClass.DIFF_WALK);
 
-            DiffEntry ours = mr.ours();
-            DiffEntry theirs = mr.theirs();
-            if (ours == null) {
-                // Only "their" branch modified the path
-                consumer.unconflicted(theirs);
-                report.addUnconflicted(theirs);
-            } else if (theirs == null) {
-                // Only "our" branch modified the path
-                // nothing else to do
-            } else {
-                // both branches modifies the same path
-                processPossibleConflict(ours, theirs, ancestorTree, report);
-            }
+        MergeScenarioReport report = new MergeScenarioReport();
+        Iterator<List<MergeDiffRef>> batches = Iterators.partition(tupleIterator, BATCH_SIZE);
+        boolean pending = false;
+        while (batches.hasNext() && !pending) {
+            final List<MergeDiffRef> batch = batches.next();
+            final List<DiffMergeFeatureResult> featureMerges = resolveFeatureMerges(batch, pool);
+
+            for (int i = 0; i < batch.size(); i++) {
+                MergeDiffRef mr = batch.get(i);
+                DiffEntry ours = mr.ours();
+                DiffEntry theirs = mr.theirs();
+                if (ours == null) {
+                    // Only "their" branch modified the path
+                    consumer.unconflicted(theirs);
+                    report.addUnconflicted(theirs);
+                } else if (theirs == null) {
+                    // Only "our" branch modified the path
+                    // nothing else to do
+                } else {
+                    // both branches modifies the same path
+                    processPossibleConflict(ours, theirs, ancestorTree, report,
+                            featureMerges.get(i));
+                }
 
-            if (consumer.isCancelled()) {
-                break;
+                if (consumer.isCancelled()) {
+                    pending = i < batch.size() - 1 || batches.hasNext();
+                    break;
+                }
             }
         }
 
-        if (!consumer.isCancelled() || !tupleIterator.hasNext()) {
+        if (!consumer.isCancelled() || !pending) {
             consumer.finished();
         }
 
@@ -207,8 +238,51 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
 
     }
 
+    /**
+     * Runs {@link DiffMergeFeaturesOp} for the features of the batch that have been modified on
+     * both branches, fetching all the features and feature types involved at once, and resolving
+     * them concurrently on {@code pool}.
+     *
+     * @return the merge results, at the same position than their corresponding tuple in
+     *         {@code batch}, and {@code null} for the tuples that don't need one
+     */
+    private List<DiffMergeFeatureResult> resolveFeatureMerges(List<MergeDiffRef> batch,
+            ForkJoinPool pool) {
+
+        final DiffMergeFeatureResult[] results = new DiffMergeFeatureResult[batch.size()];
+        final List<Integer> featureMerges = new ArrayList<>();
+        final Set<ObjectId> ids = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            MergeDiffRef mr = batch.get(i);
+            DiffEntry ours = mr.ours();
+            DiffEntry theirs = mr.theirs();
+            if (ours != null && theirs != null && ChangeType.MODIFIED == ours.changeType()
+                    && ChangeType.MODIFIED == theirs.changeType()
+                    && TYPE.TREE != theirs.newObjectType()) {
+                featureMerges.add(Integer.valueOf(i));
+                for (NodeRef ref : new NodeRef[] { theirs.getOldObject(), ours.getNewObject(),
+                        theirs.getNewObject() }) {
+                    ids.add(ref.getObjectId());
+                    ids.add(ref.getMetadataId());
+                }
+            }
+        }
+        if (!featureMerges.isEmpty()) {
+            final Map<ObjectId, RevObject> objects = Maps.uniqueIndex(
+                    objectDatabase().getAll(ids, BulkOpListener.NOOP_LISTENER), RevObject::getId);
+
+            pool.submit(() -> featureMerges.parallelStream().forEach(i -> {
+                MergeDiffRef mr = batch.get(i.intValue());
+                results[i.intValue()] = DiffMergeFeaturesOp.diff(mr.theirs().getOldObject(),
+                        mr.ours().getNewObject(), mr.theirs().getNewObject(), objects);
+            })).join();
+        }
+        return Arrays.asList(results);
+    }
+
     private void processPossibleConflict(DiffEntry oursDiff, DiffEntry theirsDiff,
-            RevTree ancestorTree, MergeScenarioReport report) {
+            RevTree ancestorTree, MergeScenarioReport report,
+            @Nullable DiffMergeFeatureResult featureMerge) {
 
         Preconditions.checkArgument(oursDiff.oldObject().equals(theirsDiff.oldObject()));
 
@@ -247,11 +321,14 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
                 break;
             }
 
-            DiffMergeFeatureResult diffMergeFeatureResult = command(DiffMergeFeaturesOp.class)//
-                    .setCommonAncestor(theirsDiff.getOldObject())//
-                    .setMergeInto(oursDiff.getNewObject())//
-                    .setToMerge(theirsDiff.getNewObject())//
-                    .call();
+            DiffMergeFeatureResult diffMergeFeatureResult = featureMerge;
+            if (diffMergeFeatureResult == null) {
+                diffMergeFeatureResult = command(DiffMergeFeaturesOp.class)//
+                        .setCommonAncestor(theirsDiff.getOldObject())//
+                        .setMergeInto(oursDiff.getNewObject())//
+                        .setToMerge(theirsDiff.getNewObject())//
+                        .call();
+            }
 
             if (diffMergeFeatureResult.isConflict()) {
                 consumer.conflicted(new Conflict(path, ancestorVersionId, ours, theirs));
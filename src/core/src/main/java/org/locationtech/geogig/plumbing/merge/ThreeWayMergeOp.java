@@ -0,0 +1,544 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.merge.DiffMergeFeaturesOp.DiffMergeFeatureResult;
+import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.repository.impl.SpatialOps;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectDatabase;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Merges the changes made on a commit since its common ancestor with another commit onto the
+ * tree of the other commit, in a single pass and with bounded memory.
+ * <p>
+ * As opposed to {@link ReportMergeScenarioOp}, which matches the differences of each branch
+ * against the common ancestor and leaves it up to the {@link MergeScenarioConsumer consumer} to
+ * buffer and apply them, this operation walks the ancestor, "ours" and "theirs" trees at the same
+ * time in {@link CanonicalNodeOrder canonical order}, skipping the buckets and subtrees "theirs"
+ * didn't change, or changed the same way as "ours", and:
+ * <ul>
+ * <li>applies the unconflicted and automatically merged changes straight to a
+ * {@link RevTreeBuilder} initialized with "our" version of each tree;
+ * <li>saves the conflicts to the {@link org.locationtech.geogig.storage.ConflictsDatabase conflicts
+ * database} in batches of
+ * {@link #setConflictsBatchSize(int) conflictsBatchSize} as they're found.
+ * </ul>
+ * The merged tree keeps "our" version of the conflicting features. The
+ * {@link #setConsumer(MergeScenarioConsumer) consumer}, if provided, is notified of each outcome
+ * as it's computed, though it's not expected to buffer them.
+ */
+public class ThreeWayMergeOp extends AbstractGeoGigOp<ThreeWayMergeOp.Result> {
+
+    public static final int DEFAULT_CONFLICTS_BATCH_SIZE = 1_000;
+
+    private static final CanonicalNodeOrder ORDER = CanonicalNodeOrder.INSTANCE;
+
+    public static @Value class Result {
+
+        /**
+         * The merged root tree, already saved to the object database, or "our" root tree if the
+         * operation was cancelled
+         */
+        private RevTree mergedTree;
+
+        private MergeScenarioReport report;
+    }
+
+    private RevCommit toMerge;
+
+    private RevCommit mergeInto;
+
+    private MergeScenarioConsumer consumer;
+
+    private boolean writeConflicts = true;
+
+    private int conflictsBatchSize = DEFAULT_CONFLICTS_BATCH_SIZE;
+
+    private ObjectDatabase db;
+
+    private MergeScenarioReport report;
+
+    private List<Conflict> conflicts;
+
+    /**
+     * @param toMerge the commit with the changes to apply {@link RevCommit}
+     */
+    public ThreeWayMergeOp setToMergeCommit(RevCommit toMerge) {
+        this.toMerge = toMerge;
+        return this;
+    }
+
+    /**
+     * @param mergeInto the commit into which changes are to be merged {@link RevCommit}
+     */
+    public ThreeWayMergeOp setMergeIntoCommit(RevCommit mergeInto) {
+        this.mergeInto = mergeInto;
+        return this;
+    }
+
+    public ThreeWayMergeOp setConsumer(MergeScenarioConsumer consumer) {
+        this.consumer = consumer;
+        return this;
+    }
+
+    /**
+     * @param writeConflicts whether to save the conflicts found to the conflicts database,
+     *        defaults to {@code true}. Set it to {@code false} to resolve all conflicts in favor of
+     *        "ours"
+     */
+    public ThreeWayMergeOp setWriteConflicts(boolean writeConflicts) {
+        this.writeConflicts = writeConflicts;
+        return this;
+    }
+
+    /**
+     * @param batchSize how many conflicts to hold in memory before saving them to the conflicts
+     *        database, defaults to {@link #DEFAULT_CONFLICTS_BATCH_SIZE}
+     */
+    public ThreeWayMergeOp setConflictsBatchSize(int batchSize) {
+        checkArgument(batchSize > 0, "batch size must be > 0: %s", batchSize);
+        this.conflictsBatchSize = batchSize;
+        return this;
+    }
+
+    protected @Override Result _call() {
+        checkArgument(toMerge != null, "toMerge commit not provided");
+        checkArgument(mergeInto != null, "mergeInto commit not provided");
+        if (consumer == null) {
+            consumer = new MergeScenarioConsumer();
+        }
+        final Optional<ObjectId> ancestorOpt = command(FindCommonAncestor.class).setLeft(toMerge)
+                .setRight(mergeInto).call();
+        checkState(ancestorOpt.isPresent(), "No ancestor commit could be found.");
+
+        db = objectDatabase();
+        report = new MergeScenarioReport();
+        conflicts = new ArrayList<>();
+
+        final RevCommit ancestorCommit = db.getCommit(ancestorOpt.get());
+        final RevTree ancestor = db.getTree(ancestorCommit.getTreeId());
+        final RevTree ours = db.getTree(mergeInto.getTreeId());
+        final RevTree theirs = db.getTree(toMerge.getTreeId());
+
+        RevTree merged = mergeTree(NodeRef.ROOT, ancestor, ours, theirs, ObjectId.NULL,
+                ObjectId.NULL, ObjectId.NULL);
+        if (isCancelled()) {
+            merged = ours;
+        } else {
+            flushConflicts();
+            consumer.finished();
+        }
+        return new Result(merged, report);
+    }
+
+    private boolean isCancelled() {
+        return consumer.isCancelled() || getProgressListener().isCanceled();
+    }
+
+    /**
+     * The state of the merge of a single tree: the builder the changes are applied to, and the
+     * default metadata ids of each version of the tree, needed to resolve the feature type of
+     * its features
+     */
+    private static @Value class TreeMerge {
+        private String path;
+
+        private RevTreeBuilder builder;
+
+        private ObjectId ancestorMetadataId, oursMetadataId, theirsMetadataId;
+    }
+
+    /**
+     * The contents of a tree, or of one of its buckets: either a tree with buckets, or the sorted
+     * list of nodes of a leaf tree, or the subset of them that would fall in a given bucket
+     */
+    private static final class Contents {
+
+        static final Contents EMPTY = new Contents(null, Collections.emptyList());
+
+        final @Nullable RevTree buckets;
+
+        final List<Node> nodes;
+
+        Contents(@Nullable RevTree buckets, List<Node> nodes) {
+            this.buckets = buckets;
+            this.nodes = nodes;
+        }
+
+        static Contents of(RevTree tree) {
+            if (tree.bucketsSize() > 0) {
+                return new Contents(tree, Collections.emptyList());
+            }
+            return new Contents(null, Lists.newArrayList(RevObjects.children(tree, ORDER)));
+        }
+
+        boolean isLeaf() {
+            return buckets == null;
+        }
+
+        boolean sameAs(Contents c) {
+            if (isLeaf() != c.isLeaf()) {
+                return false;
+            }
+            if (!isLeaf()) {
+                return buckets.getId().equals(c.buckets.getId());
+            }
+            if (nodes.size() != c.nodes.size()) {
+                return false;
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                if (!same(nodes.get(i), c.nodes.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private RevTree mergeTree(String path, RevTree ancestor, RevTree ours, RevTree theirs,
+            ObjectId ancestorMetadataId, ObjectId oursMetadataId, ObjectId theirsMetadataId) {
+
+        if (theirs.equals(ancestor) || theirs.equals(ours)) {
+            return ours;
+        }
+        final RevTreeBuilder builder = RevTreeBuilder.builder(db, ours)
+                .scheduler(GeogigScheduler.get(context().hints()));
+        TreeMerge tree = new TreeMerge(path, builder, ancestorMetadataId, oursMetadataId,
+                theirsMetadataId);
+        mergeContents(0, Contents.of(ancestor), Contents.of(ours), Contents.of(theirs), tree);
+        if (isCancelled()) {
+            builder.dispose();
+            return ours;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Merges the contents of the three versions of a tree, or of the buckets at the same index on
+     * each of them, recursing into the buckets at the next depth unless all three are leaves.
+     */
+    private void mergeContents(final int depth, Contents ancestor, Contents ours, Contents theirs,
+            TreeMerge tree) {
+
+        if (isCancelled() || theirs.sameAs(ancestor) || theirs.sameAs(ours)) {
+            return;
+        }
+        if (ancestor.isLeaf() && ours.isLeaf() && theirs.isLeaf()) {
+            mergeNodes(ancestor.nodes, ours.nodes, theirs.nodes, tree);
+            return;
+        }
+        final Map<Integer, Bucket> ab = buckets(ancestor), ob = buckets(ours),
+                tb = buckets(theirs);
+        final ListMultimap<Integer, Node> an = split(ancestor, depth), on = split(ours, depth),
+                tn = split(theirs, depth);
+
+        SortedSet<Integer> indexes = new TreeSet<>();
+        for (Map<Integer, ?> m : Arrays.asList(ab, ob, tb)) {
+            indexes.addAll(m.keySet());
+        }
+        for (ListMultimap<Integer, Node> m : Arrays.asList(an, on, tn)) {
+            indexes.addAll(m.keySet());
+        }
+
+        List<Integer> changed = new ArrayList<>();
+        Set<ObjectId> bucketIds = new HashSet<>();
+        for (Integer index : indexes) {
+            Bucket a = ab.get(index), o = ob.get(index), t = tb.get(index);
+            if (sameBucket(theirs, t, ancestor, a) || sameBucket(theirs, t, ours, o)) {
+                continue;
+            }
+            changed.add(index);
+            for (Bucket b : new Bucket[] { a, o, t }) {
+                if (b != null) {
+                    bucketIds.add(b.getObjectId());
+                }
+            }
+        }
+        final Map<ObjectId, RevTree> trees = Maps.uniqueIndex(
+                db.getAll(bucketIds, BulkOpListener.NOOP_LISTENER, RevTree.class),
+                RevTree::getId);
+
+        for (Integer index : changed) {
+            mergeContents(depth + 1, child(ancestor, ab, an, index, trees),
+                    child(ours, ob, on, index, trees), child(theirs, tb, tn, index, trees), tree);
+        }
+    }
+
+    private static boolean sameBucket(Contents c1, @Nullable Bucket b1, Contents c2,
+            @Nullable Bucket b2) {
+        if (c1.isLeaf() || c2.isLeaf()) {
+            return false;
+        }
+        return b1 == null ? b2 == null : b2 != null && b1.getObjectId().equals(b2.getObjectId());
+    }
+
+    private static Map<Integer, Bucket> buckets(Contents c) {
+        if (c.isLeaf()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Bucket> buckets = Maps.newHashMap();
+        c.buckets.forEachBucket(b -> buckets.put(Integer.valueOf(b.getIndex()), b));
+        return buckets;
+    }
+
+    /**
+     * Splits the nodes of a leaf by the bucket they'd fall in at the given depth, preserving
+     * their order
+     */
+    private static ListMultimap<Integer, Node> split(Contents c, final int depth) {
+        ListMultimap<Integer, Node> split = ArrayListMultimap.create();
+        for (Node node : c.nodes) {
+            split.put(Integer.valueOf(ORDER.bucket(node, depth)), node);
+        }
+        return split;
+    }
+
+    private static Contents child(Contents c, Map<Integer, Bucket> buckets,
+            ListMultimap<Integer, Node> nodes, Integer index, Map<ObjectId, RevTree> trees) {
+        if (c.isLeaf()) {
+            List<Node> bucketNodes = nodes.get(index);
+            return bucketNodes.isEmpty() ? Contents.EMPTY : new Contents(null, bucketNodes);
+        }
+        Bucket bucket = buckets.get(index);
+        if (bucket == null) {
+            return Contents.EMPTY;
+        }
+        RevTree bucketTree = trees.get(bucket.getObjectId());
+        checkState(bucketTree != null, "bucket tree %s not found", bucket.getObjectId());
+        return Contents.of(bucketTree);
+    }
+
+    /**
+     * Merge-joins the three sorted node lists by name, only looking at the names "theirs"
+     * changed (i.e. the ones present in the ancestor or "theirs" versions).
+     */
+    private void mergeNodes(List<Node> ancestor, List<Node> ours, List<Node> theirs,
+            TreeMerge tree) {
+
+        PeekingIterator<Node> a = Iterators.peekingIterator(ancestor.iterator());
+        PeekingIterator<Node> o = Iterators.peekingIterator(ours.iterator());
+        PeekingIterator<Node> t = Iterators.peekingIterator(theirs.iterator());
+
+        while ((a.hasNext() || t.hasNext()) && !isCancelled()) {
+            final Node next;
+            if (!a.hasNext()) {
+                next = t.peek();
+            } else if (!t.hasNext()) {
+                next = a.peek();
+            } else {
+                next = ORDER.compare(a.peek(), t.peek()) <= 0 ? a.peek() : t.peek();
+            }
+            while (o.hasNext() && ORDER.compare(o.peek(), next) < 0) {
+                o.next();
+            }
+            mergeNode(next.getName(), poll(a, next), poll(o, next), poll(t, next), tree);
+        }
+    }
+
+    private static @Nullable Node poll(PeekingIterator<Node> it, Node next) {
+        return it.hasNext() && ORDER.compare(it.peek(), next) == 0 ? it.next() : null;
+    }
+
+    private void mergeNode(String name, @Nullable Node ancestor, @Nullable Node ours,
+            @Nullable Node theirs, TreeMerge tree) {
+
+        if (same(theirs, ancestor) || same(theirs, ours)) {
+            // "theirs" didn't change it, or changed it the same way as "ours"
+            return;
+        }
+        final String path = NodeRef.appendChild(tree.getPath(), name);
+        final NodeRef ancestorRef = ref(ancestor, tree.getPath(), tree.getAncestorMetadataId());
+        final NodeRef oursRef = ref(ours, tree.getPath(), tree.getOursMetadataId());
+        final NodeRef theirsRef = ref(theirs, tree.getPath(), tree.getTheirsMetadataId());
+
+        if (same(ours, ancestor)) {
+            // only "theirs" changed it
+            if (theirs == null) {
+                tree.getBuilder().remove(ours);
+            } else {
+                tree.getBuilder().put(theirs);
+            }
+            unconflicted(new DiffEntry(ancestorRef, theirsRef));
+            return;
+        }
+        if (isTree(ancestor) && isTree(ours) && isTree(theirs)) {
+            mergeChildTree(name, path, ancestorRef, oursRef, theirsRef, tree);
+            return;
+        }
+        if (ancestor == null || ours == null || theirs == null
+                || TYPE.FEATURE != ancestor.getType() || TYPE.FEATURE != ours.getType()
+                || TYPE.FEATURE != theirs.getType()) {
+            // added by both with different contents, removed by one and modified by the other,
+            // or changed its type
+            conflicted(new Conflict(path, id(ancestor), id(ours), id(theirs)));
+            return;
+        }
+
+        DiffMergeFeatureResult result = command(DiffMergeFeaturesOp.class)//
+                .setCommonAncestor(ancestorRef)//
+                .setMergeInto(oursRef)//
+                .setToMerge(theirsRef)//
+                .call();
+
+        if (result.isConflict()) {
+            conflicted(new Conflict(path, id(ancestor), id(ours), id(theirs)));
+        } else if (result.isMerge()) {
+            RevFeature mergedFeature = result.mergedFeature();
+            if (mergedFeature.getId().equals(theirs.getObjectId())) {
+                tree.getBuilder().put(theirs);
+                unconflicted(new DiffEntry(ancestorRef, theirsRef));
+            } else {
+                db.put(mergedFeature);
+                Node merged = RevObjectFactory.defaultInstance().createNode(name,
+                        mergedFeature.getId(), ours.getMetadataId().orElse(ObjectId.NULL),
+                        TYPE.FEATURE, SpatialOps.boundsOf(mergedFeature), null);
+                tree.getBuilder().put(merged);
+                consumer.merged(FeatureInfo.insert(mergedFeature, oursRef.getMetadataId(), path));
+                report.addMerged(path);
+            }
+        }
+        // else do nothing, 'ours' has changed in the same way as 'theirs'
+    }
+
+    /**
+     * Both sides changed a tree: reports a conflict if they disagree on its feature type or one
+     * of them removed it, and merges its contents unless "ours" removed it, in which case the tree
+     * stays removed and the conflict on the tree path stands for all of "their" changes to it
+     */
+    private void mergeChildTree(String name, String path, @Nullable NodeRef ancestor,
+            @Nullable NodeRef ours, @Nullable NodeRef theirs, TreeMerge parent) {
+
+        if (ours == null) {
+            conflicted(new Conflict(path, id(ancestor), ObjectId.NULL, id(theirs)));
+            return;
+        }
+        if (theirs == null) {
+            conflicted(new Conflict(path, id(ancestor), id(ours), ObjectId.NULL));
+        } else if (!ours.getMetadataId().equals(theirs.getMetadataId())) {
+            // In this case, we store the metadata id, not the element id
+            ObjectId ancestorMetadataId = ancestor == null ? ObjectId.NULL
+                    : ancestor.getMetadataId();
+            conflicted(new Conflict(path, ancestorMetadataId, ours.getMetadataId(),
+                    theirs.getMetadataId()));
+        }
+
+        RevTree oursTree = tree(ours);
+        RevTree merged = mergeTree(path, tree(ancestor), oursTree, tree(theirs),
+                metadataId(ancestor), metadataId(ours), metadataId(theirs));
+
+        if (merged.getId().equals(oursTree.getId())) {
+            return;
+        }
+        ObjectId metadataId = ours.getNode().getMetadataId().orElse(ObjectId.NULL);
+        parent.getBuilder().put(RevObjectFactory.defaultInstance().createNode(name,
+                merged.getId(), metadataId, TYPE.TREE, SpatialOps.boundsOf(merged), null));
+    }
+
+    private RevTree tree(@Nullable NodeRef ref) {
+        return ref == null ? RevTree.EMPTY : db.getTree(ref.getObjectId());
+    }
+
+    private static ObjectId metadataId(@Nullable NodeRef ref) {
+        return ref == null ? ObjectId.NULL : ref.getMetadataId();
+    }
+
+    private void unconflicted(DiffEntry diff) {
+        consumer.unconflicted(diff);
+        report.addUnconflicted(diff);
+    }
+
+    private void conflicted(Conflict conflict) {
+        consumer.conflicted(conflict);
+        report.addConflict(conflict.getPath());
+        if (writeConflicts) {
+            conflicts.add(conflict);
+            if (conflicts.size() >= conflictsBatchSize) {
+                flushConflicts();
+            }
+        }
+    }
+
+    private void flushConflicts() {
+        if (!conflicts.isEmpty()) {
+            conflictsDatabase().addConflicts(null, conflicts);
+            conflicts.clear();
+        }
+    }
+
+    private static @Nullable NodeRef ref(@Nullable Node node, String parentPath,
+            @NonNull ObjectId parentMetadataId) {
+        return node == null ? null : new NodeRef(node, parentPath, parentMetadataId);
+    }
+
+    private static ObjectId id(@Nullable Node node) {
+        return node == null ? ObjectId.NULL : node.getObjectId();
+    }
+
+    private static ObjectId id(@Nullable NodeRef ref) {
+        return ref == null ? ObjectId.NULL : ref.getObjectId();
+    }
+
+    private static boolean isTree(@Nullable Node node) {
+        return node == null || TYPE.TREE == node.getType();
+    }
+
+    /**
+     * Node equality, including the metadata id, which {@link Node#equals} doesn't account for
+     */
+    private static boolean same(@Nullable Node n1, @Nullable Node n2) {
+        if (n1 == null || n2 == null) {
+            return n1 == n2;
+        }
+        return n1.equals(n2) && n1.getMetadataId().equals(n2.getMetadataId());
+    }
+}
@@ -0,0 +1,263 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.FieldType;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+import org.locationtech.geogig.storage.datastream.DataStreamValueSerializerV2;
+import org.locationtech.geogig.storage.datastream.ValueSerializer;
+import org.locationtech.jts.geom.Geometry;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Statistics of the values of a single attribute over all the features of a tree.
+ * <p>
+ * {@link #getMin() min} and {@link #getMax() max} are exact, and only available if all the
+ * values are {@link Comparable} and of the same type; the {@link #distinctCount() distinct count}
+ * is approximate, and the {@link #getHistogram() histogram} is only available for the value types
+ * supported by {@link AttributeIndexKey}. Geometry attributes only keep track of null and non null
+ * value counts, their bounds being part of the {@link TreeStats tree stats}.
+ *
+ * @since 2.0
+ */
+public final class AttributeStats {
+
+    private static final ValueSerializer VALUES = DataStreamValueSerializerV2.INSTANCE;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final @Getter long nullCount;
+
+    private final @Getter long valueCount;
+
+    private final @Nullable Object min;
+
+    private final @Nullable Object max;
+
+    private final @Nullable HyperLogLog distinct;
+
+    private final @Nullable Histogram histogram;
+
+    AttributeStats(long nullCount, long valueCount, @Nullable Object min, @Nullable Object max,
+            @Nullable HyperLogLog distinct, @Nullable Histogram histogram) {
+        this.nullCount = nullCount;
+        this.valueCount = valueCount;
+        this.min = min;
+        this.max = max;
+        this.distinct = distinct;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return the lowest non null value, if known
+     */
+    public Optional<Object> getMin() {
+        return Optional.ofNullable(min);
+    }
+
+    /**
+     * @return the highest non null value, if known
+     */
+    public Optional<Object> getMax() {
+        return Optional.ofNullable(max);
+    }
+
+    public Optional<Histogram> getHistogram() {
+        return Optional.ofNullable(histogram);
+    }
+
+    /**
+     * @return the approximate number of distinct non null values, if known
+     */
+    public Optional<Long> distinctCount() {
+        if (distinct == null) {
+            return Optional.empty();
+        }
+        // the estimate can't exceed the actual number of values
+        return Optional.of(Math.min(valueCount, distinct.estimate()));
+    }
+
+    public AttributeStats merge(@NonNull AttributeStats other) {
+        Object mergedMin = pick(min, valueCount, other.min, other.valueCount, true);
+        Object mergedMax = pick(max, valueCount, other.max, other.valueCount, false);
+        HyperLogLog mergedDistinct = distinct == null ? other.distinct
+                : (other.distinct == null ? distinct : distinct.merge(other.distinct));
+        Histogram mergedHistogram = histogram == null ? other.histogram
+                : (other.histogram == null ? histogram : histogram.merge(other.histogram));
+        return new AttributeStats(nullCount + other.nullCount, valueCount + other.valueCount,
+                mergedMin, mergedMax, mergedDistinct, mergedHistogram);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static @Nullable Object pick(@Nullable Object v1, long count1, @Nullable Object v2,
+            long count2, boolean lowest) {
+        if (count1 == 0) {
+            return v2;
+        }
+        if (count2 == 0) {
+            return v1;
+        }
+        if (v1 == null || v2 == null || !v1.getClass().equals(v2.getClass())) {
+            // at least one side has non comparable values
+            return null;
+        }
+        int c = ((Comparable) v1).compareTo(v2);
+        return (lowest ? c <= 0 : c >= 0) ? v1 : v2;
+    }
+
+    static long hash(@NonNull Object value) {
+        Hasher hasher = HASH.newHasher();
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            // normalize -0.0
+            hasher.putLong(Double.doubleToLongBits(d == 0d ? 0d : d));
+        } else if (value instanceof CharSequence) {
+            hasher.putString((CharSequence) value, UTF_8);
+        } else if (value instanceof Date) {
+            hasher.putLong(((Date) value).getTime());
+        } else if (value instanceof Boolean) {
+            hasher.putBoolean(((Boolean) value).booleanValue());
+        } else if (value.getClass().isArray()) {
+            hasher.putString(Arrays.deepToString(new Object[] { value }), UTF_8);
+        } else {
+            hasher.putString(String.valueOf(value), UTF_8);
+        }
+        return hasher.hash().asLong();
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(nullCount);
+        out.writeLong(valueCount);
+        writeValue(min, out);
+        writeValue(max, out);
+        out.writeBoolean(distinct != null);
+        if (distinct != null) {
+            distinct.writeTo(out);
+        }
+        out.writeBoolean(histogram != null);
+        if (histogram != null) {
+            histogram.writeTo(out);
+        }
+    }
+
+    static AttributeStats readFrom(DataInput in) throws IOException {
+        final long nullCount = in.readLong();
+        final long valueCount = in.readLong();
+        final Object min = readValue(in);
+        final Object max = readValue(in);
+        final HyperLogLog distinct = in.readBoolean() ? HyperLogLog.readFrom(in) : null;
+        final Histogram histogram = in.readBoolean() ? Histogram.readFrom(in) : null;
+        return new AttributeStats(nullCount, valueCount, min, max, distinct, histogram);
+    }
+
+    private static void writeValue(@Nullable Object value, DataOutput out) throws IOException {
+        FieldType type = FieldType.forValue(value);
+        out.writeByte(type.getTag());
+        VALUES.encode(type, value, out);
+    }
+
+    private static @Nullable Object readValue(DataInput in) throws IOException {
+        FieldType type = FieldType.valueOf(in.readUnsignedByte());
+        return VALUES.decode(type, in);
+    }
+
+    public @Override String toString() {
+        return String.format("%s[nulls: %,d, values: %,d, min: %s, max: %s, distinct: %s]",
+                getClass().getSimpleName(), nullCount, valueCount, min, max,
+                distinctCount().orElse(null));
+    }
+
+    /**
+     * Accumulates the values of an attribute for the features of a leaf tree
+     */
+    static class Builder {
+
+        private final boolean geometry;
+
+        private long nullCount;
+
+        private long valueCount;
+
+        private Object min, max;
+
+        private boolean comparable = true;
+
+        private HyperLogLog distinct;
+
+        private long[] keys = new long[16];
+
+        private int keyCount;
+
+        Builder(@NonNull Class<?> binding) {
+            this.geometry = Geometry.class.isAssignableFrom(binding);
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        void add(@Nullable Object value) {
+            if (value == null) {
+                nullCount++;
+                return;
+            }
+            valueCount++;
+            if (geometry || value instanceof Geometry) {
+                return;
+            }
+            if (distinct == null) {
+                distinct = new HyperLogLog();
+            }
+            distinct.add(hash(value));
+
+            Long key = AttributeIndexKey.key(value);
+            if (key != null) {
+                if (keyCount == keys.length) {
+                    keys = Arrays.copyOf(keys, 2 * keys.length);
+                }
+                keys[keyCount++] = key.longValue();
+            }
+            if (comparable) {
+                if (!(value instanceof Comparable)
+                        || (min != null && !min.getClass().equals(value.getClass()))) {
+                    comparable = false;
+                    min = max = null;
+                } else if (min == null) {
+                    min = max = value;
+                } else {
+                    if (((Comparable) value).compareTo(min) < 0) {
+                        min = value;
+                    }
+                    if (((Comparable) value).compareTo(max) > 0) {
+                        max = value;
+                    }
+                }
+            }
+        }
+
+        AttributeStats build() {
+            Histogram histogram = keyCount == 0 ? null : Histogram.build(keys, keyCount);
+            return new AttributeStats(nullCount, valueCount, min, max, distinct, histogram);
+        }
+    }
+}
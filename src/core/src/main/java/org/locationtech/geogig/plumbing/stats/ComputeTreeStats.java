@@ -0,0 +1,181 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+import lombok.NonNull;
+
+/**
+ * Computes the {@link TreeStats} of a feature tree, reusing the {@link TreeStatsStore stored}
+ * stats of any of its subtrees and storing the ones computed.
+ * <p>
+ * Since the stats are keyed by tree id, only the subtrees that changed since the last time the
+ * stats of a previous version of the tree were computed are traversed, which are exactly the
+ * ones a {@link org.locationtech.geogig.plumbing.DiffTree DiffTree} between both versions would
+ * descend into, and only the features in their leaf trees are read. Stats of trees with buckets
+ * are the merge of the stats of their buckets.
+ *
+ * @since 2.0
+ */
+public class ComputeTreeStats extends AbstractGeoGigOp<TreeStats> {
+
+    private ObjectId treeId;
+
+    private ObjectId featureTypeId;
+
+    private boolean cachedOnly;
+
+    /**
+     * @param treeRef the feature tree whose stats to compute, its metadata id being the default
+     *        feature type of the tree
+     */
+    public ComputeTreeStats setTree(@NonNull NodeRef treeRef) {
+        checkArgument(!treeRef.getMetadataId().isNull(), "%s has no feature type",
+                treeRef.path());
+        this.treeId = treeRef.getObjectId();
+        this.featureTypeId = treeRef.getMetadataId();
+        return this;
+    }
+
+    public ComputeTreeStats setTree(@NonNull ObjectId treeId, @NonNull ObjectId featureTypeId) {
+        this.treeId = treeId;
+        this.featureTypeId = featureTypeId;
+        return this;
+    }
+
+    /**
+     * @param cachedOnly if {@code true}, the stats are only returned if already stored, and the
+     *        op returns {@code null} otherwise, instead of computing them
+     */
+    public ComputeTreeStats setCachedOnly(boolean cachedOnly) {
+        this.cachedOnly = cachedOnly;
+        return this;
+    }
+
+    protected @Override TreeStats _call() {
+        checkArgument(treeId != null, "tree not provided");
+        checkArgument(featureTypeId != null, "feature type not provided");
+        if (RevTree.EMPTY_TREE_ID.equals(treeId)) {
+            return TreeStats.EMPTY;
+        }
+        final TreeStatsStore store = new TreeStatsStore(context().blobStore());
+        if (cachedOnly) {
+            return store.get(treeId, featureTypeId).orElse(null);
+        }
+        return new Computation(objectDatabase(), store, featureTypeId).compute(treeId);
+    }
+
+    private static class Computation {
+
+        private final ObjectStore source;
+
+        private final TreeStatsStore store;
+
+        private final ObjectId featureTypeId;
+
+        private final Map<ObjectId, List<PropertyDescriptor>> types = new HashMap<>();
+
+        Computation(ObjectStore source, TreeStatsStore store, ObjectId featureTypeId) {
+            this.source = source;
+            this.store = store;
+            this.featureTypeId = featureTypeId;
+        }
+
+        TreeStats compute(ObjectId treeId) {
+            Optional<TreeStats> stored = store.get(treeId, featureTypeId);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+            final RevTree tree = source.getTree(treeId);
+            TreeStats stats;
+            if (tree.bucketsSize() == 0) {
+                stats = leafStats(tree);
+            } else {
+                stats = TreeStats.EMPTY;
+                for (Bucket bucket : tree.getBuckets()) {
+                    stats = stats.merge(compute(bucket.getObjectId()));
+                }
+            }
+            store.put(treeId, featureTypeId, stats);
+            return stats;
+        }
+
+        private TreeStats leafStats(RevTree tree) {
+            final Envelope bounds = new Envelope();
+            final List<ObjectId> ids = new ArrayList<>(tree.featuresSize());
+            // the same feature may be referenced by more than one node
+            final Map<ObjectId, Integer> occurrences = new HashMap<>();
+            final Map<ObjectId, ObjectId> alternateTypes = new HashMap<>();
+            tree.forEachFeature(node -> {
+                node.expand(bounds);
+                ObjectId id = node.getObjectId();
+                if (null == occurrences.merge(id, 1, Integer::sum)) {
+                    ids.add(id);
+                }
+                node.getMetadataId().filter(md -> !md.equals(featureTypeId))
+                        .ifPresent(md -> alternateTypes.put(id, md));
+            });
+
+            final Map<String, AttributeStats.Builder> builders = new LinkedHashMap<>();
+            descriptors(featureTypeId).forEach(d -> builders.put(d.getLocalName(),
+                    new AttributeStats.Builder(d.getBinding())));
+
+            Iterator<RevFeature> features = source.getAll(ids, BulkOpListener.NOOP_LISTENER,
+                    RevFeature.class);
+            while (features.hasNext()) {
+                RevFeature feature = features.next();
+                List<PropertyDescriptor> descriptors = descriptors(
+                        alternateTypes.getOrDefault(feature.getId(), featureTypeId));
+                final int times = occurrences.getOrDefault(feature.getId(), 1);
+                final int size = Math.min(descriptors.size(), feature.size());
+                for (int i = 0; i < size; i++) {
+                    PropertyDescriptor d = descriptors.get(i);
+                    AttributeStats.Builder builder = builders.computeIfAbsent(d.getLocalName(),
+                            n -> new AttributeStats.Builder(d.getBinding()));
+                    Object value = feature.get(i).orElse(null);
+                    for (int t = 0; t < times; t++) {
+                        builder.add(value);
+                    }
+                }
+            }
+            Map<String, AttributeStats> attributes = new LinkedHashMap<>();
+            builders.forEach((name, builder) -> attributes.put(name, builder.build()));
+            return new TreeStats(tree.featuresSize(), bounds, attributes);
+        }
+
+        private List<PropertyDescriptor> descriptors(ObjectId typeId) {
+            return types.computeIfAbsent(typeId, id -> {
+                RevFeatureType type = source.getFeatureType(id);
+                return type.type().getDescriptors();
+            });
+        }
+    }
+}
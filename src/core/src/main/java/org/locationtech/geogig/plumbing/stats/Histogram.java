@@ -0,0 +1,204 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+
+import com.google.common.primitives.UnsignedLong;
+import com.google.common.primitives.UnsignedLongs;
+
+import lombok.NonNull;
+
+/**
+ * Equi-depth histogram of attribute values, over their order preserving
+ * {@link AttributeIndexKey#key(Object) keys} (compared as unsigned 64-bit integers).
+ * <p>
+ * Each bucket holds about the same number of values and is defined by its inclusive upper key,
+ * the first bucket starting at the lowest key. The number of values in a key range is estimated
+ * assuming values are uniformly distributed within each bucket.
+ * <p>
+ * Histograms are {@link #merge merged} by regrouping the buckets of both, sorted by upper key,
+ * into at most {@link #MAX_BUCKETS} buckets of about the same size, which keeps the estimates of
+ * the histogram of a tree close to those of a histogram built out of all its values.
+ *
+ * @since 2.0
+ */
+public final class Histogram {
+
+    static final int MAX_BUCKETS = 32;
+
+    private final long lowerKey;
+
+    private final long[] upperKeys;
+
+    private final long[] counts;
+
+    private Histogram(long lowerKey, long[] upperKeys, long[] counts) {
+        this.lowerKey = lowerKey;
+        this.upperKeys = upperKeys;
+        this.counts = counts;
+    }
+
+    /**
+     * @param keys the keys of all the values, in any order, not modified by this method
+     */
+    static Histogram build(@NonNull long[] keys, int keyCount) {
+        checkArgument(keyCount > 0, "no keys provided");
+        long[] sorted = Arrays.copyOf(keys, keyCount);
+        UnsignedLongs.sort(sorted);
+        final int buckets = Math.min(MAX_BUCKETS, keyCount);
+        long[] upperKeys = new long[buckets];
+        long[] counts = new long[buckets];
+        int start = 0;
+        for (int b = 0; b < buckets; b++) {
+            int end = (int) (((long) (b + 1) * keyCount) / buckets);
+            upperKeys[b] = sorted[end - 1];
+            counts[b] = end - start;
+            start = end;
+        }
+        return new Histogram(sorted[0], upperKeys, counts);
+    }
+
+    /**
+     * @return the number of values in the histogram
+     */
+    public long count() {
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        return count;
+    }
+
+    public Histogram merge(@NonNull Histogram other) {
+        final int size = upperKeys.length + other.upperKeys.length;
+        long[] upper = new long[size];
+        long[] count = new long[size];
+        // merge the two already sorted bucket lists
+        int i = 0, j = 0, k = 0;
+        while (i < upperKeys.length || j < other.upperKeys.length) {
+            boolean takeThis = j == other.upperKeys.length || (i < upperKeys.length
+                    && UnsignedLongs.compare(upperKeys[i], other.upperKeys[j]) <= 0);
+            if (takeThis) {
+                upper[k] = upperKeys[i];
+                count[k++] = counts[i++];
+            } else {
+                upper[k] = other.upperKeys[j];
+                count[k++] = other.counts[j++];
+            }
+        }
+        final long lower = UnsignedLongs.compare(lowerKey, other.lowerKey) <= 0 ? lowerKey
+                : other.lowerKey;
+        final long total = count() + other.count();
+        final int buckets = (int) Math.min(MAX_BUCKETS, Math.min(size, total));
+        long[] mergedUpper = new long[buckets];
+        long[] mergedCounts = new long[buckets];
+        int b = 0;
+        long accumulated = 0;
+        for (int n = 0; n < size; n++) {
+            mergedCounts[b] += count[n];
+            mergedUpper[b] = upper[n];
+            accumulated += count[n];
+            // close the bucket once it reaches its share of the total
+            if (b < buckets - 1 && accumulated >= (total * (b + 1)) / buckets) {
+                b++;
+            }
+        }
+        if (mergedCounts[b] == 0) {
+            mergedUpper = Arrays.copyOf(mergedUpper, b);
+            mergedCounts = Arrays.copyOf(mergedCounts, b);
+        } else if (b < buckets - 1) {
+            mergedUpper = Arrays.copyOf(mergedUpper, b + 1);
+            mergedCounts = Arrays.copyOf(mergedCounts, b + 1);
+        }
+        return new Histogram(lower, mergedUpper, mergedCounts);
+    }
+
+    /**
+     * @return the estimated number of values whose keys are in the given inclusive range
+     */
+    public double estimate(long lowerInclusive, long upperInclusive) {
+        if (UnsignedLongs.compare(lowerInclusive, upperInclusive) > 0) {
+            return 0;
+        }
+        double estimate = 0;
+        long bucketLower = lowerKey;
+        for (int b = 0; b < upperKeys.length; b++) {
+            final long bucketUpper = upperKeys[b];
+            final long from = max(bucketLower, lowerInclusive);
+            final long to = min(bucketUpper, upperInclusive);
+            if (UnsignedLongs.compare(from, to) <= 0) {
+                if (bucketLower == bucketUpper) {
+                    estimate += counts[b];
+                } else {
+                    double width = toDouble(bucketUpper) - toDouble(bucketLower);
+                    double overlap = Math.max(1d, toDouble(to) - toDouble(from));
+                    estimate += counts[b] * Math.min(1d, overlap / width);
+                }
+            }
+            bucketLower = bucketUpper;
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the lowest key in the histogram
+     */
+    public long lowerKey() {
+        return lowerKey;
+    }
+
+    /**
+     * @return the highest key in the histogram
+     */
+    public long upperKey() {
+        return upperKeys[upperKeys.length - 1];
+    }
+
+    private static long max(long k1, long k2) {
+        return UnsignedLongs.compare(k1, k2) >= 0 ? k1 : k2;
+    }
+
+    private static long min(long k1, long k2) {
+        return UnsignedLongs.compare(k1, k2) <= 0 ? k1 : k2;
+    }
+
+    private static double toDouble(long unsignedKey) {
+        return UnsignedLong.fromLongBits(unsignedKey).doubleValue();
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(lowerKey);
+        out.writeByte(upperKeys.length);
+        for (int b = 0; b < upperKeys.length; b++) {
+            out.writeLong(upperKeys[b]);
+            out.writeLong(counts[b]);
+        }
+    }
+
+    static Histogram readFrom(DataInput in) throws IOException {
+        final long lowerKey = in.readLong();
+        final int buckets = in.readUnsignedByte();
+        long[] upperKeys = new long[buckets];
+        long[] counts = new long[buckets];
+        for (int b = 0; b < buckets; b++) {
+            upperKeys[b] = in.readLong();
+            counts[b] = in.readLong();
+        }
+        return new Histogram(lowerKey, upperKeys, counts);
+    }
+}
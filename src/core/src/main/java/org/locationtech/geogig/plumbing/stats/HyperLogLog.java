@@ -0,0 +1,131 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import lombok.NonNull;
+
+/**
+ * Mergeable approximate distinct value counter.
+ * <p>
+ * Uses {@code 2^}{@link #PRECISION} one byte registers, for a standard error of about 3%, and
+ * linear counting for small cardinalities. Two counters can be {@link #merge merged} into one
+ * that estimates the cardinality of the union of both value sets, which is what allows to
+ * compute the distinct values of a tree out of the ones of its buckets.
+ *
+ * @since 2.0
+ */
+public final class HyperLogLog {
+
+    static final int PRECISION = 10;
+
+    private static final int REGISTERS = 1 << PRECISION;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * @param hash a 64-bit, well distributed, hash of the value to add
+     */
+    public void add(long hash) {
+        final int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        final long w = (hash << PRECISION) | (1L << (PRECISION - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(w) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * @return a new counter for the union of the values added to this and {@code other}
+     */
+    public HyperLogLog merge(@NonNull HyperLogLog other) {
+        byte[] merged = new byte[REGISTERS];
+        for (int i = 0; i < REGISTERS; i++) {
+            merged[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+        return new HyperLogLog(merged);
+    }
+
+    /**
+     * @return the estimated number of distinct values added
+     */
+    public long estimate() {
+        final double m = REGISTERS;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            sum += 1d / (1L << registers[i]);
+            if (registers[i] == 0) {
+                zeros++;
+            }
+        }
+        final double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log(m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Writes the non empty registers only if they're less than a third of them, as is the case for
+     * the counters of small trees
+     */
+    void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                used++;
+            }
+        }
+        final boolean sparse = used < REGISTERS / 3;
+        out.writeBoolean(sparse);
+        if (sparse) {
+            out.writeShort(used);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    out.writeShort(i);
+                    out.writeByte(registers[i]);
+                }
+            }
+        } else {
+            out.write(registers);
+        }
+    }
+
+    static HyperLogLog readFrom(DataInput in) throws IOException {
+        byte[] registers = new byte[REGISTERS];
+        final boolean sparse = in.readBoolean();
+        if (sparse) {
+            final int used = in.readUnsignedShort();
+            for (int i = 0; i < used; i++) {
+                int index = in.readUnsignedShort();
+                checkArgument(index < REGISTERS, "invalid register index: %s", index);
+                registers[index] = in.readByte();
+            }
+        } else {
+            in.readFully(registers);
+        }
+        return new HyperLogLog(registers);
+    }
+}
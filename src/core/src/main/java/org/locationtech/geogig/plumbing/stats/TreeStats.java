@@ -0,0 +1,151 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.jts.geom.Envelope;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Statistics of the features of a {@link RevTree}: feature count, bounds, and per attribute
+ * {@link AttributeStats}.
+ * <p>
+ * Since trees are immutable, the stats of a tree never change and are {@link TreeStatsStore
+ * stored} keyed by tree id, the stats of a tree with buckets being the {@link #merge merge} of the
+ * stats of its buckets.
+ *
+ * @see ComputeTreeStats
+ * @since 2.0
+ */
+public final class TreeStats {
+
+    private static final byte VERSION = 1;
+
+    public static final TreeStats EMPTY = new TreeStats(0, null, Collections.emptyMap());
+
+    private final @Getter long featureCount;
+
+    private final @Nullable Envelope bounds;
+
+    private final Map<String, AttributeStats> attributes;
+
+    TreeStats(long featureCount, @Nullable Envelope bounds,
+            @NonNull Map<String, AttributeStats> attributes) {
+        this.featureCount = featureCount;
+        this.bounds = bounds == null || bounds.isNull() ? null : bounds;
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * @return the bounds of all the features, or empty if no feature has a geometry
+     */
+    public Optional<Envelope> getBounds() {
+        return Optional.ofNullable(bounds == null ? null : new Envelope(bounds));
+    }
+
+    /**
+     * @return the stats of each attribute, by attribute name
+     */
+    public Map<String, AttributeStats> getAttributes() {
+        return attributes;
+    }
+
+    public Optional<AttributeStats> getAttribute(@NonNull String name) {
+        return Optional.ofNullable(attributes.get(name));
+    }
+
+    public TreeStats merge(@NonNull TreeStats other) {
+        Envelope mergedBounds = null;
+        if (bounds != null || other.bounds != null) {
+            mergedBounds = new Envelope();
+            if (bounds != null) {
+                mergedBounds.expandToInclude(bounds);
+            }
+            if (other.bounds != null) {
+                mergedBounds.expandToInclude(other.bounds);
+            }
+        }
+        Map<String, AttributeStats> merged = new LinkedHashMap<>(attributes);
+        other.attributes.forEach((name, stats) -> merged.merge(name, stats, AttributeStats::merge));
+        return new TreeStats(featureCount + other.featureCount, mergedBounds, merged);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buff);
+        try {
+            out.writeByte(VERSION);
+            out.writeLong(featureCount);
+            out.writeBoolean(bounds != null);
+            if (bounds != null) {
+                out.writeDouble(bounds.getMinX());
+                out.writeDouble(bounds.getMaxX());
+                out.writeDouble(bounds.getMinY());
+                out.writeDouble(bounds.getMaxY());
+            }
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, AttributeStats> e : attributes.entrySet()) {
+                out.writeUTF(e.getKey());
+                e.getValue().writeTo(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buff.toByteArray();
+    }
+
+    public static TreeStats decode(@NonNull byte[] encoded) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        try {
+            final byte version = in.readByte();
+            checkArgument(VERSION == version, "Unknown tree stats version: %s", version);
+            final long featureCount = in.readLong();
+            Envelope bounds = null;
+            if (in.readBoolean()) {
+                double minx = in.readDouble();
+                double maxx = in.readDouble();
+                double miny = in.readDouble();
+                double maxy = in.readDouble();
+                bounds = new Envelope(minx, maxx, miny, maxy);
+            }
+            final int size = in.readInt();
+            Map<String, AttributeStats> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                String name = in.readUTF();
+                attributes.put(name, AttributeStats.readFrom(in));
+            }
+            return new TreeStats(featureCount, bounds, attributes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public @Override String toString() {
+        return String.format("%s[features: %,d, bounds: %s, attributes: %s]",
+                getClass().getSimpleName(), featureCount, bounds, attributes);
+    }
+}
@@ -0,0 +1,125 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.BlobStore;
+
+import com.google.common.hash.Hashing;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent side index of {@link TreeStats}, stored in the repository's {@link BlobStore} under
+ * the {@code statistics/trees/} namespace, keyed by tree and feature type (the attribute names
+ * the feature values are bound to depend on the feature type).
+ * <p>
+ * Each tree and feature type pair is hashed to one of {@code maxEntries} slots, each stored as a
+ * blob that starts with the tree and feature type ids of the entry it holds. Storing an entry
+ * evicts whatever other entry was in its slot, so the index never grows past {@code maxEntries}
+ * blobs, regardless of how many trees and bucket subtrees got their stats computed or whether
+ * they're still reachable.
+ * <p>
+ * The index is a cache, a missing, evicted, or unreadable entry only means the stats need to be
+ * computed out of the tree contents.
+ *
+ * @see ComputeTreeStats
+ * @since 2.0
+ */
+@Slf4j
+public class TreeStatsStore {
+
+    static final String BLOB_PREFIX = "statistics/trees/";
+
+    public static final int DEFAULT_MAX_ENTRIES = 16 * 1024;
+
+    private static final int KEY_SIZE = 2 * ObjectId.NUM_BYTES;
+
+    private final BlobStore store;
+
+    private final int maxEntries;
+
+    public TreeStatsStore(@NonNull BlobStore store) {
+        this(store, DEFAULT_MAX_ENTRIES);
+    }
+
+    public TreeStatsStore(@NonNull BlobStore store, int maxEntries) {
+        checkArgument(maxEntries > 0, "maxEntries must be > 0");
+        this.store = store;
+        this.maxEntries = maxEntries;
+    }
+
+    public Optional<TreeStats> get(@NonNull ObjectId treeId, @NonNull ObjectId featureTypeId) {
+        final byte[] key = key(treeId, featureTypeId);
+        Optional<byte[]> blob = store.getBlob(blobPath(key));
+        if (blob.isPresent() && holds(blob.get(), key)) {
+            final byte[] encoded = Arrays.copyOfRange(blob.get(), KEY_SIZE, blob.get().length);
+            try {
+                return Optional.of(TreeStats.decode(encoded));
+            } catch (RuntimeException e) {
+                log.warn("Unable to decode stats for tree {}", treeId, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean exists(@NonNull ObjectId treeId, @NonNull ObjectId featureTypeId) {
+        final byte[] key = key(treeId, featureTypeId);
+        Optional<byte[]> blob = store.getBlob(blobPath(key));
+        return blob.isPresent() && holds(blob.get(), key);
+    }
+
+    public void put(@NonNull ObjectId treeId, @NonNull ObjectId featureTypeId,
+            @NonNull TreeStats stats) {
+        final byte[] key = key(treeId, featureTypeId);
+        final byte[] encoded = stats.encode();
+        byte[] blob = Arrays.copyOf(key, KEY_SIZE + encoded.length);
+        System.arraycopy(encoded, 0, blob, KEY_SIZE, encoded.length);
+        store.putBlob(blobPath(key), blob);
+    }
+
+    /**
+     * Removes the entry's blob only if its slot is not taken by another entry
+     */
+    public void remove(@NonNull ObjectId treeId, @NonNull ObjectId featureTypeId) {
+        final byte[] key = key(treeId, featureTypeId);
+        final String path = blobPath(key);
+        Optional<byte[]> blob = store.getBlob(path);
+        if (blob.isPresent() && holds(blob.get(), key)) {
+            store.removeBlob(path);
+        }
+    }
+
+    private static boolean holds(byte[] blob, byte[] key) {
+        return blob.length >= KEY_SIZE && Arrays.equals(key, Arrays.copyOf(blob, KEY_SIZE));
+    }
+
+    static byte[] key(ObjectId treeId, ObjectId featureTypeId) {
+        byte[] key = new byte[KEY_SIZE];
+        treeId.getRawValue(key);
+        System.arraycopy(featureTypeId.getRawValue(), 0, key, ObjectId.NUM_BYTES,
+                ObjectId.NUM_BYTES);
+        return key;
+    }
+
+    /**
+     * @return the name of the blob for the slot {@code key} is hashed to
+     */
+    String blobPath(byte[] key) {
+        int hash = Hashing.murmur3_32().hashBytes(key).asInt();
+        return BLOB_PREFIX + Integer.toHexString(Math.floorMod(hash, maxEntries));
+    }
+}
@@ -84,6 +84,7 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
 
         BlameReport report = new BlameReport(featureType.get());
 
+        // LogOp skips the commits whose changed paths filter excludes the feature path
         Iterator<RevCommit> log = command(LogOp.class).addPath(path).setUntil(commit).call();
         RevCommit commit = log.next();
         RevObjectParse revObjectParse = command(RevObjectParse.class);
@@ -100,7 +101,8 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
             }
             RevCommit commitB = log.next();
             try (AutoCloseableIterator<DiffEntry> diffs = diffOp.setNewVersion(commit.getId())
-                    .setOldVersion(commitB.getId()).setReportTrees(false).call()) {
+                    .setOldVersion(commitB.getId()).setFilter(path).setReportTrees(false)
+                    .call()) {
                 while (diffs.hasNext()) {
                     DiffEntry diff = diffs.next();
                     if (path.equals(diff.newPath())) {
@@ -48,6 +48,7 @@ import org.locationtech.geogig.plumbing.UpdateTree;
 import org.locationtech.geogig.porcelain.CheckoutException.StatusCode;
 import org.locationtech.geogig.porcelain.CheckoutResult.Results;
 import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.WorkingTree;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.repository.impl.SpatialOps;
@@ -266,7 +267,8 @@ public class CheckoutOp extends AbstractGeoGigOp<CheckoutResult> {
             } else {
                 currentTypeTree = objectDatabase().getTree(typeTreeRef.getObjectId());
             }
-            typeTreeBuilder = RevTreeBuilder.builder(objectDatabase(), currentTypeTree);
+            typeTreeBuilder = RevTreeBuilder.builder(objectDatabase(), currentTypeTree)
+                    .scheduler(GeogigScheduler.get(context().hints()));
             currentFeatureTypeRefs.put(typeTreePath, typeTreeRef);
             featureTypeTrees.put(typeTreePath, typeTreeBuilder);
         }
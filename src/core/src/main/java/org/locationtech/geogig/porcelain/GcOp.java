@@ -0,0 +1,546 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.porcelain;
+
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.di.CanRunDuringConflict;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.ChangedPathsIndex;
+import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.IndexDatabase.IndexTreeMapping;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.impl.ObjectIdSet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import lombok.NonNull;
+
+/**
+ * Deletes the objects that are no longer reachable from any ref.
+ * <p>
+ * The mark phase walks the revision graph from all the refs, including the ones of the open
+ * transactions, and the objects referenced by merge conflicts, traversing the trees in parallel
+ * on the {@link WorkClass#DIFF_WALK diff walk} fork-join pool and recording the reachable object
+ * ids in an off-heap {@link ObjectIdSet}. The index trees referenced by the
+ * {@link IndexDatabase#resolveIndexedTrees index mappings} are marked the same way. The sweep
+ * phase then enumerates each store and deletes the unmarked objects in batches.
+ * <p>
+ * The object stores keep no record of when an object was written, so an object that has been
+ * written but is not yet referenced by a ref (e.g. by an import or a GeoServer WFS-T transaction
+ * in progress) is indistinguishable from garbage. To protect them, the unreachable objects found
+ * by a run are not deleted right away but saved as pending, and only deleted by a later run
+ * started at least {@link #setGracePeriod(long) grace period} after, if they're still
+ * unreachable. Hence the grace period shall be longer than the longest running write operation.
+ * A grace period of zero deletes all unreachable objects at once.
+ * <p>
+ * The grace period does not make it safe to run concurrently with write operations, though.
+ * Stores skip writing the objects they already have, so an object found unreachable by a
+ * previous run that an operation in progress writes again (e.g. a feature that was deleted and
+ * gets imported again) keeps its pending state, and is deleted if the operation didn't get to
+ * update a ref by the time the next run sweeps. Garbage collection shall hence be run while no
+ * other operation is writing to the repository; the grace period only protects the objects
+ * written for the first time by operations gc can't know about, like an interrupted import.
+ * <p>
+ * Besides the objects and index trees, the sweep removes the {@link ChangedPathsIndex changed
+ * paths} filters of the deleted commits. The
+ * {@link org.locationtech.geogig.plumbing.stats.TreeStatsStore tree stats} and
+ * {@link org.locationtech.geogig.plumbing.diff.DiffSummaryStore diff summary} caches are not
+ * swept: they're bounded to a fixed number of slots regardless of how many trees they've seen,
+ * and the entries of deleted trees are evicted as the slots are taken by new ones.
+ * <p>
+ * The backing {@link ObjectStore stores} must support {@link ObjectStore#getAllIds()
+ * enumerating} their contents.
+ */
+@CanRunDuringConflict
+public class GcOp extends AbstractGeoGigOp<GcReport> {
+
+    public static final long DEFAULT_GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Name of the blob holding the ids of the unreachable objects found by the last run, and the
+     * time they were found
+     */
+    static final String PENDING_BLOB = "gc_pending";
+
+    private static final int BATCH_SIZE = 1_000;
+
+    /**
+     * Max number of trees a traversal task fetches before splitting
+     */
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private boolean dryRun;
+
+    private long gracePeriod = DEFAULT_GRACE_PERIOD;
+
+    /**
+     * @param dryRun if {@code true}, only report what would be deleted
+     */
+    public GcOp setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    /**
+     * @param gracePeriod how long, in milliseconds, an object must have been found unreachable
+     *        before it's deleted, defaults to {@link #DEFAULT_GRACE_PERIOD}
+     */
+    public GcOp setGracePeriod(long gracePeriod) {
+        Preconditions.checkArgument(gracePeriod >= 0, "grace period can't be negative");
+        this.gracePeriod = gracePeriod;
+        return this;
+    }
+
+    public GcOp setGracePeriod(long duration, @NonNull TimeUnit unit) {
+        return setGracePeriod(unit.toMillis(duration));
+    }
+
+    protected @Override GcReport _call() {
+        final ProgressListener progress = getProgressListener();
+        final ObjectDatabase objects = objectDatabase();
+        final IndexDatabase indexes = indexDatabase();
+        final ForkJoinPool pool = GeogigScheduler.get(context().hints())
+                .forkJoinPool(WorkClass.DIFF_WALK);
+
+        checkCanSweep(objects);
+        checkCanSweep(indexes);
+
+        progress.started();
+        try (ObjectIdSet reachable = new ObjectIdSet();
+                ObjectIdSet reachableIndexTrees = new ObjectIdSet();
+                Pending previous = readPending()) {
+
+            progress.setDescription("Marking reachable objects...");
+            markRefs(objects, reachable, pool);
+            markConflicts(reachable);
+            progress.setDescription("Marking reachable index trees...");
+            markIndexTrees(indexes, reachableIndexTrees, pool);
+
+            final long now = platform().currentTimeMillis();
+            final boolean expired = previous != null && now - previous.timestamp >= gracePeriod;
+            // keep the pending list of a run still within the grace period for the next one
+            final boolean replacePending = !dryRun && (previous == null || expired);
+            final Sweep sweep = new Sweep(gracePeriod == 0 ? null : previous, expired,
+                    replacePending);
+            try {
+                progress.setDescription("Sweeping unreachable objects...");
+                sweep.run(objects, reachable, new ChangedPathsIndex(context().blobStore()));
+                final long unreachableObjects = sweep.unreachable;
+                final long deletedObjects = sweep.deleted;
+
+                progress.setDescription("Sweeping unreachable index trees...");
+                sweep.run(indexes, reachableIndexTrees, null);
+
+                if (replacePending) {
+                    sweep.savePending();
+                }
+                progress.complete();
+                return GcReport.builder()//
+                        .dryRun(dryRun)//
+                        .reachableObjects(reachable.size())//
+                        .unreachableObjects(unreachableObjects)//
+                        .deletedObjects(deletedObjects)//
+                        .reachableIndexObjects(reachableIndexTrees.size())//
+                        .unreachableIndexObjects(sweep.unreachable - unreachableObjects)//
+                        .deletedIndexObjects(sweep.deleted - deletedObjects)//
+                        .pendingObjects(sweep.pending)//
+                        .build();
+            } finally {
+                sweep.discard();
+            }
+        }
+    }
+
+    private static void checkCanSweep(ObjectStore store) {
+        try (AutoCloseableIterator<ObjectId> ids = store.getAllIds()) {
+            // fail before marking if the store can't be enumerated
+        }
+    }
+
+    private List<Ref> roots() {
+        List<Ref> refs = new ArrayList<>(refDatabase().getAll());
+        refs.addAll(refDatabase().getAll(Ref.TRANSACTIONS_PREFIX));
+        return refs;
+    }
+
+    private void markRefs(ObjectDatabase objects, ObjectIdSet reachable, ForkJoinPool pool) {
+        reachable.add(RevTree.EMPTY_TREE_ID);
+        final Deque<ObjectId> queue = new ArrayDeque<>();
+        for (Ref ref : roots()) {
+            ObjectId id = ref.getObjectId();
+            if (!id.isNull() && reachable.add(id)) {
+                queue.add(id);
+            }
+        }
+        // walk the commit graph breadth first, traversing the root trees in batches
+        List<ObjectId> trees = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            List<ObjectId> batch = new ArrayList<>(Math.min(BATCH_SIZE, queue.size()));
+            while (!queue.isEmpty() && batch.size() < BATCH_SIZE) {
+                batch.add(queue.poll());
+            }
+            Iterator<RevObject> found = objects.getAll(batch, NOOP_LISTENER);
+            while (found.hasNext()) {
+                RevObject o = found.next();
+                switch (o.getType()) {
+                case COMMIT:
+                    RevCommit commit = (RevCommit) o;
+                    for (ObjectId parent : commit.getParentIds()) {
+                        if (reachable.add(parent)) {
+                            queue.add(parent);
+                        }
+                    }
+                    if (reachable.add(commit.getTreeId())) {
+                        trees.add(commit.getTreeId());
+                    }
+                    break;
+                case TAG:
+                    ObjectId tagged = ((RevTag) o).getCommitId();
+                    if (reachable.add(tagged)) {
+                        queue.add(tagged);
+                    }
+                    break;
+                case TREE:
+                    trees.add(o.getId());
+                    break;
+                default:
+                    break;
+                }
+            }
+            if (trees.size() >= BATCH_SIZE) {
+                pool.invoke(new MarkTreesTask(objects, reachable, trees, true));
+                trees = new ArrayList<>();
+            }
+        }
+        if (!trees.isEmpty()) {
+            pool.invoke(new MarkTreesTask(objects, reachable, trees, true));
+        }
+    }
+
+    /**
+     * Marks the objects referenced by the merge conflicts of the repository and of the open
+     * transactions, which are needed to resolve them
+     */
+    private void markConflicts(ObjectIdSet reachable) {
+        Set<String> namespaces = new TreeSet<>();
+        for (Ref ref : refDatabase().getAll(Ref.TRANSACTIONS_PREFIX)) {
+            String name = ref.getName().substring(Ref.TRANSACTIONS_PREFIX.length());
+            int separator = name.indexOf('/');
+            namespaces.add(separator == -1 ? name : name.substring(0, separator));
+        }
+        // the null namespace is the one of the repository itself
+        List<String> all = new ArrayList<>();
+        all.add(null);
+        all.addAll(namespaces);
+        for (String namespace : all) {
+            Iterator<Conflict> conflicts = conflictsDatabase().getByPrefix(namespace, null);
+            while (conflicts.hasNext()) {
+                Conflict c = conflicts.next();
+                reachable.add(c.getAncestor());
+                reachable.add(c.getOurs());
+                reachable.add(c.getTheirs());
+            }
+        }
+    }
+
+    private void markIndexTrees(IndexDatabase indexes, ObjectIdSet reachable,
+            ForkJoinPool pool) {
+        reachable.add(RevTree.EMPTY_TREE_ID);
+        List<ObjectId> trees = new ArrayList<>();
+        indexes.getIndexInfos().forEach(index -> {
+            try (AutoCloseableIterator<IndexTreeMapping> mappings = indexes
+                    .resolveIndexedTrees(index)) {
+                while (mappings.hasNext()) {
+                    ObjectId indexTree = mappings.next().indexTree;
+                    if (reachable.add(indexTree)) {
+                        trees.add(indexTree);
+                    }
+                }
+            }
+        });
+        if (!trees.isEmpty()) {
+            // index tree leaves are the canonical features, stored in the object database
+            pool.invoke(new MarkTreesTask(indexes, reachable, trees, false));
+        }
+    }
+
+    /**
+     * Marks the children of already marked trees, fetching them in batches and splitting the
+     * traversal of wide levels in parallel subtasks.
+     */
+    private static class MarkTreesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ObjectStore store;
+
+        private final ObjectIdSet reachable;
+
+        private final List<ObjectId> trees;
+
+        private final boolean markLeaves;
+
+        MarkTreesTask(ObjectStore store, ObjectIdSet reachable, List<ObjectId> trees,
+                boolean markLeaves) {
+            this.store = store;
+            this.reachable = reachable;
+            this.trees = trees;
+            this.markLeaves = markLeaves;
+        }
+
+        protected @Override void compute() {
+            if (trees.size() > SPLIT_THRESHOLD) {
+                List<MarkTreesTask> subtasks = new ArrayList<>();
+                for (List<ObjectId> part : Lists.partition(trees, SPLIT_THRESHOLD)) {
+                    subtasks.add(new MarkTreesTask(store, reachable, part, markLeaves));
+                }
+                invokeAll(subtasks);
+                return;
+            }
+            final List<ObjectId> children = new ArrayList<>();
+            Iterator<RevTree> found = store.getAll(trees, NOOP_LISTENER, RevTree.class);
+            while (found.hasNext()) {
+                RevTree tree = found.next();
+                tree.forEachTree(node -> {
+                    markMetadata(node.getMetadataId());
+                    if (reachable.add(node.getObjectId())) {
+                        children.add(node.getObjectId());
+                    }
+                });
+                tree.forEachBucket(bucket -> {
+                    if (reachable.add(bucket.getObjectId())) {
+                        children.add(bucket.getObjectId());
+                    }
+                });
+                if (markLeaves) {
+                    tree.forEachFeature(node -> {
+                        markMetadata(node.getMetadataId());
+                        reachable.add(node.getObjectId());
+                    });
+                }
+            }
+            if (!children.isEmpty()) {
+                new MarkTreesTask(store, reachable, children, markLeaves).compute();
+            }
+        }
+
+        private void markMetadata(Optional<ObjectId> metadataId) {
+            if (markLeaves && metadataId.isPresent()) {
+                reachable.add(metadataId.get());
+            }
+        }
+    }
+
+    /**
+     * Deletes or defers the deletion of the unreachable objects of each store, accumulating the
+     * new pending ids in a temporary file
+     */
+    private class Sweep {
+
+        private final @Nullable Pending previous;
+
+        private final boolean expired;
+
+        private final @Nullable File pendingFile;
+
+        private final @Nullable DataOutputStream pendingOut;
+
+        long unreachable, deleted, pending;
+
+        Sweep(@Nullable Pending previous, boolean expired, boolean savePending) {
+            this.previous = previous;
+            this.expired = expired;
+            try {
+                this.pendingFile = savePending ? File.createTempFile("geogig-gc", ".pending")
+                        : null;
+                this.pendingOut = pendingFile == null ? null
+                        : new DataOutputStream(
+                                new BufferedOutputStream(new FileOutputStream(pendingFile)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private boolean canDelete(ObjectId id) {
+            if (gracePeriod == 0) {
+                return true;
+            }
+            return expired && previous.ids.contains(id);
+        }
+
+        /**
+         * @param changedPaths if provided, the index to remove the filters of the deleted commits
+         *        from
+         */
+        void run(ObjectStore store, ObjectIdSet reachable,
+                @Nullable ChangedPathsIndex changedPaths) {
+            final CountingListener listener = BulkOpListener.newCountingListener();
+            final List<ObjectId> batch = new ArrayList<>(BATCH_SIZE);
+            try (AutoCloseableIterator<ObjectId> ids = store.getAllIds()) {
+                while (ids.hasNext()) {
+                    final ObjectId id = ids.next();
+                    if (reachable.contains(id)) {
+                        continue;
+                    }
+                    unreachable++;
+                    if (canDelete(id)) {
+                        deleted++;
+                        if (!dryRun) {
+                            batch.add(id);
+                            if (batch.size() == BATCH_SIZE) {
+                                delete(store, batch, changedPaths, listener);
+                                batch.clear();
+                            }
+                        }
+                    } else {
+                        pending++;
+                        if (pendingOut != null) {
+                            id.writeTo(pendingOut);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!batch.isEmpty()) {
+                delete(store, batch, changedPaths, listener);
+            }
+        }
+
+        private void delete(ObjectStore store, List<ObjectId> batch,
+                @Nullable ChangedPathsIndex changedPaths, BulkOpListener listener) {
+            if (changedPaths != null) {
+                Iterator<RevCommit> commits = store.getAll(batch, NOOP_LISTENER,
+                        RevCommit.class);
+                commits.forEachRemaining(c -> changedPaths.remove(c.getId()));
+            }
+            store.deleteAll(batch.iterator(), listener);
+        }
+
+        void savePending() {
+            final BlobStore blobs = context().blobStore();
+            try {
+                pendingOut.close();
+                if (pending == 0) {
+                    blobs.removeBlob(PENDING_BLOB);
+                    return;
+                }
+                // the ids were all written before now, so they're at least this old
+                final long timestamp = platform().currentTimeMillis();
+                File blob = File.createTempFile("geogig-gc", ".blob");
+                try {
+                    try (DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(blob)));
+                            InputStream in = new FileInputStream(pendingFile)) {
+                        out.writeLong(timestamp);
+                        out.writeLong(pending);
+                        ByteStreams.copy(in, out);
+                    }
+                    try (InputStream in = new FileInputStream(blob)) {
+                        blobs.putBlob(PENDING_BLOB, in);
+                    }
+                } finally {
+                    blob.delete();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void discard() {
+            if (pendingFile != null) {
+                try {
+                    pendingOut.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                pendingFile.delete();
+            }
+        }
+    }
+
+    /**
+     * The unreachable objects found by the previous run
+     */
+    private static class Pending implements AutoCloseable {
+
+        final long timestamp;
+
+        final ObjectIdSet ids;
+
+        Pending(long timestamp, ObjectIdSet ids) {
+            this.timestamp = timestamp;
+            this.ids = ids;
+        }
+
+        public @Override void close() {
+            ids.close();
+        }
+    }
+
+    private @Nullable Pending readPending() {
+        Optional<InputStream> blob = context().blobStore().getBlobAsStream(PENDING_BLOB);
+        if (!blob.isPresent()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(blob.get()))) {
+            final long timestamp = in.readLong();
+            final long count = in.readLong();
+            ObjectIdSet ids = new ObjectIdSet(count);
+            for (long i = 0; i < count; i++) {
+                ids.add(ObjectId.readFrom(in));
+            }
+            return new Pending(timestamp, ids);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
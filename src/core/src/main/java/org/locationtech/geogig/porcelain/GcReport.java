@@ -0,0 +1,49 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.porcelain;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Result of a {@link GcOp garbage collection} run.
+ * <p>
+ * Unreachable objects are either deleted, or kept until the next run if they may have been
+ * written within the grace period. On a dry run, the deleted counts are the number of objects
+ * that would have been deleted.
+ */
+public @Value @Builder class GcReport {
+
+    private boolean dryRun;
+
+    /**
+     * Number of objects reachable from any ref, including the ones in the conflicts database
+     */
+    private long reachableObjects;
+
+    private long unreachableObjects;
+
+    private long deletedObjects;
+
+    /**
+     * Number of index trees reachable from the index mappings
+     */
+    private long reachableIndexObjects;
+
+    private long unreachableIndexObjects;
+
+    private long deletedIndexObjects;
+
+    /**
+     * Number of unreachable objects kept because they may have been written within the grace
+     * period, to be deleted by a later run if still unreachable
+     */
+    private long pendingObjects;
+}
@@ -27,6 +27,8 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.ChangedPathsFilter;
+import org.locationtech.geogig.plumbing.ChangedPathsIndex;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.GraphDatabase;
@@ -49,7 +51,9 @@ import lombok.NonNull;
  * <li>{@link #setTimeRange(Range) timeRange}: return commits that fall in to the given time range.
  * <li>{@link #setSince(ObjectId) since}...{@link #setUntil(ObjectId) until}: Show only commits
  * between the named two commits.
- * <li>{@link #addPath(String) addPath}: Show only commits that affect the specified path.
+ * <li>{@link #addPath(String) addPath}: Show only commits that affect the specified path. Commits
+ * whose {@link ChangedPathsFilter changed paths filter} excludes all the paths are skipped without
+ * inspecting their trees.
  * </ul>
  * </p>
  * 
@@ -530,6 +534,8 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
 
         private FindTreeChild findTreeChild;
 
+        private ChangedPathsIndex changedPathsIndex;
+
         private @NonNull Geogig repo;
 
         /**
@@ -552,6 +558,7 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             this.committer = commiter;
             this.paths = paths;
             findTreeChild = repo.commands().command(FindTreeChild.class);
+            changedPathsIndex = paths == null ? null : repo.graph().changedPaths();
         }
 
         /**
@@ -585,6 +592,9 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
                 return false;
             }
             if (paths != null) {
+                if (definitelyUnchanged(commit)) {
+                    return false;
+                }
                 applies = false;
                 // did this commit touch any of the paths?
                 RevTree commitTree = repo.objects().getTree(commit.getTreeId());
@@ -621,6 +631,16 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             return applies;
         }
 
+        /**
+         * @return {@code true} if the commit's changed paths filter is indexed and excludes all
+         *         the requested paths, meaning there's no need to compare the commit trees
+         *         against its parents'
+         */
+        private boolean definitelyUnchanged(RevCommit commit) {
+            Optional<ChangedPathsFilter> filter = changedPathsIndex.get(commit.getId());
+            return filter.isPresent() && paths.stream().noneMatch(filter.get()::mightContain);
+        }
+
         private ObjectId getPathHash(RevTree tree, String path) {
             ObjectId hash = ObjectId.NULL;
             Optional<NodeRef> ref = findTreeChild.setChildPath(path).setParent(tree).call();
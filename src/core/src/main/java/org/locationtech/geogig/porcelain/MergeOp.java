@@ -36,6 +36,7 @@ import org.locationtech.geogig.plumbing.merge.MergeScenarioReport;
 import org.locationtech.geogig.plumbing.merge.MergeStatusBuilder;
 import org.locationtech.geogig.plumbing.merge.ReportMergeScenarioOp;
 import org.locationtech.geogig.plumbing.merge.SaveMergeCommitMessageOp;
+import org.locationtech.geogig.plumbing.merge.ThreeWayMergeOp;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -73,6 +74,8 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
 
     private boolean fastForwardOnly;
 
+    private boolean streaming;
+
     private Optional<String> authorName = Optional.empty();
 
     private Optional<String> authorEmail = Optional.empty();
@@ -183,6 +186,18 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
         return this;
     }
 
+    /**
+     * @param streaming true if a merge with possible conflicts should be performed by
+     *        {@link ThreeWayMergeOp}, which builds the merged tree and saves the conflicts as it
+     *        walks the trees instead of buffering all the changes first. Only applies if there
+     *        are no staged changes.
+     * @return {@code this}
+     */
+    public MergeOp setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
     /**
      * Executes the merge operation.
      * 
@@ -264,9 +279,25 @@ public class MergeOp extends AbstractGeoGigOp<MergeOp.MergeReport> {
 
             pairs.add(new CommitAncestorPair(commitId, ancestorCommit.get()));
 
-            progress.setDescription("Possible conflicts. Creating intermediate merge status...");
-            mergeScenario = command(ReportMergeScenarioOp.class).setMergeIntoCommit(headCommit)
-                    .setToMergeCommit(targetCommit).setConsumer(mergeStatusBuilder).call();
+            if (streaming && stagingArea().isClean()) {
+                progress.setDescription("Possible conflicts. Merging trees...");
+                ThreeWayMergeOp.Result result = command(ThreeWayMergeOp.class)
+                        .setMergeIntoCommit(headCommit).setToMergeCommit(targetCommit)
+                        .setWriteConflicts(!ours)
+                        .setConsumer(mergeStatusBuilder.reportingConsumer())
+                        .setProgressListener(progress).call();
+                mergeScenario = result.getReport();
+                if (!progress.isCanceled()) {
+                    stagingArea().updateStageHead(result.getMergedTree().getId(),
+                            "merge: stage merged tree");
+                }
+            } else {
+                progress.setDescription(
+                        "Possible conflicts. Creating intermediate merge status...");
+                mergeScenario = command(ReportMergeScenarioOp.class)
+                        .setMergeIntoCommit(headCommit).setToMergeCommit(targetCommit)
+                        .setConsumer(mergeStatusBuilder).call();
+            }
 
             if (progress.isCanceled()) {
                 cancel();
@@ -0,0 +1,141 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.porcelain.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+/**
+ * Creates a {@link RevTree} clustered by the value of a single attribute out of an existing
+ * canonical {@link RevTree}, so that equality and range queries on that attribute only need to
+ * traverse the buckets whose value range matches the query.
+ * <p>
+ * The indexed attribute is always materialized in the index tree nodes, in addition to the
+ * {@link #setExtraAttributes extra attributes}, if any.
+ *
+ * @since 2.0
+ */
+public class CreateAttributeIndex extends AbstractGeoGigOp<Index> {
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable NodeRef typeTreeRef;
+
+    /**
+     * Either typeTreeRef or treeRefSpec must be provided
+     */
+    private @Nullable String treeRefSpec;
+
+    private String attributeName;
+
+    private @Nullable List<String> extraAttributes;
+
+    private boolean indexHistory;
+
+    /**
+     * @param typeTreeRef the {@link NodeRef} of the canonical tree to build the index from
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setTypeTreeRef(NodeRef typeTreeRef) {
+        this.typeTreeRef = typeTreeRef;
+        return this;
+    }
+
+    /**
+     * @param treeRefSpec the refspec of the tree to build the index from
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setTreeRefSpec(String treeRefSpec) {
+        this.treeRefSpec = treeRefSpec;
+        return this;
+    }
+
+    /**
+     * @param attributeName the name of the attribute to index, must be of a numeric, string,
+     *        date, or boolean type
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setAttributeName(String attributeName) {
+        this.attributeName = attributeName;
+        return this;
+    }
+
+    /**
+     * @param extraAttributes extra attributes to keep track of in the indexed tree
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setExtraAttributes(@Nullable List<String> extraAttributes) {
+        this.extraAttributes = extraAttributes;
+        return this;
+    }
+
+    /**
+     * Build the indexes for the full history of the feature tree.
+     *
+     * @param indexHistory if {@code true}, the full history of the feature tree will be built
+     * @return {@code this}
+     */
+    public CreateAttributeIndex setIndexHistory(boolean indexHistory) {
+        this.indexHistory = indexHistory;
+        return this;
+    }
+
+    /**
+     * Performs the operation.
+     *
+     * @return an {@link Index} that represents the newly created index
+     */
+    protected @Override Index _call() {
+        checkArgument(typeTreeRef != null || treeRefSpec != null, "No tree was provided.");
+        checkArgument(attributeName != null, "No attribute name was provided.");
+
+        final NodeRef typeTreeRef = this.typeTreeRef != null ? this.typeTreeRef
+                : IndexUtils.resolveTypeTreeRef(context(), treeRefSpec);
+        checkArgument(typeTreeRef != null, "Can't find feature tree '%s'", treeRefSpec);
+        final RevTree canonicalTypeTree = objectDatabase().getTree(typeTreeRef.getObjectId());
+        final RevFeatureType featureType = objectDatabase()
+                .getFeatureType(typeTreeRef.getMetadataId());
+
+        final PropertyDescriptor indexedAtt = IndexUtils.resolveIndexableAttribute(featureType,
+                attributeName);
+        final String[] extraAttributes = IndexUtils.withMaterializedAttribute(
+                IndexUtils.resolveMaterializedAttributeNames(featureType, this.extraAttributes),
+                indexedAtt.getLocalName());
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, extraAttributes);
+
+        Index index = command(CreateIndexOp.class)//
+                .setTreeName(typeTreeRef.path())//
+                .setAttributeName(indexedAtt.getLocalName())//
+                .setCanonicalTypeTree(canonicalTypeTree)//
+                .setFeatureTypeId(featureType.getId())//
+                .setIndexType(IndexType.ATTRIBUTE)//
+                .setMetadata(metadata)//
+                .setIndexHistory(indexHistory)//
+                .setProgressListener(getProgressListener())//
+                .call();
+
+        return index;
+    }
+}
@@ -15,16 +15,23 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.crs.CoordinateReferenceSystem;
 import org.locationtech.geogig.feature.FeatureType;
 import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.NodeOrdering;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.impl.AttributeTreeBuilder;
+import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
 import org.locationtech.geogig.plumbing.FindFeatureTypeTrees;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.IndexDatabase;
 import org.locationtech.jts.geom.Envelope;
@@ -166,4 +173,68 @@ public class IndexUtils {
         }
         return descriptor;
     }
+
+    /**
+     * Resolves the attribute of a feature type to create an attribute index for.
+     * 
+     * @param featureType the feature type
+     * @param attributeName the name of the attribute
+     * @return the {@link PropertyDescriptor} of the attribute
+     * @throws IllegalArgumentException if the attribute does not exist or its values can't be
+     *         indexed
+     */
+    public static PropertyDescriptor resolveIndexableAttribute(RevFeatureType featureType,
+            String attributeName) {
+        checkArgument(attributeName != null, "attribute name was not provided");
+        PropertyDescriptor prop;
+        try {
+            prop = featureType.type().getDescriptor(attributeName);
+        } catch (NoSuchElementException e) {
+            throw new IllegalArgumentException(
+                    String.format("property %s does not exist", attributeName));
+        }
+        checkArgument(AttributeIndexKey.isIndexable(prop.getBinding()),
+                "property %s of type %s can't be indexed", attributeName,
+                prop.getBinding().getSimpleName());
+        return prop;
+    }
+
+    /**
+     * Adds the indexed attribute of an attribute index to its materialized attribute names, since
+     * the index tree is clustered by the value materialized in the feature nodes.
+     * 
+     * @param materializedAttributes the materialized attribute names, may be {@code null}
+     * @param attributeName the name of the indexed attribute
+     * @return the sorted materialized attribute names, including {@code attributeName}
+     */
+    public static String[] withMaterializedAttribute(@Nullable String[] materializedAttributes,
+            String attributeName) {
+        Set<String> atts = new TreeSet<>();
+        if (materializedAttributes != null) {
+            atts.addAll(Arrays.asList(materializedAttributes));
+        }
+        atts.add(attributeName);
+        return atts.toArray(new String[atts.size()]);
+    }
+
+    /**
+     * Resolves the {@link NodeOrdering} the trees of the given index are built with, as required
+     * to walk or diff them.
+     * 
+     * @param index the index
+     * @return the node ordering of the index trees
+     */
+    public static NodeOrdering nodeOrdering(IndexInfo index) {
+        final IndexType indexType = index.getIndexType();
+        switch (indexType) {
+        case QUADTREE:
+            Envelope maxBounds = IndexInfo.getMaxBounds(index);
+            checkArgument(maxBounds != null, "QuadTree index does not contain max bounds");
+            return QuadTreeBuilder.nodeOrdering(maxBounds);
+        case ATTRIBUTE:
+            return AttributeTreeBuilder.nodeOrdering(index.getAttributeName());
+        default:
+            throw new UnsupportedOperationException("Unknown index type: " + indexType);
+        }
+    }
 }
@@ -24,6 +24,7 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.index.BuildFullHistoryIndexOp;
 import org.locationtech.geogig.plumbing.index.BuildIndexOp;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -180,6 +181,11 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
             updatedAttributes = oldAttributes;
         }
 
+        if (IndexType.ATTRIBUTE == oldIndexInfo.getIndexType()) {
+            updatedAttributes = IndexUtils.withMaterializedAttribute(updatedAttributes,
+                    oldIndexInfo.getAttributeName());
+        }
+
         boolean updated = false;
         if (!contentsEqual(updatedAttributes, oldAttributes)) {
             if (updatedAttributes == null) {
@@ -191,6 +197,8 @@ public class UpdateIndexOp extends AbstractGeoGigOp<Index> {
         }
 
         if (bounds != null) {
+            checkArgument(IndexType.QUADTREE == oldIndexInfo.getIndexType(),
+                    "Bounds can only be set on spatial indexes.");
             newMetadata.put(IndexInfo.MD_QUAD_MAX_BOUNDS, bounds);
             updated = true;
         }
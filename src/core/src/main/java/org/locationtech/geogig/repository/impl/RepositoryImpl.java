@@ -22,6 +22,7 @@ import org.locationtech.geogig.porcelain.ConfigOp;
 import org.locationtech.geogig.porcelain.ConfigOp.ConfigAction;
 import org.locationtech.geogig.repository.Command;
 import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.RepositoryConnectionException;
 import org.locationtech.geogig.repository.WorkingTree;
@@ -65,6 +66,12 @@ public class RepositoryImpl implements Repository {
 
     private volatile boolean open;
 
+    /**
+     * The scheduler for the context hints, retained while the repository is open so its
+     * executors are shut down after the last repository using it is closed
+     */
+    private GeogigScheduler scheduler;
+
     public RepositoryImpl(@NonNull Context context) {
         this.context = context;
     }
@@ -101,6 +108,7 @@ public class RepositoryImpl implements Repository {
         GraphDatabase graphDatabase = objectDatabase.getGraphDatabase();
         graphDatabase.open();
 
+        scheduler = GeogigScheduler.acquire(context.hints());
         for (RepositoryListener l : listeners) {
             l.opened(this);
         }
@@ -127,6 +135,10 @@ public class RepositoryImpl implements Repository {
                 e.printStackTrace();
             }
         }
+        if (scheduler != null) {
+            scheduler.release();
+            scheduler = null;
+        }
     }
 
     protected @Override void finalize() {
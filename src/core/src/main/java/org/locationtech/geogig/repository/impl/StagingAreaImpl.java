@@ -47,6 +47,7 @@ import org.locationtech.geogig.plumbing.UpdateTree;
 import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.StagingArea;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -205,8 +206,9 @@ public class StagingAreaImpl implements StagingArea {
             } else {
                 currentTypeTree = context.objectDatabase().getTree(typeTreeRef.getObjectId());
             }
-            RevTreeBuilder typeTreeBuilder = RevTreeBuilder.builder(context.objectDatabase(),
-                    currentTypeTree);
+            RevTreeBuilder typeTreeBuilder = RevTreeBuilder
+                    .builder(context.objectDatabase(), currentTypeTree)
+                    .scheduler(GeogigScheduler.get(context.hints()));
             currentFeatureTypeRefs.put(typeTreePath, typeTreeRef);
             return typeTreeBuilder;
         }
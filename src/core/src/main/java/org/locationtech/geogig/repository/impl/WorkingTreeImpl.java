@@ -20,7 +20,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
@@ -51,6 +50,8 @@ import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DefaultProgressListener;
 import org.locationtech.geogig.repository.DiffObjectCount;
 import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.WorkingTree;
@@ -64,7 +65,6 @@ import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.NonNull;
 
@@ -209,7 +209,8 @@ public class WorkingTreeImpl implements WorkingTree {
             final NodeRef typeTreeRef = context.command(FindTreeChild.class).setParent(workHead)
                     .setChildPath(parentTreePath).call().get();
             final RevTree currentParent = indexDatabase.getTree(typeTreeRef.getObjectId());
-            RevTreeBuilder parentBuilder = RevTreeBuilder.builder(indexDatabase, currentParent);
+            RevTreeBuilder parentBuilder = RevTreeBuilder.builder(indexDatabase, currentParent)
+                    .scheduler(GeogigScheduler.get(context.hints()));
             parentBuilder.remove(childRef.getNode());
 
             final RevTree newParent = parentBuilder.build();
@@ -234,8 +235,8 @@ public class WorkingTreeImpl implements WorkingTree {
 
     public @Override ObjectId delete(Iterator<String> features, ProgressListener progress) {
 
-        final ExecutorService treeBuildingService = Executors.newSingleThreadExecutor(
-                new ThreadFactoryBuilder().setNameFormat("WorkingTree-tree-builder-%d").build());
+        final ExecutorService treeBuildingService = GeogigScheduler.get(context.hints())
+                .boundedExecutor(WorkClass.TREE_BUILD, 1);
 
         try {
             final WorkingTreeInsertHelper insertHelper;
@@ -426,7 +427,8 @@ public class WorkingTreeImpl implements WorkingTree {
             }
             builder = RevTreeBuilder.builder(indexDatabase,
                     context.command(FindOrCreateSubtree.class).setParent(getTree())
-                            .setChildPath(treePath).call());
+                            .setChildPath(treePath).call())
+                    .scheduler(GeogigScheduler.get(context.hints()));
             treeBuilders.put(treePath, builder);
         }
         return builder;
@@ -538,7 +540,8 @@ public class WorkingTreeImpl implements WorkingTree {
                 .setStrategy(Strategy.DEPTHFIRST_ONLY_FEATURES).call();
 
         // rebuild the tree with nodes with updated metadata id as necessary
-        RevTreeBuilder newTreeBuilder = RevTreeBuilder.builder(indexDatabase);
+        RevTreeBuilder newTreeBuilder = RevTreeBuilder.builder(indexDatabase)
+                .scheduler(GeogigScheduler.get(context.hints()));
 
         while (oldFeatureRefs.hasNext()) {
             NodeRef ref = oldFeatureRefs.next();
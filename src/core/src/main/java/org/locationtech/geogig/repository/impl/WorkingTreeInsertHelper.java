@@ -34,6 +34,7 @@ import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.plumbing.FindOrCreateSubtree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.jts.geom.Envelope;
 
@@ -193,7 +194,8 @@ class WorkingTreeInsertHelper {
     }
 
     private RevTreeBuilder createBuilder(final RevTree origTree) {
-        return RevTreeBuilder.builder(db, origTree);
+        return RevTreeBuilder.builder(db, origTree)
+                .scheduler(GeogigScheduler.get(context.hints()));
     }
 
     public Map<NodeRef, RevTree> buildTrees() {
@@ -72,6 +72,14 @@ public @RequiredArgsConstructor class ForwardingGraphDatabase implements GraphDa
         return actual.getDepth(commitId);
     }
 
+    public @Override int getGeneration(ObjectId commitId) {
+        return actual.getGeneration(commitId);
+    }
+
+    public @Override void updateGeneration(ObjectId commitId) {
+        actual.updateGeneration(commitId);
+    }
+
     public @Override void setProperty(ObjectId commitId, String propertyName,
             String propertyValue) {
         actual.setProperty(commitId, propertyName, propertyValue);
@@ -196,6 +196,10 @@ public @RequiredArgsConstructor class ForwardingIndexDatabase implements IndexDa
         actual.deleteAll(ids, listener);
     }
 
+    public @Override AutoCloseableIterator<ObjectId> getAllIds() {
+        return actual.getAllIds();
+    }
+
     public @Override <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
             Iterator<NodeRef> nodes, BulkOpListener listener, Class<T> type) {
         return actual.getObjects(nodes, listener, type);
@@ -156,6 +156,11 @@ public class ForwardingObjectStore implements ObjectStore {
         actual.deleteAll(ids, listener);
     }
 
+    public @Override AutoCloseableIterator<ObjectId> getAllIds() {
+        checkOpen();
+        return actual.getAllIds();
+    }
+
     public @Override String toString() {
         return String.format("%s[%s]", getClass().getSimpleName(), actual);
     }
@@ -0,0 +1,297 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ExternalSortStorage;
+import org.locationtech.geogig.storage.ExternalSortStorageFactory;
+import org.locationtech.geogig.storage.impl.PersistedIterable.Serializer;
+
+import com.google.common.primitives.Ints;
+
+import lombok.NonNull;
+
+/**
+ * Sorts an arbitrarily large number of elements with a bounded memory footprint.
+ * <p>
+ * Elements are {@link #add added} to an in-memory buffer that, once {@link #getBufferSize() full},
+ * is sorted and spilled to an {@link ExternalSortStorage} as a sorted run. {@link #sorted()} then
+ * performs a k-way merge of all the runs, holding only one element per run in memory. If the
+ * elements never exceed the buffer size no external storage is used at all.
+ * <p>
+ * The sort is stable, elements that compare equal are returned in the order they were added.
+ *
+ * @since 2.0
+ */
+public class ExternalMergeSort<T> implements AutoCloseable {
+
+    /**
+     * Default maximum number of elements held in memory, can be overridden through the
+     * {@code geogig.sort.bufferSize} System property
+     */
+    public static final int DEFAULT_BUFFER_SIZE = Integer.getInteger("geogig.sort.bufferSize",
+            10_000);
+
+    private final Comparator<? super T> comparator;
+
+    private final Serializer<T> serializer;
+
+    private final int bufferSize;
+
+    private final Supplier<ExternalSortStorage> storageFactory;
+
+    private ArrayList<T> buffer;
+
+    private ExternalSortStorage storage;
+
+    private int runs;
+
+    private long size;
+
+    private boolean sorted;
+
+    private final List<AutoCloseableIterator<?>> openIterators = new ArrayList<>();
+
+    public ExternalMergeSort(@NonNull Comparator<? super T> comparator,
+            @NonNull Serializer<T> serializer) {
+        this(comparator, serializer, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ExternalMergeSort(@NonNull Comparator<? super T> comparator,
+            @NonNull Serializer<T> serializer, int bufferSize) {
+        this(comparator, serializer, bufferSize,
+                () -> ExternalSortStorageFactory.defaultInstance().newInstance());
+    }
+
+    public ExternalMergeSort(@NonNull Comparator<? super T> comparator,
+            @NonNull Serializer<T> serializer, int bufferSize,
+            @NonNull Supplier<ExternalSortStorage> storageFactory) {
+        checkArgument(bufferSize > 0, "bufferSize shall be > 0");
+        this.comparator = comparator;
+        this.serializer = serializer;
+        this.bufferSize = bufferSize;
+        this.storageFactory = storageFactory;
+        this.buffer = new ArrayList<>(Math.min(bufferSize, 1024));
+    }
+
+    /**
+     * Consumes and closes {@code source}, returning an iterator over its elements in the order
+     * mandated by {@code comparator}. Closing the returned iterator releases any external storage
+     * used.
+     */
+    public static <T> AutoCloseableIterator<T> sort(@NonNull AutoCloseableIterator<T> source,
+            @NonNull Comparator<? super T> comparator, @NonNull Serializer<T> serializer,
+            int bufferSize) {
+        ExternalMergeSort<T> sorter = new ExternalMergeSort<>(comparator, serializer, bufferSize);
+        try (AutoCloseableIterator<T> s = source) {
+            while (s.hasNext()) {
+                sorter.add(s.next());
+            }
+        } catch (RuntimeException e) {
+            sorter.close();
+            throw e;
+        }
+        return sorter.sorted();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of elements added
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of sorted runs spilled to external storage so far
+     */
+    public int runs() {
+        return runs;
+    }
+
+    public void add(@NonNull T element) {
+        checkState(!sorted, "sorted() has already been called");
+        buffer.add(element);
+        size++;
+        if (buffer.size() == bufferSize) {
+            spill();
+        }
+    }
+
+    private void spill() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        if (storage == null) {
+            storage = storageFactory.get();
+        }
+        buffer.sort(comparator);
+        final int run = runs++;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        try {
+            for (int i = 0; i < buffer.size(); i++) {
+                out.reset();
+                serializer.write(data, buffer.get(i));
+                data.flush();
+                storage.put(key(run, i), out.toByteArray());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Run index and position in the run, big endian encoded to preserve their order as unsigned
+     * bytes
+     */
+    private static byte[] key(int run, int index) {
+        byte[] key = new byte[8];
+        System.arraycopy(Ints.toByteArray(run), 0, key, 0, 4);
+        System.arraycopy(Ints.toByteArray(index), 0, key, 4, 4);
+        return key;
+    }
+
+    /**
+     * Returns the added elements in sorted order, can be called only once. Closing the returned
+     * iterator {@link #close() closes} this sorter.
+     */
+    public AutoCloseableIterator<T> sorted() {
+        checkState(!sorted, "sorted() has already been called");
+        sorted = true;
+        final Iterator<T> iterator;
+        if (runs == 0) {
+            buffer.sort(comparator);
+            iterator = buffer.iterator();
+        } else {
+            spill();
+            buffer = new ArrayList<>(0);
+            iterator = new MergeIterator();
+        }
+        return new AutoCloseableIterator<T>() {
+            public @Override boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public @Override T next() {
+                return iterator.next();
+            }
+
+            public @Override void close() {
+                ExternalMergeSort.this.close();
+            }
+        };
+    }
+
+    /**
+     * Releases any resource held, including the external storage, if any
+     */
+    public @Override void close() {
+        openIterators.forEach(AutoCloseableIterator::close);
+        openIterators.clear();
+        buffer = new ArrayList<>(0);
+        if (storage != null) {
+            ExternalSortStorage s = storage;
+            storage = null;
+            s.dispose();
+        }
+    }
+
+    private T decode(byte[] value) {
+        try {
+            return serializer.read(new DataInputStream(new ByteArrayInputStream(value)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class RunCursor<T> {
+        final int run;
+
+        final Iterator<byte[]> values;
+
+        T current;
+
+        RunCursor(int run, Iterator<byte[]> values) {
+            this.run = run;
+            this.values = values;
+        }
+    }
+
+    /**
+     * k-way merge of the sorted runs, ties are resolved by run order to keep the sort stable
+     */
+    private class MergeIterator implements Iterator<T> {
+
+        private final PriorityQueue<RunCursor<T>> queue;
+
+        MergeIterator() {
+            Comparator<RunCursor<T>> cursorOrder = (c1, c2) -> {
+                int c = comparator.compare(c1.current, c2.current);
+                return c == 0 ? Integer.compare(c1.run, c2.run) : c;
+            };
+            queue = new PriorityQueue<>(runs, cursorOrder);
+            for (int run = 0; run < runs; run++) {
+                AutoCloseableIterator<byte[]> values = storage.values(Ints.toByteArray(run));
+                openIterators.add(values);
+                RunCursor<T> cursor = new RunCursor<>(run, values);
+                if (advance(cursor)) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        private boolean advance(RunCursor<T> cursor) {
+            if (cursor.values.hasNext()) {
+                cursor.current = decode(cursor.values.next());
+                return true;
+            }
+            cursor.current = null;
+            return false;
+        }
+
+        public @Override boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        public @Override T next() {
+            RunCursor<T> cursor = queue.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            T next = cursor.current;
+            if (advance(cursor)) {
+                queue.add(cursor);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.GraphDatabase;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Computes the generation number and depth {@link GraphDatabase} implementations persist for each
+ * commit, so that {@link GraphDatabase#getDepth} and {@link GraphDatabase#getGeneration} don't need
+ * to traverse the graph.
+ * <p>
+ * The levels of a commit are computed out of its parents' when they're all known, and are left
+ * unknown otherwise (e.g. a parent is missing in a shallow clone, or was added to the graph before
+ * generation numbers were introduced). Once a commit's levels are set, they're propagated to its
+ * descendants, so the graph may be populated in any order.
+ *
+ * @since 2.0
+ */
+public class GraphGenerations {
+
+    /**
+     * Graph node property storage implementations can use to persist the generation number
+     */
+    public static final String GENERATION_PROPERTY = "generation";
+
+    /**
+     * Graph node property storage implementations can use to persist the depth
+     */
+    public static final String DEPTH_PROPERTY = "depth";
+
+    /**
+     * The generation number and depth of a commit
+     */
+    public static @Value class Levels {
+
+        public static final Levels ROOT = new Levels(1, 0);
+
+        /**
+         * {@code 1} for root commits, {@code 1 + max(parent generations)} otherwise
+         */
+        private int generation;
+
+        /**
+         * {@code 0} for root commits, {@code 1 + min(parent depths)} otherwise
+         */
+        private int depth;
+
+        /**
+         * @return the levels out of their {@link GraphGenerations#GENERATION_PROPERTY} and
+         *         {@link GraphGenerations#DEPTH_PROPERTY} property values, or {@code null} if any
+         *         of them is not set
+         */
+        public static @Nullable Levels valueOf(@Nullable String generation,
+                @Nullable String depth) {
+            if (generation == null || depth == null) {
+                return null;
+            }
+            return new Levels(Integer.parseInt(generation), Integer.parseInt(depth));
+        }
+    }
+
+    /**
+     * Access to the graph and the persisted {@link Levels} of its commits
+     */
+    public static interface Graph {
+
+        List<ObjectId> parents(ObjectId commitId);
+
+        List<ObjectId> children(ObjectId commitId);
+
+        @Nullable
+        Levels get(ObjectId commitId);
+
+        void set(ObjectId commitId, Levels levels);
+    }
+
+    /**
+     * Computes and sets the levels of {@code commitId}, which must be a commit that's been added to
+     * the graph (as opposed to a parent id it only references), and propagates the change to its
+     * descendants.
+     *
+     * @return the number of commits whose levels were updated
+     */
+    public static int update(@NonNull ObjectId commitId, @NonNull Graph graph) {
+        int updated = 0;
+        Deque<ObjectId> queue = new ArrayDeque<>();
+        queue.add(commitId);
+        while (!queue.isEmpty()) {
+            final ObjectId id = queue.poll();
+            final @Nullable Levels levels = compute(id, graph);
+            if (levels == null || levels.equals(graph.get(id))) {
+                continue;
+            }
+            graph.set(id, levels);
+            updated++;
+            queue.addAll(graph.children(id));
+        }
+        return updated;
+    }
+
+    /**
+     * @return the levels of the commit out of its parent's, or {@code null} if any of them is
+     *         unknown
+     */
+    public static @Nullable Levels compute(@NonNull ObjectId commitId, @NonNull Graph graph) {
+        final List<ObjectId> parents = graph.parents(commitId);
+        if (parents.isEmpty()) {
+            return Levels.ROOT;
+        }
+        int generation = 0;
+        int depth = Integer.MAX_VALUE;
+        for (ObjectId parent : parents) {
+            Levels parentLevels = graph.get(parent);
+            if (parentLevels == null) {
+                return null;
+            }
+            generation = Math.max(generation, parentLevels.getGeneration());
+            depth = Math.min(depth, parentLevels.getDepth());
+        }
+        return new Levels(generation + 1, depth + 1);
+    }
+}
@@ -0,0 +1,227 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import java.nio.ByteBuffer;
+
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * A thread safe set of {@link ObjectId}s held off the java heap.
+ * <p>
+ * Ids are stored as their 20 raw bytes in open addressing hash tables backed by direct
+ * {@link ByteBuffer}s, so even hundreds of millions of ids add no pressure to the garbage
+ * collector. The set is partitioned by the first byte of the ids, each partition growing
+ * independently and guarded by its own lock, so that concurrent writers rarely contend.
+ * <p>
+ * Membership is exact, unlike a bloom filter's, so it can be used to prune graph traversals
+ * without ever skipping an unvisited object. {@link ObjectId#NULL} is never added.
+ *
+ * @since 2.0
+ */
+public class ObjectIdSet implements AutoCloseable {
+
+    private static final int PARTITIONS = 64;
+
+    private static final int SLOT_SIZE = ObjectId.NUM_BYTES;
+
+    private static final int MIN_PARTITION_CAPACITY = 1024;
+
+    /**
+     * Max number of slots per partition, for the table to fit in a single buffer
+     */
+    private static final int MAX_PARTITION_CAPACITY = 1 << 26;
+
+    private final Partition[] partitions;
+
+    public ObjectIdSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize hint of the number of ids that are to be added
+     */
+    public ObjectIdSet(long expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0);
+        long perPartition = (long) Math.ceil(expectedSize / 0.7 / PARTITIONS);
+        int capacity = MIN_PARTITION_CAPACITY;
+        while (capacity < perPartition && capacity < MAX_PARTITION_CAPACITY) {
+            capacity <<= 1;
+        }
+        partitions = new Partition[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new Partition(capacity);
+        }
+    }
+
+    /**
+     * @return {@code true} if the id was not already in the set
+     */
+    public boolean add(@NonNull ObjectId id) {
+        if (id.isNull()) {
+            return false;
+        }
+        ByteBuffer key = ByteBuffer.wrap(id.getRawValue());
+        return partition(key).add(key);
+    }
+
+    public boolean contains(@NonNull ObjectId id) {
+        if (id.isNull()) {
+            return false;
+        }
+        ByteBuffer key = ByteBuffer.wrap(id.getRawValue());
+        return partition(key).contains(key);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Partition p : partitions) {
+            size += p.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of bytes of direct memory held by this set
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Partition p : partitions) {
+            bytes += p.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes all the ids and releases the memory held by this set, as soon as its buffers are
+     * garbage collected.
+     */
+    public @Override void close() {
+        for (Partition p : partitions) {
+            p.clear();
+        }
+    }
+
+    private Partition partition(ByteBuffer key) {
+        return partitions[(key.get(0) & 0xFF) % PARTITIONS];
+    }
+
+    private static class Partition {
+
+        private ByteBuffer table;
+
+        private int capacity;
+
+        private int size;
+
+        Partition(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            this.capacity = capacity;
+            this.table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long sizeInBytes() {
+            return (long) capacity * SLOT_SIZE;
+        }
+
+        synchronized void clear() {
+            size = 0;
+            allocate(MIN_PARTITION_CAPACITY);
+        }
+
+        synchronized boolean contains(ByteBuffer key) {
+            return !isEmpty(find(table, capacity, key));
+        }
+
+        synchronized boolean add(ByteBuffer key) {
+            int offset = find(table, capacity, key);
+            if (!isEmpty(offset)) {
+                return false;
+            }
+            if (size + 1 > capacity * 0.7) {
+                grow();
+                offset = find(table, capacity, key);
+            }
+            write(table, offset, key);
+            size++;
+            return true;
+        }
+
+        private boolean isEmpty(int offset) {
+            return isEmpty(table, offset);
+        }
+
+        private void grow() {
+            Preconditions.checkState(capacity < MAX_PARTITION_CAPACITY, "ObjectIdSet is full");
+            final ByteBuffer oldTable = this.table;
+            final int oldCapacity = this.capacity;
+            allocate(oldCapacity << 1);
+            ByteBuffer key = ByteBuffer.allocate(SLOT_SIZE);
+            for (int i = 0; i < oldCapacity; i++) {
+                int offset = i * SLOT_SIZE;
+                if (!isEmpty(oldTable, offset)) {
+                    key.putInt(0, oldTable.getInt(offset));
+                    key.putLong(4, oldTable.getLong(offset + 4));
+                    key.putLong(12, oldTable.getLong(offset + 12));
+                    write(table, find(table, capacity, key), key);
+                }
+            }
+        }
+
+        private static boolean isEmpty(ByteBuffer table, int offset) {
+            return table.getInt(offset) == 0 && table.getLong(offset + 4) == 0L
+                    && table.getLong(offset + 12) == 0L;
+        }
+
+        private static void write(ByteBuffer table, int offset, ByteBuffer key) {
+            table.putInt(offset, key.getInt(0));
+            table.putLong(offset + 4, key.getLong(4));
+            table.putLong(offset + 12, key.getLong(12));
+        }
+
+        /**
+         * @return the offset of the slot holding {@code key}, or of the empty slot where it
+         *         should be added
+         */
+        private static int find(ByteBuffer table, int capacity, ByteBuffer key) {
+            final int h1 = key.getInt(0);
+            final long h2 = key.getLong(4);
+            final long h3 = key.getLong(12);
+            // the first byte selects the partition, the following ones are just as random
+            final int mask = capacity - 1;
+            int slot = (int) (h2 ^ (h2 >>> 32)) & mask;
+            while (true) {
+                final int offset = slot * SLOT_SIZE;
+                final int s1 = table.getInt(offset);
+                final long s2 = table.getLong(offset + 4);
+                final long s3 = table.getLong(offset + 12);
+                if ((s1 == h1 && s2 == h2 && s3 == h3) || (s1 == 0 && s2 == 0L && s3 == 0L)) {
+                    return offset;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+}
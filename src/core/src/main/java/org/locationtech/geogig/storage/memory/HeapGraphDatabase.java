@@ -19,6 +19,8 @@ import java.util.stream.Stream;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.storage.AbstractStore;
 import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.impl.GraphGenerations;
+import org.locationtech.geogig.storage.impl.GraphGenerations.Levels;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
@@ -34,6 +36,24 @@ public class HeapGraphDatabase extends AbstractStore implements GraphDatabase {
 
     private final Graph graph = new Graph();
 
+    private final GraphGenerations.Graph generations = new GraphGenerations.Graph() {
+        public @Override List<ObjectId> parents(ObjectId commitId) {
+            return getParents(commitId);
+        }
+
+        public @Override List<ObjectId> children(ObjectId commitId) {
+            return getChildren(commitId);
+        }
+
+        public @Override Levels get(ObjectId commitId) {
+            return graph.get(commitId).map(n -> n.levels).orElse(null);
+        }
+
+        public @Override void set(ObjectId commitId, Levels levels) {
+            graph.get(commitId).get().levels = levels;
+        }
+    };
+
     public HeapGraphDatabase() {
         super(false);
     }
@@ -59,6 +79,14 @@ public class HeapGraphDatabase extends AbstractStore implements GraphDatabase {
     }
 
     public @Override boolean put(ObjectId commitId, List<ObjectId> parentIds) {
+        final boolean updated = attach(commitId, parentIds);
+        if (updated) {
+            updateGeneration(commitId);
+        }
+        return updated;
+    }
+
+    private boolean attach(ObjectId commitId, List<ObjectId> parentIds) {
         Node n = graph.getOrAdd(commitId);
         synchronized (n) {
             if (parentIds.isEmpty()) {
@@ -98,6 +126,10 @@ public class HeapGraphDatabase extends AbstractStore implements GraphDatabase {
         Preconditions.checkArgument(nodeOpt.isPresent(), "No graph entry for commit %s on %s",
                 commitId, this.toString());
         Node node = nodeOpt.get();
+        Levels levels = node.levels;
+        if (levels != null) {
+            return levels.getDepth();
+        }
         PathToRootWalker walker = new PathToRootWalker(node);
         int depth = 0;
         O: while (walker.hasNext()) {
@@ -111,6 +143,19 @@ public class HeapGraphDatabase extends AbstractStore implements GraphDatabase {
         return depth;
     }
 
+    public @Override int getGeneration(@NonNull ObjectId commitId) {
+        return graph.get(commitId).map(n -> n.levels).map(Levels::getGeneration)
+                .orElse(GENERATION_UNKNOWN);
+    }
+
+    public @Override void updateGeneration(@NonNull ObjectId commitId) {
+        Preconditions.checkArgument(exists(commitId), "No graph entry for commit %s on %s",
+                commitId, this.toString());
+        synchronized (generations) {
+            GraphGenerations.update(commitId, generations);
+        }
+    }
+
     public @Override void setProperty(ObjectId commitId, String propertyName,
             String propertyValue) {
         graph.get(commitId).get().put(propertyName, propertyValue);
@@ -193,6 +193,11 @@ public class HeapObjectStore extends AbstractStore implements ObjectStore {
         }
     }
 
+    public @Override AutoCloseableIterator<ObjectId> getAllIds() {
+        checkState(isOpen(), "db is closed");
+        return AutoCloseableIterator.fromIterator(objects.keySet().iterator());
+    }
+
     public @Override Iterator<RevObject> getAll(Iterable<ObjectId> ids) {
         return getAll(ids, NOOP_LISTENER);
     }
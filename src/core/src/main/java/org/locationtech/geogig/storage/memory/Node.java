@@ -13,7 +13,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.impl.GraphGenerations.Levels;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -42,6 +44,8 @@ class Node {
 
     Map<String, String> props;
 
+    volatile @Nullable Levels levels;
+
     /**
      * Creates a new node with the specified id.
      */
@@ -0,0 +1,236 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+/**
+ * The segment of a {@link PackfileObjectStore} objects are appended to, until it reaches its
+ * maximum size and is {@link #seal sealed}.
+ * <p>
+ * The active segment's index is kept in memory and rebuilt by scanning its data file when the
+ * store is opened, truncating any incomplete record left by an abnormal termination.
+ * <p>
+ * Appends and sealing are serialized by {@link PackDirectory}, while lookups and reads may run
+ * concurrently with appends, as records are indexed only after being fully written.
+ */
+class ActiveSegment {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActiveSegment.class);
+
+    @Value
+    @Accessors(fluent = true)
+    static class Location implements PackSegment.Entry {
+        ObjectId id;
+
+        long offset;
+
+        int length;
+
+        boolean isTombstone() {
+            return length == PackSegment.TOMBSTONE;
+        }
+    }
+
+    private final @Getter File dataFile;
+
+    private final @Getter long seq;
+
+    private final FileChannel channel;
+
+    private final Map<ObjectId, Location> entries = new ConcurrentHashMap<>();
+
+    private long size;
+
+    private ActiveSegment(File dataFile, long seq, FileChannel channel) {
+        this.dataFile = dataFile;
+        this.seq = seq;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens or creates an active segment data file, rebuilding its in-memory index
+     */
+    public static ActiveSegment open(@NonNull File dataFile, long seq, boolean readOnly)
+            throws IOException {
+        FileChannel channel;
+        if (readOnly) {
+            channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+        } else {
+            channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        ActiveSegment segment = new ActiveSegment(dataFile, seq, channel);
+        try {
+            segment.recover(readOnly);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return segment;
+    }
+
+    private void recover(boolean readOnly) throws IOException {
+        final long fileSize = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(PackSegment.RECORD_HEADER_SIZE);
+        final byte[] rawId = new byte[ObjectId.NUM_BYTES];
+        long position = 0;
+        while (position + PackSegment.RECORD_HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            header.get(rawId);
+            final int length = header.getInt();
+            final long payloadOffset = position + PackSegment.RECORD_HEADER_SIZE;
+            final long next = payloadOffset + Math.max(0, length);
+            if (length < PackSegment.TOMBSTONE || next > fileSize) {
+                break;
+            }
+            ObjectId id = ObjectId.create(rawId);
+            entries.put(id, new Location(id, payloadOffset, length));
+            position = next;
+        }
+        if (position < fileSize) {
+            LOG.warn("Discarding {} bytes of incomplete pack record at the end of {}",
+                    fileSize - position, dataFile);
+            if (!readOnly) {
+                channel.truncate(position);
+            }
+        }
+        this.size = position;
+    }
+
+    private void readFully(ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file " + dataFile);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * @return the size of the data file, in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public @Nullable Location find(ObjectId id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Reads the payload of the object at {@code location} into a heap buffer
+     */
+    public ByteBuffer read(Location location) throws IOException {
+        ByteBuffer buff = ByteBuffer.allocate(location.length());
+        readFully(buff, location.offset());
+        buff.flip();
+        return buff;
+    }
+
+    /**
+     * Appends an object record, or a tombstone if {@code payload} is {@code null}
+     */
+    public void append(ObjectId id, @Nullable byte[] payload) throws IOException {
+        final int length = payload == null ? PackSegment.TOMBSTONE : payload.length;
+        ByteBuffer record = ByteBuffer
+                .allocate(PackSegment.RECORD_HEADER_SIZE + Math.max(0, length));
+        record.put(id.getRawValue()).putInt(length);
+        if (payload != null) {
+            record.put(payload);
+        }
+        record.flip();
+        long position = size;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        entries.put(id, new Location(id, size + PackSegment.RECORD_HEADER_SIZE, length));
+        size = position;
+    }
+
+    /**
+     * Flushes appended records to the storage device
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Adds the ids of the entries that start with {@code prefix} to {@code target}, including
+     * tombstones
+     */
+    public void lookUp(byte[] prefix, List<ObjectId> target) {
+        for (ObjectId id : entries.keySet()) {
+            boolean matches = true;
+            for (int i = 0; matches && i < prefix.length; i++) {
+                matches = id.byteN(i) == (prefix[i] & 0xFF);
+            }
+            if (matches) {
+                target.add(id);
+            }
+        }
+    }
+
+    /**
+     * @return a point in time copy of the locations of the objects in this segment
+     */
+    public Map<ObjectId, Location> snapshot() {
+        return new HashMap<>(entries);
+    }
+
+    /**
+     * Syncs this segment and writes its index file.
+     * <p>
+     * This segment is left open and readable, so that concurrent lookups keep finding its objects
+     * until the returned sealed segment replaces it; it's up to the caller to {@link #close()} it
+     * afterwards.
+     * 
+     * @return the sealed, memory mapped, version of this segment
+     */
+    public PackSegment seal(File indexFile) throws IOException {
+        sync();
+        List<Location> sorted = new ArrayList<>(entries.values());
+        sorted.sort((l1, l2) -> l1.id().compareTo(l2.id()));
+        PackSegment.writeIndex(indexFile, seq, 0, seq, sorted.iterator());
+        return PackSegment.open(dataFile, indexFile);
+    }
+
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import java.io.File;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Address of a {@link PackDirectory} as managed by {@link PackConnectionManager}, including the
+ * tuning parameters of the store.
+ */
+@Value
+class PackConfig {
+
+    /**
+     * Size at which the active segment is sealed
+     */
+    static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Number of sealed segments that triggers a background compaction
+     */
+    static final int DEFAULT_COMPACTION_THRESHOLD = 8;
+
+    /**
+     * Maximum size of a compacted segment, segment files must be addressable by a
+     * {@link java.nio.MappedByteBuffer}
+     */
+    static final long MAX_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+    private File directory;
+
+    private boolean readOnly;
+
+    private long segmentSize;
+
+    private int compactionThreshold;
+
+    PackConfig(@NonNull File directory, boolean readOnly, long segmentSize,
+            int compactionThreshold) {
+        Preconditions.checkArgument(segmentSize > 0 && segmentSize <= MAX_SEGMENT_SIZE,
+                "segment size must be > 0 and <= %s: %s", MAX_SEGMENT_SIZE, segmentSize);
+        Preconditions.checkArgument(compactionThreshold > 1,
+                "compaction threshold must be > 1: %s", compactionThreshold);
+        this.directory = directory.getAbsoluteFile();
+        this.readOnly = readOnly;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    static PackConfig of(@NonNull File directory, boolean readOnly) {
+        return new PackConfig(directory, readOnly, DEFAULT_SEGMENT_SIZE,
+                DEFAULT_COMPACTION_THRESHOLD);
+    }
+}
@@ -0,0 +1,29 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import org.locationtech.geogig.storage.impl.ConnectionManager;
+
+/**
+ * Shares a single {@link PackDirectory} among all the {@link PackfileObjectStore} instances open
+ * on the same directory and with the same settings.
+ */
+class PackConnectionManager extends ConnectionManager<PackConfig, PackDirectory> {
+
+    static final PackConnectionManager INSTANCE = new PackConnectionManager();
+
+    protected @Override PackDirectory connect(PackConfig config) {
+        return PackDirectory.open(config);
+    }
+
+    protected @Override void disconnect(PackDirectory directory) {
+        directory.close();
+    }
+}
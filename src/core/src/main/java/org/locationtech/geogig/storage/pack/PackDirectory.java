@@ -0,0 +1,797 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.storage.pack.ActiveSegment.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+/**
+ * The state of a {@link PackfileObjectStore} directory: the {@link ActiveSegment active segment}
+ * objects are appended to, and the list of {@link PackSegment sealed segments}, newest first.
+ * <p>
+ * An object is looked up in the active segment first, and then in each sealed segment from newest
+ * to oldest. The first entry found determines whether the object exists, as deletes are recorded
+ * as tombstone entries.
+ * <p>
+ * Instances are shared by all the stores opened on the same directory through
+ * {@link PackConnectionManager}. Writes are serialized, while lookups only contend with the
+ * sealing of the active segment and the replacement of compacted segments.
+ */
+class PackDirectory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PackDirectory.class);
+
+    private static final Pattern FILE_NAME = Pattern
+            .compile("pack-([0-9a-f]{16})-([0-9a-f]{4})\\.(pack|idx)");
+
+    @Value
+    @Accessors(fluent = true)
+    static class RawObject {
+        ObjectId id;
+
+        ByteBuffer data;
+    }
+
+    private final PackConfig config;
+
+    private final File directory;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Object compactionLock = new Object();
+
+    private volatile ImmutableList<PackSegment> sealed = ImmutableList.of();
+
+    private volatile @Nullable ActiveSegment active;
+
+    private long nextSeq;
+
+    private Future<?> compaction;
+
+    /**
+     * The scheduler compactions run on, retained until the directory is closed, guarded by
+     * {@code this}
+     */
+    private GeogigScheduler scheduler;
+
+    /**
+     * Runs compactions on the scheduler's {@link WorkClass#STORAGE_IO storage-io} executor, one at
+     * a time, guarded by {@code this}
+     */
+    private ExecutorService compactionExecutor;
+
+    private PackDirectory(PackConfig config) {
+        this.config = config;
+        this.directory = config.getDirectory();
+    }
+
+    public static PackDirectory open(@NonNull PackConfig config) {
+        PackDirectory dir = new PackDirectory(config);
+        try {
+            dir.recover();
+        } catch (IOException e) {
+            dir.close();
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    public PackConfig config() {
+        return config;
+    }
+
+    private static String baseName(long seq, int gen) {
+        return String.format("pack-%016x-%04x", seq, gen);
+    }
+
+    private File dataFile(long seq, int gen) {
+        return new File(directory, baseName(seq, gen) + ".pack");
+    }
+
+    private File indexFile(long seq, int gen) {
+        return new File(directory, baseName(seq, gen) + ".idx");
+    }
+
+    private void recover() throws IOException {
+        final boolean readOnly = config.isReadOnly();
+        if (!readOnly && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            files = new File[0];
+        }
+        List<PackSegment> segments = new ArrayList<>();
+        Map<File, long[]> orphans = new HashMap<>();
+        long maxSeq = 0;
+        for (File file : files) {
+            final Matcher matcher = FILE_NAME.matcher(file.getName());
+            if (!matcher.matches()) {
+                if (!readOnly && file.getName().endsWith(".tmp")) {
+                    file.delete();
+                }
+                continue;
+            }
+            final long seq = Long.parseLong(matcher.group(1), 16);
+            final int gen = Integer.parseInt(matcher.group(2), 16);
+            maxSeq = Math.max(maxSeq, seq);
+            if ("idx".equals(matcher.group(3))) {
+                File data = dataFile(seq, gen);
+                if (data.exists()) {
+                    segments.add(PackSegment.open(data, file));
+                } else if (!readOnly) {
+                    file.delete();
+                }
+            } else if (!indexFile(seq, gen).exists()) {
+                orphans.put(file, new long[] { seq, gen });
+            }
+        }
+        // drop the segments replaced by a compaction that didn't get to delete them
+        List<PackSegment> live = new ArrayList<>();
+        for (PackSegment s : segments) {
+            boolean covered = segments.stream().anyMatch(t -> t.covers(s));
+            if (covered) {
+                if (!readOnly) {
+                    s.delete();
+                }
+            } else {
+                live.add(s);
+            }
+        }
+        live.sort(PackSegment::newestFirst);
+        final long maxSealedSeq = live.isEmpty() ? 0 : live.get(0).getSeq();
+
+        File activeFile = null;
+        long activeSeq = 0;
+        for (Map.Entry<File, long[]> orphan : orphans.entrySet()) {
+            final long seq = orphan.getValue()[0];
+            final int gen = (int) orphan.getValue()[1];
+            if (gen == 0 && seq > maxSealedSeq && seq > activeSeq) {
+                activeFile = orphan.getKey();
+                activeSeq = seq;
+            }
+        }
+        for (File orphan : orphans.keySet()) {
+            if (!orphan.equals(activeFile)) {
+                // an incomplete compaction output or a segment already covered by a compaction
+                LOG.info("Ignoring incomplete pack file {}", orphan);
+                if (!readOnly) {
+                    orphan.delete();
+                }
+            }
+        }
+        this.sealed = ImmutableList.copyOf(live);
+        this.nextSeq = maxSeq + 1;
+        if (activeFile != null) {
+            this.active = ActiveSegment.open(activeFile, activeSeq, readOnly);
+        }
+        LOG.debug("Opened pack directory {} with {} sealed segments", directory, live.size());
+    }
+
+    /**
+     * Sets the scheduler background compactions run on, resolved from the hints of the first store
+     * opened on this directory. Defaults to the {@link GeogigScheduler#defaultInstance() default}
+     * scheduler if not set before the first compaction.
+     */
+    public synchronized void trySetScheduler(@Nullable Hints hints) {
+        if (this.scheduler == null) {
+            this.scheduler = GeogigScheduler.acquire(hints);
+            this.compactionExecutor = scheduler.boundedExecutor(WorkClass.STORAGE_IO, 1);
+        }
+    }
+
+    public void close() {
+        Future<?> compaction;
+        final GeogigScheduler scheduler;
+        final ExecutorService compactionExecutor;
+        synchronized (this) {
+            compaction = this.compaction;
+            this.compaction = null;
+            scheduler = this.scheduler;
+            compactionExecutor = this.compactionExecutor;
+            this.scheduler = null;
+            this.compactionExecutor = null;
+        }
+        if (compaction != null) {
+            try {
+                compaction.get();
+            } catch (InterruptedException | ExecutionException e) {
+                LOG.warn("Error waiting for pack compaction to finish on {}", directory, e);
+            }
+        }
+        if (scheduler != null) {
+            compactionExecutor.shutdown();
+            scheduler.release();
+        }
+        lock.writeLock().lock();
+        try {
+            ActiveSegment active = this.active;
+            this.active = null;
+            this.sealed = ImmutableList.of();
+            if (active != null) {
+                if (!config.isReadOnly()) {
+                    active.sync();
+                }
+                active.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the contents of the object, or {@code null} if it doesn't exist
+     */
+    public @Nullable ByteBuffer get(@NonNull ObjectId id) {
+        lock.readLock().lock();
+        try {
+            ActiveSegment active = this.active;
+            if (active != null) {
+                Location location = active.find(id);
+                if (location != null) {
+                    return location.isTombstone() ? null : active.read(location);
+                }
+            }
+            final byte[] key = id.getRawValue();
+            for (PackSegment segment : sealed) {
+                int entry = segment.find(key);
+                if (entry != -1) {
+                    return segment.length(entry) == PackSegment.TOMBSTONE ? null
+                            : segment.slice(entry);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean exists(@NonNull ObjectId id) {
+        lock.readLock().lock();
+        try {
+            return existsInternal(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean existsInternal(ObjectId id) {
+        ActiveSegment active = this.active;
+        if (active != null) {
+            Location location = active.find(id);
+            if (location != null) {
+                return !location.isTombstone();
+            }
+        }
+        final byte[] key = id.getRawValue();
+        for (PackSegment segment : sealed) {
+            int entry = segment.find(key);
+            if (entry != -1) {
+                return segment.length(entry) != PackSegment.TOMBSTONE;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A resolved object location, {@code segment == -1} meaning the active segment
+     */
+    private static class Hit {
+        final ObjectId id;
+
+        final int segment;
+
+        final long offset;
+
+        final int entry;
+
+        final Location location;
+
+        Hit(ObjectId id, int segment, long offset, int entry, @Nullable Location location) {
+            this.id = id;
+            this.segment = segment;
+            this.offset = offset;
+            this.entry = entry;
+            this.location = location;
+        }
+    }
+
+    private static final Comparator<Hit> BY_STORAGE_ORDER = Comparator
+            .comparingInt((Hit h) -> h.segment).thenComparingLong(h -> h.offset);
+
+    /**
+     * Batch lookup of objects.
+     * <p>
+     * The ids are sorted before probing the segment indexes to favor locality of reference, and the
+     * objects found are returned in storage order, so the data files are read sequentially.
+     * 
+     * @param notFound called for each id not found
+     * @return the objects found, in storage order
+     */
+    public List<RawObject> getAll(@NonNull List<ObjectId> ids,
+            @NonNull Consumer<ObjectId> notFound) {
+        List<ObjectId> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        List<Hit> hits = new ArrayList<>(sorted.size());
+        final byte[] key = new byte[ObjectId.NUM_BYTES];
+        lock.readLock().lock();
+        try {
+            final ActiveSegment active = this.active;
+            final List<PackSegment> sealed = this.sealed;
+            for (ObjectId id : sorted) {
+                Hit hit = null;
+                boolean deleted = false;
+                Location location = active == null ? null : active.find(id);
+                if (location != null) {
+                    deleted = location.isTombstone();
+                    hit = deleted ? null : new Hit(id, -1, location.offset(), -1, location);
+                } else {
+                    id.getRawValue(key);
+                    for (int s = 0; s < sealed.size(); s++) {
+                        PackSegment segment = sealed.get(s);
+                        int entry = segment.find(key);
+                        if (entry != -1) {
+                            deleted = segment.length(entry) == PackSegment.TOMBSTONE;
+                            hit = deleted ? null
+                                    : new Hit(id, s, segment.offset(entry), entry, null);
+                            break;
+                        }
+                    }
+                }
+                if (hit == null) {
+                    notFound.accept(id);
+                } else {
+                    hits.add(hit);
+                }
+            }
+            hits.sort(BY_STORAGE_ORDER);
+            List<RawObject> objects = new ArrayList<>(hits.size());
+            for (Hit hit : hits) {
+                ByteBuffer data = hit.segment == -1 ? active.read(hit.location)
+                        : sealed.get(hit.segment).slice(hit.entry);
+                objects.add(new RawObject(hit.id, data));
+            }
+            return objects;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the objects that start with the given prefix
+     */
+    public List<ObjectId> lookUp(byte[] prefix) {
+        List<ObjectId> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            ActiveSegment active = this.active;
+            if (active != null) {
+                active.lookUp(prefix, candidates);
+            }
+            for (PackSegment segment : sealed) {
+                segment.lookUp(prefix, candidates);
+            }
+            Set<ObjectId> unique = new TreeSet<>(candidates);
+            List<ObjectId> matches = new ArrayList<>(2);
+            for (ObjectId id : unique) {
+                if (existsInternal(id)) {
+                    matches.add(id);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the live objects, that is, excluding deleted ones, as of the time this
+     * method is called.
+     * <p>
+     * Segments compacted while the iterator is consumed remain mapped until garbage collected, so
+     * the returned iterator does not hold the directory lock.
+     */
+    public Iterator<ObjectId> ids() {
+        final List<PackSegment> segments;
+        final Map<ObjectId, Location> recent;
+        lock.readLock().lock();
+        try {
+            segments = this.sealed;
+            ActiveSegment active = this.active;
+            recent = active == null ? Collections.emptyMap() : active.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+        Iterator<ObjectId> sealedIds = Iterators.transform(Iterators.filter(
+                mergedEntries(segments, true), e -> !recent.containsKey(e.id)), e -> e.id);
+        Iterator<ObjectId> activeIds = recent.values().stream().filter(l -> !l.isTombstone())
+                .map(Location::id).iterator();
+        return Iterators.concat(activeIds, sealedIds);
+    }
+
+    /**
+     * Appends the object unless it already exists, and syncs the active segment to disk, same as
+     * {@link #putAll}
+     * 
+     * @return {@code true} if the object was appended
+     */
+    public synchronized boolean put(@NonNull ObjectId id, @NonNull byte[] payload) {
+        if (exists(id)) {
+            return false;
+        }
+        try {
+            activeForWrite().append(id, payload);
+            sealIfFull();
+            ActiveSegment active = this.active;
+            if (active != null) {
+                active.sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Appends the objects that don't already exist, and syncs the active segment to disk
+     * 
+     * @param objects the encoded objects, sorted by id so the existence checks are batched
+     * @param inserted called with the ids of the objects appended, once they've been synced
+     */
+    public synchronized void putAll(@NonNull List<RawObject> objects,
+            @NonNull Consumer<ObjectId> inserted) {
+        List<ObjectId> appended = new ArrayList<>(objects.size());
+        try {
+            for (RawObject o : objects) {
+                if (!exists(o.id())) {
+                    ByteBuffer data = o.data();
+                    byte[] payload = new byte[data.remaining()];
+                    data.duplicate().get(payload);
+                    activeForWrite().append(o.id(), payload);
+                    appended.add(o.id());
+                    sealIfFull();
+                }
+            }
+            ActiveSegment active = this.active;
+            if (active != null) {
+                active.sync();
+            }
+            appended.forEach(inserted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a tombstone for the object if it exists.
+     * <p>
+     * Unlike {@link #put} this doesn't sync the active segment, so that deleting a batch of
+     * objects pays for a single {@link #sync()} once done.
+     * 
+     * @return {@code true} if the object existed
+     */
+    public synchronized boolean delete(@NonNull ObjectId id) {
+        if (!exists(id)) {
+            return false;
+        }
+        try {
+            activeForWrite().append(id, null);
+            sealIfFull();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    public synchronized void sync() {
+        ActiveSegment active = this.active;
+        if (active != null) {
+            try {
+                active.sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ActiveSegment activeForWrite() throws IOException {
+        Preconditions.checkState(!config.isReadOnly(), "pack directory is read only");
+        ActiveSegment active = this.active;
+        if (active == null) {
+            final long seq = nextSeq++;
+            active = ActiveSegment.open(dataFile(seq, 0), seq, false);
+            lock.writeLock().lock();
+            try {
+                this.active = active;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return active;
+    }
+
+    private void sealIfFull() throws IOException {
+        ActiveSegment active = this.active;
+        if (active != null && active.size() >= config.getSegmentSize()) {
+            seal(active);
+        }
+    }
+
+    private void seal(ActiveSegment active) throws IOException {
+        final long seq = active.getSeq();
+        // the active segment remains readable until the sealed one replaces it
+        PackSegment segment = active.seal(indexFile(seq, 0));
+        final int sealedCount;
+        lock.writeLock().lock();
+        try {
+            this.sealed = ImmutableList.<PackSegment> builder().add(segment).addAll(sealed)
+                    .build();
+            this.active = null;
+            sealedCount = sealed.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // no reader can hold the old active segment past the write lock
+        active.close();
+        LOG.debug("Sealed {}", segment);
+        if (sealedCount >= config.getCompactionThreshold()
+                && (compaction == null || compaction.isDone())) {
+            trySetScheduler(null);
+            compaction = compactionExecutor.submit(this::compactQuietly);
+        }
+    }
+
+    /**
+     * Seals the active segment regardless of its size, if it has any entry
+     */
+    public synchronized void seal() {
+        ActiveSegment active = this.active;
+        if (active != null && !active.isEmpty()) {
+            try {
+                seal(active);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public List<PackSegment> sealedSegments() {
+        return sealed;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            LOG.error("Error compacting pack directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Merges the oldest run of sealed segments whose combined size is below
+     * {@link PackConfig#MAX_SEGMENT_SIZE} into a single segment, dropping the entries shadowed by
+     * newer ones, and the tombstones too if the run includes the oldest segment.
+     * 
+     * @return {@code true} if any segments were merged
+     */
+    public boolean compact() {
+        Preconditions.checkState(!config.isReadOnly(), "pack directory is read only");
+        synchronized (compactionLock) {
+            final List<PackSegment> oldestFirst = new ArrayList<>(this.sealed);
+            Collections.reverse(oldestFirst);
+            List<PackSegment> run = null;
+            boolean includesOldest = false;
+            for (int start = 0; start < oldestFirst.size() - 1; start++) {
+                List<PackSegment> candidate = new ArrayList<>();
+                long size = 0;
+                for (int i = start; i < oldestFirst.size(); i++) {
+                    PackSegment s = oldestFirst.get(i);
+                    if (size + s.dataSize() > PackConfig.MAX_SEGMENT_SIZE) {
+                        break;
+                    }
+                    size += s.dataSize();
+                    candidate.add(s);
+                }
+                if (candidate.size() > 1) {
+                    run = candidate;
+                    includesOldest = start == 0;
+                    break;
+                }
+            }
+            if (run == null) {
+                return false;
+            }
+            try {
+                merge(run, includesOldest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    }
+
+    private void merge(List<PackSegment> run, boolean dropTombstones) throws IOException {
+        final Stopwatch sw = Stopwatch.createStarted();
+        final long seq = run.stream().mapToLong(PackSegment::getSeq).max().getAsLong();
+        final int gen = 1 + run.stream().mapToInt(PackSegment::getGen).max().getAsInt();
+        final long coveredFrom = run.stream().mapToLong(PackSegment::getCoveredFrom).min()
+                .getAsLong();
+        final File dataFile = dataFile(seq, gen);
+        final File indexFile = indexFile(seq, gen);
+
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1024 * 1024);
+            WritableByteChannel target = Channels.newChannel(out);
+            ByteBuffer header = ByteBuffer.allocate(PackSegment.RECORD_HEADER_SIZE);
+            Iterator<MergeEntry> entries = mergedEntries(run, dropTombstones);
+            while (entries.hasNext()) {
+                MergeEntry e = entries.next();
+                header.clear();
+                header.put(e.id.getRawValue()).putInt(e.length());
+                header.flip();
+                target.write(header);
+                if (e.length() != PackSegment.TOMBSTONE) {
+                    ByteBuffer payload = e.segment.slice(e.entry);
+                    while (payload.hasRemaining()) {
+                        target.write(payload);
+                    }
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        // second pass over the merged indexes to compute the offsets of the records written
+        Iterator<MergeEntry> entries = mergedEntries(run, dropTombstones);
+        Iterator<PackSegment.Entry> indexEntries = new AbstractIterator<PackSegment.Entry>() {
+            private long offset;
+
+            protected @Override PackSegment.Entry computeNext() {
+                if (!entries.hasNext()) {
+                    return endOfData();
+                }
+                MergeEntry e = entries.next();
+                Location location = new Location(e.id,
+                        offset + PackSegment.RECORD_HEADER_SIZE, e.length());
+                offset += PackSegment.RECORD_HEADER_SIZE + Math.max(0, e.length());
+                return location;
+            }
+        };
+        PackSegment.writeIndex(indexFile, seq, gen, coveredFrom, indexEntries);
+        final PackSegment merged = PackSegment.open(dataFile, indexFile);
+
+        lock.writeLock().lock();
+        try {
+            List<PackSegment> segments = new ArrayList<>(this.sealed);
+            segments.removeIf(s -> run.stream().anyMatch(r -> r == s));
+            segments.add(merged);
+            segments.sort(PackSegment::newestFirst);
+            this.sealed = ImmutableList.copyOf(segments);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // segments still referenced by in-flight reads remain mapped until garbage collected
+        run.forEach(PackSegment::delete);
+        LOG.debug("Compacted {} segments into {} in {}", run.size(), merged, sw.stop());
+    }
+
+    private static class MergeEntry {
+        final ObjectId id;
+
+        final PackSegment segment;
+
+        final int entry;
+
+        MergeEntry(ObjectId id, PackSegment segment, int entry) {
+            this.id = id;
+            this.segment = segment;
+            this.entry = entry;
+        }
+
+        int length() {
+            return segment.length(entry);
+        }
+    }
+
+    /**
+     * K-way merge of the sorted segment indexes, returning the newest entry for each id
+     */
+    private Iterator<MergeEntry> mergedEntries(List<PackSegment> segments,
+            boolean dropTombstones) {
+        final Comparator<MergeEntry> order = Comparator.comparing((MergeEntry e) -> e.id)
+                .thenComparing((e1, e2) -> PackSegment.newestFirst(e1.segment, e2.segment));
+        final PriorityQueue<MergeEntry> queue = new PriorityQueue<>(segments.size(), order);
+        for (PackSegment s : segments) {
+            if (s.getCount() > 0) {
+                queue.add(new MergeEntry(s.id(0), s, 0));
+            }
+        }
+        return new AbstractIterator<MergeEntry>() {
+            protected @Override MergeEntry computeNext() {
+                while (!queue.isEmpty()) {
+                    final MergeEntry newest = queue.poll();
+                    advance(newest);
+                    while (!queue.isEmpty() && queue.peek().id.equals(newest.id)) {
+                        advance(queue.poll());
+                    }
+                    if (!(dropTombstones && newest.length() == PackSegment.TOMBSTONE)) {
+                        return newest;
+                    }
+                }
+                return endOfData();
+            }
+
+            private void advance(MergeEntry e) {
+                int next = e.entry + 1;
+                if (next < e.segment.getCount()) {
+                    queue.add(new MergeEntry(e.segment.id(next), e.segment, next));
+                }
+            }
+        };
+    }
+
+    public @Override String toString() {
+        return String.format("%s[%s, sealed segments: %d]", getClass().getSimpleName(),
+                directory, sealed.size());
+    }
+}
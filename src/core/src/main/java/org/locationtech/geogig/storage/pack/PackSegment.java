@@ -0,0 +1,324 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A sealed, immutable segment of a {@link PackfileObjectStore}.
+ * <p>
+ * A segment is made of a data file holding a sequence of {@link #RECORD_HEADER_SIZE
+ * {@code <id><length><payload>}} records, and an index file with the sorted ids of the records
+ * and their locations in the data file. Both files are memory mapped, an id is located through
+ * the index' 256 entries fan out table on the first byte of the id plus a binary search, and an
+ * object's contents are returned as a slice of the mapped data file.
+ * <p>
+ * Index file layout:
+ * 
+ * <pre>
+ * <code>
+ * header:  int magic, int version, long seq, int gen, long coveredFrom, int count
+ * fanout:  int[256], fanout[b] is the number of entries whose id's first byte is <= b
+ * entries: count * {byte[20] id, long offset, int length}
+ * </code>
+ * </pre>
+ * 
+ * A length of {@code -1} marks a deleted object, shadowing any copy of it in older segments.
+ * <p>
+ * {@code seq} and {@code gen} identify the segment and determine its age relative to other
+ * segments. Segments created by {@link PackDirectory#compact() compaction} cover the range of
+ * sequence numbers {@code [coveredFrom, seq]} of the segments they replace, with a higher
+ * generation number.
+ */
+class PackSegment {
+
+    static final int RECORD_HEADER_SIZE = ObjectId.NUM_BYTES + Integer.BYTES;
+
+    static final int TOMBSTONE = -1;
+
+    private static final int MAGIC = 0x47475058;// GGPX
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int FANOUT_SIZE = 256 * Integer.BYTES;
+
+    private static final int ENTRIES_OFFSET = HEADER_SIZE + FANOUT_SIZE;
+
+    private static final int ENTRY_SIZE = ObjectId.NUM_BYTES + Long.BYTES + Integer.BYTES;
+
+    private final @Getter File dataFile;
+
+    private final @Getter File indexFile;
+
+    private final @Getter long seq;
+
+    private final @Getter int gen;
+
+    private final @Getter long coveredFrom;
+
+    private final @Getter int count;
+
+    private final int[] fanout;
+
+    private final MappedByteBuffer index;
+
+    private final MappedByteBuffer data;
+
+    private PackSegment(File dataFile, File indexFile, MappedByteBuffer index,
+            MappedByteBuffer data) {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.index = index;
+        this.data = data;
+        Preconditions.checkState(MAGIC == index.getInt(0), "Not a pack index file: %s",
+                indexFile);
+        final int version = index.getInt(4);
+        Preconditions.checkState(VERSION == version, "Unsupported pack index version %s: %s",
+                version, indexFile);
+        this.seq = index.getLong(8);
+        this.gen = index.getInt(16);
+        this.coveredFrom = index.getLong(20);
+        this.count = index.getInt(28);
+        this.fanout = new int[256];
+        for (int i = 0; i < 256; i++) {
+            fanout[i] = index.getInt(HEADER_SIZE + i * Integer.BYTES);
+        }
+        Preconditions.checkState(fanout[255] == count, "Corrupt pack index file: %s", indexFile);
+    }
+
+    public static PackSegment open(@NonNull File dataFile, @NonNull File indexFile)
+            throws IOException {
+        MappedByteBuffer index = map(indexFile);
+        MappedByteBuffer data = map(dataFile);
+        return new PackSegment(dataFile, indexFile, index, data);
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * @return the size of the data file, in bytes
+     */
+    public long dataSize() {
+        return data.capacity();
+    }
+
+    /**
+     * Compares the segments age, newer segments first
+     */
+    public static int newestFirst(PackSegment s1, PackSegment s2) {
+        int c = Long.compare(s2.seq, s1.seq);
+        return c == 0 ? Integer.compare(s2.gen, s1.gen) : c;
+    }
+
+    /**
+     * @return whether this segment replaces {@code other} as the result of a compaction
+     */
+    public boolean covers(PackSegment other) {
+        return gen > other.gen && coveredFrom <= other.coveredFrom && seq >= other.seq;
+    }
+
+    /**
+     * @return the index of the entry for {@code id}, or {@code -1} if not found
+     */
+    public int find(@NonNull ObjectId id) {
+        return find(id.getRawValue());
+    }
+
+    /**
+     * @param key the raw value of the object id to find
+     * @return the index of the entry for {@code key}, or {@code -1} if not found
+     */
+    public int find(byte[] key) {
+        final int b = key[0] & 0xFF;
+        int low = b == 0 ? 0 : fanout[b - 1];
+        int high = fanout[b] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int c = compare(mid, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int entry, byte[] key) {
+        final int offset = ENTRIES_OFFSET + entry * ENTRY_SIZE;
+        for (int i = 0; i < ObjectId.NUM_BYTES; i++) {
+            int c = Integer.compare(index.get(offset + i) & 0xFF, key[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public ObjectId id(int entry) {
+        final int offset = ENTRIES_OFFSET + entry * ENTRY_SIZE;
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        ByteBuffer buff = index.duplicate();
+        buff.position(offset);
+        buff.get(raw);
+        return ObjectId.create(raw);
+    }
+
+    /**
+     * @return the offset in the data file of the entry's payload
+     */
+    public long offset(int entry) {
+        return index.getLong(ENTRIES_OFFSET + entry * ENTRY_SIZE + ObjectId.NUM_BYTES);
+    }
+
+    /**
+     * @return the entry's payload length, or {@link #TOMBSTONE}
+     */
+    public int length(int entry) {
+        return index.getInt(
+                ENTRIES_OFFSET + entry * ENTRY_SIZE + ObjectId.NUM_BYTES + Long.BYTES);
+    }
+
+    /**
+     * @return a read-only view of the entry's payload backed by the memory mapped data file
+     */
+    public ByteBuffer slice(int entry) {
+        final int length = length(entry);
+        Preconditions.checkArgument(length != TOMBSTONE, "entry %s is a tombstone", entry);
+        ByteBuffer buff = data.asReadOnlyBuffer();
+        buff.position((int) offset(entry));
+        buff.limit(buff.position() + length);
+        return buff.slice();
+    }
+
+    /**
+     * Adds the ids of the entries that start with {@code prefix} to {@code target}, including
+     * tombstones
+     */
+    public void lookUp(byte[] prefix, List<ObjectId> target) {
+        final int b = prefix[0] & 0xFF;
+        final int from = b == 0 ? 0 : fanout[b - 1];
+        final int to = fanout[b];
+        for (int entry = from; entry < to; entry++) {
+            final int offset = ENTRIES_OFFSET + entry * ENTRY_SIZE;
+            boolean matches = true;
+            for (int i = 1; matches && i < prefix.length; i++) {
+                matches = index.get(offset + i) == prefix[i];
+            }
+            if (matches) {
+                target.add(id(entry));
+            }
+        }
+    }
+
+    public void delete() {
+        indexFile.delete();
+        dataFile.delete();
+    }
+
+    public @Override String toString() {
+        return String.format("%s[seq: %d, gen: %d, coveredFrom: %d, entries: %,d, size: %,d]",
+                getClass().getSimpleName(), seq, gen, coveredFrom, count, dataSize());
+    }
+
+    /**
+     * A sorted index entry to be written by {@link #writeIndex}
+     */
+    static interface Entry {
+        ObjectId id();
+
+        long offset();
+
+        int length();
+    }
+
+    /**
+     * Writes the index file for a data file, given its entries sorted by id.
+     * <p>
+     * The index is written to a temporary file and atomically moved to {@code indexFile}, hence
+     * the existence of the index file signals the data file is complete.
+     */
+    static void writeIndex(File indexFile, long seq, int gen, long coveredFrom,
+            Iterator<? extends Entry> sortedEntries) throws IOException {
+
+        final File tmp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        final int[] fanout = new int[256];
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(ENTRIES_OFFSET);
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(stream, 64 * 1024));
+            @Nullable
+            ObjectId prev = null;
+            while (sortedEntries.hasNext()) {
+                Entry e = sortedEntries.next();
+                ObjectId id = e.id();
+                Preconditions.checkArgument(prev == null || prev.compareTo(id) < 0,
+                        "entries are not sorted or have duplicates: %s, %s", prev, id);
+                prev = id;
+                out.write(id.getRawValue());
+                out.writeLong(e.offset());
+                out.writeInt(e.length());
+                fanout[id.byteN(0)]++;
+                count++;
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(ENTRIES_OFFSET);
+            header.putInt(MAGIC).putInt(VERSION).putLong(seq).putInt(gen).putLong(coveredFrom)
+                    .putInt(count);
+            int cumulative = 0;
+            for (int i = 0; i < 256; i++) {
+                cumulative += fanout[i];
+                header.putInt(cumulative);
+            }
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
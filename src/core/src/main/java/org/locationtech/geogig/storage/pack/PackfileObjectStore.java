@@ -0,0 +1,381 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Spliterator.IMMUTABLE;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterators.spliteratorUnknownSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.geogig.storage.impl.AbstractObjectStore;
+import org.locationtech.geogig.storage.pack.PackDirectory.RawObject;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import lombok.NonNull;
+
+/**
+ * A pure Java {@link ObjectStore} that keeps objects in append-only, memory mapped, pack files.
+ * <p>
+ * Objects are appended to an active segment file until it reaches a
+ * {@link PackConfig#DEFAULT_SEGMENT_SIZE size threshold}, at which point the segment is sealed by
+ * writing an index of its object ids, sorted and with a 256 entries fan out table on their first
+ * byte. Sealed segments are memory mapped, so looking up an object is a binary search on the
+ * index and returns a zero-copy slice of the data file.
+ * <p>
+ * Objects are never modified in place, deletes append a tombstone entry shadowing older copies of
+ * the object, and once the number of sealed segments reaches a threshold they're merged in the
+ * background, dropping shadowed entries and tombstones.
+ * <p>
+ * Bulk queries ({@link #getAll}, {@link #getObjects}, {@link #putAll}) work on batches of ids,
+ * sorted before probing the segment indexes, and read objects in storage order.
+ * <p>
+ * All the instances open on the same directory share the same in-memory state.
+ * 
+ * @since 2.0
+ */
+public class PackfileObjectStore extends AbstractObjectStore implements ObjectStore {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    final PackConfig config;
+
+    private final @Nullable Hints hints;
+
+    private PackDirectory packs;
+
+    public PackfileObjectStore(@NonNull File directory, @NonNull RevObjectSerializer serializer,
+            boolean readOnly) {
+        this(directory, serializer, readOnly, null);
+    }
+
+    /**
+     * @param hints the repository hints the {@link GeogigScheduler} background compactions run on
+     *        is resolved from, the {@link GeogigScheduler#defaultInstance() default} one if
+     *        {@code null}
+     */
+    public PackfileObjectStore(@NonNull File directory, @NonNull RevObjectSerializer serializer,
+            boolean readOnly, @Nullable Hints hints) {
+        this(PackConfig.of(directory, readOnly), serializer, hints);
+    }
+
+    PackfileObjectStore(@NonNull PackConfig config, @NonNull RevObjectSerializer serializer) {
+        this(config, serializer, null);
+    }
+
+    PackfileObjectStore(@NonNull PackConfig config, @NonNull RevObjectSerializer serializer,
+            @Nullable Hints hints) {
+        super(serializer, config.isReadOnly());
+        this.config = config;
+        this.hints = hints;
+    }
+
+    /**
+     * @return the directory the pack files are stored in
+     */
+    public File getDirectory() {
+        return config.getDirectory();
+    }
+
+    public @Override synchronized void open() {
+        if (isOpen()) {
+            return;
+        }
+        this.packs = PackConnectionManager.INSTANCE.acquire(config);
+        packs.trySetScheduler(hints);
+        super.open();
+    }
+
+    public @Override synchronized void close() {
+        if (isOpen()) {
+            super.close();
+            PackDirectory packs = this.packs;
+            this.packs = null;
+            PackConnectionManager.INSTANCE.release(packs);
+        }
+    }
+
+    /**
+     * Merges sealed segments and drops deleted objects from them, the same as done in the
+     * background when enough segments have been sealed.
+     * 
+     * @return {@code true} if any segments were merged
+     */
+    public boolean compact() {
+        checkWritable();
+        packs.seal();
+        boolean compacted = false;
+        while (packs.compact()) {
+            compacted = true;
+        }
+        return compacted;
+    }
+
+    public @Override AutoCloseableIterator<ObjectId> getAllIds() {
+        checkOpen();
+        return AutoCloseableIterator.fromIterator(packs.ids());
+    }
+
+    protected @Override List<ObjectId> lookUpInternal(byte[] raw) {
+        checkOpen();
+        return packs.lookUp(raw);
+    }
+
+    protected @Override @Nullable InputStream getRawInternal(ObjectId id,
+            boolean failIfNotFound) {
+        checkOpen();
+        ByteBuffer data = packs.get(id);
+        if (data == null) {
+            if (failIfNotFound) {
+                throw new IllegalArgumentException("Object does not exist: " + id);
+            }
+            return null;
+        }
+        return new ByteBufferInputStream(data);
+    }
+
+    protected @Override boolean putInternal(ObjectId id, byte[] rawData) {
+        checkWritable();
+        return packs.put(id, rawData);
+    }
+
+    public @Override boolean exists(ObjectId id) {
+        checkNotNull(id, "argument id is null");
+        checkOpen();
+        return packs.exists(id);
+    }
+
+    public @Override void delete(ObjectId objectId) {
+        checkNotNull(objectId, "argument objectId is null");
+        checkWritable();
+        if (packs.delete(objectId)) {
+            packs.sync();
+        }
+    }
+
+    public @Override void deleteAll(Iterator<ObjectId> ids, BulkOpListener listener) {
+        checkNotNull(ids, "argument objectId is null");
+        checkNotNull(listener, "argument listener is null");
+        checkWritable();
+        while (ids.hasNext()) {
+            ObjectId id = ids.next();
+            if (packs.delete(id)) {
+                listener.deleted(id);
+            } else {
+                listener.notFound(id);
+            }
+        }
+        packs.sync();
+    }
+
+    public @Override Iterator<RevObject> getAll(Iterable<ObjectId> ids,
+            BulkOpListener listener) {
+        return getAll(ids, listener, RevObject.class);
+    }
+
+    public @Override <T extends RevObject> Iterator<T> getAll(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        checkNotNull(ids, "ids is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkOpen();
+
+        Iterator<List<ObjectId>> batches = Iterators.partition(ids.iterator(), BATCH_SIZE);
+        Iterator<Iterator<T>> results = Iterators.transform(batches, batch -> {
+            List<RawObject> found = packs.getAll(batch, listener::notFound);
+            return Iterators.filter(Iterators.transform(found.iterator(), raw -> {
+                RevObject object = decode(raw);
+                if (type.isInstance(object)) {
+                    listener.found(object.getId(), Integer.valueOf(raw.data().remaining()));
+                    return type.cast(object);
+                }
+                listener.notFound(object.getId());
+                return null;
+            }), o -> o != null);
+        });
+        return Iterators.concat(results);
+    }
+
+    public @Override <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
+            Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
+        checkNotNull(refs, "refs is null");
+        checkNotNull(listener, "listener is null");
+        checkNotNull(type, "type is null");
+        checkOpen();
+
+        Iterator<List<NodeRef>> batches = Iterators.partition(refs, BATCH_SIZE);
+        return new AutoCloseableIterator<ObjectInfo<T>>() {
+
+            private Iterator<ObjectInfo<T>> current = Collections.emptyIterator();
+
+            private boolean closed;
+
+            public @Override boolean hasNext() {
+                while (!closed && !current.hasNext() && batches.hasNext()) {
+                    current = fetch(batches.next());
+                }
+                return !closed && current.hasNext();
+            }
+
+            public @Override ObjectInfo<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            public @Override void close() {
+                closed = true;
+                current = Collections.emptyIterator();
+            }
+
+            private Iterator<ObjectInfo<T>> fetch(List<NodeRef> batch) {
+                // several refs may point to the same object
+                Map<ObjectId, List<NodeRef>> byId = new HashMap<>();
+                for (NodeRef ref : batch) {
+                    byId.computeIfAbsent(ref.getObjectId(), id -> new ArrayList<>(1)).add(ref);
+                }
+                List<RawObject> found = packs.getAll(new ArrayList<>(byId.keySet()),
+                        id -> byId.get(id).forEach(r -> listener.notFound(id)));
+                List<ObjectInfo<T>> infos = new ArrayList<>(batch.size());
+                for (RawObject raw : found) {
+                    RevObject object = decode(raw);
+                    for (NodeRef ref : byId.get(raw.id())) {
+                        if (type.isInstance(object)) {
+                            listener.found(raw.id(), Integer.valueOf(raw.data().remaining()));
+                            infos.add(ObjectInfo.of(ref, type.cast(object)));
+                        } else {
+                            listener.notFound(raw.id());
+                        }
+                    }
+                }
+                return infos.iterator();
+            }
+        };
+    }
+
+    private RevObject decode(RawObject raw) {
+        final ByteBuffer data = raw.data();
+        try {
+            if (data.hasArray()) {
+                return serializer().read(raw.id(), data.array(),
+                        data.arrayOffset() + data.position(), data.remaining());
+            }
+            return serializer().read(raw.id(), new ByteBufferInputStream(data));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public @Override final void putAll(Iterator<? extends RevObject> objects,
+            final BulkOpListener listener) {
+        checkNotNull(objects, "objects is null");
+        checkNotNull(listener, "listener is null");
+        checkWritable();
+
+        final int characteristics = IMMUTABLE | NONNULL;
+        Stream<RevObject> stream = StreamSupport
+                .stream(spliteratorUnknownSize(objects, characteristics), true);
+        putAll(stream, listener);
+    }
+
+    /**
+     * Encodes the objects on several threads and appends them in batches sorted by id
+     */
+    protected void putAll(Stream<RevObject> stream, BulkOpListener listener) {
+        Iterator<RawObject> encoded = stream.parallel().map(this::encode).iterator();
+        while (encoded.hasNext()) {
+            List<RawObject> batch = Lists.newArrayList(Iterators.limit(encoded, BATCH_SIZE));
+            batch.sort((o1, o2) -> o1.id().compareTo(o2.id()));
+            Set<ObjectId> inserted = new HashSet<>();
+            packs.putAll(batch, inserted::add);
+            for (RawObject o : batch) {
+                if (inserted.contains(o.id())) {
+                    listener.inserted(o.id(), Integer.valueOf(o.data().remaining()));
+                } else {
+                    listener.found(o.id(), null);
+                }
+            }
+        }
+    }
+
+    private RawObject encode(RevObject o) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeObject(o, out);
+        return new RawObject(o.getId(), ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Reads a, possibly memory mapped, buffer without copying it to the heap first
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        public @Override int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        public @Override int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        public @Override long skip(long n) {
+            int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        public @Override int available() {
+            return buffer.remaining();
+        }
+    }
+}
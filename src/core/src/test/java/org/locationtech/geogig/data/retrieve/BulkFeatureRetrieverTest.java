@@ -10,6 +10,9 @@
 package org.locationtech.geogig.data.retrieve;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -96,6 +99,66 @@ public class BulkFeatureRetrieverTest {
         assertEquals("rrr", feat2.getAttribute("name"));
     }
 
+    @Test
+    public void testGetProjected() throws Exception {
+        ObjectId meta1 = getOID(1);
+        FeatureType fType1 = FeatureTypes.createType("location", "the_geom:Point:srid=4326",
+                "name:String", "name2:String");
+        RevFeatureType revft1 = RevFeatureType.builder().id(meta1).type(fType1).build();
+
+        WKTReader wkt = new WKTReader();
+        List<NodeRef> refs = Lists.newArrayList();
+        List<ObjectInfo<RevObject>> objs = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            RevFeature f = RevObjectTestSupport.featureForceId(getOID(2 + i),
+                    wkt.read("POINT(" + i + " 0)"), "name" + i, "other" + i);
+            Node n = RevObjectFactory.defaultInstance().createNode("f" + i, f.getId(), meta1,
+                    TYPE.FEATURE, new Envelope(), null);
+            NodeRef ref = new NodeRef(n, "testcase", meta1);
+            refs.add(ref);
+            objs.add(ObjectInfo.of(ref, f));
+        }
+        ObjectDatabase odb = mock(ObjectDatabase.class);
+        when(odb.getObjects(any(), any(), any()))
+                .thenReturn(AutoCloseableIterator.fromIterator(objs.iterator()));
+
+        BulkFeatureRetriever getter = new BulkFeatureRetriever(odb);
+        final int[] projection = { 1 };
+        try (AutoCloseableIterator<FeatureBatch> batches = getter.getFeatureBatches(
+                AutoCloseableIterator.fromIterator(refs.iterator()), revft1, projection, 2,
+                null)) {
+            FeatureBatch batch = batches.next();
+            assertEquals(2, batch.size());
+            assertEquals("f0", batch.id(0));
+            assertEquals(getOID(2), batch.version(0));
+            assertEquals("name0", batch.get(0, 0));
+            assertEquals("name1", batch.get(0, 1));
+
+            // the batch buffers are reused
+            assertSame(batch, batches.next());
+            assertEquals(1, batch.size());
+            assertEquals("f2", batch.id(0));
+            assertEquals("name2", batch.get(0, 0));
+            assertNull(batch.column(0)[1]);
+            assertFalse(batches.hasNext());
+        }
+
+        when(odb.getObjects(any(), any(), any()))
+                .thenReturn(AutoCloseableIterator.fromIterator(objs.iterator()));
+        List<Feature> features = Lists.newArrayList(getter.getGeoToolsFeatures(
+                AutoCloseableIterator.fromIterator(refs.iterator()), revft1, projection, null));
+        assertEquals(3, features.size());
+        for (int i = 0; i < 3; i++) {
+            Feature f = features.get(i);
+            assertEquals("f" + i, f.getId());
+            assertEquals(getOID(2 + i).toString(), f.getVersion());
+            assertEquals("name" + i, f.getAttribute("name"));
+            // non projected attributes are not decoded
+            assertNull(f.getAttribute("the_geom"));
+            assertNull(f.getAttribute("name2"));
+        }
+    }
+
     public ObjectId getOID(int b) {
         byte n = (byte) b;
         return new ObjectId(
@@ -0,0 +1,195 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+import com.google.common.primitives.UnsignedLong;
+
+public class AttributeClusteringStrategyTest {
+
+    private ObjectStore store;
+
+    @Before
+    public void before() {
+        store = new HeapObjectStore();
+        store.open();
+    }
+
+    @After
+    public void after() {
+        store.close();
+    }
+
+    @Test
+    public void testKeyOrder() {
+        assertOrdered(-1e10, -100, -1.5, 0, 1, 1.5, 2L, 1000, Double.MAX_VALUE);
+        assertOrdered("", "A", "AB", "ABCD", "Ab", "a", "b", "zzzz");
+        assertOrdered(new Date(-1000), new Date(0), new Date(1), new Date(1_000_000));
+        assertOrdered(false, true);
+        assertEquals(AttributeIndexKey.key(-0.0d), AttributeIndexKey.key(0));
+        assertEquals(AttributeIndexKey.key(1), AttributeIndexKey.key(1.0f));
+        // only a prefix of strings is encoded
+        assertEquals(AttributeIndexKey.key("ABCD"), AttributeIndexKey.key("ABCDE"));
+        assertNull(AttributeIndexKey.key(null));
+        assertNull(AttributeIndexKey.key(Double.NaN));
+        assertNull(AttributeIndexKey.key(new Object()));
+    }
+
+    private void assertOrdered(Object... values) {
+        for (int i = 1; i < values.length; i++) {
+            UnsignedLong prev = UnsignedLong.fromLongBits(AttributeIndexKey.key(values[i - 1]));
+            UnsignedLong curr = UnsignedLong.fromLongBits(AttributeIndexKey.key(values[i]));
+            assertTrue(String.format("%s should be < %s", values[i - 1], values[i]),
+                    prev.compareTo(curr) < 0);
+        }
+    }
+
+    @Test
+    public void testBucketBounds() {
+        final long key = AttributeIndexKey.key("some value").longValue();
+        int[] path = new int[0];
+        for (int depth = 0; depth < AttributeIndexKey.MAX_DEPTH; depth++) {
+            path = Arrays.copyOf(path, depth + 1);
+            path[depth] = AttributeIndexKey.bucket(key, depth);
+            assertInBucket(key, path);
+        }
+        assertEquals(key, AttributeIndexKey.lowerBound(path));
+        assertEquals(key, AttributeIndexKey.upperBound(path));
+        assertEquals(-1, AttributeIndexKey.bucket(key, AttributeIndexKey.MAX_DEPTH));
+
+        // canonical buckets beneath the max depth don't change the range
+        int[] canonicalPath = Arrays.copyOf(path, path.length + 2);
+        canonicalPath[path.length] = AttributeIndexKey.RADIX;
+        canonicalPath[path.length + 1] = 5;
+        assertEquals(key, AttributeIndexKey.lowerBound(canonicalPath));
+        assertEquals(key, AttributeIndexKey.upperBound(canonicalPath));
+
+        assertTrue(AttributeIndexKey.isNullValues(new int[] { AttributeIndexKey.RADIX, 3 }));
+    }
+
+    @Test
+    public void testBuildTree() {
+        final int size = 2000;
+        final int nullValues = 10;
+        RevTreeBuilder builder = RevTreeBuilder.attributeBuilder(store, store, RevTree.EMPTY,
+                "value");
+        for (int i = 0; i < size; i++) {
+            builder.put(node("f" + i, Integer.valueOf(i % 500)));
+        }
+        for (int i = 0; i < nullValues; i++) {
+            builder.put(node("null" + i, null));
+        }
+        RevTree tree = builder.build();
+        assertEquals(size + nullValues, tree.size());
+        assertTrue(tree.bucketsSize() > 0);
+
+        AtomicInteger nullCount = new AtomicInteger();
+        int count = verify(tree, new int[0], nullCount);
+        assertEquals(size + nullValues, count);
+        assertEquals(nullValues, nullCount.get());
+    }
+
+    @Test
+    public void testUpdateTree() {
+        RevTreeBuilder builder = RevTreeBuilder.attributeBuilder(store, store, RevTree.EMPTY,
+                "value");
+        for (int i = 0; i < 1000; i++) {
+            builder.put(node("f" + i, "value " + i));
+        }
+        final RevTree original = builder.build();
+
+        builder = RevTreeBuilder.attributeBuilder(store, store, original, "value");
+        builder.update(node("f1", "value 1"), node("f1", "another value"));
+        builder.remove(node("f2", "value 2"));
+        builder.put(node("f1000", null));
+        RevTree tree = builder.build();
+        assertEquals(1000, tree.size());
+
+        AtomicInteger nullCount = new AtomicInteger();
+        assertEquals(1000, verify(tree, new int[0], nullCount));
+        assertEquals(1, nullCount.get());
+    }
+
+    /**
+     * Verifies all feature nodes are in the bucket that corresponds to their key, and leaf nodes
+     * are sorted by key
+     */
+    private int verify(RevTree tree, int[] path, AtomicInteger nullCount) {
+        AtomicInteger count = new AtomicInteger();
+        AtomicReference<UnsignedLong> prevKey = new AtomicReference<>();
+        tree.forEachFeature(node -> {
+            count.incrementAndGet();
+            Long key = AttributeIndexKey.key(IndexInfo.getMaterializedAttribute("value", node));
+            if (key == null) {
+                nullCount.incrementAndGet();
+                assertTrue(path.length == 0 || AttributeIndexKey.isNullValues(path));
+                assertNull("null keys shall come first", prevKey.get());
+            } else {
+                assertInBucket(key.longValue(), path);
+                UnsignedLong k = UnsignedLong.fromLongBits(key.longValue());
+                UnsignedLong prev = prevKey.getAndSet(k);
+                assertTrue(prev == null || prev.compareTo(k) <= 0);
+            }
+        });
+        tree.forEachBucket(bucket -> {
+            int[] bucketPath = Arrays.copyOf(path, path.length + 1);
+            bucketPath[path.length] = bucket.getIndex();
+            RevTree bucketTree = store.getTree(bucket.getObjectId());
+            count.addAndGet(verify(bucketTree, bucketPath, nullCount));
+        });
+        return count.get();
+    }
+
+    private void assertInBucket(long key, int[] path) {
+        UnsignedLong k = UnsignedLong.fromLongBits(key);
+        UnsignedLong lower = UnsignedLong.fromLongBits(AttributeIndexKey.lowerBound(path));
+        UnsignedLong upper = UnsignedLong.fromLongBits(AttributeIndexKey.upperBound(path));
+        String msg = String.format("key %s out of bucket %s", k, Arrays.toString(path));
+        assertTrue(msg, lower.compareTo(k) <= 0);
+        assertTrue(msg, upper.compareTo(k) >= 0);
+    }
+
+    private Node node(String name, @Nullable Object value) {
+        ObjectId oid = RevObjectTestSupport.hashString(name + value);
+        Map<String, Object> attributes = new HashMap<>();
+        if (value != null) {
+            attributes.put("value", value);
+        }
+        Map<String, Object> extraData = new HashMap<>();
+        extraData.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, attributes);
+        return RevObjectFactory.defaultInstance().createNode(name, oid, ObjectId.NULL,
+                TYPE.FEATURE, null, extraData);
+    }
+}
@@ -10,16 +10,20 @@
 package org.locationtech.geogig.plumbing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.Test;
 import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.plumbing.diff.DiffSummary;
+import org.locationtech.geogig.plumbing.diff.DiffSummaryStore;
 import org.locationtech.geogig.porcelain.CommitOp;
 import org.locationtech.geogig.test.integration.RepositoryTestCase;
 import org.locationtech.jts.geom.Envelope;
@@ -85,6 +89,34 @@ public class DiffBoundsTest extends RepositoryTestCase {
         assertTrue(diffBounds.getMergedResult().get().isNull());
     }
 
+    @Test
+    public void testUseCache() {
+        final ObjectId left = repo.command(ResolveTreeish.class).setTreeish("HEAD~3").call().get();
+        final ObjectId right = repo.command(ResolveTreeish.class).setTreeish("HEAD").call().get();
+        final DiffSummaryStore store = new DiffSummaryStore(repo.context().blobStore());
+        final List<String> noFilter = Collections.emptyList();
+        assertFalse(store.getBounds(left, right, noFilter).isPresent());
+
+        DiffSummary<Envelope, Envelope> computed = repo.command(DiffBounds.class)
+                .setOldVersion("HEAD~3").setNewVersion("HEAD").setUseCache(true).call();
+        DiffSummary<Envelope, Envelope> cached = store.getBounds(left, right, noFilter).get();
+        assertEquals(computed.getLeft(), cached.getLeft());
+        assertEquals(computed.getRight(), cached.getRight());
+        assertEquals(computed.getMergedResult(), cached.getMergedResult());
+
+        // the cached summary is returned instead of computing it again
+        Envelope fake = new Envelope(0, 1, 0, 1);
+        store.putBounds(left, right, noFilter, new DiffSummary<>(fake, fake, fake));
+        DiffSummary<Envelope, Envelope> result = repo.command(DiffBounds.class)
+                .setOldVersion("HEAD~3").setNewVersion("HEAD").setUseCache(true).call();
+        assertEquals(fake, result.getMergedResult().get());
+
+        // but not unless asked to
+        result = repo.command(DiffBounds.class).setOldVersion("HEAD~3").setNewVersion("HEAD")
+                .call();
+        assertEquals(computed.getMergedResult(), result.getMergedResult());
+    }
+
     @Test
     public void testPathFiltering() throws Exception {
         insertAndAdd(l1Modified);
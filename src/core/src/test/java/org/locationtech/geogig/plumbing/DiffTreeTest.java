@@ -17,6 +17,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -34,10 +35,13 @@ import org.locationtech.geogig.model.RevObjectFactory;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.decorator.ForwardingObjectStore;
 import org.locationtech.geogig.test.TestRepository;
 import org.locationtech.jts.geom.Envelope;
 
@@ -246,6 +250,41 @@ public class DiffTreeTest {
         assertChangeTypeFilter(rootId2, rootId1, 2, 0, 0);
     }
 
+    @Test
+    public void testPrefetchHint() {
+        final ObjectDatabase db = repository.context().objectDatabase();
+        final RevTree left = RevObjectTestSupport.INSTANCE.createTreesTree(db, 100, 2,
+                metadataId);
+        final RevTree right = RevObjectTestSupport.INSTANCE.createTreesTree(db, 100, 3,
+                metadataId);
+        final AtomicInteger getTreeCalls = new AtomicInteger();
+        final ObjectStore store = new ForwardingObjectStore(db) {
+            public @Override RevTree getTree(ObjectId id) {
+                getTreeCalls.incrementAndGet();
+                return super.getTree(id);
+            }
+        };
+
+        diffTree.setOldTree(left).setNewTree(right).setLeftSource(store).setRightSource(store);
+        assertEquals(100, Iterators.size(diffTree.call()));
+        // the two root trees plus each changed subtree at both sides
+        assertEquals(202, getTreeCalls.get());
+
+        getTreeCalls.set(0);
+        repository.context().hints().set(Hints.DIFF_PREFETCH, Boolean.TRUE);
+        diffTree = repository.command(DiffTree.class).setOldTree(left).setNewTree(right)
+                .setLeftSource(store).setRightSource(store);
+        assertEquals(100, Iterators.size(diffTree.call()));
+        // all the changed subtrees fetched in a single batch
+        assertEquals(2, getTreeCalls.get());
+
+        getTreeCalls.set(0);
+        diffTree = repository.command(DiffTree.class).setOldTree(left).setNewTree(right)
+                .setLeftSource(store).setRightSource(store).setPrefetch(false);
+        assertEquals(100, Iterators.size(diffTree.call()));
+        assertEquals(202, getTreeCalls.get());
+    }
+
     private void assertChangeTypeFilter(final ObjectId leftTree, final ObjectId rightTree,
             final int expectedAdds, final int expectedRemoves, final int expectedChanges) {
 
@@ -0,0 +1,154 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.DiffObjectCount;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.memory.HeapBlobStore;
+import org.locationtech.jts.geom.Envelope;
+
+public class DiffSummaryStoreTest {
+
+    private final ObjectId left = RevObjectTestSupport.hashString("left");
+
+    private final ObjectId right = RevObjectTestSupport.hashString("right");
+
+    private final List<String> noFilter = Collections.emptyList();
+
+    private BlobStore blobs;
+
+    private DiffSummaryStore store;
+
+    @Before
+    public void before() {
+        blobs = new HeapBlobStore();
+        store = new DiffSummaryStore(blobs);
+    }
+
+    @Test
+    public void testCount() {
+        assertFalse(store.getCount(left, right, noFilter).isPresent());
+        DiffObjectCount count = new DiffObjectCount();
+        count.addedFeatures(10);
+        count.removedFeatures(Integer.MAX_VALUE + 1L);
+        count.changedFeatures(3);
+        count.addedTrees(1);
+        count.removedTrees(2);
+        count.changedTrees(4);
+        store.putCount(left, right, noFilter, count);
+
+        DiffObjectCount stored = store.getCount(left, right, noFilter).get();
+        assertEquals(count.toString(), stored.toString());
+        // the diff in the opposite direction is another entry
+        assertFalse(store.getCount(right, left, noFilter).isPresent());
+    }
+
+    @Test
+    public void testBounds() {
+        assertFalse(store.getBounds(left, right, noFilter).isPresent());
+        Envelope lb = new Envelope(0, 1, 2, 3);
+        Envelope rb = new Envelope();
+        store.putBounds(left, right, noFilter, new DiffSummary<>(lb, rb, lb));
+        DiffSummary<Envelope, Envelope> stored = store.getBounds(left, right, noFilter).get();
+        assertEquals(lb, stored.getLeft());
+        assertTrue(stored.getRight().isNull());
+        assertEquals(Optional.of(lb), stored.getMergedResult());
+
+        store.putBounds(left, right, noFilter, new DiffSummary<>(lb, rb, null));
+        stored = store.getBounds(left, right, noFilter).get();
+        assertFalse(stored.getMergedResult().isPresent());
+    }
+
+    @Test
+    public void testPathFilters() {
+        List<String> filters = Arrays.asList("roads", "buildings");
+        List<String> reordered = Arrays.asList("buildings", "roads");
+        assertEquals(DiffSummaryStore.key(left, right, filters, "count"),
+                DiffSummaryStore.key(left, right, reordered, "count"));
+        assertNotEquals(DiffSummaryStore.key(left, right, filters, "count"),
+                DiffSummaryStore.key(left, right, noFilter, "count"));
+        assertNotEquals(DiffSummaryStore.key(left, right, filters, "count"),
+                DiffSummaryStore.key(left, right, Arrays.asList("roads"), "count"));
+
+        DiffObjectCount count = new DiffObjectCount();
+        count.addedFeatures(1);
+        store.putCount(left, right, filters, count);
+        assertTrue(store.getCount(left, right, reordered).isPresent());
+        assertFalse(store.getCount(left, right, noFilter).isPresent());
+    }
+
+    @Test
+    public void testRemove() {
+        store.putCount(left, right, noFilter, new DiffObjectCount());
+        store.putBounds(left, right, noFilter,
+                new DiffSummary<>(new Envelope(), new Envelope(), null));
+        store.remove(left, right, noFilter);
+        assertFalse(store.getCount(left, right, noFilter).isPresent());
+        assertFalse(store.getBounds(left, right, noFilter).isPresent());
+    }
+
+    @Test
+    public void testUnreadableEntry() {
+        String key = DiffSummaryStore.key(left, right, noFilter, "count");
+        blobs.putBlob(store.blobPath(key), new byte[] { 99 });
+        assertFalse(store.getCount(left, right, noFilter).isPresent());
+    }
+
+    @Test
+    public void testBoundedSlots() {
+        final int maxEntries = 4;
+        store = new DiffSummaryStore(blobs, maxEntries);
+        Set<String> paths = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ObjectId id = RevObjectTestSupport.hashString("tree" + i);
+            paths.add(store.blobPath(DiffSummaryStore.key(left, id, noFilter, "count")));
+            DiffObjectCount count = new DiffObjectCount();
+            count.addedFeatures(i);
+            store.putCount(left, id, noFilter, count);
+            // the last entry stored is always there
+            assertEquals(i, store.getCount(left, id, noFilter).get().featureCount());
+        }
+        assertTrue(paths.size() <= maxEntries);
+        for (String path : paths) {
+            assertTrue(path.startsWith(DiffSummaryStore.BLOB_PREFIX));
+        }
+    }
+
+    @Test
+    public void testEvictedBySlotCollision() {
+        store = new DiffSummaryStore(blobs, 1);
+        DiffObjectCount count = new DiffObjectCount();
+        count.addedFeatures(1);
+        store.putCount(left, right, noFilter, count);
+        store.putCount(right, left, noFilter, count);
+        // both share the only slot, the first one was evicted
+        assertFalse(store.getCount(left, right, noFilter).isPresent());
+        assertTrue(store.getCount(right, left, noFilter).isPresent());
+        // removing an evicted entry doesn't remove the one taking its slot
+        store.remove(left, right, noFilter);
+        assertTrue(store.getCount(right, left, noFilter).isPresent());
+    }
+}
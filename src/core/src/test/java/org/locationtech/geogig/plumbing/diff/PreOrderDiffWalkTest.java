@@ -10,6 +10,7 @@
 package org.locationtech.geogig.plumbing.diff;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -31,6 +32,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -44,11 +47,13 @@ import org.locationtech.geogig.model.CanonicalNodeNameOrder;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjectFactory;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.model.impl.ColumnarRevObjectFactory;
 import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.AbstractConsumer;
@@ -56,8 +61,10 @@ import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.MaxFeatureDiffsLimiter;
 import org.locationtech.geogig.repository.impl.SpatialOps;
+import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.decorator.ForwardingObjectStore;
 import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
 import org.locationtech.jts.geom.Envelope;
 import org.mockito.ArgumentCaptor;
@@ -1036,6 +1043,121 @@ public class PreOrderDiffWalkTest {
         assertEquals(3, abortedAtCount);
     }
 
+    @Test
+    public void testPrefetchReportsSameDiffs() {
+        final int size = CanonicalNodeNameOrder.maxBucketsForLevel(0)
+                * CanonicalNodeNameOrder.normalizedSizeLimit(0);
+        final ObjectId metadataId = RevObjectTestSupport.hashString("fake");
+        RevTree leftBuckets = RevObjectTestSupport.INSTANCE.createFeaturesTree(leftSource, "f",
+                size);
+        RevTree rightBuckets = RevObjectTestSupport.INSTANCE.createFeaturesTree(rightSource, "f",
+                size, 0, true);
+        RevTree leftLeaf = RevObjectTestSupport.INSTANCE.createFeaturesTree(leftSource, "f", 10);
+        RevTree rightLeaf = RevObjectTestSupport.INSTANCE.createFeaturesTree(rightSource, "f",
+                10);
+        RevTree leftTrees = RevObjectTestSupport.INSTANCE.createTreesTree(leftSource, 10, 600,
+                metadataId);
+        RevTree rightTrees = RevObjectTestSupport.INSTANCE.createTreesTree(rightSource, 12, 700,
+                metadataId);
+
+        assertSameDiffsWhenPrefetching(leftBuckets, rightBuckets);
+        assertSameDiffsWhenPrefetching(leftBuckets, rightLeaf);
+        assertSameDiffsWhenPrefetching(leftLeaf, rightBuckets);
+        assertSameDiffsWhenPrefetching(leftTrees, rightTrees);
+        assertSameDiffsWhenPrefetching(RevTree.EMPTY, rightTrees);
+    }
+
+    @Test
+    public void testPrefetchCoalescesTreeFetches() {
+        final ObjectId metadataId = RevObjectTestSupport.hashString("fake");
+        final RevTree left = RevObjectTestSupport.INSTANCE.createTreesTree(leftSource, 100, 2,
+                metadataId);
+        final RevTree right = RevObjectTestSupport.INSTANCE.createTreesTree(leftSource, 100, 3,
+                metadataId);
+        final CallCountingStore store = new CallCountingStore(leftSource);
+
+        FeatureCountingConsumer counter = new FeatureCountingConsumer();
+        new PreOrderDiffWalk(left, right, store, store).walk(counter);
+        assertEquals(100, counter.count.get());
+        // the two root trees plus each changed subtree at both sides
+        assertEquals(202, store.getTreeCalls.get());
+
+        store.getTreeCalls.set(0);
+        store.getAllCalls.set(0);
+        counter = new FeatureCountingConsumer();
+        new PreOrderDiffWalk(left, right, store, store).prefetch(true).walk(counter);
+        assertEquals(100, counter.count.get());
+        // all the changed subtrees requested in a single batch
+        assertEquals(2, store.getTreeCalls.get());
+        assertEquals(1, store.getAllCalls.get());
+    }
+
+    @Test
+    public void testColumnarLeafTreesReportSameDiffs() {
+        // 0-49 removed, 50-99 changed, 100-149 added
+        RevTree left = RevObjectTestSupport.INSTANCE.createFeaturesTree(leftSource, "f", 100);
+        RevTree right = RevObjectTestSupport.INSTANCE.createFeaturesTree(rightSource, "f", 100,
+                50, true);
+        RevObjectFactory columnar = new ColumnarRevObjectFactory();
+        RevTree columnarLeft = columnar.createTree(left.getId(), left.size(), left.trees(),
+                left.features());
+        RevTree columnarRight = columnar.createTree(right.getId(), right.size(), right.trees(),
+                right.features());
+
+        Set<String> expected = collectDiffs(newVisitor(left, right));
+        // the feature diffs plus the root trees
+        assertEquals(151, expected.size());
+        assertEquals(expected, collectDiffs(newVisitor(columnarLeft, columnarRight)));
+        assertEquals(expected, collectDiffs(newVisitor(columnarLeft, right)));
+        assertEquals(expected, collectDiffs(newVisitor(left, columnarRight)));
+    }
+
+    private void assertSameDiffsWhenPrefetching(RevTree left, RevTree right) {
+        Set<String> expected = collectDiffs(newVisitor(left, right));
+        // small batch and window sizes to exercise flushing by size and evicting
+        Set<String> actual = collectDiffs(newVisitor(left, right).prefetch(64, 128));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    private Set<String> collectDiffs(PreOrderDiffWalk walk) {
+        final Set<String> diffs = ConcurrentHashMap.newKeySet();
+        walk.walk(new AbstractConsumer() {
+            public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                diffs.add(left + " -> " + right);
+                return true;
+            }
+
+            public @Override boolean tree(@Nullable NodeRef left, @Nullable NodeRef right) {
+                diffs.add(left + " -> " + right);
+                return true;
+            }
+        });
+        return diffs;
+    }
+
+    private static final class CallCountingStore extends ForwardingObjectStore {
+
+        final AtomicInteger getTreeCalls = new AtomicInteger();
+
+        final AtomicInteger getAllCalls = new AtomicInteger();
+
+        CallCountingStore(ObjectStore actual) {
+            super(actual);
+        }
+
+        public @Override RevTree getTree(ObjectId id) {
+            getTreeCalls.incrementAndGet();
+            return super.getTree(id);
+        }
+
+        public @Override <T extends RevObject> Iterator<T> getAll(Iterable<ObjectId> ids,
+                BulkOpListener listener, Class<T> type) {
+            getAllCalls.incrementAndGet();
+            return super.getAll(ids, listener, type);
+        }
+    }
+
     private static final class FeatureCountingConsumer extends PreOrderDiffWalk.AbstractConsumer {
 
         final AtomicLong count = new AtomicLong();
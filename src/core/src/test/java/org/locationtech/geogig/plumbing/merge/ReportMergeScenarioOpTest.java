@@ -0,0 +1,96 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+public class ReportMergeScenarioOpTest extends RepositoryTestCase {
+
+    protected @Override void setUpInternal() throws Exception {
+    }
+
+    private Feature point(int i, String name, int value) {
+        return feature(pointsType, "p" + i, name, Integer.valueOf(value),
+                String.format("POINT(%d %d)", i, i));
+    }
+
+    /**
+     * Features modified on both branches span several batches, and are resolved in parallel,
+     * yet the consumer gets them in iteration order
+     */
+    @Test
+    public void testFeatureMergesPreserveOrder() throws Exception {
+        final int count = ReportMergeScenarioOp.BATCH_SIZE + 500;
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            features.add(point(i, "a" + i, i));
+        }
+        insert(features);
+        add();
+        RevCommit ancestor = repo.command(CommitOp.class).setMessage("ancestor").call();
+        branch("branch");
+
+        features.clear();
+        for (int i = 0; i < count; i++) {
+            features.add(point(i, "ours" + i, i));
+        }
+        insert(features);
+        add();
+        RevCommit ours = repo.command(CommitOp.class).setMessage("ours").call();
+
+        checkout("branch");
+        features.clear();
+        for (int i = 0; i < count; i++) {
+            // every tenth one conflicts
+            features.add(point(i, i % 10 == 0 ? "theirs" + i : "a" + i, -i));
+        }
+        insert(features);
+        add();
+        RevCommit theirs = repo.command(CommitOp.class).setMessage("theirs").call();
+
+        List<String> expected = new ArrayList<>();
+        try (AutoCloseableIterator<DiffEntry> diffs = repo.command(DiffTree.class)
+                .setOldTree(ancestor.getId()).setNewTree(ours.getId())
+                .setPreserveIterationOrder(true).call()) {
+            diffs.forEachRemaining(d -> expected.add(d.path()));
+        }
+
+        List<String> reported = new ArrayList<>();
+        MergeScenarioConsumer consumer = new MergeScenarioConsumer() {
+            public @Override void conflicted(Conflict conflict) {
+                reported.add(conflict.getPath());
+            }
+
+            public @Override void merged(FeatureInfo featureInfo) {
+                reported.add(featureInfo.getPath());
+            }
+        };
+        MergeScenarioReport report = repo.command(ReportMergeScenarioOp.class)
+                .setMergeIntoCommit(ours).setToMergeCommit(theirs).setConsumer(consumer).call();
+
+        assertEquals(count / 10, report.getConflicts());
+        assertEquals(count - count / 10, report.getMerged());
+        assertEquals(expected, reported);
+    }
+}
@@ -0,0 +1,243 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.merge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.porcelain.AddOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.porcelain.RemoveOp;
+import org.locationtech.geogig.repository.Conflict;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+import com.google.common.collect.Lists;
+
+public class ThreeWayMergeOpTest extends RepositoryTestCase {
+
+    protected @Override void setUpInternal() throws Exception {
+    }
+
+    private Feature point(int i, String name, int value) {
+        return feature(pointsType, "p" + i, name, Integer.valueOf(value),
+                String.format("POINT(%d %d)", i, i));
+    }
+
+    private RevCommit commit(String message) {
+        return repo.command(CommitOp.class).setMessage(message).call();
+    }
+
+    private ObjectId pointsTreeId(RevTree root) {
+        return repo.command(FindTreeChild.class).setParent(root).setChildPath(pointsName).call()
+                .get().getObjectId();
+    }
+
+    @Test
+    public void testConflictingBranches() throws Exception {
+        insertAndAdd(points1, points2);
+        commit("ancestor");
+        branch("branch");
+
+        Feature points1Modified = feature(pointsType, idP1, "StringProp1_2", 1000, "POINT(1 1)");
+        insert(points1Modified);
+        delete(points2);
+        add();
+        RevCommit ours = commit("ours");
+
+        checkout("branch");
+        Feature points1ModifiedB = feature(pointsType, idP1, "StringProp1_3", 2000,
+                "POINT(1 1)");
+        insert(points1ModifiedB, points3);
+        delete(points2);
+        add();
+        RevCommit theirs = commit("theirs");
+        checkout("master");
+
+        ThreeWayMergeOp.Result result = repo.command(ThreeWayMergeOp.class)
+                .setMergeIntoCommit(ours).setToMergeCommit(theirs).call();
+
+        MergeScenarioReport report = result.getReport();
+        assertEquals(1, report.getConflicts());
+        assertEquals(1, report.getUnconflictedFeatures());
+        assertEquals(0, report.getMerged());
+
+        List<Conflict> conflicts = Lists.newArrayList(repo.command(ConflictsQueryOp.class).call());
+        assertEquals(1, conflicts.size());
+        Conflict conflict = conflicts.get(0);
+        assertEquals(NodeRef.appendChild(pointsName, idP1), conflict.getPath());
+        assertEquals(RevFeature.builder().build(points1Modified).getId(), conflict.getOurs());
+        assertEquals(RevFeature.builder().build(points1ModifiedB).getId(), conflict.getTheirs());
+
+        // conflicts keep "our" version
+        checkout("branch");
+        branch("expected");
+        checkout("expected");
+        insert(points1Modified);
+        add();
+        RevCommit expected = commit("expected");
+        assertEquals(pointsTreeId(repo.context().objectDatabase().getTree(expected.getTreeId())),
+                pointsTreeId(result.getMergedTree()));
+    }
+
+    @Test
+    public void testNoWriteConflicts() throws Exception {
+        insertAndAdd(points1);
+        commit("ancestor");
+        branch("branch");
+        insertAndAdd(points1_modified);
+        RevCommit ours = commit("ours");
+        checkout("branch");
+        insertAndAdd(feature(pointsType, idP1, "StringProp1_3", 2000, "POINT(1 1)"));
+        RevCommit theirs = commit("theirs");
+        checkout("master");
+
+        ThreeWayMergeOp.Result result = repo.command(ThreeWayMergeOp.class)
+                .setMergeIntoCommit(ours).setToMergeCommit(theirs).setWriteConflicts(false)
+                .call();
+        assertEquals(1, result.getReport().getConflicts());
+        assertTrue(Lists.newArrayList(repo.command(ConflictsQueryOp.class).call()).isEmpty());
+        assertEquals(ours.getTreeId(), result.getMergedTree().getId());
+    }
+
+    @Test
+    public void testOursRemovedTreeTheirsModified() throws Exception {
+        insertAndAdd(points1, lines1);
+        commit("ancestor");
+        branch("branch");
+        repo.command(RemoveOp.class).addPathToRemove(pointsName).setRecursive(true).call();
+        repo.command(AddOp.class).call();
+        RevCommit ours = commit("ours");
+        checkout("branch");
+        insertAndAdd(points1_modified, points2);
+        RevCommit theirs = commit("theirs");
+        checkout("master");
+
+        ThreeWayMergeOp.Result result = repo.command(ThreeWayMergeOp.class)
+                .setMergeIntoCommit(ours).setToMergeCommit(theirs).call();
+
+        MergeScenarioReport report = result.getReport();
+        assertEquals(1, report.getConflicts());
+        assertEquals(0, report.getUnconflictedFeatures());
+        assertEquals(0, report.getMerged());
+
+        List<Conflict> conflicts = Lists.newArrayList(repo.command(ConflictsQueryOp.class).call());
+        assertEquals(1, conflicts.size());
+        assertEquals(pointsName, conflicts.get(0).getPath());
+        assertEquals(ObjectId.NULL, conflicts.get(0).getOurs());
+
+        // the tree stays removed instead of being re-created with part of "their" changes
+        assertFalse(repo.command(FindTreeChild.class).setParent(result.getMergedTree())
+                .setChildPath(pointsName).call().isPresent());
+        assertEquals(ours.getTreeId(), result.getMergedTree().getId());
+    }
+
+    /**
+     * Merges changes on trees with buckets, and checks the merged tree is the same than the one
+     * built by applying the expected changes to the common ancestor
+     */
+    @Test
+    public void testBucketTrees() throws Exception {
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            features.add(point(i, "a" + i, i));
+        }
+        insert(features);
+        add();
+        commit("ancestor");
+        branch("theirs");
+        branch("expected");
+
+        features.clear();
+        for (int i = 0; i < 100; i++) {
+            features.add(point(i, "ours", i));
+        }
+        insert(features);
+        for (int i = 900; i < 950; i++) {
+            delete(point(i, "a" + i, i));
+        }
+        add();
+        RevCommit ours = commit("ours");
+
+        checkout("theirs");
+        features.clear();
+        for (int i = 0; i < 10; i++) {
+            features.add(point(i, "theirs", i));
+        }
+        for (int i = 50; i < 150; i++) {
+            features.add(point(i, "a" + i, -i));
+        }
+        for (int i = 1000; i < 1100; i++) {
+            features.add(point(i, "a" + i, i));
+        }
+        insert(features);
+        for (int i = 950; i < 1000; i++) {
+            delete(point(i, "a" + i, i));
+        }
+        add();
+        RevCommit theirs = commit("theirs");
+
+        checkout("expected");
+        features.clear();
+        for (int i = 0; i < 50; i++) {
+            features.add(point(i, "ours", i));
+        }
+        for (int i = 50; i < 100; i++) {
+            features.add(point(i, "ours", -i));
+        }
+        for (int i = 100; i < 150; i++) {
+            features.add(point(i, "a" + i, -i));
+        }
+        for (int i = 1000; i < 1100; i++) {
+            features.add(point(i, "a" + i, i));
+        }
+        insert(features);
+        for (int i = 900; i < 1000; i++) {
+            delete(point(i, "a" + i, i));
+        }
+        add();
+        RevCommit expected = commit("expected");
+        checkout("master");
+
+        ThreeWayMergeOp.Result result = repo.command(ThreeWayMergeOp.class)
+                .setMergeIntoCommit(ours).setToMergeCommit(theirs).setConflictsBatchSize(3)
+                .call();
+
+        MergeScenarioReport report = result.getReport();
+        assertEquals(10, report.getConflicts());
+        assertEquals(50, report.getMerged());
+        assertEquals(200, report.getUnconflictedFeatures());
+
+        Map<String, Conflict> conflicts = Lists
+                .newArrayList(repo.command(ConflictsQueryOp.class).call()).stream()
+                .collect(Collectors.toMap(Conflict::getPath, Function.identity()));
+        assertEquals(10, conflicts.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(conflicts.containsKey(NodeRef.appendChild(pointsName, "p" + i)));
+        }
+
+        RevTree expectedTree = repo.context().objectDatabase().getTree(expected.getTreeId());
+        assertEquals(pointsTreeId(expectedTree), pointsTreeId(result.getMergedTree()));
+    }
+}
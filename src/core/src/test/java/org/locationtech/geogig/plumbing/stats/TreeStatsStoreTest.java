@@ -0,0 +1,102 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.memory.HeapBlobStore;
+import org.locationtech.jts.geom.Envelope;
+
+public class TreeStatsStoreTest {
+
+    private final ObjectId tree = RevObjectTestSupport.hashString("tree");
+
+    private final ObjectId type = RevObjectTestSupport.hashString("type");
+
+    private BlobStore blobs;
+
+    private TreeStatsStore store;
+
+    @Before
+    public void before() {
+        blobs = new HeapBlobStore();
+        store = new TreeStatsStore(blobs);
+    }
+
+    private TreeStats stats(long count) {
+        return new TreeStats(count, new Envelope(0, 1, 0, 1), Collections.emptyMap());
+    }
+
+    @Test
+    public void testPutGet() {
+        assertFalse(store.get(tree, type).isPresent());
+        assertFalse(store.exists(tree, type));
+        store.put(tree, type, stats(10));
+        assertTrue(store.exists(tree, type));
+        TreeStats stored = store.get(tree, type).get();
+        assertEquals(10, stored.getFeatureCount());
+        assertEquals(new Envelope(0, 1, 0, 1), stored.getBounds().get());
+        // the same tree bound to another feature type is another entry
+        assertFalse(store.get(tree, tree).isPresent());
+
+        store.remove(tree, type);
+        assertFalse(store.exists(tree, type));
+    }
+
+    @Test
+    public void testUnreadableEntry() {
+        blobs.putBlob(store.blobPath(TreeStatsStore.key(tree, type)), new byte[] { 99 });
+        assertFalse(store.get(tree, type).isPresent());
+        assertFalse(store.exists(tree, type));
+    }
+
+    @Test
+    public void testBoundedSlots() {
+        final int maxEntries = 4;
+        store = new TreeStatsStore(blobs, maxEntries);
+        Set<String> paths = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ObjectId id = RevObjectTestSupport.hashString("tree" + i);
+            paths.add(store.blobPath(TreeStatsStore.key(id, type)));
+            store.put(id, type, stats(i));
+            // the last entry stored is always there
+            assertEquals(i, store.get(id, type).get().getFeatureCount());
+        }
+        assertTrue(paths.size() <= maxEntries);
+        for (String path : paths) {
+            assertTrue(path.startsWith(TreeStatsStore.BLOB_PREFIX));
+        }
+    }
+
+    @Test
+    public void testEvictedBySlotCollision() {
+        store = new TreeStatsStore(blobs, 1);
+        ObjectId other = RevObjectTestSupport.hashString("other");
+        store.put(tree, type, stats(1));
+        store.put(other, type, stats(2));
+        // both share the only slot, the first one was evicted
+        assertFalse(store.exists(tree, type));
+        assertEquals(2, store.get(other, type).get().getFeatureCount());
+        // removing an evicted entry doesn't remove the one taking its slot
+        store.remove(tree, type);
+        assertTrue(store.exists(other, type));
+    }
+}
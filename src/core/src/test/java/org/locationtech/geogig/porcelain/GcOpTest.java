@@ -0,0 +1,183 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.porcelain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.plumbing.ChangedPathsFilter;
+import org.locationtech.geogig.plumbing.ChangedPathsIndex;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.locationtech.geogig.transaction.GeogigTransaction;
+import org.locationtech.geogig.transaction.TransactionBegin;
+
+import com.google.common.collect.Iterators;
+
+public class GcOpTest extends RepositoryTestCase {
+
+    private ObjectDatabase objects;
+
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+
+    protected @Override void setUpInternal() throws Exception {
+        testRepository.getPlatform().setTicker(clock::get);
+        objects = repo.context().objectDatabase();
+    }
+
+    /**
+     * Commits {@code lines1} on a branch that's then deleted
+     * 
+     * @return the dangling commit
+     */
+    private RevCommit danglingCommit() throws Exception {
+        repo.command(BranchCreateOp.class).setName("topic").setAutoCheckout(true).call();
+        insertAndAdd(lines1);
+        RevCommit commit = commit("dangling");
+        repo.command(CheckoutOp.class).setSource("master").call();
+        repo.command(BranchDeleteOp.class).setName("topic").call();
+        return commit;
+    }
+
+    @Test
+    public void testNothingToCollect() throws Exception {
+        List<RevCommit> commits = populate(true, points1, points2);
+        GcReport report = repo.command(GcOp.class).setGracePeriod(0).call();
+        assertEquals(report.getUnreachableObjects(), report.getDeletedObjects());
+        assertTrue(report.getReachableObjects() > 0);
+        for (RevCommit c : commits) {
+            assertTrue(objects.exists(c.getId()));
+            assertTrue(objects.exists(c.getTreeId()));
+        }
+        assertTrue(objects.exists(RevFeature.builder().build(points1).getId()));
+        assertTrue(objects.exists(RevFeature.builder().build(points2).getId()));
+    }
+
+    @Test
+    public void testDeletesUnreachable() throws Exception {
+        List<RevCommit> commits = populate(true, points1, points2);
+        RevCommit dangling = danglingCommit();
+        final ObjectId lines1Id = RevFeature.builder().build(lines1).getId();
+
+        GcReport report = repo.command(GcOp.class).setGracePeriod(0).call();
+        assertFalse(report.isDryRun());
+        assertTrue(report.getDeletedObjects() > 0);
+        assertEquals(report.getUnreachableObjects(), report.getDeletedObjects());
+        assertEquals(0, report.getPendingObjects());
+
+        assertFalse(objects.exists(dangling.getId()));
+        assertFalse(objects.exists(dangling.getTreeId()));
+        assertFalse(objects.exists(lines1Id));
+        for (RevCommit c : commits) {
+            assertTrue(objects.exists(c.getId()));
+            assertTrue(objects.exists(c.getTreeId()));
+        }
+        assertEquals(2, Iterators.size(repo.command(LogOp.class).call()));
+    }
+
+    @Test
+    public void testDeletesChangedPathsOfUnreachableCommits() throws Exception {
+        RevCommit reachable = populate(true, points1).get(0);
+        RevCommit dangling = danglingCommit();
+        ChangedPathsIndex index = new ChangedPathsIndex(repo.context().blobStore());
+        ChangedPathsFilter filter = ChangedPathsFilter.of(1, Arrays.asList("Lines"));
+        index.put(reachable.getId(), filter);
+        index.put(dangling.getId(), filter);
+
+        repo.command(GcOp.class).setGracePeriod(0).call();
+        assertFalse(objects.exists(dangling.getId()));
+        assertFalse(index.exists(dangling.getId()));
+        assertTrue(index.exists(reachable.getId()));
+    }
+
+    @Test
+    public void testDryRun() throws Exception {
+        populate(true, points1, points2);
+        RevCommit dangling = danglingCommit();
+
+        GcReport report = repo.command(GcOp.class).setGracePeriod(0).setDryRun(true).call();
+        assertTrue(report.isDryRun());
+        assertTrue(report.getDeletedObjects() > 0);
+        assertTrue(objects.exists(dangling.getId()));
+
+        GcReport actual = repo.command(GcOp.class).setGracePeriod(0).call();
+        assertEquals(report.getDeletedObjects(), actual.getDeletedObjects());
+        assertFalse(objects.exists(dangling.getId()));
+    }
+
+    @Test
+    public void testGracePeriod() throws Exception {
+        populate(true, points1, points2);
+        RevCommit dangling = danglingCommit();
+
+        GcReport report = repo.command(GcOp.class).setGracePeriod(1, TimeUnit.HOURS).call();
+        assertEquals(0, report.getDeletedObjects());
+        final long pending = report.getPendingObjects();
+        assertEquals(report.getUnreachableObjects(), pending);
+        assertTrue(objects.exists(dangling.getId()));
+
+        // still within the grace period of the first run
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(30));
+        report = repo.command(GcOp.class).setGracePeriod(1, TimeUnit.HOURS).call();
+        assertEquals(0, report.getDeletedObjects());
+        assertTrue(objects.exists(dangling.getId()));
+
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(31));
+        report = repo.command(GcOp.class).setGracePeriod(1, TimeUnit.HOURS).call();
+        assertEquals(pending, report.getDeletedObjects());
+        assertEquals(0, report.getPendingObjects());
+        assertFalse(objects.exists(dangling.getId()));
+    }
+
+    @Test
+    public void testObjectsReferencedAfterFirstRunAreKept() throws Exception {
+        populate(true, points1);
+        // written by an operation in progress, not yet referenced by any ref
+        RevFeature inFlight = RevFeature.builder().build(lines1);
+        objects.put(inFlight);
+
+        GcReport report = repo.command(GcOp.class).setGracePeriod(1, TimeUnit.HOURS).call();
+        assertTrue(report.getPendingObjects() > 0);
+
+        insertAndAdd(lines1);
+        commit("lines1");
+
+        clock.addAndGet(TimeUnit.HOURS.toMillis(2));
+        report = repo.command(GcOp.class).setGracePeriod(1, TimeUnit.HOURS).call();
+        assertEquals(0, report.getDeletedObjects());
+        assertTrue(objects.exists(inFlight.getId()));
+    }
+
+    @Test
+    public void testTransactionObjectsAreKept() throws Exception {
+        populate(true, points1);
+        GeogigTransaction tx = repo.command(TransactionBegin.class).call();
+        ObjectId lines1Id = insertAndAdd(tx, lines1);
+        RevCommit txCommit = commit(tx, "lines1");
+
+        GcReport report = repo.command(GcOp.class).setGracePeriod(0).call();
+        assertEquals(0, report.getDeletedObjects());
+        assertTrue(objects.exists(lines1Id));
+        assertTrue(objects.exists(txCommit.getId()));
+
+        tx.commit();
+        assertEquals(txCommit.getId(), repo.command(LogOp.class).call().next().getId());
+    }
+}
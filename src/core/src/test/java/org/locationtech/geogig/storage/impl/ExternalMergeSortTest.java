@@ -0,0 +1,108 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ExternalSortStorage;
+import org.locationtech.geogig.storage.ExternalSortStorageFactory;
+import org.locationtech.geogig.storage.impl.PersistedIterable.StringSerializer;
+
+import com.google.common.collect.Lists;
+
+public class ExternalMergeSortTest {
+
+    @Test
+    public void testInMemory() {
+        test(100, 10);
+    }
+
+    @Test
+    public void testSpilled() {
+        test(10, 1001);
+    }
+
+    @Test
+    public void testEmpty() {
+        test(10, 0);
+    }
+
+    private void test(final int bufferSize, final int entryCount) {
+        List<String> expected = new ArrayList<>();
+        Random rnd = new Random();
+        AtomicBoolean disposed = new AtomicBoolean();
+        ExternalMergeSort<String> sorter = new ExternalMergeSort<>(Comparator.naturalOrder(),
+                new StringSerializer(), bufferSize, () -> storage(disposed));
+        for (int i = 0; i < entryCount; i++) {
+            String s = "s " + rnd.nextInt(entryCount);
+            expected.add(s);
+            sorter.add(s);
+        }
+        assertEquals(entryCount, sorter.size());
+        assertEquals(entryCount / bufferSize, sorter.runs());
+        expected.sort(Comparator.naturalOrder());
+
+        List<String> actual;
+        try (AutoCloseableIterator<String> sorted = sorter.sorted()) {
+            actual = Lists.newArrayList(sorted);
+        }
+        assertEquals(expected, actual);
+        assertEquals(sorter.runs() > 0, disposed.get());
+    }
+
+    private ExternalSortStorage storage(AtomicBoolean disposed) {
+        ExternalSortStorage storage = ExternalSortStorageFactory.defaultInstance().newInstance();
+        return new ExternalSortStorage() {
+            public @Override void put(byte[] key, byte[] value) {
+                storage.put(key, value);
+            }
+
+            public @Override AutoCloseableIterator<byte[]> values(byte[] keyPrefix) {
+                return storage.values(keyPrefix);
+            }
+
+            public @Override void dispose() {
+                disposed.set(true);
+                storage.dispose();
+            }
+        };
+    }
+
+    @Test
+    public void testStable() {
+        // sort by first char only, the rest of the string records the insertion order
+        Comparator<String> firstChar = Comparator.comparing(s -> s.charAt(0));
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(String.format("%s%03d", (char) ('a' + (i % 3)), i));
+        }
+        AutoCloseableIterator<String> sorted = ExternalMergeSort.sort(
+                AutoCloseableIterator.fromIterator(values.iterator()), firstChar,
+                new StringSerializer(), 7);
+
+        List<String> actual = Lists.newArrayList(sorted);
+        sorted.close();
+        List<String> expected = new ArrayList<>(values);
+        expected.sort(firstChar);
+        assertEquals(expected, actual);
+        assertFalse(sorted.hasNext());
+        assertTrue(actual.get(0).startsWith("a000"));
+    }
+}
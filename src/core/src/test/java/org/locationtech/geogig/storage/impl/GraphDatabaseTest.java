@@ -195,6 +195,58 @@ public abstract class GraphDatabaseTest {
         assertEquals(1, database.getDepth(commit11));
     }
 
+    @Test
+    public void testGeneration() {
+        // o - root commit
+        // |\
+        // | o - commit1
+        // | |
+        // o | - commit2
+        // | |
+        // o | - commit3
+        // |/
+        // o - commit4
+        ObjectId rootId = RevObjectTestSupport.hashString("root commit");
+        ObjectId commit1 = RevObjectTestSupport.hashString("commit1");
+        ObjectId commit2 = RevObjectTestSupport.hashString("commit2");
+        ObjectId commit3 = RevObjectTestSupport.hashString("commit3");
+        ObjectId commit4 = RevObjectTestSupport.hashString("commit4");
+        database.put(rootId, ImmutableList.of());
+        database.put(commit1, ImmutableList.of(rootId));
+        database.put(commit2, ImmutableList.of(rootId));
+        database.put(commit3, ImmutableList.of(commit2));
+        database.put(commit4, ImmutableList.of(commit3, commit1));
+
+        assertEquals(1, database.getGeneration(rootId));
+        assertEquals(2, database.getGeneration(commit1));
+        assertEquals(3, database.getGeneration(commit3));
+        assertEquals(4, database.getGeneration(commit4));
+        assertEquals(2, database.getDepth(commit4));
+        assertEquals(GraphDatabase.GENERATION_UNKNOWN,
+                database.getGeneration(RevObjectTestSupport.hashString("missing")));
+
+        database.updateGeneration(commit4);
+        assertEquals(4, database.getGeneration(commit4));
+    }
+
+    @Test
+    public void testGenerationChildrenFirst() {
+        ObjectId rootId = RevObjectTestSupport.hashString("root commit");
+        ObjectId commit1 = RevObjectTestSupport.hashString("commit1");
+        ObjectId commit2 = RevObjectTestSupport.hashString("commit2");
+        database.put(commit2, ImmutableList.of(commit1));
+        database.put(commit1, ImmutableList.of(rootId));
+        // missing ancestors, generation unknown and depth up to the root placeholder
+        assertEquals(GraphDatabase.GENERATION_UNKNOWN, database.getGeneration(commit2));
+        assertEquals(2, database.getDepth(commit2));
+
+        database.put(rootId, ImmutableList.of());
+        assertEquals(1, database.getGeneration(rootId));
+        assertEquals(2, database.getGeneration(commit1));
+        assertEquals(3, database.getGeneration(commit2));
+        assertEquals(2, database.getDepth(commit2));
+    }
+
     @Test
     public void testProperties() throws IOException {
         ObjectId rootId = RevObjectTestSupport.hashString("root");
@@ -0,0 +1,83 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.hashString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+
+public class ObjectIdSetTest {
+
+    private ObjectIdSet set;
+
+    public @Before void before() {
+        set = new ObjectIdSet();
+    }
+
+    public @After void after() {
+        set.close();
+    }
+
+    public @Test void testAddContains() {
+        ObjectId id = hashString("1");
+        assertFalse(set.contains(id));
+        assertTrue(set.add(id));
+        assertFalse(set.add(id));
+        assertTrue(set.contains(id));
+        assertFalse(set.contains(hashString("2")));
+        assertEquals(1, set.size());
+    }
+
+    public @Test void testNullIdIgnored() {
+        assertFalse(set.add(ObjectId.NULL));
+        assertFalse(set.contains(ObjectId.NULL));
+        assertTrue(set.isEmpty());
+    }
+
+    public @Test void testGrow() {
+        final long initialBytes = set.sizeInBytes();
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            ObjectId id = hashString(String.valueOf(i));
+            ids.add(id);
+            assertTrue(set.add(id));
+        }
+        assertEquals(ids.size(), set.size());
+        assertTrue(set.sizeInBytes() > initialBytes);
+        ids.forEach(id -> assertTrue(set.contains(id)));
+        assertFalse(set.contains(hashString("-1")));
+    }
+
+    public @Test void testConcurrentAdd() {
+        final int count = 100_000;
+        // every id is added twice, only one of the calls shall succeed
+        long added = IntStream.range(0, 2 * count).parallel()
+                .filter(i -> set.add(hashString(String.valueOf(i % count)))).count();
+        assertEquals(count, added);
+        assertEquals(count, set.size());
+    }
+
+    public @Test void testClose() {
+        set.add(hashString("1"));
+        set.close();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(hashString("1")));
+    }
+}
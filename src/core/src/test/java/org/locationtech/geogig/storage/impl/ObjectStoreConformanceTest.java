@@ -102,6 +102,14 @@ public abstract class ObjectStoreConformanceTest {
 
     protected abstract ObjectStore createOpen() throws IOException;
 
+    /**
+     * @return whether the store under test can {@link ObjectStore#getAllIds() enumerate} its
+     *         contents, defaults to {@code true}
+     */
+    protected boolean supportsGetAllIds() {
+        return true;
+    }
+
     @Test
     public void testChecksClosed() {
         db.close();
@@ -206,6 +214,24 @@ public abstract class ObjectStoreConformanceTest {
         assertEquals(2, listener.notFound());
     }
 
+    @Test
+    public void testGetAllIds() {
+        ImmutableList<RevObject> objs = ImmutableList.of(feature(0, null, "some value"),
+                feature(1, "value", Integer.valueOf(111)), feature(2, (Object) null));
+        db.putAll(objs.iterator());
+        db.delete(objs.get(1).getId());
+
+        if (!supportsGetAllIds()) {
+            assertThrows(UnsupportedOperationException.class, db::getAllIds);
+            return;
+        }
+        Set<ObjectId> ids;
+        try (AutoCloseableIterator<ObjectId> it = db.getAllIds()) {
+            ids = Sets.newHashSet(it);
+        }
+        assertEquals(Sets.newHashSet(objs.get(0).getId(), objs.get(2).getId()), ids);
+    }
+
     @Test
     public void testExists() {
 
@@ -0,0 +1,31 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV2_2;
+import org.locationtech.geogig.storage.impl.ObjectStoreConformanceTest;
+
+public class PackfileObjectStoreConformanceTest extends ObjectStoreConformanceTest {
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    protected @Override PackfileObjectStore createOpen() throws IOException {
+        File dbdir = folder.newFolder("objects.pack");
+        PackfileObjectStore store = new PackfileObjectStore(dbdir,
+                DataStreamRevObjectSerializerV2_2.INSTANCE, false);
+        store.open();
+        return store;
+    }
+}
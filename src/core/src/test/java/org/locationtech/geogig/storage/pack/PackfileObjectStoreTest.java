@@ -0,0 +1,283 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.pack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
+import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV2_2;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class PackfileObjectStoreTest {
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+
+    private PackfileObjectStore store;
+
+    public @Before void before() throws IOException {
+        dir = folder.newFolder("objects.pack");
+        store = open(false);
+    }
+
+    public @After void after() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private PackfileObjectStore open(boolean readOnly) {
+        // tiny segments, and no background compaction
+        PackConfig config = new PackConfig(dir, readOnly, 4096, Integer.MAX_VALUE);
+        PackfileObjectStore store = new PackfileObjectStore(config,
+                DataStreamRevObjectSerializerV2_2.INSTANCE);
+        store.open();
+        return store;
+    }
+
+    private List<RevFeature> features(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> RevObjectTestSupport.feature("feature-" + i, Integer.valueOf(i)))
+                .collect(Collectors.toList());
+    }
+
+    private PackDirectory packs() {
+        return PackConnectionManager.INSTANCE.acquire(store.config);
+    }
+
+    private void assertContainsAll(List<? extends RevObject> expected) {
+        for (RevObject o : expected) {
+            assertEquals(o, store.get(o.getId()));
+        }
+        Set<ObjectId> ids = expected.stream().map(RevObject::getId).collect(Collectors.toSet());
+        CountingListener listener = BulkOpListener.newCountingListener();
+        Set<RevObject> all = Sets.newHashSet(store.getAll(ids, listener));
+        assertEquals(Sets.newHashSet(expected), all);
+        assertEquals(expected.size(), listener.found());
+        assertEquals(0, listener.notFound());
+    }
+
+    @Test
+    public void testSealsSegments() {
+        List<RevFeature> features = features(500);
+        store.putAll(features.iterator());
+        PackDirectory packs = packs();
+        try {
+            assertTrue(packs.sealedSegments().size() > 1);
+        } finally {
+            PackConnectionManager.INSTANCE.release(packs);
+        }
+        assertContainsAll(features);
+    }
+
+    @Test
+    public void testReopen() {
+        List<RevFeature> features = features(500);
+        store.putAll(features.iterator());
+        store.delete(features.get(0).getId());
+        store.close();
+
+        store = open(false);
+        assertFalse(store.exists(features.get(0).getId()));
+        assertContainsAll(features.subList(1, features.size()));
+        assertFalse(store.put(features.get(1)));
+    }
+
+    @Test
+    public void testDeleteShadowsOlderSegments() {
+        List<RevFeature> features = features(500);
+        store.putAll(features.iterator());
+        RevFeature first = features.get(0);
+        store.delete(first.getId());
+        assertFalse(store.exists(first.getId()));
+        assertNull(store.getIfPresent(first.getId()));
+        assertTrue(store.lookUp(first.getId().toString().substring(0, 10)).isEmpty());
+
+        assertTrue(store.put(first));
+        assertEquals(first, store.get(first.getId()));
+    }
+
+    @Test
+    public void testCompact() {
+        List<RevFeature> features = features(1000);
+        store.putAll(features.iterator());
+        List<RevFeature> deleted = features.subList(0, 100);
+        store.deleteAll(Lists.transform(deleted, RevObject::getId).iterator());
+
+        assertTrue(store.compact());
+
+        PackDirectory packs = packs();
+        try {
+            List<PackSegment> segments = packs.sealedSegments();
+            assertEquals(1, segments.size());
+            // deleted objects and their tombstones are gone
+            assertEquals(900, segments.get(0).getCount());
+        } finally {
+            PackConnectionManager.INSTANCE.release(packs);
+        }
+        List<RevFeature> live = features.subList(100, features.size());
+        assertContainsAll(live);
+        for (RevFeature f : deleted) {
+            assertFalse(store.exists(f.getId()));
+        }
+        store.close();
+        assertEquals(2, dir.list((d, name) -> name.startsWith("pack-")).length);
+
+        store = open(false);
+        assertContainsAll(live);
+    }
+
+    @Test
+    public void testCompactionSchedulerFromHints() {
+        store.close();
+        Hints hints = new Hints();
+        hints.set(WorkClass.STORAGE_IO.hintKey(), Integer.valueOf(7));
+        PackConfig config = new PackConfig(dir, false, 4096, 2);
+        store = new PackfileObjectStore(config, DataStreamRevObjectSerializerV2_2.INSTANCE,
+                hints);
+        store.open();
+        final GeogigScheduler scheduler = GeogigScheduler.get(hints);
+        final ExecutorService storageExecutor = scheduler.executor(WorkClass.STORAGE_IO);
+
+        List<RevFeature> features = features(1000);
+        store.putAll(features.iterator());
+        assertContainsAll(features);
+        // retained by the pack directory while open
+        assertSame(scheduler, GeogigScheduler.get(hints));
+
+        store.close();
+        store = null;
+        assertNotSame(scheduler, GeogigScheduler.get(hints));
+        assertTrue(storageExecutor.isShutdown());
+    }
+
+    @Test
+    public void testTruncatedRecordIsDiscarded() throws IOException {
+        List<RevFeature> features = features(10);
+        store.putAll(features.iterator());
+        store.close();
+        store = null;
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".pack"));
+        assertEquals(1, files.length);
+        try (RandomAccessFile file = new RandomAccessFile(files[0], "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        store = open(false);
+        // the last record written is lost, the rest are recovered
+        List<RevFeature> missing = features.stream().filter(f -> !store.exists(f.getId()))
+                .collect(Collectors.toList());
+        assertEquals(1, missing.size());
+        RevFeature lost = missing.get(0);
+        assertTrue(store.put(lost));
+        assertContainsAll(features);
+    }
+
+    /**
+     * Objects already written must be found while the active segment is being sealed
+     */
+    @Test
+    public void testReadWhileSealing() throws Exception {
+        final List<RevFeature> features = features(2000);
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            for (int r = 0; r < 4; r++) {
+                readers.submit(() -> {
+                    Random random = new Random();
+                    try {
+                        while (!done.get()) {
+                            int count = written.get();
+                            if (count == 0) {
+                                continue;
+                            }
+                            RevFeature f = features.get(random.nextInt(count));
+                            assertTrue(store.exists(f.getId()));
+                            assertEquals(f, store.get(f.getId()));
+                            List<RevFeature> batch = features.subList(Math.max(0, count - 10),
+                                    count);
+                            Set<ObjectId> ids = batch.stream().map(RevObject::getId)
+                                    .collect(Collectors.toSet());
+                            assertEquals(Sets.newHashSet(batch),
+                                    Sets.newHashSet(store.getAll(ids)));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+            for (RevFeature f : features) {
+                store.put(f);
+                written.incrementAndGet();
+            }
+        } finally {
+            done.set(true);
+            readers.shutdown();
+            assertTrue(readers.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        PackDirectory packs = packs();
+        try {
+            assertTrue(packs.sealedSegments().size() > 1);
+        } finally {
+            PackConnectionManager.INSTANCE.release(packs);
+        }
+    }
+
+    @Test
+    public void testReadOnly() {
+        List<RevFeature> features = features(500);
+        store.putAll(features.iterator());
+        store.close();
+
+        store = open(true);
+        assertContainsAll(features);
+    }
+}
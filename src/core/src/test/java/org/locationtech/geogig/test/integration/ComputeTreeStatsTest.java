@@ -0,0 +1,144 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.test.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.CanonicalNodeNameOrder;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+import org.locationtech.geogig.plumbing.FindFeatureTypeTrees;
+import org.locationtech.geogig.plumbing.stats.AttributeStats;
+import org.locationtech.geogig.plumbing.stats.ComputeTreeStats;
+import org.locationtech.geogig.plumbing.stats.Histogram;
+import org.locationtech.geogig.plumbing.stats.TreeStats;
+import org.locationtech.geogig.plumbing.stats.TreeStatsStore;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.jts.geom.Envelope;
+
+public class ComputeTreeStatsTest extends RepositoryTestCase {
+
+    private TreeStatsStore store;
+
+    protected @Override void setUpInternal() throws Exception {
+        store = new TreeStatsStore(repo.context().blobStore());
+    }
+
+    private NodeRef pointsTree() {
+        return repo.command(FindFeatureTypeTrees.class).setRootTreeRef("HEAD").call().stream()
+                .filter(r -> r.path().equals(pointsName)).findFirst().get();
+    }
+
+    private TreeStats stats(NodeRef tree) {
+        return repo.command(ComputeTreeStats.class).setTree(tree).call();
+    }
+
+    @Test
+    public void testLeafTree() throws Exception {
+        insertAndAdd(points1, points2, points3);
+        repo.command(CommitOp.class).setMessage("points").call();
+        final NodeRef tree = pointsTree();
+        assertNull(repo.command(ComputeTreeStats.class).setTree(tree).setCachedOnly(true).call());
+
+        TreeStats stats = stats(tree);
+        assertTrue(store.exists(tree.getObjectId(), tree.getMetadataId()));
+        assertEquals(3, stats.getFeatureCount());
+        assertEquals(new Envelope(1, 3, 1, 3), stats.getBounds().get());
+
+        AttributeStats ip = stats.getAttribute("ip").get();
+        assertEquals(0, ip.getNullCount());
+        assertEquals(3, ip.getValueCount());
+        assertEquals(Integer.valueOf(1000), ip.getMin().get());
+        assertEquals(Integer.valueOf(3000), ip.getMax().get());
+        long distinct = ip.distinctCount().get().longValue();
+        assertTrue("distinct: " + distinct, distinct > 1 && distinct <= 3);
+
+        AttributeStats sp = stats.getAttribute("sp").get();
+        assertEquals("StringProp1_1", sp.getMin().get());
+        assertEquals("StringProp1_3", sp.getMax().get());
+
+        AttributeStats pp = stats.getAttribute("pp").get();
+        assertEquals(3, pp.getValueCount());
+        assertFalse(pp.getMin().isPresent());
+        assertFalse(pp.distinctCount().isPresent());
+
+        TreeStats decoded = TreeStats.decode(stats.encode());
+        assertEquals(stats.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testBucketsTree() throws Exception {
+        final int size = 2 * CanonicalNodeNameOrder.normalizedSizeLimit(0);
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Integer value = i % 10 == 0 ? null : Integer.valueOf(i);
+            features.add(feature(pointsType, "p" + i, "value " + i, value,
+                    String.format("POINT(%d %d)", i, i)));
+        }
+        insertAndAdd(features.toArray(new Feature[size]));
+        repo.command(CommitOp.class).setMessage("points").call();
+        final NodeRef tree = pointsTree();
+        assertTrue(repo.context().objectDatabase().getTree(tree.getObjectId()).bucketsSize() > 0);
+
+        TreeStats stats = stats(tree);
+        assertEquals(size, stats.getFeatureCount());
+        assertEquals(new Envelope(0, size - 1, 0, size - 1), stats.getBounds().get());
+
+        AttributeStats ip = stats.getAttribute("ip").get();
+        assertEquals(size / 10, ip.getNullCount());
+        assertEquals(size - size / 10, ip.getValueCount());
+        assertEquals(Integer.valueOf(1), ip.getMin().get());
+        assertEquals(Integer.valueOf(size - 1), ip.getMax().get());
+
+        long distinct = ip.distinctCount().get();
+        assertTrue("distinct: " + distinct, Math.abs(distinct - ip.getValueCount()) < size / 10);
+
+        Histogram histogram = ip.getHistogram().get();
+        assertEquals(ip.getValueCount(), histogram.count());
+        // about half of the values are lower than size / 2
+        double lowerHalf = histogram.estimate(AttributeIndexKey.key(0).longValue(),
+                AttributeIndexKey.key(size / 2).longValue());
+        assertEquals(ip.getValueCount() / 2d, lowerHalf, size / 10d);
+    }
+
+    @Test
+    public void testUpdatedByCommitHook() throws Exception {
+        insertAndAdd(points1, points2);
+        repo.command(CommitOp.class).setMessage("points").call();
+        stats(pointsTree());
+
+        insertAndAdd(points3, points1_modified);
+        repo.command(CommitOp.class).setMessage("more points").call();
+        final NodeRef tree = pointsTree();
+        TreeStats stats = repo.command(ComputeTreeStats.class).setTree(tree).setCachedOnly(true)
+                .call();
+        assertEquals(3, stats.getFeatureCount());
+        assertEquals(Integer.valueOf(1001), stats.getAttribute("ip").get().getMin().get());
+        assertEquals(Integer.valueOf(3000), stats.getAttribute("ip").get().getMax().get());
+    }
+
+    @Test
+    public void testNotMaintainedUnlessRequested() throws Exception {
+        insertAndAdd(points1, points2);
+        repo.command(CommitOp.class).setMessage("points").call();
+        insertAndAdd(points3);
+        repo.command(CommitOp.class).setMessage("more points").call();
+        NodeRef tree = pointsTree();
+        assertFalse(store.exists(tree.getObjectId(), tree.getMetadataId()));
+    }
+}
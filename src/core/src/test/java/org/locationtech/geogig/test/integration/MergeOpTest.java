@@ -935,6 +935,64 @@ public class MergeOpTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testMergeConflictingBranchesStreaming() throws Exception {
+        // Create the following revision graph
+        // o
+        // |
+        // o - Points 1,2 added
+        // |\
+        // | o - TestBranch - Points 1 modifiedB, 2 removed, 3 added
+        // |
+        // o - master - HEAD - Points 1 modified, 2 removed
+        insertAndAdd(points1, points2);
+        repo.command(CommitOp.class).call();
+        repo.command(BranchCreateOp.class).setName("TestBranch").call();
+        Feature points1Modified = feature(pointsType, idP1, "StringProp1_2", Integer.valueOf(1000),
+                "POINT(1 1)");
+        insert(points1Modified);
+        delete(points2);
+        repo.command(AddOp.class).call();
+        RevCommit masterCommit = repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("TestBranch").call();
+        Feature points1ModifiedB = feature(pointsType, idP1, "StringProp1_3", Integer.valueOf(2000),
+                "POINT(1 1)");
+        insert(points1ModifiedB, points3);
+        delete(points2);
+        repo.command(AddOp.class).call();
+        repo.command(CommitOp.class).call();
+        repo.command(CheckoutOp.class).setSource("master").call();
+        Ref branch = repo.command(RefParse.class).setName("TestBranch").call().get();
+        try {
+            repo.command(MergeOp.class).addCommit(branch.getObjectId()).setStreaming(true).call();
+            fail();
+        } catch (MergeConflictsException e) {
+            assertTrue(e.getMessage().contains("conflict"));
+        }
+
+        Optional<Ref> ref = repo.command(RefParse.class).setName(Ref.ORIG_HEAD).call();
+        assertTrue(ref.isPresent());
+        assertEquals(masterCommit.getId(), ref.get().getObjectId());
+        String msg = repo.command(ReadMergeCommitMessageOp.class).call();
+        assertTrue(msg.contains(idP1));
+
+        List<Conflict> conflicts = Lists.newArrayList(repo.command(ConflictsQueryOp.class).call());
+        assertEquals(1, conflicts.size());
+        String path = NodeRef.appendChild(pointsName, idP1);
+        assertEquals(path, conflicts.get(0).getPath());
+
+        // the unconflicted change is staged, the conflicting feature keeps our version
+        Optional<RevFeature> revFeature = repo.command(RevObjectParse.class)
+                .setRefSpec(Ref.STAGE_HEAD + ":" + NodeRef.appendChild(pointsName, idP3))
+                .call(RevFeature.class);
+        assertTrue(revFeature.isPresent());
+        revFeature = repo.command(RevObjectParse.class).setRefSpec(Ref.STAGE_HEAD + ":" + path)
+                .call(RevFeature.class);
+        assertEquals(RevFeature.builder().build(points1Modified), revFeature.get());
+        assertEquals(repo.context().stagingArea().getTree(),
+                repo.context().workingTree().getTree());
+    }
+
     @Test
     public void testConflictingOctopusMerge() throws Exception {
         // Create the following revision graph
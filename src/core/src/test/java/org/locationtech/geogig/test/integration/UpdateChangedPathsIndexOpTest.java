@@ -0,0 +1,211 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.test.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.ChangedPathsFilter;
+import org.locationtech.geogig.plumbing.ChangedPathsIndex;
+import org.locationtech.geogig.plumbing.UpdateChangedPathsIndexOp;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CheckoutOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.porcelain.LogOp;
+import org.locationtech.geogig.porcelain.MergeOp;
+
+import com.google.common.collect.Lists;
+
+public class UpdateChangedPathsIndexOpTest extends RepositoryTestCase {
+
+    private ChangedPathsIndex index;
+
+    protected @Override void setUpInternal() throws Exception {
+        index = new ChangedPathsIndex(repo.context().blobStore());
+    }
+
+    private List<RevCommit> commit(Feature... features) throws Exception {
+        List<RevCommit> commits = new ArrayList<>();
+        for (Feature f : features) {
+            insertAndAdd(f);
+            commits.add(repo.command(CommitOp.class).setMessage(f.getId()).call());
+        }
+        return commits;
+    }
+
+    @Test
+    public void testFilter() {
+        String path = NodeRef.appendChild(pointsName, idP1);
+        ChangedPathsFilter filter = ChangedPathsFilter.of(3, Arrays.asList(path));
+        assertEquals(3, filter.generation());
+        assertTrue(filter.isFiltered());
+        assertTrue(filter.mightContain(path));
+        assertTrue(filter.mightContain(pointsName));
+
+        ChangedPathsFilter decoded = ChangedPathsFilter.decode(filter.encode());
+        assertEquals(3, decoded.generation());
+        assertTrue(decoded.mightContain(path));
+        assertTrue(decoded.mightContain(pointsName));
+        assertEquals(filter.mightContain(linesName), decoded.mightContain(linesName));
+
+        ChangedPathsFilter unfiltered = ChangedPathsFilter.decode(
+                ChangedPathsFilter.unfiltered(ChangedPathsFilter.GENERATION_UNKNOWN).encode());
+        assertFalse(unfiltered.isFiltered());
+        assertTrue(unfiltered.mightContain(linesName));
+    }
+
+    @Test
+    public void testTooManyChangedPaths() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i <= ChangedPathsFilter.MAX_CHANGED_PATHS; i++) {
+            paths.add(NodeRef.appendChild(pointsName, String.valueOf(i)));
+        }
+        ChangedPathsFilter filter = ChangedPathsFilter.of(1, paths);
+        assertFalse(filter.isFiltered());
+        assertTrue(filter.mightContain(linesName));
+    }
+
+    @Test
+    public void testUpdatedByCommitHook() throws Exception {
+        List<RevCommit> commits = commit(points1, lines1, points2);
+        for (int i = 0; i < commits.size(); i++) {
+            ChangedPathsFilter filter = index.get(commits.get(i).getId()).get();
+            assertEquals(i + 1, filter.generation());
+        }
+        ChangedPathsFilter lines1Filter = index.get(commits.get(1).getId()).get();
+        assertTrue(lines1Filter.mightContain(NodeRef.appendChild(linesName, idL1)));
+        assertTrue(lines1Filter.mightContain(linesName));
+        assertFalse(lines1Filter.mightContain(NodeRef.appendChild(pointsName, idP1)));
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        List<RevCommit> commits = commit(points1, lines1, points2, lines2);
+        final RevCommit tip = commits.get(3);
+        assertEquals(0, repo.command(UpdateChangedPathsIndexOp.class).setTip(tip.getId()).call()
+                .intValue());
+
+        index.remove(commits.get(2).getId());
+        index.remove(commits.get(3).getId());
+        assertEquals(2, repo.command(UpdateChangedPathsIndexOp.class).setTip(tip.getId()).call()
+                .intValue());
+        assertEquals(4, index.get(tip.getId()).get().generation());
+
+        commits.forEach(c -> index.remove(c.getId()));
+        assertEquals(2, repo.command(UpdateChangedPathsIndexOp.class).setTip(tip.getId())
+                .setMaxCommits(2).call().intValue());
+        assertFalse(index.exists(commits.get(0).getId()));
+        assertTrue(index.exists(tip.getId()));
+        // generation numbers come from the commit graph, regardless of the missing ancestors
+        assertEquals(4, index.get(tip.getId()).get().generation());
+        assertEquals(Arrays.asList(commits.get(1).getId()), index.getFrontier());
+    }
+
+    @Test
+    public void testCappedRunsIndexFullHistory() throws Exception {
+        List<RevCommit> commits = commit(points1, lines1, points2, lines2, points3);
+        final RevCommit tip = commits.get(4);
+        commits.forEach(c -> index.remove(c.getId()));
+
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            counts.add(repo.command(UpdateChangedPathsIndexOp.class).setTip(tip.getId())
+                    .setMaxCommits(2).call());
+        }
+        assertEquals(Arrays.asList(2, 2, 1, 0), counts);
+        assertTrue(index.getFrontier().isEmpty());
+        for (int i = 0; i < commits.size(); i++) {
+            assertEquals(i + 1, index.get(commits.get(i).getId()).get().generation());
+        }
+    }
+
+    @Test
+    public void testLargeUpdateIndexedInTheBackground() throws Exception {
+        List<RevCommit> commits = commit(points1);
+        for (int i = 0; i < 40; i++) {
+            commits.add(repo.command(CommitOp.class).setAllowEmpty(true).setMessage("empty " + i)
+                    .call());
+        }
+        commits.forEach(c -> index.remove(c.getId()));
+
+        // more commits than the hook indexes while updating the branch
+        RevCommit newTip = commit(lines1).get(0);
+        assertTrue(index.exists(newTip.getId()));
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (!index.exists(commits.get(0).getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        commits.forEach(c -> assertTrue(index.exists(c.getId())));
+        assertEquals(1, index.get(commits.get(0).getId()).get().generation());
+    }
+
+    @Test
+    public void testFrontierResumedFromNewTip() throws Exception {
+        List<RevCommit> commits = commit(points1, lines1, points2);
+        commits.forEach(c -> index.remove(c.getId()));
+        assertEquals(1, repo.command(UpdateChangedPathsIndexOp.class)
+                .setTip(commits.get(2).getId()).setMaxCommits(1).call().intValue());
+
+        assertEquals(Arrays.asList(commits.get(1).getId()), index.getFrontier());
+
+        // the commit hook indexes the new commit and resumes from the previous run's frontier
+        RevCommit newTip = commit(lines2).get(0);
+        assertTrue(index.exists(newTip.getId()));
+        commits.forEach(c -> assertTrue(index.exists(c.getId())));
+        assertEquals(3, index.get(commits.get(2).getId()).get().generation());
+        assertTrue(index.getFrontier().isEmpty());
+    }
+
+    @Test
+    public void testMergeCommit() throws Exception {
+        commit(points1);
+        repo.command(BranchCreateOp.class).setAutoCheckout(true).setName("branch1").call();
+        RevCommit branchCommit = commit(lines1).get(0);
+        repo.command(CheckoutOp.class).setSource("master").call();
+        RevCommit masterCommit = commit(points2).get(0);
+        RevCommit mergeCommit = repo.command(MergeOp.class).addCommit(branchCommit.getId()).call()
+                .getMergeCommit();
+
+        ChangedPathsFilter filter = index.get(mergeCommit.getId()).get();
+        assertEquals(3, filter.generation());
+        // changed with respect to the first parent
+        assertTrue(filter.mightContain(NodeRef.appendChild(linesName, idL1)));
+        // changed with respect to the second parent
+        assertTrue(filter.mightContain(NodeRef.appendChild(pointsName, idP2)));
+        assertEquals(2, index.get(masterCommit.getId()).get().generation());
+    }
+
+    @Test
+    public void testLogSameResultsWithAndWithoutIndex() throws Exception {
+        List<RevCommit> commits = commit(points1, lines1, points2, lines2, points3, lines3);
+        String pointPath = NodeRef.appendChild(pointsName, idP2);
+        List<RevCommit> indexed = Lists
+                .newArrayList(repo.command(LogOp.class).addPath(pointPath).call());
+        List<RevCommit> typeIndexed = Lists
+                .newArrayList(repo.command(LogOp.class).addPath(linesName).call());
+
+        commits.forEach(c -> index.remove(c.getId()));
+        assertEquals(indexed,
+                Lists.newArrayList(repo.command(LogOp.class).addPath(pointPath).call()));
+        assertEquals(typeIndexed,
+                Lists.newArrayList(repo.command(LogOp.class).addPath(linesName).call()));
+        assertEquals(Arrays.asList(commits.get(2)), indexed);
+        assertEquals(3, typeIndexed.size());
+    }
+}
@@ -0,0 +1,114 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.arrow.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.arrow.porcelain.ArrowExportOp;
+import org.locationtech.geogig.arrow.porcelain.ArrowExportOp.Format;
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.CommandFailedException;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.cli.InvalidParameterException;
+import org.locationtech.geogig.cli.annotation.ReadOnly;
+import org.locationtech.geogig.cli.annotation.RequiresRepository;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.base.Splitter;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Exports a feature tree to an Apache Arrow IPC file.
+ *
+ * @see ArrowExportOp
+ */
+@ReadOnly
+@RequiresRepository(true)
+@Command(name = "arrow-export", description = "Export a feature tree to an Apache Arrow IPC file")
+public class ArrowExport extends AbstractCommand implements CLICommand {
+
+    @Parameters(description = "<[tree-ish:]path> <file>", arity = "2")
+    public List<String> args = new ArrayList<>();
+
+    @Option(names = { "--overwrite", "-o" }, description = "Overwrite output file")
+    public boolean overwrite;
+
+    @Option(names = "--attributes", split = ",", description = "Comma separated list of attributes to export. Defaults to all.")
+    public List<String> attributes;
+
+    @Option(names = "--bbox", description = "Export only features intersecting the <minx,miny,maxx,maxy> bounding box, in the native CRS")
+    @Nullable
+    public String bbox;
+
+    @Option(names = "--batch-size", description = "Maximum number of features per record batch. Default: "
+            + ArrowExportOp.DEFAULT_BATCH_SIZE)
+    public int batchSize = ArrowExportOp.DEFAULT_BATCH_SIZE;
+
+    @Option(names = "--stream", description = "Use the Arrow IPC streaming format instead of the file format")
+    public boolean stream;
+
+    @Option(names = "--no-ids", description = "Do not export the feature ids")
+    public boolean noIds;
+
+    protected @Override void runInternal(GeogigCLI cli)
+            throws InvalidParameterException, CommandFailedException, IOException {
+
+        final String path = args.get(0);
+        File file = new File(args.get(1));
+        if (!file.isAbsolute()) {
+            file = new File(cli.getGeogig().getPlatform().pwd(), file.getPath());
+        }
+        if (file.exists() && !overwrite) {
+            throw new CommandFailedException("The output file already exists. Use -o to overwrite");
+        }
+        checkParameter(batchSize > 0, "--batch-size must be > 0");
+
+        ArrowExportOp op = cli.getGeogig().command(ArrowExportOp.class).setPath(path)
+                .setOutput(file).setAttributes(attributes).setBounds(parseBounds(bbox))
+                .setBatchSize(batchSize).setFormat(stream ? Format.STREAM : Format.FILE)
+                .setIncludeIds(!noIds);
+        final long count;
+        try {
+            count = op.setProgressListener(cli.getProgressListener()).call();
+        } catch (IllegalArgumentException e) {
+            file.delete();
+            throw new InvalidParameterException(e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            file.delete();
+            throw new CommandFailedException(e.getMessage(), e);
+        }
+        cli.getConsole().println(String.format("%,d features exported to %s", count, file));
+    }
+
+    private @Nullable Envelope parseBounds(@Nullable String bbox) {
+        if (bbox == null) {
+            return null;
+        }
+        List<String> ords = Splitter.on(',').trimResults().splitToList(bbox);
+        checkParameter(ords.size() == 4, "--bbox shall be <minx,miny,maxx,maxy>: %s", bbox);
+        try {
+            double minx = Double.parseDouble(ords.get(0));
+            double miny = Double.parseDouble(ords.get(1));
+            double maxx = Double.parseDouble(ords.get(2));
+            double maxy = Double.parseDouble(ords.get(3));
+            return new Envelope(minx, maxx, miny, maxy);
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException("Invalid --bbox: " + bbox, e);
+        }
+    }
+}
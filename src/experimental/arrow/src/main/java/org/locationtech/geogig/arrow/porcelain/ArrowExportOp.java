@@ -0,0 +1,291 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.arrow.porcelain;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowWriter;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
+import org.locationtech.geogig.data.retrieve.FeatureBatch;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.jts.geom.Envelope;
+
+import lombok.NonNull;
+
+/**
+ * Exports the features of a feature tree at any tree-ish to an Apache Arrow IPC file or stream.
+ * <p>
+ * Unlike {@code ExportOp}, no intermediate GeoTools {@code SimpleFeature}s are created. Features
+ * are fetched and decoded in {@link FeatureBatch batches} of {@link #setBatchSize batchSize}
+ * features by the {@link BulkFeatureRetriever}, decoding only the {@link #setAttributes
+ * requested attributes}, and each batch is copied column-wise to the vectors of an Arrow record
+ * batch, whose buffers are reused for all batches. Geometries are encoded as WKB in a
+ * {@code geoarrow.wkb} column, see {@link FeatureBatchWriter} for the complete type mapping.
+ * <p>
+ * Only features of the tree's default feature type can be exported, since all record batches
+ * share the same schema.
+ * <p>
+ * The result is the number of exported features.
+ */
+public class ArrowExportOp extends AbstractGeoGigOp<Long> {
+
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    /**
+     * Schema metadata key for the name of the exported feature type
+     */
+    public static final String TYPE_NAME_KEY = "geogig:typeName";
+
+    /**
+     * Schema metadata key for the tree-ish path the features were exported from
+     */
+    public static final String PATH_KEY = "geogig:path";
+
+    public static enum Format {
+        /**
+         * Arrow IPC file format, supports random access to the record batches
+         */
+        FILE,
+        /**
+         * Arrow IPC streaming format
+         */
+        STREAM
+    }
+
+    private String path;
+
+    private File outputFile;
+
+    private OutputStream outputStream;
+
+    private List<String> attributes;
+
+    private Envelope bounds;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private Format format = Format.FILE;
+
+    private boolean includeIds = true;
+
+    /**
+     * @param path the path of the feature tree to export, supports the {@code [tree-ish]:[path]}
+     *        syntax, {@code WORK_HEAD} being the tree-ish if not provided
+     */
+    public ArrowExportOp setPath(@NonNull String path) {
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * @param file the file to write to, overwritten if it exists
+     */
+    public ArrowExportOp setOutput(@NonNull File file) {
+        this.outputFile = file;
+        this.outputStream = null;
+        return this;
+    }
+
+    /**
+     * @param out the stream to write to, it's closed once the export finishes
+     */
+    public ArrowExportOp setOutput(@NonNull OutputStream out) {
+        this.outputStream = out;
+        this.outputFile = null;
+        return this;
+    }
+
+    /**
+     * @param attributes the names of the attributes to export, in the order they shall be
+     *        exported, or {@code null} for all the attributes in their native order
+     */
+    public ArrowExportOp setAttributes(@Nullable List<String> attributes) {
+        this.attributes = attributes;
+        return this;
+    }
+
+    /**
+     * @param bounds if provided, only features whose bounds intersect it are exported. It must be
+     *        in the native CRS of the features
+     */
+    public ArrowExportOp setBounds(@Nullable Envelope bounds) {
+        this.bounds = bounds;
+        return this;
+    }
+
+    /**
+     * @param batchSize the maximum number of features in each Arrow record batch
+     */
+    public ArrowExportOp setBatchSize(int batchSize) {
+        checkArgument(batchSize > 0, "batchSize must be > 0: %s", batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public ArrowExportOp setFormat(@NonNull Format format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * @param includeIds whether to export the feature ids as the first, {@code @id} column,
+     *        defaults to {@code true}
+     */
+    public ArrowExportOp setIncludeIds(boolean includeIds) {
+        this.includeIds = includeIds;
+        return this;
+    }
+
+    protected @Override Long _call() {
+        checkArgument(path != null, "path not provided");
+        checkArgument(outputFile != null || outputStream != null, "output not provided");
+
+        final String refspec = path.contains(":") ? path : "WORK_HEAD:" + path;
+        final ObjectDatabase db = objectDatabase();
+        final NodeRef typeTreeRef = resolveTypeTree(refspec);
+        final RevTree typeTree = db.getTree(typeTreeRef.getObjectId());
+        final ObjectId metadataId = typeTreeRef.getMetadataId();
+        final RevFeatureType revType = db.getFeatureType(metadataId);
+        final FeatureType type = revType.type();
+        final int[] projection = resolveProjection(type);
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(TYPE_NAME_KEY, type.getTypeName());
+        metadata.put(PATH_KEY, refspec);
+        final Schema schema = FeatureBatchWriter.schema(type, projection, includeIds, metadata);
+        final FeatureBatchWriter batchWriter = new FeatureBatchWriter(type, projection,
+                includeIds);
+
+        final ProgressListener progress = getProgressListener();
+        progress.setMaxProgress(typeTree.size());
+        progress.setProgress(0);
+
+        long count = 0;
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+                VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+                ArrowWriter writer = createWriter(root);
+                AutoCloseableIterator<FeatureBatch> batches = batches(typeTree, revType,
+                        projection)) {
+
+            root.allocateNew();
+            writer.start();
+            while (batches.hasNext() && !progress.isCanceled()) {
+                FeatureBatch batch = batches.next();
+                batchWriter.write(batch, root);
+                writer.writeBatch();
+                count += batch.size();
+                progress.setProgress(count);
+            }
+            writer.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        progress.complete();
+        return count;
+    }
+
+    private NodeRef resolveTypeTree(String refspec) {
+        final String treeish = refspec.substring(0, refspec.indexOf(':'));
+        final String treePath = refspec.substring(refspec.indexOf(':') + 1);
+        Optional<ObjectId> rootTreeId = command(ResolveTreeish.class).setTreeish(treeish).call();
+        checkArgument(rootTreeId.isPresent(), "Invalid tree spec: %s", treeish);
+
+        RevTree rootTree = objectDatabase().getTree(rootTreeId.get());
+        Optional<NodeRef> typeTreeRef = command(FindTreeChild.class).setParent(rootTree)
+                .setChildPath(treePath).call();
+        checkArgument(typeTreeRef.isPresent(), "Type tree %s does not exist", refspec);
+        checkArgument(TYPE.TREE.equals(typeTreeRef.get().getType()),
+                "%s did not resolve to a tree", refspec);
+        checkArgument(!typeTreeRef.get().getMetadataId().isNull(),
+                "%s has no default feature type", refspec);
+        return typeTreeRef.get();
+    }
+
+    private int[] resolveProjection(FeatureType type) {
+        if (attributes == null) {
+            int[] all = new int[type.getSize()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        checkArgument(!attributes.isEmpty() || includeIds, "No attributes to export");
+        int[] projection = new int[attributes.size()];
+        for (int i = 0; i < projection.length; i++) {
+            // throws IllegalArgumentException if there's no such attribute
+            projection[i] = type.getAttributeIndex(attributes.get(i));
+        }
+        return projection;
+    }
+
+    private ArrowWriter createWriter(VectorSchemaRoot root) throws IOException {
+        OutputStream out = outputStream == null ? new FileOutputStream(outputFile)
+                : outputStream;
+        if (Format.STREAM == format) {
+            return new ArrowStreamWriter(root, null, out);
+        }
+        return new ArrowFileWriter(root, null, Channels.newChannel(out));
+    }
+
+    private AutoCloseableIterator<FeatureBatch> batches(RevTree typeTree, RevFeatureType revType,
+            int[] projection) {
+
+        final ObjectDatabase db = objectDatabase();
+        final ObjectId metadataId = revType.getId();
+        DepthTreeIterator nodes = new DepthTreeIterator("", metadataId, typeTree, db,
+                Strategy.FEATURES_ONLY);
+        if (bounds != null && !bounds.isNull()) {
+            final Envelope filter = new Envelope(bounds);
+            nodes.setBoundsFilter(b -> b.intersects(filter));
+        }
+        AutoCloseableIterator<NodeRef> refs = AutoCloseableIterator.transform(
+                AutoCloseableIterator.fromIterator(nodes), ref -> {
+                    checkState(metadataId.equals(ref.getMetadataId()),
+                            "Feature %s is not of the tree's default feature type. "
+                                    + "Exporting mixed feature types is not supported",
+                            ref.path());
+                    return ref;
+                });
+        return new BulkFeatureRetriever(db).getFeatureBatches(refs, revType, projection,
+                batchSize, null);
+    }
+}
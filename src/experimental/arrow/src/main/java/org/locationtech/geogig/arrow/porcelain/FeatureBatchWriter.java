@@ -0,0 +1,243 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.arrow.porcelain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.crs.CoordinateReferenceSystem;
+import org.locationtech.geogig.data.retrieve.FeatureBatch;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.model.FieldType;
+import org.locationtech.geogig.storage.text.TextValueSerializer;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+
+import lombok.NonNull;
+
+/**
+ * Copies the column values of {@link FeatureBatch feature batches} to the {@link FieldVector
+ * vectors} of a {@link VectorSchemaRoot} whose {@link #schema schema} is derived from the
+ * {@link FeatureType} of the features.
+ * <p>
+ * Attribute bindings map to Arrow types as follows:
+ * <ul>
+ * <li>{@code Boolean}: {@code Bool}
+ * <li>{@code Byte}, {@code Short}, {@code Integer}, {@code Long}: signed {@code Int} of 8, 16, 32,
+ * and 64 bits
+ * <li>{@code Float}, {@code Double}: single and double precision {@code FloatingPoint}
+ * <li>{@code java.util.Date}, {@code java.sql.Timestamp}: millisecond {@code Timestamp}
+ * <li>{@code java.sql.Date}: millisecond {@code Date}
+ * <li>{@code java.sql.Time}: millisecond {@code Time}
+ * <li>{@code byte[]}: {@code Binary}
+ * <li>{@code Geometry}: {@code Binary} holding the 2D WKB encoded geometry, tagged as a
+ * {@code geoarrow.wkb} extension type whose metadata carries the CRS identifier
+ * <li>any other binding: {@code Utf8}, holding the value's text representation
+ * </ul>
+ */
+class FeatureBatchWriter {
+
+    /**
+     * Name of the column holding the feature ids, if requested
+     */
+    static final String ID_COLUMN = "@id";
+
+    static final String EXTENSION_NAME_KEY = "ARROW:extension:name";
+
+    static final String EXTENSION_METADATA_KEY = "ARROW:extension:metadata";
+
+    static final String GEOARROW_WKB = "geoarrow.wkb";
+
+    private final List<PropertyDescriptor> descriptors;
+
+    private final boolean includeIds;
+
+    private final WKBWriter wkbWriter = new WKBWriter(2);
+
+    FeatureBatchWriter(@NonNull FeatureType type, int[] attributes, boolean includeIds) {
+        this.includeIds = includeIds;
+        this.descriptors = new ArrayList<>(attributes.length);
+        for (int att : attributes) {
+            descriptors.add(type.getDescriptor(att));
+        }
+    }
+
+    /**
+     * Creates the Arrow schema for the {@code attributes} of {@code type}, optionally preceded by
+     * a {@link #ID_COLUMN feature id} column
+     */
+    static Schema schema(@NonNull FeatureType type, int[] attributes, boolean includeIds,
+            @Nullable Map<String, String> metadata) {
+        List<Field> fields = new ArrayList<>(attributes.length + 1);
+        if (includeIds) {
+            fields.add(new Field(ID_COLUMN, org.apache.arrow.vector.types.pojo.FieldType
+                    .notNullable(ArrowType.Utf8.INSTANCE), null));
+        }
+        for (int att : attributes) {
+            fields.add(field(type.getDescriptor(att)));
+        }
+        return new Schema(fields, metadata);
+    }
+
+    private static Field field(PropertyDescriptor descriptor) {
+        final String name = descriptor.getLocalName();
+        Map<String, String> metadata = null;
+        if (descriptor.isGeometryDescriptor()) {
+            metadata = new HashMap<>();
+            metadata.put(EXTENSION_NAME_KEY, GEOARROW_WKB);
+            CoordinateReferenceSystem crs = descriptor.coordinateReferenceSystem();
+            metadata.put(EXTENSION_METADATA_KEY, crs.isNull() ? "{}"
+                    : String.format("{\"crs\":\"%s\"}", crs.getSrsIdentifier().replace("\"", "")));
+        }
+        ArrowType arrowType = arrowType(FieldType.forBinding(descriptor.getBinding()));
+        return new Field(name, new org.apache.arrow.vector.types.pojo.FieldType(true, arrowType,
+                null, metadata == null ? null : Collections.unmodifiableMap(metadata)), null);
+    }
+
+    private static ArrowType arrowType(FieldType type) {
+        switch (type) {
+        case BOOLEAN:
+            return ArrowType.Bool.INSTANCE;
+        case BYTE:
+            return new ArrowType.Int(8, true);
+        case SHORT:
+            return new ArrowType.Int(16, true);
+        case INTEGER:
+            return new ArrowType.Int(32, true);
+        case LONG:
+            return new ArrowType.Int(64, true);
+        case FLOAT:
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+        case DOUBLE:
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        case DATETIME:
+        case TIMESTAMP:
+            return new ArrowType.Timestamp(TimeUnit.MILLISECOND, null);
+        case DATE:
+            return new ArrowType.Date(DateUnit.MILLISECOND);
+        case TIME:
+            return new ArrowType.Time(TimeUnit.MILLISECOND, 32);
+        case BYTE_ARRAY:
+        case POINT:
+        case LINESTRING:
+        case POLYGON:
+        case MULTIPOINT:
+        case MULTILINESTRING:
+        case MULTIPOLYGON:
+        case GEOMETRYCOLLECTION:
+        case GEOMETRY:
+            return ArrowType.Binary.INSTANCE;
+        default:
+            return ArrowType.Utf8.INSTANCE;
+        }
+    }
+
+    /**
+     * Replaces the contents of {@code root} by the features in {@code batch}, reusing the vector
+     * buffers already allocated by previous batches
+     */
+    public void write(FeatureBatch batch, VectorSchemaRoot root) {
+        final int size = batch.size();
+        final List<FieldVector> vectors = root.getFieldVectors();
+        int v = 0;
+        if (includeIds) {
+            VarCharVector ids = (VarCharVector) vectors.get(v++);
+            ids.reset();
+            for (int row = 0; row < size; row++) {
+                ids.setSafe(row, batch.id(row).getBytes(UTF_8));
+            }
+        }
+        for (int c = 0; c < descriptors.size(); c++, v++) {
+            FieldVector vector = vectors.get(v);
+            // null slots are left unset, reset() clears the validity buffer
+            vector.reset();
+            Object[] column = batch.column(c);
+            for (int row = 0; row < size; row++) {
+                Object value = column[row];
+                if (value != null) {
+                    set(vector, row, value);
+                }
+            }
+        }
+        root.setRowCount(size);
+    }
+
+    private void set(FieldVector vector, int row, Object value) {
+        switch (vector.getMinorType()) {
+        case BIT:
+            ((BitVector) vector).setSafe(row, ((Boolean) value).booleanValue() ? 1 : 0);
+            break;
+        case TINYINT:
+            ((TinyIntVector) vector).setSafe(row, ((Number) value).byteValue());
+            break;
+        case SMALLINT:
+            ((SmallIntVector) vector).setSafe(row, ((Number) value).shortValue());
+            break;
+        case INT:
+            ((IntVector) vector).setSafe(row, ((Number) value).intValue());
+            break;
+        case BIGINT:
+            ((BigIntVector) vector).setSafe(row, ((Number) value).longValue());
+            break;
+        case FLOAT4:
+            ((Float4Vector) vector).setSafe(row, ((Number) value).floatValue());
+            break;
+        case FLOAT8:
+            ((Float8Vector) vector).setSafe(row, ((Number) value).doubleValue());
+            break;
+        case TIMESTAMPMILLI:
+            ((TimeStampMilliVector) vector).setSafe(row, ((java.util.Date) value).getTime());
+            break;
+        case DATEMILLI:
+            ((DateMilliVector) vector).setSafe(row, ((java.util.Date) value).getTime());
+            break;
+        case TIMEMILLI:
+            ((TimeMilliVector) vector).setSafe(row, (int) ((java.util.Date) value).getTime());
+            break;
+        case VARBINARY:
+            byte[] bytes = value instanceof Geometry ? wkbWriter.write((Geometry) value)
+                    : (byte[]) value;
+            ((VarBinaryVector) vector).setSafe(row, bytes);
+            break;
+        default:
+            String text = value instanceof String ? (String) value
+                    : TextValueSerializer.asString(value);
+            ((VarCharVector) vector).setSafe(row, text.getBytes(UTF_8));
+            break;
+        }
+    }
+}
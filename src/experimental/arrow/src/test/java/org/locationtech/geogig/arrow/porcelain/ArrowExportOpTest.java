@@ -0,0 +1,136 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.arrow.porcelain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.arrow.porcelain.ArrowExportOp.Format;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBReader;
+
+public class ArrowExportOpTest extends RepositoryTestCase {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    protected @Override void setUpInternal() throws Exception {
+        insertAndAdd(points1);
+        insertAndAdd(points2);
+        insertAndAdd(points3);
+        repo.command(CommitOp.class).setMessage("points").call();
+    }
+
+    @Test
+    public void testExportFile() throws Exception {
+        File file = tmp.newFile("points.arrow");
+        long count = repo.command(ArrowExportOp.class).setPath("HEAD:" + pointsName)
+                .setOutput(file).setBatchSize(2).call();
+        assertEquals(3L, count);
+
+        Set<String> ids = new HashSet<>();
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+                FileInputStream in = new FileInputStream(file);
+                ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator)) {
+
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            Schema schema = root.getSchema();
+            assertEquals(pointsName, schema.getCustomMetadata().get(ArrowExportOp.TYPE_NAME_KEY));
+            assertEquals(Arrays.asList("@id", "sp", "ip", "pp"), names(schema));
+            Field geom = schema.findField("pp");
+            assertEquals(FeatureBatchWriter.GEOARROW_WKB,
+                    geom.getMetadata().get(FeatureBatchWriter.EXTENSION_NAME_KEY));
+            assertEquals("{\"crs\":\"EPSG:4326\"}",
+                    geom.getMetadata().get(FeatureBatchWriter.EXTENSION_METADATA_KEY));
+
+            assertEquals(2, reader.getRecordBlocks().size());
+            while (reader.loadNextBatch()) {
+                VarCharVector fids = (VarCharVector) root.getVector("@id");
+                IntVector ip = (IntVector) root.getVector("ip");
+                VarBinaryVector pp = (VarBinaryVector) root.getVector("pp");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    String id = new String(fids.get(i), "UTF-8");
+                    ids.add(id);
+                    Geometry g = new WKBReader().read(pp.get(i));
+                    if (idP1.equals(id)) {
+                        assertEquals(1000, ip.get(i));
+                        assertEquals(points1.getDefaultGeometry(), g);
+                    }
+                }
+            }
+        }
+        assertEquals(new HashSet<>(Arrays.asList(idP1, idP2, idP3)), ids);
+    }
+
+    @Test
+    public void testExportProjectedAndFiltered() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = repo.command(ArrowExportOp.class).setPath(pointsName).setOutput(out)
+                .setFormat(Format.STREAM).setAttributes(Arrays.asList("ip"))
+                .setIncludeIds(false).setBounds(new Envelope(1.5, 3, 1.5, 3)).call();
+        assertEquals(2L, count);
+
+        Set<Integer> values = new HashSet<>();
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+                ArrowStreamReader reader = new ArrowStreamReader(
+                        new ByteArrayInputStream(out.toByteArray()), allocator)) {
+
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(Arrays.asList("ip"), names(root.getSchema()));
+            assertNull(root.getSchema().findField("ip").getMetadata().get(
+                    FeatureBatchWriter.EXTENSION_NAME_KEY));
+            while (reader.loadNextBatch()) {
+                IntVector ip = (IntVector) root.getVector("ip");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    assertFalse(ip.isNull(i));
+                    values.add(ip.get(i));
+                }
+            }
+        }
+        assertEquals(new HashSet<>(Arrays.asList(2000, 3000)), values);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAttribute() {
+        repo.command(ArrowExportOp.class).setPath(pointsName)
+                .setOutput(new ByteArrayOutputStream()).setAttributes(Arrays.asList("nope"))
+                .call();
+    }
+
+    private static List<String> names(Schema schema) {
+        return schema.getFields().stream().map(Field::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.ql.porcelain;
+
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.repository.IndexInfo;
+
+/**
+ * A lightweight, reusable view of a feature's attribute values, backed either by a
+ * {@link RevFeature} or by the materialized attributes of an index {@link Node}, against which
+ * {@link StreamingAggregate} evaluates filters and aggregates without building GeoTools features.
+ *
+ * @see FeatureValuesPropertyAccessorFactory
+ */
+abstract class FeatureValues {
+
+    public abstract String getId();
+
+    /**
+     * @return the value of the named attribute, decoding only that attribute if needed
+     */
+    public abstract @Nullable Object get(String attribute);
+
+    /**
+     * Values out of a {@link RevFeature}'s value array, by attribute index
+     */
+    static class RevFeatureValues extends FeatureValues {
+
+        private final Map<String, Integer> attIndexes;
+
+        private String id;
+
+        private RevFeature feature;
+
+        RevFeatureValues(Map<String, Integer> attIndexes) {
+            this.attIndexes = attIndexes;
+        }
+
+        RevFeatureValues reset(String id, RevFeature feature) {
+            this.id = id;
+            this.feature = feature;
+            return this;
+        }
+
+        public @Override String getId() {
+            return id;
+        }
+
+        public @Override @Nullable Object get(String attribute) {
+            Integer index = attIndexes.get(attribute);
+            return index == null ? null : feature.get(index.intValue()).orElse(null);
+        }
+    }
+
+    /**
+     * Values out of the {@link IndexInfo#getMaterializedAttributes(Node) materialized attributes}
+     * of an index tree node
+     */
+    static class NodeValues extends FeatureValues {
+
+        private Node node;
+
+        NodeValues reset(Node node) {
+            this.node = node;
+            return this;
+        }
+
+        public @Override String getId() {
+            return node.getName();
+        }
+
+        public @Override @Nullable Object get(String attribute) {
+            return IndexInfo.getMaterializedAttribute(attribute, node);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.ql.porcelain;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.filter.expression.PropertyAccessor;
+import org.geotools.filter.expression.PropertyAccessorFactory;
+import org.geotools.util.Converters;
+import org.geotools.util.factory.Hints;
+
+/**
+ * A GeoTools {@link PropertyAccessorFactory} that allows filters to be evaluated against the
+ * {@link FeatureValues} {@link StreamingAggregate} works with.
+ */
+public class FeatureValuesPropertyAccessorFactory implements PropertyAccessorFactory {
+
+    private static final FeatureValuesPropertyAccessor INSTANCE = new FeatureValuesPropertyAccessor();
+
+    public @Override PropertyAccessor createPropertyAccessor(Class<?> type, String xpath,
+            Class<?> target, Hints hints) {
+        return FeatureValues.class.isAssignableFrom(type) ? INSTANCE : null;
+    }
+
+    static class FeatureValuesPropertyAccessor implements PropertyAccessor {
+
+        public @Override boolean canHandle(Object object, String xpath, Class<?> target) {
+            return object instanceof FeatureValues;
+        }
+
+        @SuppressWarnings("unchecked")
+        public @Override <T> T get(Object object, String xpath, @Nullable Class<T> target)
+                throws IllegalArgumentException {
+
+            FeatureValues values = (FeatureValues) object;
+            Object value = "@id".equals(xpath) ? values.getId() : values.get(xpath);
+            if (value != null && target != null && !target.isInstance(value)) {
+                value = Converters.convert(value, target);
+            }
+            return (T) value;
+        }
+
+        public @Override <T> void set(Object object, String xpath, T value, Class<T> target)
+                throws IllegalArgumentException {
+
+            throw new UnsupportedOperationException();
+        }
+    }
+}
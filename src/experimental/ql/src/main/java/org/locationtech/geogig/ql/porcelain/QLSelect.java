@@ -19,6 +19,7 @@ import java.util.List;
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.Query;
+import org.geotools.data.collection.ListFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureStore;
 import org.geotools.data.store.ContentFeatureSource;
@@ -30,9 +31,12 @@ import org.geotools.referencing.CRS;
 import org.locationtech.geogig.di.CanRunDuringConflict;
 import org.locationtech.geogig.geotools.adapt.GT;
 import org.locationtech.geogig.geotools.data.GeoGigDataStore;
+import org.locationtech.geogig.geotools.data.GeogigFeatureSource;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.plumbing.DiffCount;
 import org.locationtech.geogig.plumbing.RevParse;
+import org.locationtech.geogig.ql.porcelain.StreamingAggregate.Aggregate;
+import org.locationtech.geogig.ql.porcelain.StreamingAggregate.AggregateFunction;
 import org.locationtech.geogig.repository.DiffObjectCount;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.opengis.feature.simple.SimpleFeature;
@@ -46,6 +50,7 @@ import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.AllColumns;
@@ -70,9 +75,13 @@ import net.sf.jsqlparser.util.TablesNamesFinder;
  * <p>
  * <ul>
  * <li>{@code SELECT <columns-expression> [INTO <new-tree>] FROM 
- * <tree-ish> [WHERE <where-expression] [LIMIT [<offset>,]
+ * <tree-ish> [WHERE <where-expression] [GROUP BY <column-list>] [LIMIT [<offset>,]
  * <limit>]}
- * <li><b>{@code <columns-expression>}</b> := {@code * | <column-list>}
+ * <li><b>{@code <columns-expression>}</b> := {@code * | <column-list> | <aggregate-list>}
+ * <li>{@code <aggregate-list>} := {@code (<attribute-name>|<aggregate>) [AS <alias>][,
+ * (<attribute-name>|<aggregate>) [AS <alias>]]+}
+ * <li>{@code <aggregate>} := {@code count(*) | count(<attribute-name>) | sum(<attribute-name>) |
+ * avg(<attribute-name>) | min(<attribute-name>) | max(<attribute-name>)}
  * <li>{@code <column-list>} := {@code <attribute-name>[, <attribute-name>]+}
  * <li>{@code <attribute-name>} := {@code <unspaced-identifier> | <quoted-identifier>}
  * <li>{@code <unspaced-identifier>} := an attribute name with no spaces or other characters that
@@ -90,6 +99,10 @@ import net.sf.jsqlparser.util.TablesNamesFinder;
  * <li><b>{@code <offset>}</b> := {@code 0 | <positive-integer>}
  * <li><b>{@code <limit>}</b> := {@code 0 | <positive-integer>}
  * </ul>
+ * <p>
+ * Aggregate queries are evaluated in a single pass over the feature tree by
+ * {@link StreamingAggregate}, returning one feature per group with the {@code GROUP BY} attributes
+ * followed by the aggregate values, in the order they're declared.
  */
 public @CanRunDuringConflict class QLSelect extends AbstractGeoGigOp<SimpleFeatureCollection> {
 
@@ -148,6 +161,10 @@ public @CanRunDuringConflict class QLSelect extends AbstractGeoGigOp<SimpleFeatu
 
         final Query query = parseFilter(select, new Query());
 
+        if (isAggregate(select)) {
+            return selectAggregate(select, (GeogigFeatureSource) source, query);
+        }
+
         if (isSelectFunction(select)) {
             if (isCount(select)) {
                 return selectCount(select, source, query);
@@ -221,6 +238,94 @@ public @CanRunDuringConflict class QLSelect extends AbstractGeoGigOp<SimpleFeatu
         return DataUtilities.collection(f);
     }
 
+    private SimpleFeatureCollection selectAggregate(Select select, GeogigFeatureSource source,
+            Query query) {
+        checkArgument(!isSelectInto(select), "SELECT INTO is not supported for aggregate queries");
+        final PlainSelect ps = (PlainSelect) select.getSelectBody();
+        checkArgument(ps.getHaving() == null, "HAVING is not supported: %s", ps.getHaving());
+
+        final List<String> groupBy = new ArrayList<>();
+        if (ps.getGroupBy() != null) {
+            for (Expression e : ps.getGroupBy().getGroupByExpressions()) {
+                checkArgument(e instanceof Column,
+                        "Only attribute names are supported in GROUP BY: %s", e);
+                groupBy.add(columnName((Column) e));
+            }
+        }
+        final List<Aggregate> aggregates = new ArrayList<>();
+        for (SelectItem item : ps.getSelectItems()) {
+            checkArgument(item instanceof SelectExpressionItem,
+                    "Not supported in aggregate queries: %s", item);
+            SelectExpressionItem expressionItem = (SelectExpressionItem) item;
+            Expression e = expressionItem.getExpression();
+            if (e instanceof Column) {
+                String name = columnName((Column) e);
+                checkArgument(groupBy.contains(name), "%s must appear in the GROUP BY clause",
+                        name);
+                continue;
+            }
+            checkArgument(e instanceof Function, "Not supported in aggregate queries: %s", item);
+            Function f = (Function) e;
+            AggregateFunction function = AggregateFunction.of(f.getName()).orElseThrow(
+                    () -> new IllegalArgumentException("Aggregate function not supported: " + f));
+            String attribute = null;
+            if (!f.isAllColumns()) {
+                List<Expression> params = f.getParameters() == null ? null
+                        : f.getParameters().getExpressions();
+                checkArgument(params != null && params.size() == 1
+                        && params.get(0) instanceof Column,
+                        "%s expects a single attribute name argument: %s", function, f);
+                attribute = columnName((Column) params.get(0));
+            }
+            String name;
+            if (expressionItem.getAlias() != null) {
+                name = expressionItem.getAlias().getName().replace("\"", "");
+            } else {
+                name = function.name().toLowerCase()
+                        + (attribute == null ? "" : "_" + attribute);
+            }
+            aggregates.add(new Aggregate(function, attribute, name));
+        }
+
+        StreamingAggregate aggregate = new StreamingAggregate(context(), source.getTypeRef(),
+                source.getSchema(), query.getFilter(), groupBy, aggregates);
+
+        final int offset = query.getStartIndex() == null ? 0 : query.getStartIndex().intValue();
+        List<SimpleFeature> result = aggregate.call(offset);
+        return new ListFeatureCollection(aggregate.resultType(), result);
+    }
+
+    private String columnName(Column column) {
+        return column.getColumnName().replace("\"", "");
+    }
+
+    /**
+     * @return whether the select is a {@code GROUP BY} or uses aggregate functions other than a
+     *         single {@code count(*)}
+     */
+    private boolean isAggregate(Select select) {
+        if (!(select.getSelectBody() instanceof PlainSelect)) {
+            return false;
+        }
+        PlainSelect ps = (PlainSelect) select.getSelectBody();
+        if (ps.getGroupBy() != null) {
+            return true;
+        }
+        List<SelectItem> items = ps.getSelectItems();
+        for (SelectItem item : items) {
+            if (item instanceof SelectExpressionItem
+                    && ((SelectExpressionItem) item).getExpression() instanceof Function) {
+                Function f = (Function) ((SelectExpressionItem) item).getExpression();
+                boolean aggregate = AggregateFunction.of(f.getName()).isPresent();
+                boolean countAll = "count".equalsIgnoreCase(f.getName()) && f.isAllColumns();
+                if (aggregate && (items.size() > 1 || !countAll)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private SimpleFeatureCollection selectBounds(Select select, ContentFeatureSource source,
             Query query) {
 
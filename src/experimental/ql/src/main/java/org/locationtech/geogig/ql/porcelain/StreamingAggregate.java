@@ -0,0 +1,474 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.ql.porcelain;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.plumbing.stats.AttributeStats;
+import org.locationtech.geogig.plumbing.stats.ComputeTreeStats;
+import org.locationtech.geogig.plumbing.stats.TreeStats;
+import org.locationtech.geogig.porcelain.index.IndexUtils;
+import org.locationtech.geogig.ql.porcelain.FeatureValues.NodeValues;
+import org.locationtech.geogig.ql.porcelain.FeatureValues.RevFeatureValues;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.identity.FeatureId;
+
+import com.google.common.collect.Iterators;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Evaluates a {@code GROUP BY} query with {@code count, sum, avg, min, max} aggregate functions in
+ * a single pass over the contents of a feature tree, without building GeoTools features.
+ * <p>
+ * If an index on the feature tree materializes all the attributes the query references (grouping,
+ * aggregated, and filter attributes), values are read out of the index tree nodes' extra data and
+ * no {@link RevFeature} is fetched at all. Otherwise features are fetched in bulk and only the
+ * referenced attributes are decoded out of their value arrays.
+ * <p>
+ * The filter is evaluated directly against either the index {@link NodeRef}s or a
+ * {@link FeatureValues} view of each {@code RevFeature}.
+ * <p>
+ * Unfiltered, ungrouped {@code count, min, max} queries are answered out of the tree's
+ * {@link TreeStats} instead, without any pass over the tree once the stats are computed.
+ */
+class StreamingAggregate {
+
+    /**
+     * The supported aggregate functions
+     */
+    enum AggregateFunction {
+        COUNT, SUM, AVG, MIN, MAX;
+
+        public static Optional<AggregateFunction> of(String name) {
+            for (AggregateFunction f : values()) {
+                if (f.name().equalsIgnoreCase(name)) {
+                    return Optional.of(f);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * An aggregate function over an attribute, or over all features for {@code count(*)}
+     */
+    static @Value class Aggregate {
+        private @NonNull AggregateFunction function;
+
+        /**
+         * The aggregated attribute, {@code null} for {@code count(*)}
+         */
+        private @Nullable String attribute;
+
+        /**
+         * The name of the output attribute
+         */
+        private @NonNull String name;
+    }
+
+    private final Context context;
+
+    private final NodeRef typeRef;
+
+    private final SimpleFeatureType schema;
+
+    private final Filter filter;
+
+    private final List<String> fidFilter;
+
+    private final List<String> groupBy;
+
+    private final List<Aggregate> aggregates;
+
+    StreamingAggregate(@NonNull Context context, @NonNull NodeRef typeRef,
+            @NonNull SimpleFeatureType schema, @NonNull Filter filter,
+            @NonNull List<String> groupBy, @NonNull List<Aggregate> aggregates) {
+        checkArgument(!aggregates.isEmpty() || !groupBy.isEmpty(), "nothing to aggregate");
+        this.context = context;
+        this.typeRef = typeRef;
+        this.schema = schema;
+        // Id filters are evaluated by the tree walk
+        this.filter = filter instanceof Id ? Filter.INCLUDE : filter;
+        this.fidFilter = fidFilter(filter);
+        this.groupBy = groupBy;
+        this.aggregates = aggregates;
+        for (String att : groupBy) {
+            checkAttribute(att);
+        }
+        for (Aggregate a : aggregates) {
+            if (a.getAttribute() != null) {
+                AttributeDescriptor descriptor = checkAttribute(a.getAttribute());
+                Class<?> binding = descriptor.getType().getBinding();
+                switch (a.getFunction()) {
+                case SUM:
+                case AVG:
+                    checkArgument(Number.class.isAssignableFrom(binding),
+                            "%s can only be applied to numeric attributes: %s", a.getFunction(),
+                            a.getAttribute());
+                    break;
+                case MIN:
+                case MAX:
+                    checkArgument(Comparable.class.isAssignableFrom(binding),
+                            "%s can't be applied to %s attributes: %s", a.getFunction(),
+                            binding.getSimpleName(), a.getAttribute());
+                    break;
+                default:
+                    break;
+                }
+            } else {
+                checkArgument(AggregateFunction.COUNT == a.getFunction(), "only count accepts *");
+            }
+        }
+    }
+
+    private AttributeDescriptor checkAttribute(String name) {
+        AttributeDescriptor descriptor = schema.getDescriptor(name);
+        checkArgument(descriptor != null, "Attribute %s does not exist in %s", name,
+                schema.getTypeName());
+        return descriptor;
+    }
+
+    /**
+     * @return the names of all the attributes the query needs to evaluate
+     */
+    Set<String> requiredAttributes() {
+        Set<String> atts = new LinkedHashSet<>(groupBy);
+        aggregates.stream().filter(a -> a.getAttribute() != null)
+                .forEach(a -> atts.add(a.getAttribute()));
+        for (String att : DataUtilities.attributeNames(filter)) {
+            if (!att.startsWith("@")) {
+                atts.add(att);
+            }
+        }
+        return atts;
+    }
+
+    /**
+     * Runs the aggregation and returns one feature per group, in the order groups are first found,
+     * skipping the first {@code offset} ones.
+     */
+    List<SimpleFeature> call(int offset) {
+        Optional<List<SimpleFeature>> fromStats = aggregateFromStats(offset);
+        if (fromStats.isPresent()) {
+            return fromStats.get();
+        }
+        final Set<String> required = requiredAttributes();
+        final Map<String, Integer> attIndexes = new HashMap<>();
+        for (String att : required) {
+            attIndexes.put(att, schema.indexOf(att));
+        }
+
+        final Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<>();
+        final Optional<IndexInfo> index = findMaterializedIndex(required);
+
+        try (AutoCloseableIterator<? extends FeatureValues> values = index.isPresent()
+                ? indexValues(index.get())
+                : featureValues(attIndexes)) {
+            while (values.hasNext()) {
+                FeatureValues feature = values.next();
+                if (Filter.INCLUDE.equals(filter) || filter.evaluate(feature)) {
+                    aggregate(feature, groups);
+                }
+            }
+        }
+        if (groups.isEmpty() && groupBy.isEmpty()) {
+            // no GROUP BY, aggregates over an empty set still return a single row
+            groups.put(Collections.emptyList(), newAccumulators());
+        }
+        return toFeatures(groups, offset);
+    }
+
+    /**
+     * Unfiltered {@code count} and {@code min/max} aggregates with no {@code GROUP BY} are resolved
+     * out of the feature tree's {@link TreeStats}, which are computed if not yet available, at the
+     * same cost as a single aggregation pass over the tree, but are reused afterwards.
+     */
+    private Optional<List<SimpleFeature>> aggregateFromStats(int offset) {
+        if (!groupBy.isEmpty() || !Filter.INCLUDE.equals(filter) || !fidFilter.isEmpty()
+                || typeRef.getMetadataId().isNull()) {
+            return Optional.empty();
+        }
+        for (Aggregate a : aggregates) {
+            AggregateFunction f = a.getFunction();
+            if (!(AggregateFunction.COUNT == f || AggregateFunction.MIN == f
+                    || AggregateFunction.MAX == f)) {
+                return Optional.empty();
+            }
+        }
+        final TreeStats stats = context.command(ComputeTreeStats.class).setTree(typeRef).call();
+        final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(resultType());
+        for (Aggregate a : aggregates) {
+            if (a.getAttribute() == null) {
+                builder.add(stats.getFeatureCount());
+                continue;
+            }
+            AttributeStats att = stats.getAttribute(a.getAttribute()).orElse(null);
+            if (att == null) {
+                return Optional.empty();
+            }
+            if (AggregateFunction.COUNT == a.getFunction()) {
+                builder.add(att.getValueCount());
+            } else if (att.getValueCount() == 0) {
+                builder.add(null);
+            } else {
+                Optional<Object> value = AggregateFunction.MIN == a.getFunction() ? att.getMin()
+                        : att.getMax();
+                if (!value.isPresent()) {
+                    return Optional.empty();
+                }
+                builder.add(value.get());
+            }
+        }
+        SimpleFeature result = builder.buildFeature("1");
+        return Optional.of(offset > 0 ? Collections.emptyList()
+                : Collections.singletonList(result));
+    }
+
+    private void aggregate(FeatureValues feature, Map<List<Object>, Accumulator[]> groups) {
+        final List<Object> key;
+        if (groupBy.isEmpty()) {
+            key = Collections.emptyList();
+        } else {
+            Object[] values = new Object[groupBy.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = feature.get(groupBy.get(i));
+            }
+            key = Arrays.asList(values);
+        }
+        Accumulator[] accumulators = groups.computeIfAbsent(key, k -> newAccumulators());
+        for (int i = 0; i < accumulators.length; i++) {
+            String att = aggregates.get(i).getAttribute();
+            accumulators[i].add(att == null ? feature : feature.get(att));
+        }
+    }
+
+    private Accumulator[] newAccumulators() {
+        Accumulator[] accumulators = new Accumulator[aggregates.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            Aggregate a = aggregates.get(i);
+            accumulators[i] = new Accumulator(a.getFunction(), isIntegral(a.getAttribute()));
+        }
+        return accumulators;
+    }
+
+    private boolean isIntegral(@Nullable String attribute) {
+        if (attribute == null) {
+            return true;
+        }
+        Class<?> binding = schema.getDescriptor(attribute).getType().getBinding();
+        return Long.class.equals(binding) || Integer.class.equals(binding)
+                || Short.class.equals(binding) || Byte.class.equals(binding);
+    }
+
+    private List<SimpleFeature> toFeatures(Map<List<Object>, Accumulator[]> groups, int offset) {
+        final SimpleFeatureType resultType = resultType();
+        final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(resultType);
+        final List<SimpleFeature> result = new ArrayList<>();
+        int groupIndex = 0;
+        for (Map.Entry<List<Object>, Accumulator[]> group : groups.entrySet()) {
+            if (groupIndex++ < offset) {
+                continue;
+            }
+            group.getKey().forEach(builder::add);
+            for (Accumulator accumulator : group.getValue()) {
+                builder.add(accumulator.result());
+            }
+            result.add(builder.buildFeature(String.valueOf(groupIndex)));
+        }
+        return result;
+    }
+
+    SimpleFeatureType resultType() {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("@aggregate");
+        for (String att : groupBy) {
+            builder.add(schema.getDescriptor(att));
+        }
+        for (Aggregate a : aggregates) {
+            final Class<?> binding;
+            switch (a.getFunction()) {
+            case COUNT:
+                binding = Long.class;
+                break;
+            case SUM:
+                binding = isIntegral(a.getAttribute()) ? Long.class : Double.class;
+                break;
+            case AVG:
+                binding = Double.class;
+                break;
+            default:
+                binding = schema.getDescriptor(a.getAttribute()).getType().getBinding();
+                break;
+            }
+            builder.add(a.getName(), binding);
+        }
+        return builder.buildFeatureType();
+    }
+
+    private Optional<IndexInfo> findMaterializedIndex(Set<String> required) {
+        final IndexDatabase indexdb = context.indexDatabase();
+        final String typeName = typeRef.path();
+        return indexdb.getIndexInfos(typeName).stream()
+                .filter(info -> IndexInfo.getMaterializedAttributeNames(info).containsAll(required))
+                .filter(info -> indexdb.resolveIndexedTree(info, typeRef.getObjectId())
+                        .isPresent())
+                .findFirst();
+    }
+
+    private DiffTree walk(ObjectId treeId) {
+        DiffTree diff = context.command(DiffTree.class).setOldTree(RevTree.EMPTY_TREE_ID)
+                .setNewTree(treeId).setReportTrees(false)
+                .setDefaultMetadataId(typeRef.getMetadataId())
+                .setPathFilter(fidFilter);
+        return diff;
+    }
+
+    private AutoCloseableIterator<? extends FeatureValues> indexValues(IndexInfo index) {
+        final IndexDatabase indexdb = context.indexDatabase();
+        final ObjectId indexTreeId = indexdb.resolveIndexedTree(index, typeRef.getObjectId())
+                .get();
+        AutoCloseableIterator<DiffEntry> entries = walk(indexTreeId).setLeftSource(indexdb)
+                .setRightSource(indexdb).setNodeOrdering(IndexUtils.nodeOrdering(index)).call();
+
+        final NodeValues values = new NodeValues();
+        return AutoCloseableIterator.transform(entries,
+                e -> values.reset(e.getNewObject().getNode()));
+    }
+
+    private AutoCloseableIterator<? extends FeatureValues> featureValues(
+            Map<String, Integer> attIndexes) {
+        AutoCloseableIterator<NodeRef> refs = AutoCloseableIterator
+                .transform(walk(typeRef.getObjectId()).call(), DiffEntry::getNewObject);
+
+        AutoCloseableIterator<ObjectInfo<RevFeature>> features = new BulkFeatureRetriever(
+                context.objectDatabase()).getGeoGIGFeatures(refs);
+
+        final RevFeatureValues values = new RevFeatureValues(attIndexes);
+        return AutoCloseableIterator.transform(features,
+                info -> values.reset(info.node().getName(), info.object()));
+    }
+
+    private static List<String> fidFilter(Filter filter) {
+        if (filter instanceof Id) {
+            Iterator<FeatureId> ids = Iterators.filter(((Id) filter).getIdentifiers().iterator(),
+                    FeatureId.class);
+            List<String> names = new ArrayList<>();
+            ids.forEachRemaining(id -> names.add(id.getID()));
+            return names;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Running state of an aggregate function for a single group
+     */
+    private static class Accumulator {
+        private final AggregateFunction function;
+
+        private final boolean integral;
+
+        private long count;
+
+        private long longSum;
+
+        private double doubleSum;
+
+        private @Nullable Comparable<Object> value;
+
+        Accumulator(AggregateFunction function, boolean integral) {
+            this.function = function;
+            this.integral = integral;
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(@Nullable Object v) {
+            if (v == null) {
+                return;
+            }
+            count++;
+            switch (function) {
+            case SUM:
+            case AVG:
+                if (integral) {
+                    longSum += ((Number) v).longValue();
+                } else {
+                    doubleSum += ((Number) v).doubleValue();
+                }
+                break;
+            case MIN:
+                if (value == null || value.compareTo(v) > 0) {
+                    value = (Comparable<Object>) v;
+                }
+                break;
+            case MAX:
+                if (value == null || value.compareTo(v) < 0) {
+                    value = (Comparable<Object>) v;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        @Nullable
+        Object result() {
+            switch (function) {
+            case COUNT:
+                return count;
+            case SUM:
+                if (count == 0) {
+                    return null;
+                }
+                return integral ? (Object) longSum : (Object) doubleSum;
+            case AVG:
+                if (count == 0) {
+                    return null;
+                }
+                return (integral ? (double) longSum : doubleSum) / count;
+            default:
+                return value;
+            }
+        }
+    }
+}
@@ -13,12 +13,15 @@ import static com.google.common.collect.Sets.newHashSet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
@@ -28,6 +31,7 @@ import org.geotools.referencing.CRS;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.porcelain.index.CreateQuadTree;
 import org.locationtech.geogig.ql.porcelain.QLSelect;
 import org.locationtech.geogig.test.integration.RepositoryTestCase;
 import org.locationtech.jts.geom.Envelope;
@@ -259,6 +263,85 @@ public class QLSelectIntegrationTest extends RepositoryTestCase {
         }
     }
 
+    @Test
+    public void selectAggregates() {
+        SimpleFeatureCollection result = helper.select(
+                "select count(*), sum(ip), avg(ip) as average, min(ip), max(sp) from Points");
+        SimpleFeature f = single(result);
+        assertEquals(Long.valueOf(3), f.getAttribute("count"));
+        assertEquals(Long.valueOf(1001 + 2000 + 3000), f.getAttribute("sum_ip"));
+        assertEquals((1001 + 2000 + 3000) / 3d, f.getAttribute("average"));
+        assertEquals(Integer.valueOf(1001), f.getAttribute("min_ip"));
+        assertEquals("StringProp1_3", f.getAttribute("max_sp"));
+    }
+
+    @Test
+    public void selectAggregatesFilter() {
+        SimpleFeature f = single(helper.select("select sum(ip) from Points where ip > 1500"));
+        assertEquals(Long.valueOf(5000), f.getAttribute("sum_ip"));
+
+        f = single(helper.select("select count(ip), sum(ip) from Points where ip > 5000"));
+        assertEquals(Long.valueOf(0), f.getAttribute("count_ip"));
+        assertNull(f.getAttribute("sum_ip"));
+    }
+
+    @Test
+    public void selectGroupBy() throws Exception {
+        insertGroupByFeatures();
+        verifyGroupBy();
+    }
+
+    @Test
+    public void selectGroupByMaterializedIndex() throws Exception {
+        insertGroupByFeatures();
+        repo.command(CreateQuadTree.class).setTreeRefSpec(pointsName)
+                .setExtraAttributes(Arrays.asList("sp", "ip")).call();
+        verifyGroupBy();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void selectGroupByNonGroupedColumn() {
+        helper.select("select sp, sum(ip) from Points");
+    }
+
+    private void insertGroupByFeatures() throws Exception {
+        insertAndAdd(feature(pointsType, "Points.4", "StringProp1_2", Integer.valueOf(500),
+                "POINT(4 4)"));
+        insertAndAdd(feature(pointsType, "Points.5", "StringProp1_2", Integer.valueOf(100),
+                "POINT(5 5)"));
+        repo.command(CommitOp.class).call();
+    }
+
+    private void verifyGroupBy() {
+        SimpleFeatureCollection result = helper.select(
+                "select sp, count(*), sum(ip), max(ip) from Points where ip < 3000 group by sp");
+        assertEquals(Arrays.asList("sp", "count", "sum_ip", "max_ip"),
+                Lists.transform(result.getSchema().getAttributeDescriptors(),
+                        d -> d.getLocalName()));
+
+        Map<Object, List<Object>> groups = new HashMap<>();
+        try (SimpleFeatureIterator features = result.features()) {
+            while (features.hasNext()) {
+                SimpleFeature f = features.next();
+                groups.put(f.getAttribute("sp"), f.getAttributes().subList(1, 4));
+            }
+        }
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(1L, 1001L, Integer.valueOf(1001)),
+                groups.get("StringProp1_1a"));
+        assertEquals(Arrays.asList(3L, 2600L, Integer.valueOf(2000)),
+                groups.get("StringProp1_2"));
+    }
+
+    private SimpleFeature single(SimpleFeatureCollection result) {
+        try (SimpleFeatureIterator features = result.features()) {
+            assertTrue(features.hasNext());
+            SimpleFeature f = features.next();
+            assertFalse(features.hasNext());
+            return f;
+        }
+    }
+
     @Test
     public void selectBoundsAll() {
         String query = "select bounds(*) from Points";
@@ -0,0 +1,36 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.geopkg;
+
+import org.locationtech.geogig.model.ObjectId;
+
+import lombok.Value;
+
+/**
+ * Progress of an interrupted audit log import for a single table, as saved by
+ * {@link GeopkgGeogigMetadata#saveImportCheckpoint}.
+ * <p>
+ * All the audit log rows up to and including {@link #getAuditRowId() auditRowId} have been applied
+ * to the feature tree {@link #getFeatureTreeId() featureTreeId}, whose features are already stored
+ * in the repository, so the import can resume from the next row. The checkpoint is only valid for
+ * the audit log of the same {@link #getCommitId() commit} the table was exported from.
+ */
+public @Value class AuditImportCheckpoint {
+
+    private String tableName;
+
+    private ObjectId commitId;
+
+    private long auditRowId;
+
+    private ObjectId featureTreeId;
+
+    private long added, changed, removed;
+}
@@ -0,0 +1,422 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.geopkg;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static org.locationtech.geogig.geotools.geopkg.GeopkgGeogigMetadata.AUDIT_OP_DELETE;
+import static org.locationtech.geogig.geotools.geopkg.GeopkgGeogigMetadata.AUDIT_OP_INSERT;
+import static org.locationtech.geogig.geotools.geopkg.GeopkgGeogigMetadata.AUDIT_OP_UPDATE;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geopkg.geom.GeoPkgGeomReader;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.feature.PropertyDescriptor;
+import org.locationtech.geogig.geotools.plumbing.ImportPipeline;
+import org.locationtech.geogig.model.DiffEntry.ChangeType;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.SpatialOps;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Imports the audit log of a single geopackage table onto its feature tree, as part of
+ * {@link InterchangeFormat#importAuditLog}.
+ * <p>
+ * The import is pipelined through an {@link ImportPipeline}: the audit log rows are read in
+ * {@code rowid} order, in chunks of {@link #FETCH_SIZE} rows, by the pipeline's reader thread, the
+ * geopackage geometries are decoded and the {@link RevFeature}s built and hashed concurrently by
+ * the {@link WorkClass#ENCODE encode} executor, and the resulting changes are applied, in the
+ * order of the audit log, by the calling thread through a single {@link RevTreeBuilder}, while the
+ * new features are saved to the object store in batches of {@link #PUT_BATCH_SIZE}.
+ * <p>
+ * Every {@link #setCheckpointInterval checkpointInterval} rows the feature tree is built and an
+ * {@link AuditImportCheckpoint} is saved to the geopackage, recording the {@code rowid} of the
+ * last applied audit log row, so that an interrupted import resumes from the next row instead of
+ * starting over. Checkpoints are removed by {@link InterchangeFormat} once the whole import
+ * succeeds.
+ */
+class AuditLogImporter {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+
+    static final int FETCH_SIZE = 10_000;
+
+    static final int PUT_BATCH_SIZE = 1_000;
+
+    private static final String ROWID_COLUMN = "geogig_audit_rowid";
+
+    private final Context context;
+
+    private final Connection cx;
+
+    private final GeopkgGeogigMetadata metadata;
+
+    private final ProgressListener progressListener;
+
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * @param cx the geopackage connection {@code metadata} operates on, used to read the audit log
+     *        rows from the pipeline's reader thread and to save the checkpoints from the calling
+     *        thread, synchronizing on it
+     */
+    AuditLogImporter(@NonNull Context context, @NonNull Connection cx,
+            @NonNull GeopkgGeogigMetadata metadata, @NonNull ProgressListener progressListener) {
+        this.context = context;
+        this.cx = cx;
+        this.metadata = metadata;
+        this.progressListener = progressListener;
+    }
+
+    public AuditLogImporter setCheckpointInterval(int checkpointInterval) {
+        checkArgument(checkpointInterval > 0, "checkpointInterval must be > 0");
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    /**
+     * Imports the audit log of {@code auditTable} and puts the resulting feature tree on
+     * {@code newTreeBuilder}
+     *
+     * @param baseTree the root tree the table was exported from
+     * @param fidMappings the mappings from geopackage to geogig feature ids created at export time
+     * @return the audit report for the table
+     */
+    public AuditReport importAuditLog(AuditTable auditTable, RevTree baseTree,
+            RevTreeBuilder newTreeBuilder, Map<String, String> fidMappings) throws SQLException {
+
+        final Optional<NodeRef> currentTreeRef = context.command(FindTreeChild.class)
+                .setParent(baseTree).setChildPath(auditTable.getFeatureTreePath()).call();
+
+        Preconditions.checkState(currentTreeRef.isPresent(),
+                baseTree.toString() + auditTable.getFeatureTreePath());
+
+        final ObjectStore store = context.objectDatabase();
+        final NodeRef featureTreeRef = currentTreeRef.get();
+        final RevFeatureType featureType = store.getFeatureType(featureTreeRef.getMetadataId());
+
+        final AuditReport report = new AuditReport(auditTable);
+        RevTree startTree;
+        long lastRowId;
+        Optional<AuditImportCheckpoint> checkpoint;
+        synchronized (cx) {
+            checkpoint = metadata.getImportCheckpoint(auditTable)
+                    .filter(c -> store.exists(c.getFeatureTreeId()));
+            if (checkpoint.isPresent()) {
+                metadata.getImportCheckpointMappings(auditTable.getTableName(),
+                        report::addMapping);
+            } else {
+                // discard a stale or unusable checkpoint, if any
+                metadata.clearImportCheckpoint(auditTable.getTableName());
+            }
+        }
+        if (checkpoint.isPresent()) {
+            AuditImportCheckpoint c = checkpoint.get();
+            startTree = store.getTree(c.getFeatureTreeId());
+            lastRowId = c.getAuditRowId();
+            report.added.set(c.getAdded());
+            report.changed.set(c.getChanged());
+            report.removed.set(c.getRemoved());
+            progressListener.setDescription(format("Resuming import of %s after audit row %,d",
+                    auditTable.getTableName(), lastRowId));
+        } else {
+            startTree = store.getTree(featureTreeRef.getObjectId());
+            lastRowId = Long.MIN_VALUE;
+        }
+
+        final GeogigScheduler scheduler = GeogigScheduler.get(context.hints());
+        final int parallelism = scheduler.parallelism(WorkClass.ENCODE);
+        final ExecutorService encoders = scheduler.boundedExecutor(WorkClass.ENCODE, parallelism);
+        final RecordToFeature recordToFeature = new RecordToFeature(featureType.type());
+        final RevTree newFeatureTree;
+        try (ImportPipeline<AuditRow, Change> pipeline = new ImportPipeline<>(encoders,
+                parallelism, ImportPipeline.DEFAULT_BATCH_SIZE, scheduler)) {
+
+            Iterator<AuditRow> rows = new AuditRowReader(auditTable, featureType.type(),
+                    lastRowId);
+            Iterator<Change> changes = pipeline.run(rows, recordToFeature::apply);
+            newFeatureTree = apply(changes, startTree, fidMappings, report);
+        }
+
+        Node featureTreeNode = RevObjectFactory.defaultInstance().createNode(
+                featureTreeRef.name(), newFeatureTree.getId(), featureTreeRef.getMetadataId(),
+                TYPE.TREE, SpatialOps.boundsOf(newFeatureTree), null);
+
+        newTreeBuilder.put(featureTreeNode);
+        return report;
+    }
+
+    private RevTree apply(Iterator<Change> changes, RevTree startTree,
+            Map<String, String> fidMappings, AuditReport report) throws SQLException {
+
+        final ObjectStore store = context.objectDatabase();
+        final AuditTable table = report.table;
+        final GeogigScheduler scheduler = GeogigScheduler.get(context.hints());
+        RevTreeBuilder builder = CanonicalTreeBuilder.create(store, startTree).scheduler(scheduler);
+        List<RevFeature> pending = new ArrayList<>(PUT_BATCH_SIZE);
+        Map<String, String> checkpointMappings = new HashMap<>();
+        long sinceCheckpoint = 0;
+        long count = 0;
+
+        progressListener.setProgress(0);
+        while (changes.hasNext()) {
+            final Change change = changes.next();
+            final String gpkgFid = change.getFeatureId();
+            String featureId = fidMappings.get(gpkgFid);
+            if (featureId == null && report.getNewMappings() != null) {
+                // inserted by a previous row of this same audit log
+                featureId = report.getNewMappings().get(gpkgFid);
+            }
+            if (featureId == null) {
+                featureId = SimpleFeatureBuilder.createDefaultFeatureId();
+                report.addMapping(gpkgFid, featureId);
+                checkpointMappings.put(gpkgFid, featureId);
+            }
+
+            final RevFeature feature = change.getFeature();
+            switch (change.getType()) {
+            case REMOVED:
+                report.removed.incrementAndGet();
+                builder.remove(featureId);
+                break;
+            case ADDED:
+            case MODIFIED:
+                if (ChangeType.ADDED.equals(change.getType())) {
+                    report.added.incrementAndGet();
+                } else {
+                    report.changed.incrementAndGet();
+                }
+                Node node = RevObjectFactory.defaultInstance().createNode(featureId,
+                        feature.getId(), ObjectId.NULL, TYPE.FEATURE,
+                        SpatialOps.boundsOf(feature), null);
+                builder.put(node);
+                pending.add(feature);
+                if (pending.size() == PUT_BATCH_SIZE) {
+                    store.putAll(pending.iterator());
+                    pending.clear();
+                }
+                break;
+            default:
+                throw new IllegalStateException();
+            }
+            progressListener.setProgress(++count);
+
+            if (++sinceCheckpoint == checkpointInterval && changes.hasNext()) {
+                store.putAll(pending.iterator());
+                pending.clear();
+                RevTree tree = builder.build();
+                store.put(tree);
+                AuditImportCheckpoint checkpoint = new AuditImportCheckpoint(
+                        table.getTableName(), table.getCommitId(), change.getRowId(),
+                        tree.getId(), report.added.get(), report.changed.get(),
+                        report.removed.get());
+                synchronized (cx) {
+                    metadata.saveImportCheckpoint(checkpoint, checkpointMappings);
+                }
+                checkpointMappings.clear();
+                sinceCheckpoint = 0;
+                builder = CanonicalTreeBuilder.create(store, tree).scheduler(scheduler);
+            }
+        }
+        store.putAll(pending.iterator());
+        RevTree newTree = builder.build();
+        store.put(newTree);
+        return newTree;
+    }
+
+    /**
+     * An audit log row, as read from the geopackage
+     */
+    private static @Value class AuditRow {
+        private long rowId;
+
+        private String featureId;
+
+        private int auditOp;
+
+        /**
+         * the raw attribute values, with the geometry still encoded, or {@code null} for deletes
+         */
+        private @Nullable Object[] values;
+    }
+
+    /**
+     * A change from an audit log
+     */
+    private static @Value class Change {
+        private long rowId;
+
+        private String featureId;
+
+        private ChangeType type;
+
+        private @Nullable RevFeature feature;
+    }
+
+    /**
+     * Reads the audit log rows after a given {@code rowid}, in chunks of {@link #FETCH_SIZE} rows
+     * so that no statement is left open while a checkpoint is saved
+     */
+    private class AuditRowReader extends AbstractIterator<AuditRow> {
+
+        private final String sql;
+
+        private final List<String> attNames;
+
+        private long lastRowId;
+
+        private Iterator<AuditRow> chunk = Collections.emptyIterator();
+
+        private boolean exhausted;
+
+        AuditRowReader(AuditTable table, FeatureType type, long lastRowId) {
+            this.sql = format(
+                    "SELECT rowid AS %s, * FROM \"%s\" WHERE rowid > ? ORDER BY rowid LIMIT %d",
+                    ROWID_COLUMN, table.getAuditTable(), FETCH_SIZE);
+            this.attNames = type.getDescriptors().stream().map(PropertyDescriptor::getLocalName)
+                    .collect(Collectors.toList());
+            this.lastRowId = lastRowId;
+        }
+
+        protected @Override AuditRow computeNext() {
+            if (!chunk.hasNext() && !exhausted) {
+                try {
+                    chunk = fetch();
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return chunk.hasNext() ? chunk.next() : endOfData();
+        }
+
+        private Iterator<AuditRow> fetch() throws SQLException {
+            List<AuditRow> rows = new ArrayList<>();
+            synchronized (cx) {
+                try (PreparedStatement st = cx.prepareStatement(sql)) {
+                    st.setLong(1, lastRowId);
+                    try (ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            rows.add(read(rs));
+                        }
+                    }
+                }
+            }
+            exhausted = rows.size() < FETCH_SIZE;
+            if (!rows.isEmpty()) {
+                lastRowId = rows.get(rows.size() - 1).getRowId();
+            }
+            return rows.iterator();
+        }
+
+        private AuditRow read(ResultSet rs) throws SQLException {
+            final long rowId = rs.getLong(ROWID_COLUMN);
+            final String featureId = rs.getString("fid");
+            final int auditOp = rs.getInt("audit_op");
+            Object[] values = null;
+            if (AUDIT_OP_DELETE != auditOp) {
+                values = new Object[attNames.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getObject(attNames.get(i));
+                }
+            }
+            return new AuditRow(rowId, featureId, auditOp, values);
+        }
+    }
+
+    /**
+     * Decodes an audit log row into a {@link Change}, building its feature if not a delete. Thread
+     * safe.
+     */
+    private static class RecordToFeature {
+
+        private final FeatureType type;
+
+        private final int geometryIndex;
+
+        RecordToFeature(@NonNull FeatureType type) {
+            this.type = type;
+            this.geometryIndex = type.getGeometryDescriptorIndex();
+        }
+
+        public Change apply(AuditRow row) {
+            final ChangeType changeType = toChangeType(row.getAuditOp());
+            RevFeature revFeature = null;
+            if (!ChangeType.REMOVED.equals(changeType)) {
+                Feature feature = Feature.build("fakeId", type);
+                Object[] values = row.getValues();
+                try {
+                    for (int i = 0; i < values.length; i++) {
+                        Object value = values[i];
+                        if (i == geometryIndex && value != null) {
+                            value = new GeoPkgGeomReader((byte[]) value).get();
+                        }
+                        feature.setAttribute(i, value);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                revFeature = RevFeature.builder().build(feature);
+            }
+            return new Change(row.getRowId(), row.getFeatureId(), changeType, revFeature);
+        }
+
+        private ChangeType toChangeType(int auditOp) {
+            switch (auditOp) {
+            case AUDIT_OP_INSERT:
+                return ChangeType.ADDED;
+            case AUDIT_OP_UPDATE:
+                return ChangeType.MODIFIED;
+            case AUDIT_OP_DELETE:
+                return ChangeType.REMOVED;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "Geopackage audit log record contains an invalid audit op code: %d. Expected one if %d(INSERT), %d(UPDATE), %d(DELETE)",
+                        auditOp, AUDIT_OP_INSERT, AUDIT_OP_UPDATE, AUDIT_OP_DELETE));
+            }
+        }
+    }
+}
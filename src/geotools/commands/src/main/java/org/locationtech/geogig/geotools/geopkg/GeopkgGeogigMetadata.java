@@ -24,6 +24,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.function.BiConsumer;
 
 import org.locationtech.geogig.model.DiffEntry.ChangeType;
 import org.locationtech.geogig.model.ObjectId;
@@ -49,6 +51,24 @@ import lombok.NonNull;
  * <li>{@code mapped_path VARCHAR}
  * <li>{@code audit_table VARCHAR}
  * </ul>
+ * <p>
+ * TABLE: <b>{@code geogig_audit_import_checkpoints}</b>, progress of interrupted audit log imports,
+ * see {@link AuditImportCheckpoint}
+ * <ul>
+ * <li>{@code table_name VARCHAR}
+ * <li>{@code commit_id VARCHAR}
+ * <li>{@code audit_rowid INTEGER}, {@code rowid} of the last imported audit log row
+ * <li>{@code feature_tree_id VARCHAR}
+ * <li>{@code added INTEGER}, {@code changed INTEGER}, {@code removed INTEGER}
+ * </ul>
+ * <p>
+ * TABLE: <b>{@code geogig_audit_import_fids}</b>, feature ids assigned to the features inserted
+ * in the geopackage by the rows imported before a checkpoint
+ * <ul>
+ * <li>{@code table_name VARCHAR}
+ * <li>{@code gpkg_fid VARCHAR}
+ * <li>{@code geogig_fid VARCHAR}
+ * </ul>
  */
 public class GeopkgGeogigMetadata implements AutoCloseable {
 
@@ -56,6 +76,10 @@ public class GeopkgGeogigMetadata implements AutoCloseable {
 
     private static final String AUDIT_METADATA_TABLE = "geogig_audited_tables";
 
+    private static final String IMPORT_CHECKPOINT_TABLE = "geogig_audit_import_checkpoints";
+
+    private static final String IMPORT_FIDS_TABLE = "geogig_audit_import_fids";
+
     public static final int AUDIT_OP_INSERT = 1;
 
     public static final int AUDIT_OP_UPDATE = 2;
@@ -261,6 +285,156 @@ public class GeopkgGeogigMetadata implements AutoCloseable {
         return fidMappingTable;
     }
 
+    /**
+     * @return the checkpoint of a previously interrupted import of {@code table}'s audit log, if
+     *         any, and as long as it was saved for the same commit the table was exported from and
+     *         can be parsed
+     */
+    public Optional<AuditImportCheckpoint> getImportCheckpoint(@NonNull AuditTable table)
+            throws SQLException {
+        if (!tableExists(IMPORT_CHECKPOINT_TABLE)) {
+            return Optional.empty();
+        }
+        final String sql = format(
+                "SELECT commit_id, audit_rowid, feature_tree_id, added, changed, removed FROM %s WHERE table_name = ?",
+                IMPORT_CHECKPOINT_TABLE);
+        try (PreparedStatement st = cx.prepareStatement(sql)) {
+            st.setString(1, table.getTableName());
+            try (ResultSet rs = st.executeQuery()) {
+                if (rs.next()) {
+                    final ObjectId commitId;
+                    final ObjectId featureTreeId;
+                    try {
+                        commitId = ObjectId.valueOf(rs.getString(1));
+                        featureTreeId = ObjectId.valueOf(rs.getString(3));
+                    } catch (RuntimeException corrupt) {
+                        return Optional.empty();
+                    }
+                    if (commitId.equals(table.getCommitId())) {
+                        return Optional.of(new AuditImportCheckpoint(table.getTableName(),
+                                commitId, rs.getLong(2), featureTreeId, rs.getLong(4),
+                                rs.getLong(5), rs.getLong(6)));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reports the feature id mappings saved with the import checkpoints of {@code tableName} to
+     * {@code consumer}
+     */
+    public void getImportCheckpointMappings(@NonNull String tableName,
+            @NonNull BiConsumer<String, String> consumer) throws SQLException {
+        if (!tableExists(IMPORT_FIDS_TABLE)) {
+            return;
+        }
+        final String sql = format("SELECT gpkg_fid, geogig_fid FROM %s WHERE table_name = ?",
+                IMPORT_FIDS_TABLE);
+        try (PreparedStatement st = cx.prepareStatement(sql)) {
+            st.setString(1, tableName);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Atomically saves {@code checkpoint}, replacing the previous one for the same table, along
+     * with the feature id mappings created since the previous checkpoint
+     */
+    public void saveImportCheckpoint(@NonNull AuditImportCheckpoint checkpoint,
+            @NonNull Map<String, String> newMappings) throws SQLException {
+        cx.setAutoCommit(false);
+        try {
+            try (Statement st = cx.createStatement()) {
+                st.execute(format(
+                        "CREATE TABLE IF NOT EXISTS %s (table_name VARCHAR, commit_id VARCHAR, audit_rowid INTEGER, feature_tree_id VARCHAR, added INTEGER, changed INTEGER, removed INTEGER, PRIMARY KEY(table_name))",
+                        IMPORT_CHECKPOINT_TABLE));
+                st.execute(format(
+                        "CREATE TABLE IF NOT EXISTS %s (table_name VARCHAR, gpkg_fid VARCHAR, geogig_fid VARCHAR, PRIMARY KEY(table_name, gpkg_fid))",
+                        IMPORT_FIDS_TABLE));
+            }
+            String sql = format("INSERT OR REPLACE INTO %s VALUES(?, ?, ?, ?, ?, ?, ?)",
+                    IMPORT_CHECKPOINT_TABLE);
+            try (PreparedStatement st = cx.prepareStatement(sql)) {
+                st.setString(1, checkpoint.getTableName());
+                st.setString(2, checkpoint.getCommitId().toString());
+                st.setLong(3, checkpoint.getAuditRowId());
+                st.setString(4, checkpoint.getFeatureTreeId().toString());
+                st.setLong(5, checkpoint.getAdded());
+                st.setLong(6, checkpoint.getChanged());
+                st.setLong(7, checkpoint.getRemoved());
+                st.executeUpdate();
+            }
+            sql = format("INSERT OR REPLACE INTO %s VALUES(?, ?, ?)", IMPORT_FIDS_TABLE);
+            try (PreparedStatement st = cx.prepareStatement(sql)) {
+                for (Entry<String, String> mapping : newMappings.entrySet()) {
+                    st.setString(1, checkpoint.getTableName());
+                    st.setString(2, mapping.getKey());
+                    st.setString(3, mapping.getValue());
+                    st.addBatch();
+                }
+                st.executeBatch();
+            }
+            cx.commit();
+        } catch (SQLException e) {
+            cx.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the import checkpoint of {@code tableName} and its feature id mappings, if any, so
+     * that an import that couldn't use them doesn't mix them with its own
+     */
+    public void clearImportCheckpoint(@NonNull String tableName) throws SQLException {
+        if (!tableExists(IMPORT_CHECKPOINT_TABLE)) {
+            return;
+        }
+        cx.setAutoCommit(false);
+        try {
+            for (String table : new String[] { IMPORT_CHECKPOINT_TABLE, IMPORT_FIDS_TABLE }) {
+                String sql = format("DELETE FROM %s WHERE table_name = ?", table);
+                try (PreparedStatement st = cx.prepareStatement(sql)) {
+                    st.setString(1, tableName);
+                    st.executeUpdate();
+                }
+            }
+            cx.commit();
+        } catch (SQLException e) {
+            cx.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes all import checkpoints, once the audit logs were successfully imported
+     */
+    public void clearImportCheckpoints() throws SQLException {
+        cx.setAutoCommit(false);
+        try {
+            try (Statement st = cx.createStatement()) {
+                st.execute(format("DROP TABLE IF EXISTS %s", IMPORT_CHECKPOINT_TABLE));
+                st.execute(format("DROP TABLE IF EXISTS %s", IMPORT_FIDS_TABLE));
+            }
+            cx.commit();
+        } catch (SQLException e) {
+            cx.rollback();
+            throw e;
+        }
+    }
+
+    private boolean tableExists(String tableName) throws SQLException {
+        DatabaseMetaData dbm = cx.getMetaData();
+        try (ResultSet tables = dbm.getTables(null, null, tableName, null)) {
+            return tables.next();
+        }
+    }
+
     private String createAuditTable(final String tableName) throws SQLException {
         final String auditTable = tableName + "_audit";
 
@@ -12,17 +12,12 @@ package org.locationtech.geogig.geotools.geopkg;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
-import static org.locationtech.geogig.geotools.geopkg.GeopkgGeogigMetadata.AUDIT_OP_DELETE;
-import static org.locationtech.geogig.geotools.geopkg.GeopkgGeogigMetadata.AUDIT_OP_INSERT;
-import static org.locationtech.geogig.geotools.geopkg.GeopkgGeogigMetadata.AUDIT_OP_UPDATE;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.sql.Connection;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -31,32 +26,19 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
 
 import org.eclipse.jdt.annotation.Nullable;
-import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geopkg.FeatureEntry;
 import org.geotools.geopkg.GeoPackage;
-import org.geotools.geopkg.geom.GeoPkgGeomReader;
-import org.locationtech.geogig.feature.Feature;
-import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.model.DiffEntry.ChangeType;
-import org.locationtech.geogig.model.Node;
-import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevCommitBuilder;
-import org.locationtech.geogig.model.RevFeature;
-import org.locationtech.geogig.model.RevFeatureType;
-import org.locationtech.geogig.model.RevObject.TYPE;
-import org.locationtech.geogig.model.RevObjectFactory;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.model.RevTreeBuilder;
 import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
-import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.porcelain.ConfigGet;
 import org.locationtech.geogig.porcelain.MergeConflictsException;
@@ -64,16 +46,11 @@ import org.locationtech.geogig.porcelain.MergeOp;
 import org.locationtech.geogig.porcelain.MergeOp.MergeReport;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.ProgressListener;
-import org.locationtech.geogig.repository.impl.SpatialOps;
-import org.locationtech.geogig.storage.ObjectStore;
 
-import com.google.common.base.Preconditions;
-import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
-import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -228,6 +205,10 @@ public class InterchangeFormat {
      * branch. If the head commit of the current branch is different from the commit that the
      * features were exported from, the features will be merged into the current branch. The calling
      * function should anticipate the possibility of merge conflicts.
+     * <p>
+     * The progress of each table import is checkpointed to the geopackage, so that if the import
+     * fails or is interrupted, the next call resumes it from the last checkpoint of each table
+     * instead of starting over. The checkpoints are removed once the import succeeds.
      * 
      * @param commitMessage commit message for the imported features
      * @param authorName author name to use for the commit
@@ -273,13 +254,18 @@ public class InterchangeFormat {
 
             RevCommit commit = context.objectDatabase().getCommit(commitId);
             RevTree baseTree = context.objectDatabase().getTree(commit.getTreeId());
-            RevTreeBuilder newTreeBuilder = CanonicalTreeBuilder.create(context.objectDatabase(),
-                    baseTree);
+            RevTreeBuilder newTreeBuilder = CanonicalTreeBuilder
+                    .create(context.objectDatabase(), baseTree)
+                    .scheduler(GeogigScheduler.get(context.hints()));
 
+            final AuditLogImporter importer = new AuditLogImporter(context, connection, metadata,
+                    progressListener);
             Map<String, String> fidMappings = null;
             for (AuditTable t : tables.values()) {
+                info("Importing changes to table %s onto feature tree %s...", t.getTableName(),
+                        t.getFeatureTreePath());
                 fidMappings = metadata.getFidMappings(t.getTableName());
-                AuditReport report = importAuditLog(geopackage, t, baseTree, newTreeBuilder,
+                AuditReport report = importer.importAuditLog(t, baseTree, newTreeBuilder,
                         fidMappings);
                 reports.add(report);
             }
@@ -334,6 +320,8 @@ public class InterchangeFormat {
             MergeReport report = merge.call();
             RevCommit newCommit = report.getMergeCommit();
             importResult.setNewCommit(newCommit);
+            // the audit logs were fully imported, a new import shall start over
+            metadata.clearImportCheckpoints();
 
         } catch (MergeConflictsException e) {
             if (null != importResult) {
@@ -348,259 +336,4 @@ public class InterchangeFormat {
         }
         return importResult;
     }
-
-    /**
-     * Import the specified table and update the tree builder with the updated features.
-     * 
-     * @param geopackage the geopackage to import from
-     * @param auditTable the audit table for the feature type
-     * @param baseTree the tree that the features were originally exported from
-     * @param newTreeBuilder the tree builder for the updated features
-     * @return the audit report for the table
-     * @throws SQLException
-     */
-    private AuditReport importAuditLog(GeoPackage geopackage, AuditTable auditTable,
-            RevTree baseTree, RevTreeBuilder newTreeBuilder, Map<String, String> fidMappings)
-            throws SQLException {
-        info("Importing changes to table %s onto feature tree %s...", auditTable.getTableName(),
-                auditTable.getFeatureTreePath());
-
-        AuditReport tableReport = new AuditReport(auditTable);
-
-        try (Connection cx = geopackage.getDataSource().getConnection()) {
-            final String sql = format("SELECT * FROM %s", auditTable.getAuditTable());
-            try (Statement st = cx.createStatement()) {
-                try (ResultSet rs = st.executeQuery(sql)) {
-
-                    final Optional<NodeRef> currentTreeRef = context.command(FindTreeChild.class)
-                            .setParent(baseTree).setChildPath(auditTable.getFeatureTreePath())
-                            .call();
-
-                    Preconditions.checkState(currentTreeRef.isPresent(),
-                            baseTree.toString() + auditTable.getFeatureTreePath());
-
-                    final ObjectStore store = context.objectDatabase();
-
-                    final NodeRef featureTreeRef = currentTreeRef.get();
-                    final RevTree currentFeatureTree = store.getTree(featureTreeRef.getObjectId());
-                    final RevFeatureType featureType = store
-                            .getFeatureType(featureTreeRef.getMetadataId());
-
-                    final Iterator<Change> changes = asChanges(rs, featureType, tableReport);
-                    final RevTree newFeatureTree = importAuditLog(store, currentFeatureTree,
-                            changes, fidMappings, tableReport);
-
-                    Node featureTreeNode = RevObjectFactory.defaultInstance().createNode(
-                            featureTreeRef.name(), newFeatureTree.getId(),
-                            featureTreeRef.getMetadataId(), TYPE.TREE,
-                            SpatialOps.boundsOf(newFeatureTree), null);
-
-                    newTreeBuilder.put(featureTreeNode);
-                }
-            }
-        }
-        return tableReport;
-    }
-
-    /**
-     * Builds a new feature type tree based on the changes in the audit logs.
-     * 
-     * @param store the object store
-     * @param currentFeatureTree the original feature tree
-     * @param changes all of the changes from the audit log
-     * @return the newly built tree
-     * @throws SQLException
-     */
-    private RevTree importAuditLog(ObjectStore store, RevTree currentFeatureTree,
-            Iterator<Change> changes, Map<String, String> fidMappings, AuditReport report)
-            throws SQLException {
-
-        CanonicalTreeBuilder builder = CanonicalTreeBuilder.create(store, currentFeatureTree);
-
-        progressListener.setProgress(0);
-
-        Function<Change, RevFeature> function = new Function<InterchangeFormat.Change, RevFeature>() {
-
-            private int count = 0;
-
-            public @Override RevFeature apply(Change change) {
-                progressListener.setProgress(++count);
-
-                @Nullable
-                RevFeature feature = change.getFeature();
-
-                String featureId = null;
-                if (fidMappings.containsKey(change.getFeautreId())) {
-                    featureId = fidMappings.get(change.getFeautreId());
-                } else {
-                    featureId = newFeatureId();
-                    report.addMapping(change.getFeautreId(), featureId);
-                }
-
-                ChangeType type = change.getType();
-                switch (type) {
-                case REMOVED:
-                    builder.remove(featureId);
-                    break;
-                case ADDED:
-                case MODIFIED:
-                    Node node = RevObjectFactory.defaultInstance().createNode(featureId,
-                            feature.getId(), ObjectId.NULL, TYPE.FEATURE,
-                            SpatialOps.boundsOf(feature), null);
-                    builder.put(node);
-                    return feature;
-                default:
-                    throw new IllegalStateException();
-                }
-                return feature;
-            }
-        };
-
-        Iterator<RevFeature> feautres = Iterators
-                .filter(Iterators.transform(changes, function::apply), Predicates.notNull());
-
-        store.putAll(feautres);
-
-        RevTree newTree = builder.build();
-        store.put(newTree);
-        return newTree;
-    }
-
-    /**
-     * Converts the audit log into an iterator for all of the changes and updates an audit report
-     * with a summary of the changes.
-     * 
-     * @param rs the rows from the audit log
-     * @param featureType the feature type for the features in the table
-     * @param report the audit report to update
-     * @return
-     */
-    private Iterator<Change> asChanges(final ResultSet rs, RevFeatureType featureType,
-            AuditReport report) {
-
-        return new AbstractIterator<InterchangeFormat.Change>() {
-
-            private final RecordToFeature recordToFeature = new RecordToFeature(featureType.type());
-
-            protected @Override Change computeNext() {
-                try {
-                    if (rs.next()) {
-                        final String featureId = rs.getString("fid");
-                        // final long auditTimestamp = rs.getLong("audit_timestamp");
-                        // System.err.println(new Timestamp(auditTimestamp));
-                        final int auditOp = rs.getInt("audit_op");
-                        final ChangeType changeType = toChangeType(auditOp);
-
-                        RevFeature revFeature = null;
-                        if (ChangeType.REMOVED.equals(changeType)) {
-                            report.removed.incrementAndGet();
-                        } else {
-                            revFeature = recordToFeature.apply(rs);
-                            if (ChangeType.ADDED.equals(changeType)) {
-                                report.added.incrementAndGet();
-                            } else {
-                                report.changed.incrementAndGet();
-                            }
-                        }
-
-                        Change change = new Change(featureId, changeType, revFeature);
-                        return change;
-                    }
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
-                }
-                return endOfData();
-            }
-
-            private ChangeType toChangeType(int auditOp) {
-                switch (auditOp) {
-                case AUDIT_OP_INSERT:
-                    return ChangeType.ADDED;
-                case AUDIT_OP_UPDATE:
-                    return ChangeType.MODIFIED;
-                case AUDIT_OP_DELETE:
-                    return ChangeType.REMOVED;
-                default:
-                    throw new IllegalArgumentException(String.format(
-                            "Geopackage audit log record contains an invalid audit op code: %d. Expected one if %d(INSERT), %d(UPDATE), %d(DELETE)",
-                            auditOp, AUDIT_OP_INSERT, AUDIT_OP_UPDATE, AUDIT_OP_DELETE));
-                }
-            }
-        };
-    }
-
-    private String newFeatureId() {
-        return SimpleFeatureBuilder.createDefaultFeatureId();
-    }
-
-    /**
-     * Helper function to convert a row from an audit log into a feature.
-     */
-    private static class RecordToFeature implements Function<ResultSet, RevFeature> {
-
-        private final List<String> attNames;
-
-        private final String geometryAttribute;
-
-        private final org.locationtech.geogig.feature.FeatureType type;
-
-        RecordToFeature(@NonNull org.locationtech.geogig.feature.FeatureType type) {
-            this.type = type;
-            this.attNames = type.getDescriptors().stream()
-                    .map(org.locationtech.geogig.feature.PropertyDescriptor::getLocalName)
-                    .collect(Collectors.toList());
-            this.geometryAttribute = type.getGeometryDescriptor()
-                    .map(PropertyDescriptor::getLocalName).orElse(null);
-        }
-
-        public @Override RevFeature apply(ResultSet rs) {
-            Feature feature = Feature.build("fakeId", this.type);
-            try {
-                for (String attName : attNames) {
-                    Object value = rs.getObject(attName);
-                    if (attName.equals(geometryAttribute) && value != null) {
-                        byte[] bytes = (byte[]) value;
-                        value = new GeoPkgGeomReader(bytes).get();
-                    }
-                    feature.setAttribute(attName, value);
-                }
-                return RevFeature.builder().build(feature);
-            } catch (SQLException | IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-    }
-
-    /**
-     * Helper class for a change from an audit log.
-     */
-    private static class Change {
-
-        private final String featureId;
-
-        private final ChangeType changeType;
-
-        private final @Nullable RevFeature feature;
-
-        public Change(final String featureId, final ChangeType changeType,
-                final @Nullable RevFeature feature) {
-            this.featureId = featureId;
-            this.changeType = changeType;
-            this.feature = feature;
-
-        }
-
-        public ChangeType getType() {
-            return changeType;
-        }
-
-        public @Nullable RevFeature getFeature() {
-            return feature;
-        }
-
-        public String getFeautreId() {
-            return featureId;
-        }
-
-    }
 }
@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -60,6 +61,8 @@ import org.locationtech.geogig.plumbing.LsTreeOp.Strategy;
 import org.locationtech.geogig.plumbing.ResolveFeatureType;
 import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.WorkingTree;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
@@ -147,6 +150,8 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
 
     private Filter filter = Filter.INCLUDE;
 
+    private int encodingThreads;
+
     /**
      * Executes the import operation using the parameters that have been specified. Features will be
      * added to the working tree, and a new working tree will be constructed. Either {@code all} or
@@ -547,8 +552,24 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
                 }
             };
 
-            Iterator<FeatureInfo> infos = Iterators.transform(features, fn::apply);
-            workTree.insert(infos, taskProgress);
+            final GeogigScheduler scheduler = GeogigScheduler.get(context().hints());
+            final int parallelism = encodingThreads > 0 ? encodingThreads
+                    : scheduler.parallelism(WorkClass.ENCODE);
+            final ExecutorService encoders = scheduler.boundedExecutor(WorkClass.ENCODE,
+                    parallelism);
+
+            final ProgressListener progress = getProgressListener();
+            final Function<ProgressListener, String> defaultProgressIndicator;
+            defaultProgressIndicator = progress.progressIndicator();
+            try (ImportPipeline<Feature, FeatureInfo> pipeline = new ImportPipeline<>(encoders,
+                    parallelism, ImportPipeline.DEFAULT_BATCH_SIZE, scheduler)) {
+                progress.setProgressIndicator(p -> pipeline.toString());
+                Iterator<FeatureInfo> infos = pipeline.run(features, fn);
+                workTree.insert(infos, taskProgress);
+                LOG.debug("Imported {}: {}", treePath, pipeline);
+            } finally {
+                progress.setProgressIndicator(defaultProgressIndicator);
+            }
         } catch (Exception e) {
             LOG.warn("Unable to insert into " + treePath, e);
             throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_INSERT);
@@ -745,4 +766,19 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
         this.filter = filter;
         return this;
     }
+
+    /**
+     * Sets the number of threads used to adapt, hash, and encode the imported features while
+     * they're being read from the source and inserted in the working tree. Defaults to the
+     * {@link WorkClass#ENCODE encode} parallelism of the {@link GeogigScheduler}. The resulting
+     * trees don't depend on this setting, features are inserted in the order they're read.
+     * 
+     * @param encodingThreads number of encoding threads, or zero for the default
+     * @return {@code this}
+     */
+    public ImportOp setEncodingThreads(int encodingThreads) {
+        Preconditions.checkArgument(encodingThreads >= 0, "encodingThreads must be >= 0");
+        this.encodingThreads = encodingThreads;
+        return this;
+    }
 }
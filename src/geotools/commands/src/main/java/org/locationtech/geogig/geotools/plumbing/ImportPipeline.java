@@ -0,0 +1,234 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+
+import lombok.NonNull;
+
+/**
+ * The read and encode stages of an import, turning source records of type {@code S} into objects
+ * of type {@code T} to be inserted in the repository. {@link ImportOp} uses it to turn GeoTools
+ * features into {@link org.locationtech.geogig.repository.FeatureInfo FeatureInfo}s to be inserted
+ * by the {@link org.locationtech.geogig.repository.WorkingTree WorkingTree}, which in turn batches
+ * them to the object database and puts their nodes on the feature tree builders.
+ * <p>
+ * A reader task pulls records from the source in batches of {@code batchSize}, each batch is
+ * adapted, hashed and encoded by the {@code encoders} executor, and the pending batches are queued,
+ * in the order they were read, in a queue bounded to {@code 2 * parallelism} batches. The returned
+ * iterator hands out the encoded records in exactly the same order the source produced them,
+ * hence the resulting trees are the same as if the import were performed sequentially, while at
+ * most {@code 2 * parallelism * batchSize} records are held in memory.
+ * <p>
+ * The number of records that went through each stage are available through {@link #read()},
+ * {@link #encoded()}, and {@link #consumed()}, and {@link #toString()} reports their throughput.
+ */
+public class ImportPipeline<S, T> implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private static final List<?> END = Collections.emptyList();
+
+    private final ExecutorService encoders;
+
+    private final int batchSize;
+
+    private final BlockingQueue<Future<List<T>>> queue;
+
+    private final ExecutorService reader;
+
+    private final AtomicLong read = new AtomicLong();
+
+    private final AtomicLong encoded = new AtomicLong();
+
+    private final AtomicLong consumed = new AtomicLong();
+
+    private final Stopwatch time = Stopwatch.createUnstarted();
+
+    private volatile boolean closed;
+
+    /**
+     * @param encoders the executor service to run the encoding tasks on, shut down when this
+     *        pipeline is {@link #close() closed}
+     * @param parallelism the number of batches {@code encoders} can process concurrently
+     * @param batchSize number of records per encoding task
+     */
+    public ImportPipeline(@NonNull ExecutorService encoders, int parallelism, int batchSize) {
+        this(encoders, parallelism, batchSize, GeogigScheduler.defaultInstance());
+    }
+
+    /**
+     * @param encoders the executor service to run the encoding tasks on, shut down when this
+     *        pipeline is {@link #close() closed}
+     * @param parallelism the number of batches {@code encoders} can process concurrently
+     * @param batchSize number of records per encoding task
+     * @param scheduler the scheduler whose {@link WorkClass#STORAGE_IO storage-io} executor runs
+     *        the reader
+     */
+    public ImportPipeline(@NonNull ExecutorService encoders, int parallelism, int batchSize,
+            @NonNull GeogigScheduler scheduler) {
+        checkArgument(parallelism > 0, "parallelism must be > 0");
+        checkArgument(batchSize > 0, "batchSize must be > 0");
+        this.encoders = encoders;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(2 * parallelism);
+        this.reader = scheduler.boundedExecutor(WorkClass.STORAGE_IO, 1);
+    }
+
+    /**
+     * Starts reading {@code records} on the reader task and returns the encoded records in the
+     * source order. Can be called only once.
+     * <p>
+     * {@code encoder} is called concurrently and hence must be thread safe. An exception thrown
+     * while reading or encoding is propagated by the returned iterator.
+     */
+    public Iterator<T> run(@NonNull Iterator<? extends S> records,
+            @NonNull Function<S, T> encoder) {
+        checkArgument(!time.isRunning(), "pipeline already started");
+        time.start();
+        reader.submit(() -> read(records, encoder));
+        return new OrderedResults();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void read(Iterator<? extends S> records, Function<S, T> encoder) {
+        try {
+            while (!closed && records.hasNext()) {
+                List<S> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && records.hasNext()) {
+                    batch.add(records.next());
+                }
+                read.addAndGet(batch.size());
+                queue.put(encoders.submit(() -> encode(batch, encoder)));
+            }
+            queue.put(CompletableFuture.completedFuture((List<T>) END));
+        } catch (InterruptedException e) {
+            // closed
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            CompletableFuture<List<T>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            try {
+                queue.put(failed);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private List<T> encode(List<S> batch, Function<S, T> encoder) {
+        List<T> infos = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size() && !closed; i++) {
+            infos.add(encoder.apply(batch.get(i)));
+        }
+        encoded.addAndGet(infos.size());
+        return infos;
+    }
+
+    private class OrderedResults extends AbstractIterator<T> {
+
+        private Iterator<T> current = Collections.emptyIterator();
+
+        protected @Override T computeNext() {
+            while (!current.hasNext()) {
+                final List<T> batch;
+                try {
+                    batch = queue.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for records", e);
+                } catch (ExecutionException e) {
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw new IllegalStateException(e.getCause());
+                }
+                if (batch == END) {
+                    time.stop();
+                    return endOfData();
+                }
+                current = batch.iterator();
+            }
+            consumed.incrementAndGet();
+            return current.next();
+        }
+    }
+
+    /**
+     * @return the number of records read from the source
+     */
+    public long read() {
+        return read.get();
+    }
+
+    /**
+     * @return the number of records adapted, hashed, and encoded
+     */
+    public long encoded() {
+        return encoded.get();
+    }
+
+    /**
+     * @return the number of encoded records handed out to the consumer
+     */
+    public long consumed() {
+        return consumed.get();
+    }
+
+    /**
+     * Stops reading and encoding, discarding any pending batch.
+     */
+    public @Override void close() {
+        closed = true;
+        reader.shutdownNow();
+        encoders.shutdownNow();
+        try {
+            reader.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Future<List<T>> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.cancel(true);
+        }
+        if (time.isRunning()) {
+            time.stop();
+        }
+    }
+
+    /**
+     * @return the number of records that went through each stage, and their throughput
+     */
+    public @Override String toString() {
+        final double seconds = Math.max(1, time.elapsed(TimeUnit.MILLISECONDS)) / 1000d;
+        final long r = read(), e = encoded(), c = consumed();
+        return String.format("read %,d (%,d/s), encoded %,d (%,d/s), inserted %,d (%,d/s)", r,
+                (long) (r / seconds), e, (long) (e / seconds), c, (long) (c / seconds));
+    }
+}
@@ -0,0 +1,354 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.geopkg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import org.geotools.geopkg.GeoPackage;
+import org.geotools.geopkg.geom.GeoPkgGeomWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+
+public class AuditLogImporterTest extends RepositoryTestCase {
+
+    private static final int CHECKPOINT_INTERVAL = 5;
+
+    /**
+     * Number of audit log rows created by {@link #edit}
+     */
+    private static final int AUDIT_ROWS = 33;
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    private RevCommit commit;
+
+    private Map<String, String> fidMappings;
+
+    protected @Override void setUpInternal() throws Exception {
+        insertAndAdd(points1, points2, points3);
+        commit = repo.command(CommitOp.class).setMessage("export").call();
+        fidMappings = new HashMap<>();
+        fidMappings.put("1", idP1);
+        fidMappings.put("2", idP2);
+        fidMappings.put("3", idP3);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        final Imported expected;
+        try (TestGeopackage gpkg = new TestGeopackage("uninterrupted.gpkg")) {
+            expected = gpkg.importAuditLog(new DefaultProgressListener());
+        }
+        assertEquals(20, expected.added);
+        assertEquals(11, expected.changed);
+        assertEquals(2, expected.removed);
+
+        try (TestGeopackage gpkg = new TestGeopackage("interrupted.gpkg")) {
+            // stop after the checkpoint at row 10 was saved and two more rows were applied
+            try {
+                gpkg.importAuditLog(new InterruptingListener(2 * CHECKPOINT_INTERVAL + 3));
+                fail("expected interruption");
+            } catch (IllegalStateException expectedInterruption) {
+                assertEquals("interrupted", expectedInterruption.getMessage());
+            }
+            Optional<AuditImportCheckpoint> checkpoint = gpkg.metadata
+                    .getImportCheckpoint(gpkg.table());
+            assertTrue(checkpoint.isPresent());
+            assertEquals(commit.getId(), checkpoint.get().getCommitId());
+            assertTrue(repo.context().objectDatabase().exists(checkpoint.get().getFeatureTreeId()));
+            Map<String, String> checkpointMappings = new HashMap<>();
+            gpkg.metadata.getImportCheckpointMappings(pointsName, checkpointMappings::put);
+            assertFalse(checkpointMappings.isEmpty());
+
+            DefaultProgressListener listener = new DefaultProgressListener();
+            Imported resumed = gpkg.importAuditLog(listener);
+            // only the rows after the checkpoint were read again
+            assertEquals(AUDIT_ROWS - 2 * CHECKPOINT_INTERVAL, (int) listener.getProgress());
+            // features inserted before the checkpoint keep their ids
+            checkpointMappings.forEach((gpkgFid, geogigFid) -> assertEquals(geogigFid,
+                    resumed.newMappings.get(gpkgFid)));
+            assertSameImport(expected, resumed);
+        }
+    }
+
+    @Test
+    public void testStaleCheckpointIgnored() throws Exception {
+        final Imported expected;
+        try (TestGeopackage gpkg = new TestGeopackage("uninterrupted.gpkg")) {
+            expected = gpkg.importAuditLog(new DefaultProgressListener());
+        }
+        try (TestGeopackage gpkg = new TestGeopackage("stale.gpkg")) {
+            // saved by an import of a previous export of the same table
+            ObjectId otherCommit = RevObjectTestSupport.hashString("other");
+            AuditImportCheckpoint stale = new AuditImportCheckpoint(pointsName, otherCommit,
+                    AUDIT_ROWS - 1, commit.getTreeId(), 0, 0, 0);
+            gpkg.metadata.saveImportCheckpoint(stale, Collections.singletonMap("4", "stale"));
+            assertFalse(gpkg.metadata.getImportCheckpoint(gpkg.table()).isPresent());
+
+            DefaultProgressListener listener = new DefaultProgressListener();
+            Imported imported = gpkg.importAuditLog(listener);
+            assertEquals(AUDIT_ROWS, (int) listener.getProgress());
+            assertFalse("stale".equals(imported.newMappings.get("4")));
+            assertSameImport(expected, imported);
+        }
+    }
+
+    @Test
+    public void testMissingCheckpointTreeIgnored() throws Exception {
+        final Imported expected;
+        try (TestGeopackage gpkg = new TestGeopackage("uninterrupted.gpkg")) {
+            expected = gpkg.importAuditLog(new DefaultProgressListener());
+        }
+        try (TestGeopackage gpkg = new TestGeopackage("missingtree.gpkg")) {
+            ObjectId missingTree = RevObjectTestSupport.hashString("missing");
+            AuditImportCheckpoint checkpoint = new AuditImportCheckpoint(pointsName,
+                    commit.getId(), AUDIT_ROWS - 1, missingTree, 0, 0, 0);
+            gpkg.metadata.saveImportCheckpoint(checkpoint, Collections.emptyMap());
+
+            DefaultProgressListener listener = new DefaultProgressListener();
+            Imported imported = gpkg.importAuditLog(listener);
+            assertEquals(AUDIT_ROWS, (int) listener.getProgress());
+            assertSameImport(expected, imported);
+        }
+    }
+
+    @Test
+    public void testCorruptCheckpointIgnored() throws Exception {
+        final Imported expected;
+        try (TestGeopackage gpkg = new TestGeopackage("uninterrupted.gpkg")) {
+            expected = gpkg.importAuditLog(new DefaultProgressListener());
+        }
+        try (TestGeopackage gpkg = new TestGeopackage("corrupt.gpkg")) {
+            AuditImportCheckpoint checkpoint = new AuditImportCheckpoint(pointsName,
+                    commit.getId(), AUDIT_ROWS - 1, commit.getTreeId(), 0, 0, 0);
+            gpkg.metadata.saveImportCheckpoint(checkpoint, Collections.emptyMap());
+            try (Statement st = gpkg.cx.createStatement()) {
+                st.executeUpdate(
+                        "UPDATE geogig_audit_import_checkpoints SET feature_tree_id = 'garbage'");
+            }
+            gpkg.cx.commit();
+            assertFalse(gpkg.metadata.getImportCheckpoint(gpkg.table()).isPresent());
+
+            DefaultProgressListener listener = new DefaultProgressListener();
+            Imported imported = gpkg.importAuditLog(listener);
+            assertEquals(AUDIT_ROWS, (int) listener.getProgress());
+            assertSameImport(expected, imported);
+        }
+    }
+
+    /**
+     * Asserts both imports produced the same changes and the same features for each geopackage
+     * feature id. Features inserted in the geopackage are assigned random ids, so the trees are
+     * compared through the feature id mappings.
+     */
+    private void assertSameImport(Imported expected, Imported actual) {
+        assertEquals(expected.added, actual.added);
+        assertEquals(expected.changed, actual.changed);
+        assertEquals(expected.removed, actual.removed);
+        assertEquals(expected.newMappings.keySet(), actual.newMappings.keySet());
+        assertEquals(expected.features.size(), actual.features.size());
+        assertEquals(expected.root.size(), actual.root.size());
+
+        Map<String, String> expectedIds = new HashMap<>(fidMappings);
+        expectedIds.putAll(expected.newMappings);
+        Map<String, String> actualIds = new HashMap<>(fidMappings);
+        actualIds.putAll(actual.newMappings);
+        for (String gpkgFid : expectedIds.keySet()) {
+            ObjectId expectedFeature = expected.features.get(expectedIds.get(gpkgFid));
+            ObjectId actualFeature = actual.features.get(actualIds.get(gpkgFid));
+            assertEquals("feature " + gpkgFid, expectedFeature, actualFeature);
+        }
+    }
+
+    /**
+     * The outcome of an audit log import, as the commit created by {@link InterchangeFormat} would
+     * see it
+     */
+    private static class Imported {
+        long added, changed, removed;
+
+        RevTree root;
+
+        /**
+         * geogig feature id to {@code RevFeature} id
+         */
+        Map<String, ObjectId> features = new HashMap<>();
+
+        Map<String, String> newMappings = new HashMap<>();
+    }
+
+    private static class InterruptingListener extends DefaultProgressListener {
+
+        private final int stopAt;
+
+        InterruptingListener(int stopAt) {
+            this.stopAt = stopAt;
+        }
+
+        public @Override void setProgress(float progress) {
+            super.setProgress(progress);
+            if (progress >= stopAt) {
+                throw new IllegalStateException("interrupted");
+            }
+        }
+    }
+
+    /**
+     * A geopackage with the {@code Points} table exported from {@link #commit} and an audit log of
+     * {@link #AUDIT_ROWS} rows
+     */
+    private class TestGeopackage implements AutoCloseable {
+
+        private final GeoPackage geopackage;
+
+        private final Connection cx;
+
+        private final GeopkgGeogigMetadata metadata;
+
+        TestGeopackage(String fileName) throws Exception {
+            File file = new File(tmp.getRoot(), fileName);
+            geopackage = new GeoPackage(file);
+            cx = geopackage.getDataSource().getConnection();
+            metadata = new GeopkgGeogigMetadata(cx);
+            try (Statement st = cx.createStatement()) {
+                st.execute("CREATE TABLE \"" + pointsName
+                        + "\" (fid INTEGER PRIMARY KEY, sp VARCHAR, ip INTEGER, pp BLOB)");
+            }
+            insert(1, "StringProp1_1", 1000, "POINT(1 1)");
+            insert(2, "StringProp1_2", 2000, "POINT(2 2)");
+            insert(3, "StringProp1_3", 3000, "POINT(3 3)");
+            metadata.init(URI.create("file:/repo"));
+            metadata.createAudit(pointsName, pointsName, commit.getId());
+            edit();
+        }
+
+        /**
+         * Edits the table creating {@link #AUDIT_ROWS} audit log rows, including updates and
+         * deletes of features inserted more than a checkpoint interval before
+         */
+        private void edit() throws Exception {
+            update(1, -1);
+            delete(2);
+            for (int i = 4; i < 24; i++) {
+                insert(i, "new" + i, i, String.format("POINT(%d %d)", i, i));
+            }
+            for (int i = 4; i < 24; i += 2) {
+                update(i, -i);
+            }
+            delete(5);
+            cx.commit();
+        }
+
+        private void insert(int fid, String sp, int ip, String wkt)
+                throws SQLException, IOException {
+            String sql = "INSERT INTO \"" + pointsName + "\" VALUES (?, ?, ?, ?)";
+            try (PreparedStatement st = cx.prepareStatement(sql)) {
+                st.setInt(1, fid);
+                st.setString(2, sp);
+                st.setInt(3, ip);
+                st.setBytes(4, new GeoPkgGeomWriter().write(geom(wkt)));
+                st.executeUpdate();
+            }
+        }
+
+        private void update(int fid, int ip) throws SQLException {
+            String sql = "UPDATE \"" + pointsName + "\" SET ip = ? WHERE fid = ?";
+            try (PreparedStatement st = cx.prepareStatement(sql)) {
+                st.setInt(1, ip);
+                st.setInt(2, fid);
+                st.executeUpdate();
+            }
+        }
+
+        private void delete(int fid) throws SQLException {
+            String sql = "DELETE FROM \"" + pointsName + "\" WHERE fid = ?";
+            try (PreparedStatement st = cx.prepareStatement(sql)) {
+                st.setInt(1, fid);
+                st.executeUpdate();
+            }
+        }
+
+        AuditTable table() throws SQLException {
+            return metadata.getAuditTables().get(0);
+        }
+
+        Imported importAuditLog(ProgressListener listener) throws SQLException {
+            final ObjectStore store = repo.context().objectDatabase();
+            final RevTree baseTree = store.getTree(commit.getTreeId());
+            final RevTreeBuilder builder = CanonicalTreeBuilder.create(store, baseTree);
+
+            AuditReport report = new AuditLogImporter(repo.context(), cx, metadata, listener)
+                    .setCheckpointInterval(CHECKPOINT_INTERVAL)
+                    .importAuditLog(table(), baseTree, builder, fidMappings);
+
+            Imported imported = new Imported();
+            imported.root = builder.build();
+            store.put(imported.root);
+            imported.added = report.added.get();
+            imported.changed = report.changed.get();
+            imported.removed = report.removed.get();
+            if (report.getNewMappings() != null) {
+                try (AutoCloseableIterator<Entry<String, String>> it = report.getNewMappings()
+                        .entryIterator()) {
+                    it.forEachRemaining(e -> imported.newMappings.put(e.getKey(), e.getValue()));
+                }
+                report.getNewMappings().close();
+            }
+            Optional<NodeRef> featureTree = repo.command(FindTreeChild.class)
+                    .setParent(imported.root).setChildPath(pointsName).call();
+            assertTrue(featureTree.isPresent());
+            RevTree tree = store.getTree(featureTree.get().getObjectId());
+            assertNotNull(tree);
+            for (Node node : tree.features()) {
+                imported.features.put(node.getName(), node.getObjectId());
+            }
+            return imported;
+        }
+
+        public @Override void close() throws SQLException {
+            metadata.close();
+            cx.close();
+            geopackage.close();
+        }
+    }
+}
@@ -382,6 +382,40 @@ public class ImportOpTest extends RepositoryTestCase {
         assertTrue(feature.isPresent());
     }
 
+    @Test
+    public void testImportParallelEncoding() throws Exception {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setCRS(CRS.decode("EPSG:4326"));
+        builder.add("geom", Point.class);
+        builder.add("label", String.class);
+        builder.setName("points");
+        SimpleFeatureType type = builder.buildFeatureType();
+        GeometryFactory gf = new GeometryFactory();
+        MemoryDataStore dataStore = new MemoryDataStore();
+        dataStore.createSchema(type);
+        final int count = 5_000;
+        List<SimpleFeature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            features.add(SimpleFeatureBuilder.build(type,
+                    new Object[] { gf.createPoint(new Coordinate(i % 180, i % 90)), "f" + i },
+                    "f" + i));
+        }
+        dataStore.addFeatures(features);
+
+        RevTree sequential = importPoints(dataStore, 1);
+        assertEquals(count, sequential.size());
+        RevTree parallel = importPoints(dataStore, 4);
+        assertEquals(sequential, parallel);
+    }
+
+    private RevTree importPoints(MemoryDataStore dataStore, int encodingThreads) {
+        RevTree workHead = repo.command(ImportOp.class).setDataStore(dataStore)
+                .setTable("points").setEncodingThreads(encodingThreads).call();
+        NodeRef treeRef = repo.command(FindTreeChild.class).setParent(workHead)
+                .setChildPath("points").call().get();
+        return repo.context().objectDatabase().getTree(treeRef.getObjectId());
+    }
+
     @Test
     public void testDeleteException() throws Exception {
         WorkingTree workTree = mock(WorkingTree.class);
@@ -0,0 +1,144 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.google.common.collect.Lists;
+
+public class ImportPipelineTest {
+
+    private SimpleFeatureType type;
+
+    private RevFeatureType revType;
+
+    @Before
+    public void before() throws Exception {
+        type = DataUtilities.createType("points", "id:Integer");
+        FeatureType gigType = GT.adapt(type);
+        revType = RevFeatureType.builder().type(gigType).build();
+    }
+
+    private List<SimpleFeature> features(int count) {
+        List<SimpleFeature> features = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[] { i }, "f" + i));
+        }
+        return features;
+    }
+
+    private FeatureInfo encode(Feature f) {
+        // shuffle the encoding tasks completion order
+        if (ThreadLocalRandom.current().nextInt(100) == 0) {
+            Thread.yield();
+        }
+        RevFeature rf = RevFeature.builder().build(GT.adapt(revType.type(), (SimpleFeature) f));
+        return FeatureInfo.insert(rf, revType.getId(),
+                NodeRef.appendChild("points", f.getIdentifier().getID()));
+    }
+
+    private ImportPipeline<Feature, FeatureInfo> pipeline(int parallelism, int batchSize) {
+        ExecutorService encoders = GeogigScheduler.defaultInstance()
+                .boundedExecutor(WorkClass.ENCODE, parallelism);
+        return new ImportPipeline<>(encoders, parallelism, batchSize);
+    }
+
+    @Test
+    public void testPreservesOrder() {
+        final int count = 10_000;
+        List<SimpleFeature> features = features(count);
+        List<FeatureInfo> infos;
+        try (ImportPipeline<Feature, FeatureInfo> pipeline = pipeline(4, 10)) {
+            infos = Lists.newArrayList(pipeline.run(features.iterator(), this::encode));
+            assertEquals(count, pipeline.read());
+            assertEquals(count, pipeline.encoded());
+            assertEquals(count, pipeline.consumed());
+        }
+        assertEquals(count, infos.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("points/f" + i, infos.get(i).getPath());
+            assertEquals(Integer.valueOf(i), infos.get(i).getFeature().get(0).orElse(null));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        try (ImportPipeline<Feature, FeatureInfo> pipeline = pipeline(2, 10)) {
+            Iterator<FeatureInfo> infos = pipeline.run(features(0).iterator(), this::encode);
+            assertEquals(0, Lists.newArrayList(infos).size());
+        }
+    }
+
+    @Test
+    public void testEncodingFailure() {
+        RuntimeException error = new IllegalArgumentException("can't encode f500");
+        Function<Feature, FeatureInfo> encoder = f -> {
+            if ("f500".equals(f.getIdentifier().getID())) {
+                throw error;
+            }
+            return encode(f);
+        };
+        try (ImportPipeline<Feature, FeatureInfo> pipeline = pipeline(2, 100)) {
+            Iterator<FeatureInfo> infos = pipeline.run(features(1000).iterator(), encoder);
+            RuntimeException thrown = assertThrows(RuntimeException.class,
+                    () -> Lists.newArrayList(infos));
+            assertSame(error, thrown);
+        }
+    }
+
+    @Test
+    public void testReadFailure() {
+        RuntimeException error = new IllegalStateException("read error");
+        Iterator<SimpleFeature> source = features(10).iterator();
+        Iterator<SimpleFeature> failing = new Iterator<SimpleFeature>() {
+            public @Override boolean hasNext() {
+                return true;
+            }
+
+            public @Override SimpleFeature next() {
+                if (source.hasNext()) {
+                    return source.next();
+                }
+                throw error;
+            }
+        };
+        try (ImportPipeline<Feature, FeatureInfo> pipeline = pipeline(2, 3)) {
+            Iterator<FeatureInfo> infos = pipeline.run(failing, this::encode);
+            RuntimeException thrown = assertThrows(RuntimeException.class,
+                    () -> Lists.newArrayList(infos));
+            assertSame(error, thrown);
+        }
+    }
+}
@@ -44,6 +44,7 @@ import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.porcelain.index.UpdateIndexOp;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.WorkingTree;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -491,6 +492,10 @@ public class GeoGigDataStore extends ContentDataStore implements DataStore {
 
         Context context = repository.context();
         for (IndexInfo indexInfo : indexInfos) {
+            if (IndexType.QUADTREE != indexInfo.getIndexType()) {
+                // attribute indexes don't cover the spatial queries this index is meant for
+                continue;
+            }
             // get any existing attributes that are already part of the index
             final Set<String> materializedAttributeNames = IndexInfo
                     .getMaterializedAttributeNames(indexInfo);
@@ -518,6 +523,8 @@ public class GeoGigDataStore extends ContentDataStore implements DataStore {
                     .setExtraAttributes(indexAttributes)
                     // set the layer/path
                     .setTreeRefSpec(treeRefSpec)
+                    // the layer may have other indexes
+                    .setAttributeName(indexInfo.getAttributeName())
                     // index the histroy as well
                     .setIndexHistory(true).call();
             return Optional.of(index.info().getId());
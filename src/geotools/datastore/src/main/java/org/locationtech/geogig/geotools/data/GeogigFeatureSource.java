@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -35,6 +36,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.factory.Hints;
 import org.locationtech.geogig.geotools.adapt.GT;
 import org.locationtech.geogig.geotools.data.reader.FeatureReaderBuilder;
+import org.locationtech.geogig.geotools.data.reader.FeatureReaderBuilder.ParallelMode;
 import org.locationtech.geogig.geotools.data.reader.WalkInfo;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
@@ -72,6 +74,14 @@ public class GeogigFeatureSource extends ContentFeatureSource {
 
     public static final Hints.Key WALK_INFO_KEY = new Hints.Key(Boolean.class);
 
+    /**
+     * Query hint to read features walking independent ranges of the feature tree concurrently,
+     * with a {@link ParallelMode} value.
+     *
+     * @see FeatureReaderBuilder#parallelMode(ParallelMode)
+     */
+    public static final Hints.Key PARALLEL_READ_KEY = new Hints.Key(ParallelMode.class);
+
     public static final ThreadLocal<WalkInfo> WALK_INFO = new ThreadLocal<>();
 
     /**
@@ -97,6 +107,7 @@ public class GeogigFeatureSource extends ContentFeatureSource {
             hints.add(Hints.SCREENMAP);
         hints.add(Hints.JTS_GEOMETRY_FACTORY);
         hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+        hints.add(PARALLEL_READ_KEY);
         hints.add(SCREENMAP_REPLACE_GEOMETRY_WITH_PX_KEY);
     }
 
@@ -104,8 +115,12 @@ public class GeogigFeatureSource extends ContentFeatureSource {
         return true;
     }
 
+    /**
+     * @return {@code true}, features are sorted natively, either by walking an attribute index in
+     *         key order or with an external merge sort
+     */
     protected @Override boolean canSort() {
-        return false;
+        return true;
     }
 
     /**
@@ -173,6 +188,26 @@ public class GeogigFeatureSource extends ContentFeatureSource {
                 return false;
             }
 
+            /**
+             * @return {@code true} if all the sort properties are part of the feature type, or the
+             *         requested order is the natural or reverse order
+             */
+            public @Override boolean supportsSorting(SortBy[] sortAttributes) {
+                if (sortAttributes == null) {
+                    return true;
+                }
+                final SimpleFeatureType schema = getSchema();
+                for (SortBy sortBy : sortAttributes) {
+                    if (SortBy.NATURAL_ORDER == sortBy || SortBy.REVERSE_ORDER == sortBy) {
+                        continue;
+                    }
+                    if (sortBy.getPropertyName() == null || null == schema
+                            .getDescriptor(sortBy.getPropertyName().getPropertyName())) {
+                        return false;
+                    }
+                }
+                return true;
+            }
         };
     }
 
@@ -192,6 +227,10 @@ public class GeogigFeatureSource extends ContentFeatureSource {
 
         query = new Query(query);
         query.setPropertyNames(Query.NO_NAMES);
+        if (query.getStartIndex() == null && query.isMaxFeaturesUnlimited()) {
+            // order doesn't matter unless paging
+            query.setSortBy(null);
+        }
 
         ReferencedEnvelope bounds = new ReferencedEnvelope(crs);
         try (FeatureReader<SimpleFeatureType, SimpleFeature> features = getNativeReader(query,
@@ -228,6 +267,20 @@ public class GeogigFeatureSource extends ContentFeatureSource {
             return size;
         }
 
+        // the stored tree stats may answer without traversing the tree (e.g. IS NULL filters, or
+        // comparisons out of the attribute's value range)
+        OptionalLong exactCount = FeatureReaderBuilder
+                .builder(getCommandLocator(), getNativeType(), getTypeRef())//
+                .targetSchema(getSchema())//
+                .filter(filter)//
+                .headRef(getRootRef())//
+                .offset(offset)//
+                .limit(maxFeatures)//
+                .exactCount();
+        if (exactCount.isPresent()) {
+            return (int) exactCount.getAsLong();
+        }
+
         query = new Query(query);
         query.setPropertyNames(Query.NO_NAMES);
         query.setSortBy(null);
@@ -307,6 +360,7 @@ public class GeogigFeatureSource extends ContentFeatureSource {
                 .get(SCREENMAP_REPLACE_GEOMETRY_WITH_PX_KEY);
 
         final @Nullable ScreenMap screenMap = (ScreenMap) hints.get(Hints.SCREENMAP);
+        final @Nullable ParallelMode parallelMode = (ParallelMode) hints.get(PARALLEL_READ_KEY);
         final @Nullable String[] propertyNames = query.getPropertyNames();
         final @Nullable SortBy[] sortBy = query.getSortBy();
         // final Name assignedName = getEntry().getName();
@@ -333,6 +387,7 @@ public class GeogigFeatureSource extends ContentFeatureSource {
                 .screenMap(screenMap)//
                 .sortBy(sortBy)//
                 .retypeIfNeeded(retypeIfNeeded)//
+                .parallelMode(parallelMode)//
                 .build();
 
         if (query.getHints().containsKey(GeogigFeatureSource.WALK_INFO_KEY)) {
@@ -37,6 +37,8 @@ import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
+import org.locationtech.geogig.plumbing.stats.ComputeTreeStats;
+import org.locationtech.geogig.plumbing.stats.TreeStats;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -57,7 +59,8 @@ import com.google.common.collect.Lists;
  * without having to fall back to traversing the feature collection.
  * <p>
  * Currently handles {@link UniqueVisitor unique}, {@link MinVisitor min}, {@link MaxVisitor max},
- * and {@link NearestVisitor nearest} visitors.
+ * and {@link NearestVisitor nearest} visitors. Unfiltered min and max visitors are resolved out of
+ * the feature tree's {@link TreeStats}.
  */
 class GeogigFeatureVisitorHandler {
 
@@ -130,6 +133,19 @@ class GeogigFeatureVisitorHandler {
             }
             propertyName = ((PropertyName) exp).getPropertyName();
         }
+        if (Filter.INCLUDE.equals(filter) && (MinVisitor.class.isInstance(visitor)
+                || MaxVisitor.class.isInstance(visitor))) {
+            final boolean min = MinVisitor.class.isInstance(visitor);
+            Optional<Object> value = getMinMaxFromStats(propertyName, min, source);
+            if (value.isPresent()) {
+                if (min) {
+                    ((MinVisitor) visitor).setValue(value.get());
+                } else {
+                    ((MaxVisitor) visitor).setValue(value.get());
+                }
+                return true;
+            }
+        }
         NavigableSet<Object> uniqueValues = getUniqueValues(propertyName, filter, source);
         if (null == uniqueValues) {
             return false;
@@ -153,6 +169,23 @@ class GeogigFeatureVisitorHandler {
         return true;
     }
 
+    /**
+     * Resolves the min or max value of the attribute out of the {@link TreeStats} of the feature
+     * tree, computing them if not yet available, which is as expensive as walking the whole tree
+     * but only needs to be done once per tree, and afterwards only for the subtrees that changed.
+     */
+    private Optional<Object> getMinMaxFromStats(String propertyName, boolean min,
+            GeogigFeatureSource source) {
+        final NodeRef typeRef = source.getTypeRef();
+        if (typeRef.getMetadataId().isNull()) {
+            return Optional.empty();
+        }
+        TreeStats stats = source.getCommandLocator().command(ComputeTreeStats.class)
+                .setTree(typeRef).call();
+        return stats.getAttribute(propertyName)
+                .flatMap(att -> min ? att.getMin() : att.getMax());
+    }
+
     private @Nullable NavigableSet<Object> getUniqueValues(String propertyName, Filter filter,
             GeogigFeatureSource source) {
 
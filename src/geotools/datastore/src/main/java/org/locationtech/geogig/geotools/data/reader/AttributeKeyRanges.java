@@ -0,0 +1,203 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.util.Converters;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import com.google.common.primitives.UnsignedLong;
+
+/**
+ * Computes the {@link AttributeIndexKey key} ranges an attribute index tree needs to be traversed
+ * for in order to evaluate a filter, out of its {@link PropertyIsEqualTo},
+ * {@link PropertyIsBetween}, and {@code <, <=, >, >=} comparisons against the indexed attribute,
+ * combined through {@link And} and {@link Or}.
+ * <p>
+ * The ranges are a superset of the matching keys, any filter that can't be translated results in
+ * no constraint at all, the filter is still evaluated in-process for each feature.
+ */
+class AttributeKeyRanges {
+
+    private final String attributeName;
+
+    private final Class<?> binding;
+
+    private AttributeKeyRanges(AttributeDescriptor attribute) {
+        this.attributeName = attribute.getLocalName();
+        this.binding = attribute.getType().getBinding();
+    }
+
+    /**
+     * @return the key ranges matching the filter, or {@code null} if the filter does not constrain
+     *         the values of the attribute
+     */
+    public static @Nullable RangeSet<UnsignedLong> of(Filter filter,
+            AttributeDescriptor attribute) {
+        return new AttributeKeyRanges(attribute).ranges(filter);
+    }
+
+    /**
+     * @return a predicate that evaluates to {@code true} for the attribute index tree buckets
+     *         holding keys in the given ranges
+     */
+    public static Predicate<BucketIndex> bucketFilter(RangeSet<UnsignedLong> ranges) {
+        final RangeSet<UnsignedLong> keyRanges = ImmutableRangeSet.copyOf(ranges);
+        return bucketIndex -> {
+            final int[] path = bucketIndex.getIndexPath();
+            if (AttributeIndexKey.isNullValues(path)) {
+                // comparisons never match null values
+                return false;
+            }
+            UnsignedLong lower = UnsignedLong.fromLongBits(AttributeIndexKey.lowerBound(path));
+            UnsignedLong upper = UnsignedLong.fromLongBits(AttributeIndexKey.upperBound(path));
+            return !keyRanges.subRangeSet(Range.closed(lower, upper)).isEmpty();
+        };
+    }
+
+    private @Nullable RangeSet<UnsignedLong> ranges(Filter filter) {
+        if (Filter.EXCLUDE.equals(filter)) {
+            return TreeRangeSet.create();
+        }
+        if (filter instanceof And) {
+            RangeSet<UnsignedLong> intersection = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                RangeSet<UnsignedLong> childRanges = ranges(child);
+                if (childRanges == null) {
+                    continue;
+                }
+                if (intersection == null) {
+                    intersection = TreeRangeSet.create(childRanges);
+                } else {
+                    intersection.removeAll(childRanges.complement());
+                }
+            }
+            return intersection;
+        }
+        if (filter instanceof Or) {
+            RangeSet<UnsignedLong> union = TreeRangeSet.create();
+            for (Filter child : ((Or) filter).getChildren()) {
+                RangeSet<UnsignedLong> childRanges = ranges(child);
+                if (childRanges == null) {
+                    return null;
+                }
+                union.addAll(childRanges);
+            }
+            return union;
+        }
+        if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (!isAttribute(between.getExpression())) {
+                return null;
+            }
+            UnsignedLong lower = key(between.getLowerBoundary());
+            UnsignedLong upper = key(between.getUpperBoundary());
+            if (lower == null || upper == null) {
+                return null;
+            }
+            return lower.compareTo(upper) > 0 ? TreeRangeSet.create()
+                    : TreeRangeSet.create(ImmutableRangeSet.of(Range.closed(lower, upper)));
+        }
+        if (filter instanceof BinaryComparisonOperator) {
+            return ranges((BinaryComparisonOperator) filter);
+        }
+        return null;
+    }
+
+    private @Nullable RangeSet<UnsignedLong> ranges(BinaryComparisonOperator comparison) {
+        if (CharSequence.class.isAssignableFrom(binding) && !comparison.isMatchingCase()) {
+            return null;
+        }
+        final boolean propertyFirst;
+        final UnsignedLong key;
+        if (isAttribute(comparison.getExpression1())) {
+            propertyFirst = true;
+            key = key(comparison.getExpression2());
+        } else if (isAttribute(comparison.getExpression2())) {
+            propertyFirst = false;
+            key = key(comparison.getExpression1());
+        } else {
+            return null;
+        }
+        if (key == null) {
+            return null;
+        }
+        // keys are not strictly increasing (e.g. strings sharing a prefix), hence ranges are
+        // always closed
+        final Range<UnsignedLong> range;
+        if (comparison instanceof PropertyIsEqualTo) {
+            range = Range.closed(key, key);
+        } else if (comparison instanceof PropertyIsLessThan
+                || comparison instanceof PropertyIsLessThanOrEqualTo) {
+            range = propertyFirst ? Range.closed(UnsignedLong.ZERO, key)
+                    : Range.closed(key, UnsignedLong.MAX_VALUE);
+        } else if (comparison instanceof PropertyIsGreaterThan
+                || comparison instanceof PropertyIsGreaterThanOrEqualTo) {
+            range = propertyFirst ? Range.closed(key, UnsignedLong.MAX_VALUE)
+                    : Range.closed(UnsignedLong.ZERO, key);
+        } else {
+            return null;
+        }
+        return TreeRangeSet.create(ImmutableRangeSet.of(range));
+    }
+
+    private boolean isAttribute(Expression expression) {
+        if (expression instanceof PropertyName) {
+            String name = ((PropertyName) expression).getPropertyName();
+            int prefixIndex = name == null ? -1 : name.indexOf(':');
+            if (prefixIndex > -1) {
+                name = name.substring(prefixIndex + 1);
+            }
+            return attributeName.equals(name);
+        }
+        return false;
+    }
+
+    /**
+     * @return the key of the literal value, converted to the attribute type if needed, or
+     *         {@code null} if the expression is not a literal or its value can't be converted
+     */
+    private @Nullable UnsignedLong key(Expression expression) {
+        if (!(expression instanceof Literal)) {
+            return null;
+        }
+        Object value = ((Literal) expression).getValue();
+        if (value == null) {
+            return null;
+        }
+        final boolean sameKind = (value instanceof Number && Number.class.isAssignableFrom(binding))
+                || binding.isInstance(value);
+        if (!sameKind) {
+            value = Converters.convert(value, binding);
+        }
+        Long key = AttributeIndexKey.key(value);
+        return key == null ? null : UnsignedLong.fromLongBits(key.longValue());
+    }
+}
@@ -16,11 +16,18 @@ import static org.locationtech.geogig.model.RevTree.EMPTY_TREE_ID;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.data.DataUtilities;
@@ -41,6 +48,7 @@ import org.geotools.referencing.crs.DefaultEngineeringCRS;
 import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
 import org.locationtech.geogig.feature.Feature;
 import org.locationtech.geogig.feature.Name;
+import org.locationtech.geogig.feature.PropertyDescriptor;
 import org.locationtech.geogig.geotools.adapt.GT;
 import org.locationtech.geogig.geotools.data.GeoGigDataStore.ChangeType;
 import org.locationtech.geogig.model.Bounded;
@@ -50,18 +58,26 @@ import org.locationtech.geogig.model.NodeOrdering;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
-import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
 import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.plumbing.RefParse;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
 import org.locationtech.geogig.plumbing.RevObjectParse;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.plumbing.stats.ComputeTreeStats;
+import org.locationtech.geogig.plumbing.stats.TreeStats;
 import org.locationtech.geogig.porcelain.index.Index;
+import org.locationtech.geogig.porcelain.index.IndexUtils;
 import org.locationtech.geogig.repository.Context;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.repository.impl.SpatialOps;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -88,7 +104,9 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.RangeSet;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedLong;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -166,6 +184,30 @@ public class FeatureReaderBuilder {
 
     private boolean screenMapReplaceGeometryWithPx = true;
 
+    private ParallelMode parallelMode = ParallelMode.SEQUENTIAL;
+
+    /**
+     * How the tree walk and feature fetching are performed
+     *
+     * @see FeatureReaderBuilder#parallelMode(ParallelMode)
+     */
+    public static enum ParallelMode {
+        /**
+         * A single walk of the tree, features are fetched in the order they're found
+         */
+        SEQUENTIAL,
+        /**
+         * Independent ranges of the tree are walked and their features fetched concurrently, and
+         * returned in the same order as {@link #SEQUENTIAL}
+         */
+        ORDERED,
+        /**
+         * Independent ranges of the tree are walked and their features fetched concurrently, and
+         * returned as soon as they're available
+         */
+        UNORDERED
+    }
+
     FeatureReaderBuilder(Context leftRepo, Context rightRepo, RevFeatureType nativeType,
             NodeRef typeRef) {
         this.leftRepo = leftRepo;
@@ -266,6 +308,78 @@ public class FeatureReaderBuilder {
 
     private @Getter WalkInfo builtWalkInfo;
 
+    /**
+     * @return the {@link LayerStatistics} of the feature tree at {@link #headRef(String) headRef},
+     *         if its {@link TreeStats stats} have already been computed; or empty if not, or if
+     *         this builder is set up to return the differences between two versions of the tree
+     */
+    public Optional<LayerStatistics> statistics() {
+        if (oldHeadRef != null) {
+            return Optional.empty();
+        }
+        final Optional<NodeRef> tree = resolveCanonicalTree(resolveRef(headRef, rightRepo),
+                nativeSchema.getTypeName(), rightRepo);
+        TreeStats stats;
+        if (tree.isPresent()) {
+            stats = rightRepo.command(ComputeTreeStats.class).setTree(tree.get())
+                    .setCachedOnly(true).call();
+        } else {
+            stats = TreeStats.EMPTY;
+        }
+        return Optional.ofNullable(stats == null ? null : new LayerStatistics(stats, nativeSchema));
+    }
+
+    /**
+     * @return the exact number of features this builder's reader would return, if the tree
+     *         {@link #statistics() statistics} suffice to tell without traversing the tree
+     */
+    public OptionalLong exactCount() {
+        Optional<LayerStatistics> statistics = statistics();
+        if (statistics.isPresent()) {
+            OptionalLong count = statistics.get().exactCount(resolveNativeFilter());
+            if (count.isPresent()) {
+                return OptionalLong.of(applyPaging(count.getAsLong()));
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * @return an estimate of the number of features this builder's reader would return, based on
+     *         the tree {@link #statistics() statistics}, if available
+     */
+    public OptionalLong estimateCount() {
+        return statistics().map(s -> OptionalLong
+                .of(applyPaging(s.estimateCount(resolveNativeFilter()))))
+                .orElse(OptionalLong.empty());
+    }
+
+    /**
+     * @return an envelope in the native CRS that contains the bounds of the features this
+     *         builder's reader would return, based on the tree {@link #statistics() statistics},
+     *         if available; the actual bounds are usually smaller
+     */
+    public Optional<ReferencedEnvelope> estimateBounds() {
+        Optional<LayerStatistics> statistics = statistics();
+        if (!statistics.isPresent()) {
+            return Optional.empty();
+        }
+        final CoordinateReferenceSystem crs = nativeSchema.getCoordinateReferenceSystem();
+        ReferencedEnvelope bounds = new ReferencedEnvelope(crs);
+        statistics.get().estimateBounds(resolveNativeFilter()).ifPresent(bounds::expandToInclude);
+        return Optional.of(bounds);
+    }
+
+    private long applyPaging(long count) {
+        if (offset != null) {
+            count = Math.max(0, count - offset.intValue());
+        }
+        if (limit != null) {
+            count = Math.min(count, limit.intValue());
+        }
+        return count;
+    }
+
     public WalkInfo buildTreeWalk() {
         WalkInfo info = new WalkInfo();
         info.fullSchema = resolveFullSchema();
@@ -279,12 +393,6 @@ public class FeatureReaderBuilder {
 
         final ObjectId featureTypeId = typeRef.getMetadataId();
 
-        // perform the diff op with the supported Bucket/NodeRef filtering that'll provide the
-        // NodeRef iterator to back the FeatureReader with
-        // it doesn't matter if we use left or right repo, we'll be setting left/right source on the
-        // command
-        info.diffOp = leftRepo.command(DiffTree.class);
-
         // the RevTree id at the left side of the diff
         ObjectId oldFeatureTypeTree;
         // the RevTree id at the right side of the diff
@@ -294,6 +402,7 @@ public class FeatureReaderBuilder {
         ObjectStore rightSource = rightRepo.objectDatabase();
         NodeOrdering diffNodeOrdering = CanonicalNodeOrder.INSTANCE;
         ReferencedEnvelope boundsPreFilter = null;
+        Predicate<BucketIndex> bucketPreFilter = null;
         {
             final String nativeTypeName = nativeSchema.getTypeName();
             final Optional<NodeRef> oldCanonicalTree;
@@ -330,12 +439,14 @@ public class FeatureReaderBuilder {
                 rightSource = rightRepo.indexDatabase();
                 IndexInfo indexInfo = leftIndex.info();
 
-                Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
-                if (maxBounds == null) {
-                    maxBounds = IndexInfo.getMaxBounds(indexInfo);
+                diffNodeOrdering = IndexUtils.nodeOrdering(indexInfo);
+                if (IndexType.ATTRIBUTE == indexInfo.getIndexType()) {
+                    bucketPreFilter = createAttributeBucketFilter(indexInfo, info.nativeFilter);
+                    // the index returns nodes in key order only when not diffing two versions
+                    info.sortedByIndex = EMPTY_TREE_ID.equals(info.leftTree)
+                            && indexInfo.getAttributeName()
+                                    .equals(FeatureSorting.ascendingSortProperty(sortBy));
                 }
-                Preconditions.checkNotNull(maxBounds);
-                diffNodeOrdering = QuadTreeBuilder.nodeOrdering(maxBounds);
                 info.diffUsesIndex = true;
                 info.materializedIndexProperties = resolveMaterializedProperties(indexInfo);
             }
@@ -357,23 +468,42 @@ public class FeatureReaderBuilder {
         // though it's not really needed here because we have the FeatureType already. Nonetheless
         // this is strange and needs to be revisited.
         final boolean preserveIterationOrder = shallPreserveIterationOrder();
-        Predicate<Bounded> indexPreFilter = createIndexPreFilter(info);
-        info.diffOp.setDefaultMetadataId(featureTypeId) //
+        final Predicate<Bounded> indexPreFilter = createIndexPreFilter(info);
+        final List<String> fidFilter = createFidFilter(info.nativeFilter);
+        final org.locationtech.geogig.model.DiffEntry.ChangeType changeTypeFilter;
+        changeTypeFilter = resolveChangeType();
+        final ReferencedEnvelope boundsFilter = boundsPreFilter;
+        final Predicate<BucketIndex> bucketFilter = bucketPreFilter;
+        final NodeOrdering nodeOrdering = diffNodeOrdering;
+        info.leftWalkTree = oldFeatureTypeTree;
+        info.rightWalkTree = newFeatureTypeTree;
+        info.leftWalkSource = leftSource;
+        info.rightWalkSource = rightSource;
+
+        // perform the diff op with the supported Bucket/NodeRef filtering that'll provide the
+        // NodeRef iterator to back the FeatureReader with
+        // it doesn't matter if we use left or right repo, we'll be setting left/right source on the
+        // command
+        info.diffOpFactory = () -> leftRepo.command(DiffTree.class)//
+                .setDefaultMetadataId(featureTypeId) //
                 .setPreserveIterationOrder(preserveIterationOrder)//
-                .setPathFilter(createFidFilter(info.nativeFilter)) //
+                .setPathFilter(fidFilter) //
                 .setCustomFilter(indexPreFilter) //
                 // although preFilter will also evaluate the spatial filters in-process based on the
                 // geotools feature model, settings the DiffWalk bounds filter helps in avoiding a
                 // lot of those more expensive checks
-                .setBoundsFilter(boundsPreFilter) //
-                .setChangeTypeFilter(resolveChangeType()) //
-                .setOldTree(oldFeatureTypeTree) //
-                .setNewTree(newFeatureTypeTree) //
-                .setLeftSource(leftSource) //
-                .setRightSource(rightSource) //
-                .setNodeOrdering(diffNodeOrdering)//
+                .setBoundsFilter(boundsFilter) //
+                .setBucketFilter(bucketFilter) //
+                .setChangeTypeFilter(changeTypeFilter) //
+                .setOldTree(info.leftWalkTree) //
+                .setNewTree(info.rightWalkTree) //
+                .setLeftSource(info.leftWalkSource) //
+                .setRightSource(info.rightWalkSource) //
+                .setNodeOrdering(nodeOrdering)//
                 .recordStats();
+        info.diffOp = info.diffOpFactory.get();
 
+        info.bucketFilter = bucketPreFilter;
         this.builtWalkInfo = info;
         return info;
     }
@@ -394,63 +524,117 @@ public class FeatureReaderBuilder {
 
         // if native filter is a simple "fid filter" then force ignoring the index for a faster
         // look-up (looking up for a fid in the canonical tree is much faster)
-        final boolean ignoreIndex = ignoreIndexVmArg || geometryAttribute == null
-                || this.ignoreIndex || nativeFilter instanceof Id;
-        indexes = ignoreIndex ? NO_INDEX
-                : resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName,
-                        geometryAttribute.getLocalName());
+        final boolean ignoreIndex = ignoreIndexVmArg || this.ignoreIndex
+                || nativeFilter instanceof Id;
+        if (ignoreIndex) {
+            return NO_INDEX;
+        }
+        // prefer an attribute index whose attribute values are constrained by the filter
+        indexes = resolveAttributeIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName,
+                nativeFilter);
+        // then an attribute index that returns features in the requested order
+        if (!indexes[0].isPresent()) {
+            indexes = resolveSortIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName);
+        }
+        if (!indexes[0].isPresent() && geometryAttribute != null) {
+            indexes = resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName,
+                    geometryAttribute.getLocalName());
+        }
         return indexes;
     }
 
-    public FeatureReader<SimpleFeatureType, SimpleFeature> build() {
-        WalkInfo info = buildTreeWalk();
-
-        AutoCloseableIterator<DiffEntry> diffs = info.diffOp.call();
-
-        AutoCloseableIterator<NodeRef> featureRefs = toFeatureRefs(diffs, changeType);
+    private Optional<Index>[] resolveAttributeIndex(final ObjectId oldCanonicalTreeId,
+            final ObjectId newCanonicalTreeId, final String typeName, final Filter nativeFilter) {
+        if (Filter.INCLUDE.equals(nativeFilter)) {
+            return NO_INDEX;
+        }
+        List<IndexInfo> indexInfos = leftRepo.indexDatabase().getIndexInfos(typeName);
+        for (IndexInfo indexInfo : indexInfos) {
+            if (IndexType.ATTRIBUTE == indexInfo.getIndexType()) {
+                AttributeDescriptor descriptor = nativeSchema
+                        .getDescriptor(indexInfo.getAttributeName());
+                if (descriptor != null && null != AttributeKeyRanges.of(nativeFilter, descriptor)) {
+                    Optional<Index>[] indexes = resolveIndex(oldCanonicalTreeId,
+                            newCanonicalTreeId, typeName, indexInfo.getAttributeName());
+                    if (indexes[0].isPresent()) {
+                        return indexes;
+                    }
+                }
+            }
+        }
+        return NO_INDEX;
+    }
 
-        // post-processing
-        if (info.filterIsFullySupportedByIndex) {
-            featureRefs = applyOffsetAndLimit(featureRefs);
+    private Optional<Index>[] resolveSortIndex(final ObjectId oldCanonicalTreeId,
+            final ObjectId newCanonicalTreeId, final String typeName) {
+        final String sortProperty = FeatureSorting.ascendingSortProperty(sortBy);
+        if (sortProperty == null) {
+            return NO_INDEX;
         }
+        Optional<IndexInfo> indexInfo = leftRepo.indexDatabase().getIndexInfo(typeName,
+                sortProperty);
+        if (indexInfo.isPresent() && IndexType.ATTRIBUTE == indexInfo.get().getIndexType()) {
+            return resolveIndex(oldCanonicalTreeId, newCanonicalTreeId, typeName, sortProperty);
+        }
+        return NO_INDEX;
+    }
 
-        final ObjectStore leftFeatureSource = leftRepo.objectDatabase();
-        final ObjectStore rightFeatureSource = rightRepo.objectDatabase();
+    private @Nullable Predicate<BucketIndex> createAttributeBucketFilter(IndexInfo indexInfo,
+            Filter nativeFilter) {
+        AttributeDescriptor descriptor = nativeSchema.getDescriptor(indexInfo.getAttributeName());
+        RangeSet<UnsignedLong> keyRanges = descriptor == null ? null
+                : AttributeKeyRanges.of(nativeFilter, descriptor);
+        return keyRanges == null ? null : AttributeKeyRanges.bucketFilter(keyRanges);
+    }
 
-        AutoCloseableIterator<SimpleFeature> features;
+    public FeatureReader<SimpleFeatureType, SimpleFeature> build() {
+        WalkInfo info = buildTreeWalk();
+
+        // features need to be sorted in-process if the index doesn't return them in the requested
+        // order, or only partially so (i.e. different values may share the same index key)
+        final boolean sortInProcess = FeatureSorting.isSortRequested(sortBy)
+                && !(info.sortedByIndex && hasUniqueIndexKeys(info));
 
         // contains only the attributes required to satisfy the output schema and the in-process
         // filter
-        final SimpleFeatureType resultSchema;
+        final SimpleFeatureType resultSchema = resolveResultSchema(info);
 
-        if (info.indexContainsAllRequiredProperties) {
-            resultSchema = resolveMinimalNativeSchema(info.fullSchema, info.requiredProperties);
-            CoordinateReferenceSystem nativeCrs = info.fullSchema.getCoordinateReferenceSystem();
-            org.locationtech.geogig.crs.CoordinateReferenceSystem nativeGigCrs = GT
-                    .adapt(nativeCrs);
-            features = MaterializedIndexFeatureIterator.create(GT.adapt(resultSchema), featureRefs,
-                    geometryFactory, nativeGigCrs);
+        final List<Predicate<BucketIndex>> partitions = resolvePartitions(info);
+        final boolean parallel = partitions.size() > 1;
+
+        AutoCloseableIterator<SimpleFeature> features;
+        if (parallel) {
+            List<Supplier<AutoCloseableIterator<SimpleFeature>>> partitionFeatures = Lists
+                    .transform(partitions, p -> () -> readPartition(info, p, resultSchema));
+            features = mergePartitions(partitionFeatures, sortInProcess);
         } else {
-            BulkFeatureRetriever retriever;
-            retriever = new BulkFeatureRetriever(leftFeatureSource, rightFeatureSource);
-            Name typeNameOverride;
-            if (simpleNames(nativeSchema).equals(simpleNames(info.fullSchema))) {
-                resultSchema = info.fullSchema;
-                typeNameOverride = GT.adapt(info.fullSchema.getName());
+            AutoCloseableIterator<NodeRef> featureRefs;
+            if (info.sortedByIndex) {
+                featureRefs = indexOrderFeatureRefs(info);
             } else {
-                resultSchema = nativeSchema;
-                typeNameOverride = null;
+                AutoCloseableIterator<DiffEntry> diffs = info.diffOp.call();
+                featureRefs = toFeatureRefs(diffs, changeType);
+            }
+            // post-processing
+            if (info.filterIsFullySupportedByIndex && !sortInProcess) {
+                featureRefs = applyOffsetAndLimit(featureRefs);
+            }
+            features = fetchFeatures(info, featureRefs, resultSchema);
+            if (!info.filterIsFullySupportedByIndex) {
+                features = applyPostFilter(info.postFilter, features);
             }
-            // using fullSchema here will build "normal" full-attribute lazy features
-            AutoCloseableIterator<Feature> gigFeatures = retriever.getGeoToolsFeatures(featureRefs,
-                    nativeType, typeNameOverride, geometryFactory);
-
-            features = AutoCloseableIterator.transform(gigFeatures,
-                    gf -> GT.adapt(resultSchema, gf));
         }
 
-        if (!info.filterIsFullySupportedByIndex) {
-            features = applyPostFilter(info.postFilter, features);
+        if (sortInProcess) {
+            if (info.sortedByIndex) {
+                features = FeatureSorting.sortEqualKeyRuns(features, sortBy, resultSchema,
+                        geometryFactory);
+            } else {
+                features = FeatureSorting.sort(features, sortBy, resultSchema, geometryFactory,
+                        maxFeatures());
+            }
+        }
+        if (parallel || !info.filterIsFullySupportedByIndex || sortInProcess) {
             features = applyOffsetAndLimit(features);
         }
 
@@ -487,6 +671,230 @@ public class FeatureReaderBuilder {
         return featureReader;
     }
 
+    private SimpleFeatureType resolveResultSchema(WalkInfo info) {
+        if (info.indexContainsAllRequiredProperties) {
+            return resolveMinimalNativeSchema(info.fullSchema, info.requiredProperties);
+        }
+        if (simpleNames(nativeSchema).equals(simpleNames(info.fullSchema))) {
+            return info.fullSchema;
+        }
+        return nativeSchema;
+    }
+
+    /**
+     * Creates the features for the given node refs, either out of the index nodes materialized
+     * attributes, or fetching the {@link RevFeature}s
+     */
+    private AutoCloseableIterator<SimpleFeature> fetchFeatures(WalkInfo info,
+            AutoCloseableIterator<NodeRef> featureRefs, SimpleFeatureType resultSchema) {
+
+        if (info.indexContainsAllRequiredProperties) {
+            CoordinateReferenceSystem nativeCrs = info.fullSchema.getCoordinateReferenceSystem();
+            org.locationtech.geogig.crs.CoordinateReferenceSystem nativeGigCrs = GT
+                    .adapt(nativeCrs);
+            return MaterializedIndexFeatureIterator.create(GT.adapt(resultSchema), featureRefs,
+                    geometryFactory, nativeGigCrs);
+        }
+        final ObjectStore leftFeatureSource = leftRepo.objectDatabase();
+        final ObjectStore rightFeatureSource = rightRepo.objectDatabase();
+        BulkFeatureRetriever retriever;
+        retriever = new BulkFeatureRetriever(leftFeatureSource, rightFeatureSource);
+        final boolean sameNames = resultSchema == info.fullSchema;
+        final Name typeNameOverride = sameNames ? GT.adapt(info.fullSchema.getName()) : null;
+        final @Nullable int[] projection = sameNames ? resolveProjection(info) : null;
+        AutoCloseableIterator<Feature> gigFeatures;
+        if (projection == null) {
+            // using fullSchema here will build "normal" full-attribute lazy features
+            gigFeatures = retriever.getGeoToolsFeatures(featureRefs, nativeType, typeNameOverride,
+                    geometryFactory);
+        } else {
+            // decode only the attributes that survive retyping or are used in-process
+            gigFeatures = retriever.getGeoToolsFeatures(featureRefs, nativeType, projection,
+                    geometryFactory);
+        }
+        return AutoCloseableIterator.transform(gigFeatures, gf -> GT.adapt(resultSchema, gf));
+    }
+
+    /**
+     * Splits the walk in independent ranges of the top level buckets of the walked trees, if a
+     * {@link #parallelMode(ParallelMode) parallel read} is requested and the trees have buckets.
+     * Contiguous ranges are used so that concatenating them in order yields the features in the
+     * same order as the sequential walk.
+     *
+     * @return the bucket filters for each range, or an empty list if the walk is not to be split
+     */
+    private List<Predicate<BucketIndex>> resolvePartitions(WalkInfo info) {
+        if (ParallelMode.SEQUENTIAL == parallelMode || info.sortedByIndex || screenMap != null) {
+            return Collections.emptyList();
+        }
+        SortedSet<Integer> topLevelBuckets = new TreeSet<>();
+        addTopLevelBuckets(info.leftWalkTree, info.leftWalkSource, topLevelBuckets);
+        addTopLevelBuckets(info.rightWalkTree, info.rightWalkSource, topLevelBuckets);
+
+        final int parallelism = GeogigScheduler.get(rightRepo.hints())
+                .parallelism(WorkClass.ENCODE);
+        final int count = Math.min(parallelism, topLevelBuckets.size());
+        if (count < 2) {
+            return Collections.emptyList();
+        }
+        final List<Integer> indexes = new ArrayList<>(topLevelBuckets);
+        final @Nullable Predicate<BucketIndex> bucketFilter = info.bucketFilter;
+        List<Predicate<BucketIndex>> partitions = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            final int from = indexes.get(indexes.size() * p / count);
+            final int to = indexes.get(indexes.size() * (p + 1) / count - 1);
+            Predicate<BucketIndex> range = b -> {
+                final int topLevelIndex = b.getIndexPath()[0];
+                return topLevelIndex >= from && topLevelIndex <= to;
+            };
+            partitions.add(bucketFilter == null ? range : Predicates.and(bucketFilter, range));
+        }
+        return partitions;
+    }
+
+    private void addTopLevelBuckets(ObjectId treeId, ObjectStore source, Set<Integer> target) {
+        if (!EMPTY_TREE_ID.equals(treeId)) {
+            source.getTree(treeId).forEachBucket(b -> target.add(Integer.valueOf(b.getIndex())));
+        }
+    }
+
+    private AutoCloseableIterator<SimpleFeature> readPartition(WalkInfo info,
+            Predicate<BucketIndex> partition, SimpleFeatureType resultSchema) {
+        DiffTree diffOp = info.diffOpFactory.get().setBucketFilter(partition);
+        AutoCloseableIterator<NodeRef> featureRefs = toFeatureRefs(diffOp.call(), changeType);
+        AutoCloseableIterator<SimpleFeature> features = fetchFeatures(info, featureRefs,
+                resultSchema);
+        if (!info.filterIsFullySupportedByIndex) {
+            features = applyPostFilter(info.postFilter, features);
+        }
+        return features;
+    }
+
+    private AutoCloseableIterator<SimpleFeature> mergePartitions(
+            List<Supplier<AutoCloseableIterator<SimpleFeature>>> partitions,
+            boolean sortInProcess) {
+        ExecutorService executor = GeogigScheduler.get(rightRepo.hints())
+                .executor(WorkClass.STORAGE_IO);
+        // order doesn't matter if the features are to be sorted in-process, but paging through
+        // unsorted features requires a stable order
+        final boolean ordered = ParallelMode.ORDERED == parallelMode
+                || (!sortInProcess && offset != null);
+        if (ordered) {
+            return PartitionedIterator.ordered(partitions, executor,
+                    BulkFeatureRetriever.DEFAULT_BATCH_SIZE);
+        }
+        return PartitionedIterator.unordered(partitions, executor,
+                BulkFeatureRetriever.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Resolves the indices of the native attributes that need to be decoded, when features are
+     * going to be retyped to a subset of the native attributes. Besides the
+     * {@link #resolveRequiredProperties required properties}, the ones evaluated by the post filter
+     * and the default geometry, if it's used to apply the screen map or simplify the output, are
+     * included.
+     *
+     * @return the attribute indices, or {@code null} if all attributes need to be decoded
+     */
+    private @Nullable int[] resolveProjection(WalkInfo info) {
+        if (!retypeIfNeeded || info.requiredProperties.equals(nativeSchemaAttributeNames)) {
+            return null;
+        }
+        Set<String> properties = new HashSet<>(info.requiredProperties);
+        if (!info.filterIsFullySupportedByIndex) {
+            properties.addAll(requiredAttributes(info.postFilter));
+        }
+        GeometryDescriptor geometryAttribute = nativeSchema.getGeometryDescriptor();
+        if (geometryAttribute != null && (screenMap != null
+                || (simplificationDistance != null && simplificationDistance.doubleValue() > 0))) {
+            properties.add(geometryAttribute.getLocalName());
+        }
+        if (properties.containsAll(nativeSchemaAttributeNames)) {
+            return null;
+        }
+        List<PropertyDescriptor> descriptors = nativeType.type().getDescriptors();
+        return IntStream.range(0, descriptors.size())
+                .filter(i -> properties.contains(descriptors.get(i).getLocalName())).toArray();
+    }
+
+    /**
+     * Walks the attribute index in key order, which for the ascending order GeoTools uses means
+     * {@code null} values first, though they're in the last bucket of the index tree. Hence the
+     * index is traversed twice, first for the nodes with no key ({@code null} or {@code NaN}
+     * values) and then for the rest.
+     */
+    private AutoCloseableIterator<NodeRef> indexOrderFeatureRefs(WalkInfo info) {
+        final String attribute = info.rightIndex.get().info().getAttributeName();
+        final Predicate<BucketIndex> bucketFilter = info.bucketFilter;
+        final Predicate<BucketIndex> nullsBucket = b -> AttributeIndexKey
+                .isNullValues(b.getIndexPath());
+        final Predicate<NodeRef> hasKey = ref -> null != AttributeIndexKey
+                .key(IndexInfo.getMaterializedAttribute(attribute, ref.getNode()));
+
+        Supplier<AutoCloseableIterator<NodeRef>> keyed = () -> {
+            info.diffOp.setBucketFilter(bucketFilter == null ? Predicates.not(nullsBucket)
+                    : Predicates.and(bucketFilter, Predicates.not(nullsBucket)));
+            return AutoCloseableIterator.filter(toFeatureRefs(info.diffOp.call(), changeType),
+                    hasKey);
+        };
+        if (bucketFilter != null) {
+            // the filter constrains the indexed attribute, null values never match
+            return keyed.get();
+        }
+        info.diffOp.setBucketFilter(nullsBucket);
+        AutoCloseableIterator<NodeRef> nulls = AutoCloseableIterator
+                .filter(toFeatureRefs(info.diffOp.call(), changeType), Predicates.not(hasKey));
+        // the second walk is started only once the first one is exhausted, since the diff op
+        // is reused
+        return AutoCloseableIterator.concat(nulls, lazy(keyed));
+    }
+
+    private boolean hasUniqueIndexKeys(WalkInfo info) {
+        String attribute = info.rightIndex.get().info().getAttributeName();
+        AttributeDescriptor descriptor = nativeSchema.getDescriptor(attribute);
+        return descriptor != null
+                && AttributeIndexKey.isUniqueKey(descriptor.getType().getBinding());
+    }
+
+    private static <T> AutoCloseableIterator<T> lazy(Supplier<AutoCloseableIterator<T>> supplier) {
+        return new AutoCloseableIterator<T>() {
+            private AutoCloseableIterator<T> delegate;
+
+            private AutoCloseableIterator<T> delegate() {
+                if (delegate == null) {
+                    delegate = supplier.get();
+                }
+                return delegate;
+            }
+
+            public @Override boolean hasNext() {
+                return delegate().hasNext();
+            }
+
+            public @Override T next() {
+                return delegate().next();
+            }
+
+            public @Override void close() {
+                if (delegate != null) {
+                    delegate.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the number of features that will be consumed out of the sorted features, or
+     *         {@code null} if unlimited
+     */
+    private @Nullable Integer maxFeatures() {
+        if (limit == null) {
+            return null;
+        }
+        long max = (long) limit.intValue() + (offset == null ? 0 : offset.intValue());
+        return max > Integer.MAX_VALUE ? null : Integer.valueOf((int) max);
+    }
+
     public SimpleFeatureType resolveFullSchema() {
         SimpleFeatureType targetSchema = this.targetSchema;
         if (targetSchema == null) {
@@ -500,6 +908,19 @@ public class FeatureReaderBuilder {
         return this;
     }
 
+    /**
+     * Sets whether the tree shall be split in ranges that are walked, and their features fetched
+     * and post-filtered, concurrently. Only the top level buckets of the tree are split, hence it
+     * only applies to trees bigger than a single leaf node. It's also ignored when features are
+     * returned in attribute index order or a {@link #screenMap(ScreenMap) screen map} is set.
+     *
+     * @param mode the parallel mode, {@code null} meaning {@link ParallelMode#SEQUENTIAL}
+     */
+    public FeatureReaderBuilder parallelMode(@Nullable ParallelMode mode) {
+        this.parallelMode = mode == null ? ParallelMode.SEQUENTIAL : mode;
+        return this;
+    }
+
     public FeatureReaderBuilder screenMapReplaceGeometryWithPx(Boolean replace) {
         if (replace != null)
             this.screenMapReplaceGeometryWithPx = replace;
@@ -688,12 +1109,16 @@ public class FeatureReaderBuilder {
 
         final Set<String> filterAttributes = requiredAttributes(nativeFilter);
 
+        final Set<String> sortAttributes = FeatureSorting.propertyNames(sortBy);
+
         if (outputSchemaPropertyNames.length == 0
-                /* Query.NO_NAMES */ && filterAttributes.isEmpty()) {
+                /* Query.NO_NAMES */ && filterAttributes.isEmpty() && sortAttributes.isEmpty()) {
             return Collections.emptySet();
         }
 
         Set<String> requiredProps = Sets.newHashSet(outputSchemaPropertyNames);
+        // props required to sort the features in-process
+        requiredProps.addAll(sortAttributes);
         // if the filter is a simple BBOX filter against the default geometry attribute, don't force
         // it, we can optimize bbox filter out of Node.bounds()
         if (!(nativeFilter instanceof BBOX)) {
@@ -0,0 +1,307 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.locationtech.geogig.model.FieldType;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.datastream.DataStreamValueSerializerV2;
+import org.locationtech.geogig.storage.datastream.ValueSerializer;
+import org.locationtech.geogig.storage.impl.ExternalMergeSort;
+import org.locationtech.geogig.storage.impl.PersistedIterable.Serializer;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.PeekingIterator;
+
+import lombok.NonNull;
+
+/**
+ * Support for {@link FeatureReaderBuilder#sortBy(SortBy...) native sorting} of features.
+ * <p>
+ * Features are sorted by an {@link ExternalMergeSort external merge sort} that spills to the
+ * default {@link org.locationtech.geogig.storage.ExternalSortStorage temporary storage} once the
+ * number of features exceeds {@link ExternalMergeSort#DEFAULT_BUFFER_SIZE}, or with a bounded
+ * heap if only the first {@code offset + limit} features are needed.
+ * <p>
+ * Property values are compared as GeoTools does when sorting in-process, with {@code null} values
+ * coming first in ascending order, and ties are resolved by feature id so that paging through the
+ * results is consistent.
+ */
+class FeatureSorting {
+
+    private FeatureSorting() {
+        // static utility class
+    }
+
+    /**
+     * @return {@code true} if {@code sortBy} is not empty
+     */
+    public static boolean isSortRequested(@Nullable SortBy[] sortBy) {
+        return sortBy != null && sortBy.length > 0;
+    }
+
+    /**
+     * @return the names of the properties needed to evaluate the sort order
+     */
+    public static Set<String> propertyNames(@Nullable SortBy[] sortBy) {
+        Set<String> names = new LinkedHashSet<>();
+        if (sortBy != null) {
+            for (SortBy s : sortBy) {
+                String name = propertyName(s);
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the name of the single property the features are requested to be sorted by in
+     *         ascending order, or {@code null} if the sort order is any other
+     */
+    public static @Nullable String ascendingSortProperty(@Nullable SortBy[] sortBy) {
+        if (sortBy == null || sortBy.length != 1
+                || SortOrder.ASCENDING != sortBy[0].getSortOrder()) {
+            return null;
+        }
+        return propertyName(sortBy[0]);
+    }
+
+    private static @Nullable String propertyName(SortBy sortBy) {
+        PropertyName property = sortBy.getPropertyName();
+        if (property == null || property.getPropertyName() == null) {
+            // SortBy.NATURAL_ORDER or SortBy.REVERSE_ORDER
+            return null;
+        }
+        String name = property.getPropertyName();
+        int prefixIndex = name.indexOf(':');
+        return prefixIndex == -1 ? name : name.substring(prefixIndex + 1);
+    }
+
+    public static Comparator<SimpleFeature> comparator(@NonNull SortBy[] sortBy) {
+        final Comparator<SimpleFeature> byId = Comparator.comparing(SimpleFeature::getID);
+        Comparator<SimpleFeature> comparator = null;
+        for (SortBy s : sortBy) {
+            final boolean ascending = SortOrder.DESCENDING != s.getSortOrder();
+            Comparator<SimpleFeature> c;
+            if (propertyName(s) == null) {
+                c = byId;
+            } else {
+                final PropertyName property = s.getPropertyName();
+                c = (f1, f2) -> compareValues(property.evaluate(f1), property.evaluate(f2));
+            }
+            if (!ascending) {
+                c = c.reversed();
+            }
+            comparator = comparator == null ? c : comparator.thenComparing(c);
+        }
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(@Nullable Object v1, @Nullable Object v2) {
+        if (v1 == null) {
+            return v2 == null ? 0 : -1;
+        }
+        if (v2 == null) {
+            return 1;
+        }
+        if (v1 instanceof Comparable && v1.getClass().isInstance(v2)) {
+            return ((Comparable) v1).compareTo(v2);
+        }
+        if (v1 instanceof Number && v2 instanceof Number) {
+            return Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+        }
+        return String.valueOf(v1).compareTo(String.valueOf(v2));
+    }
+
+    /**
+     * Consumes {@code features} and returns them in the order mandated by {@code sortBy}.
+     *
+     * @param maxFeatures the number of features that will be consumed from the returned iterator,
+     *        {@code null} meaning all
+     */
+    public static AutoCloseableIterator<SimpleFeature> sort(
+            @NonNull AutoCloseableIterator<SimpleFeature> features, @NonNull SortBy[] sortBy,
+            @NonNull SimpleFeatureType schema, @NonNull GeometryFactory geometryFactory,
+            @Nullable Integer maxFeatures) {
+
+        final Comparator<SimpleFeature> comparator = comparator(sortBy);
+        final int bufferSize = ExternalMergeSort.DEFAULT_BUFFER_SIZE;
+
+        if (maxFeatures != null && maxFeatures.intValue() <= bufferSize) {
+            // top-k, ties are resolved by feature id, hence there's no need for a stable sort
+            List<SimpleFeature> top;
+            try (AutoCloseableIterator<SimpleFeature> f = features) {
+                top = Ordering.from(comparator).leastOf(f, maxFeatures.intValue());
+            }
+            return AutoCloseableIterator.fromIterator(top.iterator());
+        }
+        Serializer<SimpleFeature> serializer = new FeatureSerializer(schema, geometryFactory);
+        return ExternalMergeSort.sort(features, comparator, serializer, bufferSize);
+    }
+
+    /**
+     * Sorts features already sorted by the {@link AttributeIndexKey key} of their
+     * {@code attribute} value, as returned by an attribute index, but whose values may share the
+     * same key, by sorting each run of features with the same key.
+     */
+    public static AutoCloseableIterator<SimpleFeature> sortEqualKeyRuns(
+            @NonNull AutoCloseableIterator<SimpleFeature> features, @NonNull SortBy[] sortBy,
+            @NonNull SimpleFeatureType schema, @NonNull GeometryFactory geometryFactory) {
+
+        final String attribute = ascendingSortProperty(sortBy);
+        final AttributeDescriptor descriptor = attribute == null ? null
+                : schema.getDescriptor(attribute);
+        if (descriptor == null
+                || AttributeIndexKey.isUniqueKey(descriptor.getType().getBinding())) {
+            return features;
+        }
+        final int attIndex = schema.indexOf(attribute);
+        final Comparator<SimpleFeature> comparator = comparator(sortBy);
+        final Serializer<SimpleFeature> serializer = new FeatureSerializer(schema,
+                geometryFactory);
+        final PeekingIterator<SimpleFeature> source = Iterators.peekingIterator(features);
+
+        return new EqualKeyRunsIterator(features, source, attIndex, comparator, serializer);
+    }
+
+    private static class EqualKeyRunsIterator extends AbstractIterator<SimpleFeature>
+            implements AutoCloseableIterator<SimpleFeature> {
+
+        private final AutoCloseableIterator<SimpleFeature> features;
+
+        private final PeekingIterator<SimpleFeature> source;
+
+        private final int attIndex;
+
+        private final Comparator<SimpleFeature> comparator;
+
+        private final Serializer<SimpleFeature> serializer;
+
+        private AutoCloseableIterator<SimpleFeature> run;
+
+        EqualKeyRunsIterator(AutoCloseableIterator<SimpleFeature> features,
+                PeekingIterator<SimpleFeature> source, int attIndex,
+                Comparator<SimpleFeature> comparator, Serializer<SimpleFeature> serializer) {
+            this.features = features;
+            this.source = source;
+            this.attIndex = attIndex;
+            this.comparator = comparator;
+            this.serializer = serializer;
+        }
+
+        protected @Override SimpleFeature computeNext() {
+            if (run != null) {
+                if (run.hasNext()) {
+                    return run.next();
+                }
+                run.close();
+                run = null;
+            }
+            if (!source.hasNext()) {
+                return endOfData();
+            }
+            final SimpleFeature first = source.next();
+            final @Nullable Long key = key(first);
+            // features with no key (e.g. null values) compare equal among them
+            if (key == null || !source.hasNext() || !Objects.equals(key, key(source.peek()))) {
+                return first;
+            }
+            ExternalMergeSort<SimpleFeature> sorter = new ExternalMergeSort<>(comparator,
+                    serializer);
+            sorter.add(first);
+            while (source.hasNext() && Objects.equals(key, key(source.peek()))) {
+                sorter.add(source.next());
+            }
+            run = sorter.sorted();
+            return run.next();
+        }
+
+        private @Nullable Long key(SimpleFeature feature) {
+            return AttributeIndexKey.key(feature.getAttribute(attIndex));
+        }
+
+        public @Override void close() {
+            if (run != null) {
+                run.close();
+                run = null;
+            }
+            features.close();
+        }
+    }
+
+    /**
+     * Serializes features of a known type as their id followed by each attribute value, preceded
+     * by its {@link FieldType#getTag() type tag}.
+     */
+    static class FeatureSerializer implements Serializer<SimpleFeature> {
+
+        private static final ValueSerializer VALUES = DataStreamValueSerializerV2.INSTANCE;
+
+        private final SimpleFeatureType schema;
+
+        private final GeometryFactory geometryFactory;
+
+        FeatureSerializer(SimpleFeatureType schema, GeometryFactory geometryFactory) {
+            this.schema = schema;
+            this.geometryFactory = geometryFactory;
+        }
+
+        public @Override void write(DataOutputStream out, SimpleFeature feature)
+                throws IOException {
+            out.writeUTF(feature.getID());
+            final int size = schema.getAttributeCount();
+            for (int i = 0; i < size; i++) {
+                Object value = feature.getAttribute(i);
+                FieldType type = FieldType.forValue(value);
+                out.writeByte(type.getTag());
+                VALUES.encode(type, value, out);
+            }
+        }
+
+        public @Override SimpleFeature read(DataInputStream in) throws IOException {
+            final String id = in.readUTF();
+            final int size = schema.getAttributeCount();
+            Object[] values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                FieldType type = FieldType.valueOf(in.readUnsignedByte());
+                if (Geometry.class.isAssignableFrom(type.getBinding())) {
+                    values[i] = VALUES.readGeometry(in, geometryFactory);
+                } else {
+                    values[i] = VALUES.decode(type, in);
+                }
+            }
+            return SimpleFeatureBuilder.build(schema, values, id);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+import org.locationtech.geogig.plumbing.stats.AttributeStats;
+import org.locationtech.geogig.plumbing.stats.Histogram;
+import org.locationtech.geogig.plumbing.stats.TreeStats;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Disjoint;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.primitives.UnsignedLong;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Answers count and bounds questions about the features of a tree matching a filter out of its
+ * {@link TreeStats}, either exactly, when the stats suffice to tell (e.g. {@code IS NULL}
+ * filters, or comparisons out of the range of values of an attribute), or as estimates based on
+ * the filter's selectivity.
+ * <p>
+ * Selectivity is estimated out of the attribute {@link Histogram histograms} and distinct value
+ * counts for the comparisons {@link AttributeKeyRanges} can translate to key ranges, and out of
+ * the fraction of the tree bounds covered by the literal geometries of spatial filters, assuming
+ * filters on different attributes are independent. Filters that can't be estimated are assumed to
+ * match {@link #DEFAULT_SELECTIVITY a third} of the features.
+ * <p>
+ * Filters are expected to be in the native CRS and attribute names of the tree's feature type.
+ *
+ * @since 2.0
+ */
+public class LayerStatistics {
+
+    static final double DEFAULT_SELECTIVITY = 1d / 3;
+
+    private final @Getter TreeStats stats;
+
+    private final SimpleFeatureType nativeSchema;
+
+    public LayerStatistics(@NonNull TreeStats stats, @NonNull SimpleFeatureType nativeSchema) {
+        this.stats = stats;
+        this.nativeSchema = nativeSchema;
+    }
+
+    /**
+     * @return the exact number of features matching the filter, if the stats suffice to tell
+     */
+    public OptionalLong exactCount(@NonNull Filter filter) {
+        final long featureCount = stats.getFeatureCount();
+        if (Filter.INCLUDE.equals(filter)) {
+            return OptionalLong.of(featureCount);
+        }
+        if (Filter.EXCLUDE.equals(filter) || featureCount == 0) {
+            return OptionalLong.of(0);
+        }
+        if (filter instanceof PropertyIsNull) {
+            AttributeStats att = attributeStats(((PropertyIsNull) filter).getExpression());
+            return att == null ? OptionalLong.empty() : OptionalLong.of(att.getNullCount());
+        }
+        if (filter instanceof Not && ((Not) filter).getFilter() instanceof PropertyIsNull) {
+            PropertyIsNull isNull = (PropertyIsNull) ((Not) filter).getFilter();
+            AttributeStats att = attributeStats(isNull.getExpression());
+            return att == null ? OptionalLong.empty() : OptionalLong.of(att.getValueCount());
+        }
+        for (AttributeDescriptor descriptor : nativeSchema.getAttributeDescriptors()) {
+            RangeSet<UnsignedLong> ranges = AttributeKeyRanges.of(filter, descriptor);
+            if (ranges != null && !overlaps(ranges, descriptor.getLocalName())) {
+                // the filter requires values of the attribute no feature has
+                return OptionalLong.of(0);
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * @return whether some value of the attribute may be within the given key ranges
+     */
+    private boolean overlaps(RangeSet<UnsignedLong> ranges, String attribute) {
+        AttributeStats att = stats.getAttribute(attribute).orElse(null);
+        if (att == null) {
+            return true;
+        }
+        Histogram histogram = att.getHistogram().orElse(null);
+        if (histogram == null) {
+            // no value with a key (e.g. all null), comparisons never match them
+            return att.getValueCount() > 0 && !ranges.isEmpty() && !isIndexable(attribute);
+        }
+        Range<UnsignedLong> valueRange = Range.closed(
+                UnsignedLong.fromLongBits(histogram.lowerKey()),
+                UnsignedLong.fromLongBits(histogram.upperKey()));
+        return !ranges.subRangeSet(valueRange).isEmpty();
+    }
+
+    private boolean isIndexable(String attribute) {
+        AttributeDescriptor descriptor = nativeSchema.getDescriptor(attribute);
+        return descriptor != null
+                && AttributeIndexKey.isIndexable(descriptor.getType().getBinding());
+    }
+
+    /**
+     * @return the estimated number of features matching the filter
+     */
+    public long estimateCount(@NonNull Filter filter) {
+        OptionalLong exact = exactCount(filter);
+        if (exact.isPresent()) {
+            return exact.getAsLong();
+        }
+        return Math.round(stats.getFeatureCount() * selectivity(filter));
+    }
+
+    /**
+     * @return an envelope that contains the bounds of all the features matching the filter,
+     *         usually larger, or empty if no feature has a geometry
+     */
+    public Optional<Envelope> estimateBounds(@NonNull Filter filter) {
+        Optional<Envelope> bounds = stats.getBounds();
+        if (!bounds.isPresent() || Filter.INCLUDE.equals(filter)) {
+            return bounds;
+        }
+        if (filter instanceof BinarySpatialOperator && !(filter instanceof Disjoint)) {
+            Envelope queryBounds = queryBounds(filter);
+            if (queryBounds != null) {
+                Envelope clipped = bounds.get().intersection(queryBounds);
+                return clipped.isNull() ? Optional.empty() : Optional.of(clipped);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the estimated fraction of features matching the filter, in the range {@code [0, 1]}
+     */
+    public double selectivity(@NonNull Filter filter) {
+        final long featureCount = stats.getFeatureCount();
+        if (featureCount == 0 || Filter.EXCLUDE.equals(filter)) {
+            return 0;
+        }
+        if (Filter.INCLUDE.equals(filter)) {
+            return 1;
+        }
+        if (filter instanceof And) {
+            double s = 1;
+            for (Filter child : ((And) filter).getChildren()) {
+                s *= selectivity(child);
+            }
+            return s;
+        }
+        if (filter instanceof Or) {
+            double none = 1;
+            for (Filter child : ((Or) filter).getChildren()) {
+                none *= 1 - selectivity(child);
+            }
+            return 1 - none;
+        }
+        if (filter instanceof Not) {
+            return 1 - selectivity(((Not) filter).getFilter());
+        }
+        if (filter instanceof Id) {
+            return clamp(((Id) filter).getIdentifiers().size() / (double) featureCount);
+        }
+        OptionalLong exact = exactCount(filter);
+        if (exact.isPresent()) {
+            return clamp(exact.getAsLong() / (double) featureCount);
+        }
+        if (filter instanceof BinarySpatialOperator) {
+            return spatialSelectivity((BinarySpatialOperator) filter);
+        }
+        for (AttributeDescriptor descriptor : nativeSchema.getAttributeDescriptors()) {
+            RangeSet<UnsignedLong> ranges = AttributeKeyRanges.of(filter, descriptor);
+            if (ranges != null) {
+                return rangeSelectivity(ranges, descriptor.getLocalName());
+            }
+        }
+        return DEFAULT_SELECTIVITY;
+    }
+
+    private double rangeSelectivity(RangeSet<UnsignedLong> ranges, String attribute) {
+        AttributeStats att = stats.getAttribute(attribute).orElse(null);
+        Histogram histogram = att == null ? null : att.getHistogram().orElse(null);
+        if (histogram == null) {
+            return DEFAULT_SELECTIVITY;
+        }
+        final double featureCount = stats.getFeatureCount();
+        final long distinct = att.distinctCount().orElse(0L);
+        double matches = 0;
+        for (Range<UnsignedLong> range : ranges.asRanges()) {
+            long lower = range.hasLowerBound() ? range.lowerEndpoint().longValue() : 0L;
+            long upper = range.hasUpperBound() ? range.upperEndpoint().longValue() : -1L;
+            if (lower == upper && distinct > 0) {
+                // equality, assume values are evenly distributed among the distinct ones
+                matches += att.getValueCount() / (double) distinct;
+            } else {
+                matches += histogram.estimate(lower, upper);
+            }
+        }
+        return clamp(matches / featureCount);
+    }
+
+    private double spatialSelectivity(BinarySpatialOperator filter) {
+        final Envelope bounds = stats.getBounds().orElse(null);
+        final Envelope queryBounds = queryBounds(filter);
+        if (bounds == null || queryBounds == null) {
+            return DEFAULT_SELECTIVITY;
+        }
+        final double area = bounds.getArea();
+        final Envelope clipped = bounds.intersection(queryBounds);
+        double covered;
+        if (clipped.isNull()) {
+            covered = 0;
+        } else if (area == 0) {
+            covered = 1;
+        } else {
+            covered = clipped.getArea() / area;
+        }
+        return filter instanceof Disjoint ? 1 - covered : covered;
+    }
+
+    private @Nullable Envelope queryBounds(Filter filter) {
+        List<Envelope> bounds = ExtractBounds.getBounds(filter);
+        if (bounds == null || bounds.isEmpty()) {
+            return null;
+        }
+        Envelope env = new Envelope();
+        bounds.forEach(env::expandToInclude);
+        return env;
+    }
+
+    private @Nullable AttributeStats attributeStats(Object expression) {
+        if (expression instanceof PropertyName) {
+            String name = ((PropertyName) expression).getPropertyName();
+            return stats.getAttribute(name).orElse(null);
+        }
+        return null;
+    }
+
+    private static double clamp(double selectivity) {
+        return Math.max(0, Math.min(1, selectivity));
+    }
+}
@@ -0,0 +1,197 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+
+import lombok.NonNull;
+
+/**
+ * Merges the elements of several independent partitions, each consumed by a producer task that
+ * runs concurrently with the others, into a single stream.
+ * <p>
+ * The {@link #ordered ordered} variant returns all the elements of a partition before the ones of
+ * the next partition, each producer reading ahead into its own bounded queue. The
+ * {@link #unordered unordered} variant returns the elements as soon as any producer provides them,
+ * through a single bounded queue.
+ * <p>
+ * Closing the iterator before it's exhausted stops all producers and closes the partition
+ * iterators. An exception thrown by any producer is rethrown to the consumer.
+ */
+final class PartitionedIterator<T> implements AutoCloseableIterator<T> {
+
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object>[] queues;
+
+    private final List<Future<?>> producers = new ArrayList<>();
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private final int partitionCount;
+
+    private int current;
+
+    private int finished;
+
+    private T next;
+
+    @SuppressWarnings("unchecked")
+    private PartitionedIterator(int partitionCount, int queueCount, int queueCapacity) {
+        this.partitionCount = partitionCount;
+        this.queues = new BlockingQueue[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queues[i] = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    /**
+     * @return an iterator over the elements of all partitions, in partition order
+     */
+    public static <T> AutoCloseableIterator<T> ordered(
+            @NonNull List<Supplier<AutoCloseableIterator<T>>> partitions,
+            @NonNull ExecutorService executor, int queueCapacity) {
+        PartitionedIterator<T> it = new PartitionedIterator<>(partitions.size(),
+                partitions.size(), queueCapacity);
+        for (int i = 0; i < partitions.size(); i++) {
+            it.start(partitions.get(i), it.queues[i], executor);
+        }
+        return it;
+    }
+
+    /**
+     * @return an iterator over the elements of all partitions, in no particular order
+     */
+    public static <T> AutoCloseableIterator<T> unordered(
+            @NonNull List<Supplier<AutoCloseableIterator<T>>> partitions,
+            @NonNull ExecutorService executor, int queueCapacity) {
+        PartitionedIterator<T> it = new PartitionedIterator<>(partitions.size(), 1,
+                queueCapacity);
+        for (Supplier<AutoCloseableIterator<T>> partition : partitions) {
+            it.start(partition, it.queues[0], executor);
+        }
+        return it;
+    }
+
+    private void start(Supplier<AutoCloseableIterator<T>> partition, BlockingQueue<Object> queue,
+            ExecutorService executor) {
+        producers.add(executor.submit(() -> {
+            try (AutoCloseableIterator<T> elements = partition.get()) {
+                while (!cancelled.get() && elements.hasNext()) {
+                    if (!put(queue, elements.next())) {
+                        return;
+                    }
+                }
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+            } finally {
+                put(queue, END);
+            }
+        }));
+    }
+
+    /**
+     * Blocks until {@code element} is queued or the iterator is closed
+     * 
+     * @return {@code false} if the iterator has been closed
+     */
+    private boolean put(BlockingQueue<Object> queue, Object element) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    public @Override boolean hasNext() {
+        if (next == null) {
+            next = computeNext();
+        }
+        return next != null;
+    }
+
+    public @Override T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T n = next;
+        next = null;
+        return n;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T computeNext() {
+        while (finished < partitionCount && !cancelled.get()) {
+            final BlockingQueue<Object> queue = queues[current];
+            Object element;
+            try {
+                element = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while reading features", e);
+            }
+            checkError();
+            if (element == END) {
+                finished++;
+                if (queues.length > 1) {
+                    current++;
+                }
+            } else {
+                return (T) element;
+            }
+        }
+        checkError();
+        return null;
+    }
+
+    private void checkError() {
+        Throwable e = error.get();
+        if (e != null) {
+            close();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public @Override void close() {
+        if (cancelled.compareAndSet(false, true)) {
+            for (BlockingQueue<Object> queue : queues) {
+                queue.clear();
+            }
+            // producers see the cancelled flag at their next element and close their partition
+            producers.forEach(f -> f.cancel(false));
+        }
+    }
+}
@@ -12,15 +12,20 @@ package org.locationtech.geogig.geotools.data.reader;
 import java.util.Collections;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.porcelain.index.Index;
+import org.locationtech.geogig.storage.ObjectStore;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 
+import com.google.common.base.Predicate;
+
 public class WalkInfo {
     public SimpleFeatureType fullSchema;
 
@@ -48,8 +53,24 @@ public class WalkInfo {
 
     public boolean diffUsesIndex;
 
+    // whether the diff walk returns features in the order requested by the query, as it uses an
+    // attribute index on the single property features are requested to be sorted by, ascending
+    public boolean sortedByIndex;
+
+    // buckets of the index tree to traverse, if the index supports it
+    @Nullable
+    Predicate<BucketIndex> bucketFilter;
+
     public DiffTree diffOp;
 
+    // creates DiffTree ops configured like diffOp, for concurrent walks of partitions of the tree
+    Supplier<DiffTree> diffOpFactory;
+
+    // the trees walked by diffOp, either the canonical or the index trees, and their sources
+    ObjectId leftWalkTree, rightWalkTree;
+
+    ObjectStore leftWalkSource, rightWalkSource;
+
     public ScreenMapPredicate screenMapFilter;
 
     public Optional<Index> leftIndex, rightIndex;
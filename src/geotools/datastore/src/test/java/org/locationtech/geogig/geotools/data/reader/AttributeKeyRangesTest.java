@@ -0,0 +1,128 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static org.geotools.filter.text.ecql.ECQL.toFilter;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.geotools.data.DataUtilities;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.internal.AttributeIndexKey;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.RangeSet;
+import com.google.common.primitives.UnsignedLong;
+
+public class AttributeKeyRangesTest {
+
+    private AttributeDescriptor intAtt, stringAtt;
+
+    @Before
+    public void before() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("test",
+                "geom:Point:srid=4326,ival:Integer,sval:String");
+        intAtt = type.getDescriptor("ival");
+        stringAtt = type.getDescriptor("sval");
+    }
+
+    private RangeSet<UnsignedLong> ranges(String ecql, AttributeDescriptor att) throws Exception {
+        return AttributeKeyRanges.of(toFilter(ecql), att);
+    }
+
+    private UnsignedLong key(Object value) {
+        return UnsignedLong.fromLongBits(AttributeIndexKey.key(value));
+    }
+
+    @Test
+    public void testUnconstrained() throws Exception {
+        assertNull(ranges("INCLUDE", intAtt));
+        assertNull(ranges("sval = 'a'", intAtt));
+        assertNull(ranges("ival <> 1", intAtt));
+        assertNull(ranges("ival = 1 OR sval = 'a'", intAtt));
+        assertNull(ranges("BBOX(geom, 0, 0, 1, 1)", intAtt));
+    }
+
+    @Test
+    public void testComparisons() throws Exception {
+        RangeSet<UnsignedLong> eq = ranges("ival = 10", intAtt);
+        assertTrue(eq.contains(key(10)));
+        assertFalse(eq.contains(key(11)));
+
+        RangeSet<UnsignedLong> lt = ranges("ival < 10", intAtt);
+        assertTrue(lt.contains(key(-5)));
+        assertFalse(lt.contains(key(11)));
+
+        RangeSet<UnsignedLong> gt = ranges("10 < ival", intAtt);
+        assertTrue(gt.contains(key(11)));
+        assertFalse(gt.contains(key(9)));
+
+        RangeSet<UnsignedLong> between = ranges("ival BETWEEN 5 AND 10", intAtt);
+        assertTrue(between.contains(key(7)));
+        assertFalse(between.contains(key(4)));
+        assertFalse(between.contains(key(11)));
+
+        // literal converted to the attribute type
+        assertTrue(ranges("ival = '10'", intAtt).contains(key(10)));
+
+        RangeSet<UnsignedLong> s = ranges("sval > 'm'", stringAtt);
+        assertTrue(s.contains(key("n")));
+        assertFalse(s.contains(key("a")));
+    }
+
+    @Test
+    public void testLogicalOperators() throws Exception {
+        RangeSet<UnsignedLong> and = ranges("ival > 5 AND ival < 10 AND sval = 'a'", intAtt);
+        assertTrue(and.contains(key(7)));
+        assertFalse(and.contains(key(3)));
+        assertFalse(and.contains(key(12)));
+
+        RangeSet<UnsignedLong> or = ranges("ival = 1 OR ival = 100", intAtt);
+        assertTrue(or.contains(key(1)));
+        assertTrue(or.contains(key(100)));
+        assertFalse(or.contains(key(50)));
+
+        assertTrue(ranges("ival > 10 AND ival < 5", intAtt).isEmpty());
+    }
+
+    @Test
+    public void testBucketFilter() throws Exception {
+        RangeSet<UnsignedLong> ranges = ranges("ival BETWEEN 5 AND 10", intAtt);
+        assertNotNull(ranges);
+        final long matching = AttributeIndexKey.key(7);
+        final long nonMatching = AttributeIndexKey.key(-1000);
+        int[] matchingPath = new int[3];
+        int[] nonMatchingPath = new int[3];
+        for (int i = 0; i < 3; i++) {
+            matchingPath[i] = AttributeIndexKey.bucket(matching, i);
+            nonMatchingPath[i] = AttributeIndexKey.bucket(nonMatching, i);
+        }
+        Predicate<BucketIndex> filter = AttributeKeyRanges.bucketFilter(ranges);
+        assertTrue(filter.apply(bucketIndex(matchingPath)));
+        assertFalse(filter.apply(bucketIndex(nonMatchingPath)));
+        // null values bucket
+        assertFalse(filter.apply(bucketIndex(new int[] { AttributeIndexKey.RADIX })));
+    }
+
+    private BucketIndex bucketIndex(int[] path) {
+        BucketIndex index = BucketIndex.root(RevTree.EMPTY, RevTree.EMPTY);
+        for (int i : path) {
+            index = index.append(i, RevTree.EMPTY, RevTree.EMPTY);
+        }
+        return index;
+    }
+}
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -41,6 +42,7 @@ import org.geotools.util.factory.Hints;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.locationtech.geogig.geotools.data.reader.FeatureReaderBuilder.ParallelMode;
 import org.locationtech.geogig.geotools.adapt.GT;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.DiffEntry;
@@ -48,6 +50,7 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.plumbing.DiffTree;
+import org.locationtech.geogig.porcelain.index.CreateAttributeIndex;
 import org.locationtech.geogig.porcelain.index.CreateQuadTree;
 import org.locationtech.geogig.porcelain.index.Index;
 import org.locationtech.geogig.repository.Context;
@@ -66,6 +69,7 @@ import org.opengis.filter.PropertyIsEqualTo;
 import org.opengis.filter.PropertyIsNotEqualTo;
 import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -87,6 +91,8 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
     // spy'ed DiffTree command
     private DiffTree difftree;
 
+    private final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
     public @BeforeClass static void beforeClass() {
         System.setProperty("org.geotools.referencing.forceXY", "true");
     }
@@ -356,6 +362,122 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         verifyUsesIndex(index);
     }
 
+    @Test
+    public void testSortAscending() throws Exception {
+        verifySorted(query(ff.sort("ip", SortOrder.ASCENDING)), idP1, idP2, idP3);
+        verifySorted(query(ff.sort("sp", SortOrder.ASCENDING)), idP1, idP2, idP3);
+    }
+
+    @Test
+    public void testSortDescending() throws Exception {
+        verifySorted(query(ff.sort("ip", SortOrder.DESCENDING)), idP3, idP2, idP1);
+        verifySorted(query(SortBy.REVERSE_ORDER), idP3, idP2, idP1);
+    }
+
+    @Test
+    public void testSortWithOffsetAndLimit() throws Exception {
+        Query query = query(ff.sort("ip", SortOrder.DESCENDING));
+        query.setStartIndex(1);
+        query.setMaxFeatures(1);
+        verifySorted(query, idP2);
+    }
+
+    @Test
+    public void testSortByAttributeIndex() throws Exception {
+        Index index = repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName)
+                .setAttributeName("ip").call();
+        verifySorted(query(ff.sort("ip", SortOrder.ASCENDING)), idP1, idP2, idP3);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testSortByAttributeIndexEqualKeys() throws Exception {
+        // all sp values share the same key prefix
+        Index index = repo.command(CreateAttributeIndex.class).setTreeRefSpec(pointsName)
+                .setAttributeName("sp").call();
+        Query query = query(ff.sort("sp", SortOrder.ASCENDING));
+        query.setStartIndex(1);
+        verifySorted(query, idP2, idP3);
+        verifyUsesIndex(index);
+    }
+
+    @Test
+    public void testParallelRead() throws Exception {
+        insertManyPoints();
+        List<String> expected = readIds(newBuilder(), null);
+        assertEquals(1003, expected.size());
+
+        assertEquals(expected, readIds(newBuilder(), ParallelMode.ORDERED));
+        List<String> unordered = readIds(newBuilder(), ParallelMode.UNORDERED);
+        assertEquals(ImmutableSet.copyOf(expected), ImmutableSet.copyOf(unordered));
+        assertEquals(expected.size(), unordered.size());
+
+        // paging through features read in parallel is consistent
+        assertEquals(expected.subList(100, 150),
+                readIds(newBuilder().offset(100).limit(50), ParallelMode.UNORDERED));
+    }
+
+    @Test
+    public void testParallelReadIndexed() throws Exception {
+        insertManyPoints();
+        createIndex();
+        Filter filter = ff.bbox("pp", 0, 0, 50, 5, "EPSG:4326");
+        List<String> expected = readIds(newBuilder().filter(filter), null);
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, readIds(newBuilder().filter(filter), ParallelMode.ORDERED));
+    }
+
+    private void insertManyPoints() throws Exception {
+        // enough features for the tree to be split in buckets
+        org.locationtech.geogig.feature.Feature[] features;
+        features = new org.locationtech.geogig.feature.Feature[1000];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = feature(pointsType, "p" + i, "StringProp_" + i, Integer.valueOf(i),
+                    String.format("POINT(%d %d)", i % 100, i / 100));
+        }
+        insertAndAdd(features);
+        commit("many points");
+    }
+
+    /**
+     * @return a builder with the actual repository context, since the spy'ed one returns the same
+     *         DiffTree instance for each concurrent walk
+     */
+    private FeatureReaderBuilder newBuilder() {
+        Context context = repo.context();
+        RevFeatureType nativeType = RevFeatureType.builder().type(pointsType).build();
+        NodeRef typeRef = context.workingTree().getFeatureTypeTrees().get(0);
+        return FeatureReaderBuilder.builder(context, nativeType, typeRef);
+    }
+
+    private List<String> readIds(FeatureReaderBuilder builder, @Nullable ParallelMode mode)
+            throws IOException {
+        List<String> ids = new ArrayList<>();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> r = builder.parallelMode(mode)
+                .build()) {
+            while (r.hasNext()) {
+                ids.add(r.next().getID());
+            }
+        }
+        return ids;
+    }
+
+    private Query query(SortBy... sortBy) {
+        Query query = new Query();
+        query.setSortBy(sortBy);
+        return query;
+    }
+
+    private void verifySorted(Query query, String... expectedIds) throws Exception {
+        List<String> actual = new ArrayList<>();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> r = getReader(query)) {
+            while (r.hasNext()) {
+                actual.add(r.next().getID());
+            }
+        }
+        assertEquals(Arrays.asList(expectedIds), actual);
+    }
+
     public @Test void testDiffTreeIteratorIsClosedOnError() throws IOException {
         RuntimeException expected = new RuntimeException();
         AutoCloseableIterator<DiffEntry> mockIt = mock(AutoCloseableIterator.class);
@@ -0,0 +1,393 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.internal;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.UpdateRef;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.remotes.SynchronizationException;
+import org.locationtech.geogig.remotes.pack.BundleHeader;
+import org.locationtech.geogig.remotes.pack.BundlePack;
+import org.locationtech.geogig.remotes.pack.BundleReader;
+import org.locationtech.geogig.remotes.pack.BundleWriter;
+import org.locationtech.geogig.remotes.pack.ObjectReporter;
+import org.locationtech.geogig.remotes.pack.Pack;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.remotes.pack.PackProcessor;
+import org.locationtech.geogig.remotes.pack.PackRequest;
+import org.locationtech.geogig.remotes.pack.ReceivePackOp;
+import org.locationtech.geogig.remotes.pack.RefRequest;
+import org.locationtech.geogig.remotes.pack.SendPackOp;
+import org.locationtech.geogig.repository.Command;
+import org.locationtech.geogig.repository.CommandFactory;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.Remote;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.RepositoryConnectionException;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+
+import com.google.common.collect.Maps;
+
+import lombok.NonNull;
+
+/**
+ * An {@link IRemoteRepo} backed by a bundle file, allowing to fetch, clone, and push from and to
+ * a repository with no network connection to the source one.
+ * <p>
+ * The bundle's refs are the ones recorded in its {@link BundleHeader header}. Fetching from the
+ * bundle requires the local repository to already have the commits the bundle was created
+ * relative to (the {@link RefRequest#have have} side of its refs); pushing to it rewrites the
+ * bundle file with the pushed refs added or updated, keeping the refs that were not pushed and all
+ * the objects and index trees the bundle already had, so that a bundle built by successive pushes
+ * is as self contained as the one created by the first push.
+ * <p>
+ * Only the pack based protocol is supported, through the {@link SendPackOp}, {@link ReceivePackOp}
+ * and {@link UpdateRef} {@link #command commands}.
+ *
+ * @since 2.0
+ */
+public class BundleRemoteRepo extends AbstractRemoteRepo {
+
+    private final Path file;
+
+    private BundleHeader header;
+
+    public BundleRemoteRepo(@NonNull Remote remote, @NonNull Path file) {
+        super(remote);
+        this.file = file;
+    }
+
+    public @Override void open() throws RepositoryConnectionException {
+        if (Files.exists(file)) {
+            try {
+                header = readHeader();
+            } catch (RuntimeException e) {
+                throw new RepositoryConnectionException(
+                        "Unable to read bundle " + file + ": " + e.getMessage());
+            }
+        } else {
+            header = null;
+        }
+    }
+
+    private BundleHeader readHeader() {
+        try (BundleReader reader = BundleReader.open(file)) {
+            return reader.getHeader();
+        }
+    }
+
+    public @Override void close() {
+        header = null;
+    }
+
+    private List<RefRequest> refs() {
+        return header == null ? Collections.emptyList() : header.getRefs();
+    }
+
+    public @Override Set<Ref> listRefs(Repository local, boolean getHeads, boolean getTags) {
+        Set<Ref> refs = new LinkedHashSet<>();
+        for (RefRequest ref : refs()) {
+            boolean keep = (getHeads && ref.name.startsWith(Ref.HEADS_PREFIX))
+                    || (getTags && ref.name.startsWith(Ref.TAGS_PREFIX));
+            if (keep) {
+                refs.add(new Ref(ref.name, ref.want));
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * @return a {@link SymRef} to {@code refs/heads/master} if the bundle contains it, or to the
+     *         first branch in the bundle otherwise
+     */
+    public @Override Optional<Ref> headRef() {
+        Set<Ref> branches = listRefs(null, true, false);
+        Optional<Ref> target = branches.stream()
+                .filter(r -> r.getName().equals(Ref.MASTER)).findFirst();
+        if (!target.isPresent()) {
+            target = branches.stream().findFirst();
+        }
+        return target.map(r -> new SymRef(Ref.HEAD, r));
+    }
+
+    public @Override Optional<Integer> getDepth() {
+        return Optional.empty();
+    }
+
+    public @Override void fetchNewData(Repository local, Ref remoteRef,
+            Optional<Integer> fetchLimit, ProgressListener progress) {
+        throw new UnsupportedOperationException("bundles only support the pack protocol");
+    }
+
+    public @Override void pushNewData(Repository local, Ref ref, ProgressListener progress)
+            throws SynchronizationException {
+        throw new UnsupportedOperationException("bundles only support the pack protocol");
+    }
+
+    public @Override void pushNewData(Repository local, Ref ref, String refspec,
+            ProgressListener progress) throws SynchronizationException {
+        throw new UnsupportedOperationException("bundles only support the pack protocol");
+    }
+
+    public @Override Optional<Ref> deleteRef(String refspec) {
+        throw new UnsupportedOperationException("Deleting refs from a bundle is not supported");
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Override <T extends Command<?>> T command(Class<T> commandClass) {
+        if (SendPackOp.class.equals(commandClass)) {
+            return (T) new BundleSendPackOp();
+        }
+        if (ReceivePackOp.class.equals(commandClass)) {
+            return (T) new BundleReceivePackOp();
+        }
+        if (UpdateRef.class.equals(commandClass)) {
+            return (T) new BundleUpdateRef();
+        }
+        return IRemoteRepo.super.command(commandClass);
+    }
+
+    /**
+     * Sends the bundle contents for the requested refs to the target repository, failing if the
+     * target is a repository that lacks any of the commits the bundle was created relative to
+     */
+    private class BundleSendPackOp extends SendPackOp {
+
+        protected @Override Pack preparePack(PackRequest request) {
+            checkState(header != null, "Bundle %s does not exist", file);
+            final Map<String, RefRequest> bundleRefs = Maps.uniqueIndex(header.getRefs(),
+                    r -> r.name);
+            final CommandFactory target = getTargetRepo();
+            List<RefRequest> refs = new ArrayList<>();
+            for (RefRequest req : request.getRefs()) {
+                RefRequest ref = bundleRefs.get(req.name);
+                checkState(ref != null, "Bundle %s does not contain ref %s", file, req.name);
+                if (ref.have.isPresent() && target instanceof Repository) {
+                    ObjectId prerequisite = ref.have.get();
+                    checkState(((Repository) target).context().objectDatabase()
+                            .exists(prerequisite),
+                            "Bundle %s requires commit %s for %s, which is not in the repository",
+                            file, prerequisite, ref.name);
+                }
+                refs.add(ref);
+            }
+            return new BundlePack(file, header, refs, request.isSyncIndexes());
+        }
+    }
+
+    /**
+     * Replaces the bundle file by one with the contents of the current bundle, if any, plus the
+     * contents of the received pack, written to a temporary file on the same directory first.
+     * <p>
+     * The pack only carries the objects missing from the bundle refs, so the current bundle
+     * objects are copied over first, and the index trees of a pushed ref are preceded by the ones
+     * the bundle had for the same index, in order for the new bundle to be complete.
+     */
+    private class BundleReceivePackOp extends ReceivePackOp {
+
+        protected @Override List<RefDiff> _call() {
+            final Pack pack = getPack();
+            checkState(pack != null, "No pack supplied");
+            final BundleHeader current = Files.exists(file) ? readHeader() : null;
+
+            final Path dir = file.toAbsolutePath().getParent();
+            Path tmp = null;
+            try {
+                Files.createDirectories(dir);
+                tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+                final List<RefDiff> applied;
+                final BundleHeader merged = current == null ? BundleHeader.of(pack)
+                        : merge(current, pack);
+                try (OutputStream out = Files.newOutputStream(tmp);
+                        BundleWriter writer = new BundleWriter(out, merged)) {
+                    if (current == null) {
+                        applied = pack.applyTo(writer, getProgressListener());
+                    } else {
+                        try (BundleReader reader = BundleReader.open(file)) {
+                            writer.putAll(reader.objects(), BulkOpListener.NOOP_LISTENER);
+                        }
+                        PackProcessor target = new CarryOverIndexes(writer, current, merged);
+                        applied = pack.applyTo(target, getProgressListener());
+                        final Set<String> pushed = pack.getRefs().stream().map(r -> r.name)
+                                .collect(Collectors.toSet());
+                        for (RefRequest ref : merged.getRefs()) {
+                            if (!pushed.contains(ref.name)) {
+                                for (IndexDef index : merged.getIndexes(ref)) {
+                                    copyIndex(index, index, writer);
+                                }
+                            }
+                        }
+                    }
+                    writer.finish();
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                header = readHeader();
+                return applied;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (tmp != null) {
+                    try {
+                        Files.deleteIfExists(tmp);
+                    } catch (IOException e) {
+                        // ignore, the temporary file may not exist anymore
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return a header with the pushed refs first, in the order the pack applies them,
+         *         followed by the current refs that were not pushed, with their indexes
+         */
+        private BundleHeader merge(BundleHeader current, Pack pack) {
+            final Set<ObjectId> prerequisites = current.getRefs().stream()
+                    .map(r -> r.have.orElse(null)).filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            final Set<String> pushed = new HashSet<>();
+            final List<RefRequest> refs = new ArrayList<>();
+            final Map<RefRequest, List<IndexDef>> indexes = new LinkedHashMap<>();
+            try (BundleReader reader = BundleReader.open(file)) {
+                for (RefRequest ref : pack.getRefs()) {
+                    ObjectId have = ref.have.orElse(null);
+                    // a prerequisite contained in the bundle is replaced by the bundle's own one
+                    if (have != null && prerequisites.size() < 2 && reader.get(have).isPresent()) {
+                        have = prerequisites.isEmpty() ? null : prerequisites.iterator().next();
+                    }
+                    RefRequest merged = RefRequest.create(ref.name, ref.want, have);
+                    pushed.add(ref.name);
+                    refs.add(merged);
+                    if (!pack.getIndexes(ref).isEmpty()) {
+                        indexes.put(merged, new ArrayList<>(pack.getIndexes(ref)));
+                    }
+                }
+            }
+            for (RefRequest ref : current.getRefs()) {
+                if (!pushed.contains(ref.name)) {
+                    refs.add(ref);
+                    if (!current.getIndexes(ref).isEmpty()) {
+                        indexes.put(ref, new ArrayList<>(current.getIndexes(ref)));
+                    }
+                }
+            }
+            return new BundleHeader(refs, indexes);
+        }
+
+        /**
+         * Writes the index trees the current bundle has for {@code source} as part of the
+         * contents of {@code target}
+         */
+        private void copyIndex(IndexDef source, IndexDef target, BundleWriter writer) {
+            try (BundleReader reader = BundleReader.open(file)) {
+                writer.putIndex(target, reader.indexContents(source),
+                        BulkOpListener.NOOP_LISTENER);
+            }
+        }
+
+        /**
+         * Decorates the bundle writer to prepend the index trees the current bundle has for each
+         * index a pushed ref updates
+         */
+        private class CarryOverIndexes implements PackProcessor {
+
+            private final BundleWriter writer;
+
+            private final BundleHeader current;
+
+            private final Map<IndexDef, String> refNames = new HashMap<>();
+
+            CarryOverIndexes(BundleWriter writer, BundleHeader current, BundleHeader merged) {
+                this.writer = writer;
+                this.current = current;
+                for (RefRequest ref : merged.getRefs()) {
+                    merged.getIndexes(ref).forEach(i -> refNames.put(i, ref.name));
+                }
+            }
+
+            public @Override void putAll(Iterator<? extends RevObject> objects,
+                    BulkOpListener listener) {
+                writer.putAll(objects, listener);
+            }
+
+            public @Override void putIndex(IndexDef index, IndexDatabase sourceStore,
+                    ObjectReporter objectReport, Deduplicator deduplicator) {
+                carryOver(index);
+                writer.putIndex(index, sourceStore, objectReport, deduplicator);
+            }
+
+            public @Override void putIndex(IndexDef index, Iterator<RevTree> contents,
+                    BulkOpListener listener) {
+                carryOver(index);
+                writer.putIndex(index, contents, listener);
+            }
+
+            private void carryOver(IndexDef index) {
+                final String refName = refNames.get(index);
+                for (RefRequest ref : current.getRefs()) {
+                    if (ref.name.equals(refName)) {
+                        current.getIndexes(ref).stream()
+                                .filter(i -> i.getIndex().equals(index.getIndex())).findFirst()
+                                .ifPresent(previous -> copyIndex(previous, index, writer));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Bundle refs are written when the pack is received, this command only verifies the bundle
+     * contains the requested ref value
+     */
+    private class BundleUpdateRef extends UpdateRef {
+
+        protected @Override Optional<Ref> _call() {
+            checkState(!isDelete(), "Deleting refs from a bundle is not supported");
+            final String name = getName();
+            final ObjectId newValue = getNewValue();
+            checkState(header != null && newValue != null, "Bundle %s does not exist", file);
+            Optional<RefRequest> ref = refs().stream()
+                    .filter(r -> r.name.equals(name) && r.want.equals(newValue)).findFirst();
+            if (!ref.isPresent()) {
+                // refs are recorded under the pushing repository names
+                ref = refs().stream().filter(r -> r.want.equals(newValue)).findFirst();
+            }
+            checkState(ref.isPresent(), "Bundle %s does not contain %s", file, newValue);
+            return Optional.of(new Ref(name, newValue));
+        }
+    }
+}
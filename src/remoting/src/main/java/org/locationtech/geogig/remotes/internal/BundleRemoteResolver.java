@@ -0,0 +1,44 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.internal;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import org.locationtech.geogig.repository.Hints;
+import org.locationtech.geogig.repository.Remote;
+
+/**
+ * {@link RemoteResolver} for {@link BundleRemoteRepo bundle files}, that is, {@code file} URIs
+ * whose path ends in {@code .bundle}.
+ * <p>
+ * Must be looked up before {@link LocalRemoteResolver}, which otherwise would try to open the
+ * bundle as a repository.
+ */
+public class BundleRemoteResolver implements RemoteResolver {
+
+    public static final String BUNDLE_EXTENSION = ".bundle";
+
+    public @Override Optional<IRemoteRepo> resolve(Remote remote, Hints remoteHints) {
+        final String fetchURL = remote.getFetchURL();
+        if (remote.getMapped() || fetchURL == null) {
+            return Optional.empty();
+        }
+        final URI fetchURI = URI.create(fetchURL);
+        if (!"file".equals(fetchURI.getScheme()) || fetchURI.getPath() == null
+                || !fetchURI.getPath().endsWith(BUNDLE_EXTENSION)) {
+            return Optional.empty();
+        }
+        Path file = Paths.get(fetchURI);
+        return Optional.of(new BundleRemoteRepo(remote, file));
+    }
+}
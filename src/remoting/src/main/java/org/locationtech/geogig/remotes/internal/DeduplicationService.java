@@ -21,7 +21,8 @@ import com.google.common.collect.Lists;
  * A service for providing deduplicators.
  * <p>
  * Implementations are to be looked up through the standard Java {@link ServiceLoader SPI mechanism}
- * under {@code META-INF/services/org.locationtech.geogig.repository.DeduplicationService}
+ * under {@code META-INF/services/org.locationtech.geogig.remotes.internal.DeduplicationService},
+ * falling back to {@link HeapDeduplicationService} if none is found
  */
 public interface DeduplicationService {
     /**
@@ -0,0 +1,171 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.impl.IndexInfoSerializer;
+import org.locationtech.geogig.storage.impl.PersistedIterable.Serializer;
+
+import lombok.Value;
+
+/**
+ * Constants and encoding routines of the bundle file format written by {@link BundleWriter} and
+ * read by {@link BundleReader}.
+ * 
+ * <pre>
+ * <code>
+ * bundle   := MAGIC version:int header block* END_BLOCK index trailer
+ * header   := refCount:int ref*
+ * ref      := name:UTF want:ObjectId hasHave:boolean have:ObjectId? indexCount:int indexDef*
+ * indexDef := IndexInfo canonical:ObjectId parentIndexTree:ObjectId indexTree:ObjectId
+ * block    := kind:byte ordinal:int rawSize:int compressedSize:int crc32:int deflated-bytes
+ * raw      := (id:ObjectId flatbuffers-size:int-LE flatbuffers-bytes)*
+ * index    := (id:ObjectId blockOffset:long offsetInBlock:int)*, sorted by id
+ * trailer  := indexOffset:long objectCount:long MAGIC
+ * </code>
+ * </pre>
+ * 
+ * Blocks of kind {@link #BLOCK_OBJECTS} hold revision objects in the order the pack provides them,
+ * blocks of kind {@link #BLOCK_INDEX} hold the index trees of the {@link IndexDef} at position
+ * {@code ordinal} in the {@link BundleHeader#allIndexes() header}.
+ */
+final class BundleFormat {
+
+    static final byte[] MAGIC = "GGBUNDLE".getBytes(StandardCharsets.US_ASCII);
+
+    static final int VERSION = 1;
+
+    static final byte BLOCK_END = 0, BLOCK_OBJECTS = 1, BLOCK_INDEX = 2;
+
+    /**
+     * Uncompressed size of blocks, defaults to 1MiB, can be overridden through the
+     * {@code geogig.bundle.blockSize} System property
+     */
+    static final int BLOCK_SIZE = Integer.getInteger("geogig.bundle.blockSize", 1024 * 1024);
+
+    static final int BLOCK_HEADER_SIZE = 1 + 4 * Integer.BYTES;
+
+    static final int INDEX_ENTRY_SIZE = ObjectId.NUM_BYTES + Long.BYTES + Integer.BYTES;
+
+    static final int TRAILER_SIZE = 2 * Long.BYTES + MAGIC.length;
+
+    private BundleFormat() {
+        // static utility class
+    }
+
+    static void writeHeader(BundleHeader header, DataOutput out) throws IOException {
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        List<RefRequest> refs = header.getRefs();
+        out.writeInt(refs.size());
+        for (RefRequest ref : refs) {
+            out.writeUTF(ref.name);
+            ref.want.writeTo(out);
+            out.writeBoolean(ref.have.isPresent());
+            if (ref.have.isPresent()) {
+                ref.have.get().writeTo(out);
+            }
+            List<IndexDef> indexes = header.getIndexes(ref);
+            out.writeInt(indexes.size());
+            for (IndexDef index : indexes) {
+                IndexInfoSerializer.serialize(index.getIndex(), out);
+                index.getCanonical().writeTo(out);
+                index.getParentIndexTreeId().writeTo(out);
+                index.getIndexTreeId().writeTo(out);
+            }
+        }
+    }
+
+    static BundleHeader readHeader(DataInput in) throws IOException {
+        checkMagic(in);
+        final int version = in.readInt();
+        checkArgument(version == VERSION, "Unsupported bundle version: %s", version);
+        final int refCount = in.readInt();
+        List<RefRequest> refs = new ArrayList<>(refCount);
+        Map<RefRequest, List<IndexDef>> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < refCount; i++) {
+            String name = in.readUTF();
+            ObjectId want = ObjectId.readFrom(in);
+            ObjectId have = in.readBoolean() ? ObjectId.readFrom(in) : null;
+            RefRequest ref = RefRequest.create(name, want, have);
+            refs.add(ref);
+            final int indexCount = in.readInt();
+            if (indexCount > 0) {
+                List<IndexDef> refIndexes = new ArrayList<>(indexCount);
+                for (int j = 0; j < indexCount; j++) {
+                    IndexInfo index = IndexInfoSerializer.deserialize(in);
+                    refIndexes.add(IndexDef.builder()//
+                            .index(index)//
+                            .canonical(ObjectId.readFrom(in))//
+                            .parentIndexTreeId(ObjectId.readFrom(in))//
+                            .indexTreeId(ObjectId.readFrom(in))//
+                            .build());
+                }
+                indexes.put(ref, refIndexes);
+            }
+        }
+        return new BundleHeader(refs, indexes);
+    }
+
+    static void checkMagic(DataInput in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        checkArgument(Arrays.equals(MAGIC, magic), "Not a geogig bundle");
+    }
+
+    /**
+     * Location of an object in the bundle: the file offset of the block that contains it and its
+     * offset in the uncompressed block
+     */
+    static @Value class IndexEntry {
+        private final ObjectId id;
+
+        private final long blockOffset;
+
+        private final int offset;
+    }
+
+    static class IndexEntrySerializer implements Serializer<IndexEntry> {
+
+        public @Override void write(DataOutputStream out, IndexEntry e) throws IOException {
+            writeEntry(e, out);
+        }
+
+        public @Override IndexEntry read(DataInputStream in) throws IOException {
+            return readEntry(in);
+        }
+    }
+
+    static void writeEntry(IndexEntry e, DataOutput out) throws IOException {
+        e.getId().writeTo(out);
+        out.writeLong(e.getBlockOffset());
+        out.writeInt(e.getOffset());
+    }
+
+    static IndexEntry readEntry(DataInput in) throws IOException {
+        return new IndexEntry(ObjectId.readFrom(in), in.readLong(), in.readInt());
+    }
+}
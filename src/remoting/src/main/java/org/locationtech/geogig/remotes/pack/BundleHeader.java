@@ -0,0 +1,64 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * The header of a {@link BundleWriter bundle}: the refs it carries the revision objects for and the
+ * indexes it updates for each ref.
+ * <p>
+ * For each {@link RefRequest}, {@link RefRequest#want want} is the commit the bundle provides the
+ * objects for, and {@link RefRequest#have have}, if present, the commit the receiving repository
+ * must already have for the bundle contents to be complete.
+ *
+ * @since 2.0
+ */
+public @Value class BundleHeader {
+
+    private final @NonNull List<RefRequest> refs;
+
+    private final @NonNull Map<RefRequest, List<IndexDef>> refIndexes;
+
+    public static BundleHeader of(@NonNull Pack pack) {
+        List<RefRequest> refs = pack.getRefs();
+        Map<RefRequest, List<IndexDef>> indexes = new LinkedHashMap<>();
+        for (RefRequest ref : refs) {
+            List<IndexDef> refIndexes = pack.getIndexes(ref);
+            if (!refIndexes.isEmpty()) {
+                indexes.put(ref, new ArrayList<>(refIndexes));
+            }
+        }
+        return new BundleHeader(new ArrayList<>(refs), indexes);
+    }
+
+    public List<IndexDef> getIndexes(@NonNull RefRequest ref) {
+        List<IndexDef> indexes = refIndexes.get(ref);
+        return indexes == null ? Collections.emptyList() : indexes;
+    }
+
+    /**
+     * @return all the index definitions, in the order their contents are stored in the bundle
+     */
+    public List<IndexDef> allIndexes() {
+        List<IndexDef> all = new ArrayList<>();
+        refs.forEach(ref -> all.addAll(getIndexes(ref)));
+        return all;
+    }
+}
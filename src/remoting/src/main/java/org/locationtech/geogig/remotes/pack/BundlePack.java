@@ -0,0 +1,119 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.repository.ProgressListener;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterators;
+
+import lombok.NonNull;
+
+/**
+ * A {@link Pack} whose contents come from a bundle file written by {@link BundleWriter}, streamed
+ * to the target {@link PackProcessor} through a {@link BundleReader}.
+ * <p>
+ * All the revision objects in the bundle are applied regardless of which of its refs were
+ * requested, since objects shared by several refs are stored only once; index updates are only
+ * applied for the requested refs, and only if indexes are requested at all.
+ *
+ * @since 2.0
+ */
+public class BundlePack implements Pack {
+
+    private final Path file;
+
+    private final BundleHeader header;
+
+    private final List<RefRequest> refs;
+
+    private final boolean includeIndexes;
+
+    /**
+     * @param file the bundle file
+     * @param header the bundle header, as read from {@code file}
+     * @param refs the subset of the header refs to apply
+     * @param includeIndexes whether to apply the index updates of the requested refs
+     */
+    public BundlePack(@NonNull Path file, @NonNull BundleHeader header,
+            @NonNull List<RefRequest> refs, boolean includeIndexes) {
+        this.file = file;
+        this.header = header;
+        this.refs = new ArrayList<>(refs);
+        this.includeIndexes = includeIndexes;
+    }
+
+    public @Override List<RefRequest> getRefs() {
+        return Collections.unmodifiableList(refs);
+    }
+
+    public @Override List<IndexDef> getIndexes(@NonNull RefRequest ref) {
+        return includeIndexes && refs.contains(ref) ? header.getIndexes(ref)
+                : Collections.emptyList();
+    }
+
+    public @Override List<RefDiff> applyTo(@NonNull PackProcessor target,
+            @NonNull ProgressListener progress) {
+        progress.started();
+        progress.setDescription("Reading bundle " + file.getFileName());
+        final ObjectReporter objectReport = new ObjectReporter(progress);
+
+        // back up current progress indicator
+        final Function<ProgressListener, String> defaultProgressIndicator;
+        defaultProgressIndicator = progress.progressIndicator();
+        // set our custom progress indicator
+        progress.setProgressIndicator((p) -> objectReport.toString());
+
+        final Stopwatch sw = Stopwatch.createStarted();
+        try (BundleReader reader = BundleReader.open(file)) {
+            Iterator<RevObject> objects = Iterators.transform(reader.objects(), o -> {
+                objectReport.add(o.getType());
+                return o;
+            });
+            target.putAll(objects, objectReport);
+
+            for (RefRequest ref : reader.getHeader().getRefs()) {
+                for (IndexDef index : getIndexes(ref)) {
+                    Iterator<RevTree> contents = reader.indexContents(index);
+                    target.putIndex(index, contents, objectReport);
+                }
+            }
+        } finally {
+            // restore previous progress indicator
+            progress.setProgressIndicator(defaultProgressIndicator);
+        }
+        progress.complete();
+        if (objectReport.total.get() > 0) {
+            progress.started();
+            String description = String.format("Objects inserted: %,d, repeated: %,d, time: %s",
+                    objectReport.inserted(), objectReport.found(), sw.stop());
+            progress.setDescription(description);
+        }
+
+        List<RefDiff> appliedDiffs = new ArrayList<>();
+        for (RefRequest req : refs) {
+            Ref oldRef = req.have.isPresent() ? new Ref(req.name, req.have.get()) : null;
+            Ref newRef = new Ref(req.name, req.want);
+            appliedDiffs.add(new RefDiff(oldRef, newRef));
+        }
+        return appliedDiffs;
+    }
+}
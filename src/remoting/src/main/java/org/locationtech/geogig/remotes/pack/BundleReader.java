@@ -0,0 +1,377 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_END;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_HEADER_SIZE;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_INDEX;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_OBJECTS;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.INDEX_ENTRY_SIZE;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.TRAILER_SIZE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.remotes.pack.BundleFormat.IndexEntry;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.io.ByteStreams;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Reads a bundle file written by {@link BundleWriter}.
+ * <p>
+ * The bundle contents can be read sequentially, first the revision {@link #objects() objects} and
+ * then the {@link #indexContents(IndexDef) contents} of each index in
+ * {@link BundleHeader#allIndexes() header order}, holding at most one decompressed block in
+ * memory. Sections not requested are skipped without decompressing them.
+ * <p>
+ * Single objects can also be looked up by id through {@link #get(ObjectId)}, which performs a
+ * binary search over the trailing object index with positional reads, independently of the
+ * sequential read position.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @see BundleFormat
+ * @since 2.0
+ */
+public class BundleReader implements Closeable {
+
+    private final FlatBuffersRevObjectSerializer serializer = new FlatBuffersRevObjectSerializer(
+            true);
+
+    private final FileChannel channel;
+
+    private final @Getter BundleHeader header;
+
+    private final long indexOffset, indexSize;
+
+    private final long objectCount;
+
+    private final DataInputStream in;
+
+    private final Inflater inflater = new Inflater();
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Header of the next block in the sequential stream, {@code null} if not yet read
+     */
+    private BlockHeader next;
+
+    /**
+     * Cached block for random access reads
+     */
+    private long cachedBlockOffset = -1;
+
+    private byte[] cachedBlock;
+
+    private static class BlockHeader {
+        final byte kind;
+
+        final int ordinal, rawSize, compressedSize, crc;
+
+        BlockHeader(DataInputStream in) throws IOException {
+            kind = in.readByte();
+            ordinal = in.readInt();
+            rawSize = in.readInt();
+            compressedSize = in.readInt();
+            crc = in.readInt();
+        }
+    }
+
+    private BundleReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        final long size = channel.size();
+        checkArgument(size >= TRAILER_SIZE, "Not a geogig bundle or incomplete bundle");
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        readFully(trailer, size - TRAILER_SIZE);
+        trailer.flip();
+        this.indexOffset = trailer.getLong();
+        this.objectCount = trailer.getLong();
+        DataInputStream magic = new DataInputStream(new ByteArrayInputStream(trailer.array(),
+                trailer.position(), trailer.remaining()));
+        BundleFormat.checkMagic(magic);
+        this.indexSize = size - TRAILER_SIZE - indexOffset;
+        checkArgument(indexOffset > 0 && indexSize >= 0 && indexSize % INDEX_ENTRY_SIZE == 0,
+                "Corrupt bundle index");
+
+        channel.position(0);
+        this.in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        this.header = BundleFormat.readHeader(in);
+    }
+
+    public static BundleReader open(@NonNull Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new BundleReader(channel);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignore) {
+                    e.addSuppressed(ignore);
+                }
+            }
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * @return the number of objects in the bundle, including index trees
+     */
+    public long size() {
+        return objectCount;
+    }
+
+    public @Override void close() {
+        inflater.end();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the bundle's revision objects in the order they were written, excluding index
+     *         trees; must be called before {@link #indexContents(IndexDef)}
+     */
+    public Iterator<RevObject> objects() {
+        return new SectionIterator(BLOCK_OBJECTS, 0);
+    }
+
+    /**
+     * @return the index trees of the given index, which must be requested in
+     *         {@link BundleHeader#allIndexes() header order}, after any previous section has been
+     *         fully consumed or abandoned
+     */
+    public Iterator<RevTree> indexContents(@NonNull IndexDef index) {
+        final int ordinal = header.allIndexes().indexOf(index);
+        checkArgument(ordinal > -1, "Index not declared in the bundle header: %s", index);
+        return Iterators.transform(new SectionIterator(BLOCK_INDEX, ordinal), RevTree.class::cast);
+    }
+
+    /**
+     * Random access lookup of an object by id
+     */
+    public Optional<RevObject> get(@NonNull ObjectId id) {
+        try {
+            final IndexEntry entry = find(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.getBlockOffset() != cachedBlockOffset) {
+                ByteBuffer h = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+                readFully(h, entry.getBlockOffset());
+                h.flip();
+                BlockHeader blockHeader = new BlockHeader(
+                        new DataInputStream(new ByteArrayInputStream(h.array())));
+                ByteBuffer compressed = ByteBuffer.allocate(blockHeader.compressedSize);
+                readFully(compressed, entry.getBlockOffset() + BLOCK_HEADER_SIZE);
+                cachedBlock = inflate(blockHeader, compressed.array());
+                cachedBlockOffset = entry.getBlockOffset();
+            }
+            return Optional.of(decode(cachedBlock, entry.getOffset()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private IndexEntry find(ObjectId id) throws IOException {
+        final ByteBuffer buff = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        long low = 0, high = indexSize / INDEX_ENTRY_SIZE - 1;
+        while (low <= high) {
+            final long mid = (low + high) >>> 1;
+            buff.clear();
+            readFully(buff, indexOffset + mid * INDEX_ENTRY_SIZE);
+            IndexEntry entry = BundleFormat
+                    .readEntry(new DataInputStream(new ByteArrayInputStream(buff.array())));
+            int c = entry.getId().compareTo(id);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void readFully(ByteBuffer buff, long position) throws IOException {
+        long pos = position;
+        while (buff.hasRemaining()) {
+            int read = channel.read(buff, pos);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            pos += read;
+        }
+    }
+
+    private byte[] inflate(BlockHeader block, byte[] compressed) throws IOException {
+        byte[] raw = new byte[block.rawSize];
+        inflater.reset();
+        inflater.setInput(compressed, 0, block.compressedSize);
+        try {
+            int off = 0;
+            while (off < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, off, raw.length - off);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                off += inflated;
+            }
+            if (off != raw.length) {
+                throw new IOException("Corrupt bundle block: truncated data");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt bundle block", e);
+        }
+        crc.reset();
+        crc.update(raw, 0, raw.length);
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException("Corrupt bundle block: checksum mismatch");
+        }
+        return raw;
+    }
+
+    private RevObject decode(byte[] block, int offset) throws IOException {
+        final ObjectId id = ObjectId.create(
+                Arrays.copyOfRange(block, offset, offset + ObjectId.NUM_BYTES));
+        final int start = offset + ObjectId.NUM_BYTES;
+        final int size = sizeAt(block, start);
+        return serializer.read(id, block, start, Integer.BYTES + size);
+    }
+
+    /**
+     * @return the little endian size prefix of the FlatBuffers encoded object at {@code offset}
+     */
+    private static int sizeAt(byte[] block, int offset) {
+        return (block[offset] & 0xFF) | ((block[offset + 1] & 0xFF) << 8)
+                | ((block[offset + 2] & 0xFF) << 16) | ((block[offset + 3] & 0xFF) << 24);
+    }
+
+    /**
+     * @return the header of the next block in the sequential stream
+     */
+    private BlockHeader peekBlock() throws IOException {
+        if (next == null) {
+            next = new BlockHeader(in);
+        }
+        return next;
+    }
+
+    private byte[] nextBlock() throws IOException {
+        BlockHeader block = next;
+        checkState(block != null);
+        next = null;
+        byte[] compressed = new byte[block.compressedSize];
+        in.readFully(compressed);
+        return inflate(block, compressed);
+    }
+
+    private void skipBlock() throws IOException {
+        BlockHeader block = next;
+        checkState(block != null);
+        next = null;
+        ByteStreams.skipFully(in, block.compressedSize);
+    }
+
+    /**
+     * Iterates over the objects of the consecutive blocks of a given kind and ordinal, skipping
+     * any preceding block of a section that comes before
+     */
+    private class SectionIterator extends AbstractIterator<RevObject> {
+
+        private final byte kind;
+
+        private final int ordinal;
+
+        private byte[] block;
+
+        private int offset;
+
+        SectionIterator(byte kind, int ordinal) {
+            this.kind = kind;
+            this.ordinal = ordinal;
+        }
+
+        protected @Override RevObject computeNext() {
+            try {
+                if (block == null || offset == block.length) {
+                    block = null;
+                    if (!nextSectionBlock()) {
+                        return endOfData();
+                    }
+                    block = nextBlock();
+                    offset = 0;
+                }
+                RevObject o = decode(block, offset);
+                offset += ObjectId.NUM_BYTES + Integer.BYTES
+                        + sizeAt(block, offset + ObjectId.NUM_BYTES);
+                return o;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * @return {@code true} if the next block belongs to this section
+         */
+        private boolean nextSectionBlock() throws IOException {
+            BlockHeader h = peekBlock();
+            while (h.kind != BLOCK_END && isBefore(h)) {
+                skipBlock();
+                h = peekBlock();
+            }
+            return h.kind == kind && h.ordinal == ordinal;
+        }
+
+        private boolean isBefore(BlockHeader h) {
+            if (h.kind == kind) {
+                return h.ordinal < ordinal;
+            }
+            return h.kind == BLOCK_OBJECTS && kind == BLOCK_INDEX;
+        }
+    }
+}
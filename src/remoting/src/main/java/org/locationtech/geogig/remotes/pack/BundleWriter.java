@@ -0,0 +1,251 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_END;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_INDEX;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_OBJECTS;
+import static org.locationtech.geogig.remotes.pack.BundleFormat.BLOCK_SIZE;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.remotes.internal.Deduplicator;
+import org.locationtech.geogig.remotes.pack.BundleFormat.IndexEntry;
+import org.locationtech.geogig.remotes.pack.BundleFormat.IndexEntrySerializer;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.impl.ExternalMergeSort;
+
+import com.google.common.io.CountingOutputStream;
+
+import lombok.NonNull;
+
+/**
+ * A {@link PackProcessor} that, instead of applying a {@link Pack} to a repository, streams its
+ * contents to a self contained bundle file that can later be {@link BundlePack applied} to a
+ * repository with no connection to the source one.
+ * <p>
+ * Revision objects are encoded with the length prefixed {@link FlatBuffersRevObjectSerializer
+ * FlatBuffers} format and written in deflate compressed blocks of about
+ * {@link BundleFormat#BLOCK_SIZE} bytes, so memory usage is bounded regardless of the pack size.
+ * The trailing object index, sorted by object id, is built with an {@link ExternalMergeSort}.
+ * <p>
+ * Usage: create the writer with the header of the pack to be written, {@link Pack#applyTo apply}
+ * the pack to it, and call {@link #finish()} before {@link #close() closing} it. A writer closed
+ * without calling {@link #finish()} leaves an incomplete bundle that {@link BundleReader} rejects.
+ *
+ * @see BundleFormat
+ * @since 2.0
+ */
+public class BundleWriter implements PackProcessor, Closeable {
+
+    private final FlatBuffersRevObjectSerializer serializer = new FlatBuffersRevObjectSerializer(
+            true);
+
+    private final CountingOutputStream counting;
+
+    private final DataOutputStream out;
+
+    private final List<IndexDef> indexes;
+
+    private final ByteArrayOutputStream block;
+
+    private final DataOutputStream blockOut;
+
+    private final ByteArrayOutputStream compressed;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    private final CRC32 crc = new CRC32();
+
+    private final ExternalMergeSort<IndexEntry> index;
+
+    private byte blockKind = BLOCK_OBJECTS;
+
+    private int blockOrdinal;
+
+    private long objectCount;
+
+    private boolean finished;
+
+    public BundleWriter(@NonNull OutputStream out, @NonNull BundleHeader header) {
+        this.counting = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.out = new DataOutputStream(counting);
+        this.indexes = header.allIndexes();
+        this.block = new ByteArrayOutputStream(BLOCK_SIZE + 1024);
+        this.blockOut = new DataOutputStream(block);
+        this.compressed = new ByteArrayOutputStream(BLOCK_SIZE / 2);
+        this.index = new ExternalMergeSort<>((e1, e2) -> e1.getId().compareTo(e2.getId()),
+                new IndexEntrySerializer());
+        try {
+            BundleFormat.writeHeader(header, this.out);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of objects written so far
+     */
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    public @Override void putAll(@NonNull Iterator<? extends RevObject> objects,
+            @NonNull BulkOpListener listener) {
+        write(BLOCK_OBJECTS, 0, objects, listener);
+    }
+
+    /**
+     * Writes the index trees that are in {@link IndexDef#getIndexTreeId() the new index tree} but
+     * not in {@link IndexDef#getParentIndexTreeId() its parent}.
+     */
+    public @Override void putIndex(@NonNull IndexDef indexDef, @NonNull IndexDatabase sourceStore,
+            @NonNull ObjectReporter objectReport, @NonNull Deduplicator deduplicator) {
+
+        final ExecutorService producerThread = GeogigScheduler.defaultInstance()
+                .boundedExecutor(WorkClass.STORAGE_IO, 1);
+        try {
+            List<ObjectId[]> treeIds = Collections.singletonList(new ObjectId[] {
+                    indexDef.getParentIndexTreeId(), indexDef.getIndexTreeId() });
+            final ContentIdsProducer producer = ContentIdsProducer.forIndex(indexDef.getIndex(),
+                    sourceStore, treeIds, deduplicator, objectReport);
+            producerThread.submit(producer);
+            Iterator<ObjectId> missingContentIds = producer.iterator();
+            Iterator<RevTree> contents = sourceStore.getAll(() -> missingContentIds,
+                    BulkOpListener.NOOP_LISTENER, RevTree.class);
+            putIndex(indexDef, contents, objectReport);
+        } finally {
+            producerThread.shutdownNow();
+        }
+    }
+
+    public @Override void putIndex(@NonNull IndexDef indexDef, @NonNull Iterator<RevTree> contents,
+            @NonNull BulkOpListener listener) {
+        final int ordinal = indexes.indexOf(indexDef);
+        checkArgument(ordinal > -1, "Index not declared in the bundle header: %s", indexDef);
+        write(BLOCK_INDEX, ordinal, contents, listener);
+    }
+
+    private void write(final byte kind, final int ordinal, Iterator<? extends RevObject> objects,
+            BulkOpListener listener) {
+        checkState(!finished, "bundle already finished");
+        try {
+            if (kind != blockKind || ordinal != blockOrdinal) {
+                flushBlock();
+                blockKind = kind;
+                blockOrdinal = ordinal;
+            }
+            while (objects.hasNext()) {
+                final RevObject o = objects.next();
+                final ObjectId id = o.getId();
+                final int offset = block.size();
+                id.writeTo(blockOut);
+                serializer.write(o, blockOut);
+                // the block is written at the current position once flushed
+                index.add(new IndexEntry(id, counting.getCount(), offset));
+                objectCount++;
+                listener.inserted(id, Integer.valueOf(block.size() - offset));
+                if (block.size() >= BLOCK_SIZE) {
+                    flushBlock();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (block.size() == 0) {
+            return;
+        }
+        final int rawSize = block.size();
+        final byte[] raw = block.toByteArray();
+        crc.reset();
+        crc.update(raw, 0, rawSize);
+
+        compressed.reset();
+        deflater.reset();
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(compressed, deflater)) {
+            deflated.write(raw, 0, rawSize);
+        }
+        out.writeByte(blockKind);
+        out.writeInt(blockOrdinal);
+        out.writeInt(rawSize);
+        out.writeInt(compressed.size());
+        out.writeInt((int) crc.getValue());
+        compressed.writeTo(out);
+        block.reset();
+    }
+
+    /**
+     * Completes the bundle by writing any pending block, the object index, and the trailer. No
+     * more objects can be written afterwards.
+     */
+    public void finish() {
+        checkState(!finished, "bundle already finished");
+        try {
+            flushBlock();
+            out.writeByte(BLOCK_END);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            final long indexOffset = counting.getCount();
+            try (AutoCloseableIterator<IndexEntry> entries = index.sorted()) {
+                while (entries.hasNext()) {
+                    BundleFormat.writeEntry(entries.next(), out);
+                }
+            }
+            out.writeLong(indexOffset);
+            out.writeLong(objectCount);
+            out.write(BundleFormat.MAGIC);
+            out.flush();
+            finished = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public @Override void close() {
+        index.close();
+        deflater.end();
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -15,16 +15,13 @@ import org.locationtech.geogig.model.NodeOrdering;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
-import org.locationtech.geogig.model.impl.QuadTreeBuilder;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.porcelain.index.IndexUtils;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.storage.IndexDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
-import org.locationtech.jts.geom.Envelope;
-
-import com.google.common.base.Preconditions;
 
 import lombok.NonNull;
 
@@ -42,9 +39,7 @@ class ContentIdsProducer implements java.util.function.Consumer<ObjectId>, Runna
             @NonNull IndexDatabase sourceStore, @NonNull List<ObjectId[]> treeIds,
             @NonNull Deduplicator deduplicator, @NonNull ObjectReporter objectReport) {
 
-        Envelope maxBounds = IndexInfo.getMaxBounds(indexInfo);
-        Preconditions.checkNotNull(maxBounds);
-        NodeOrdering diffNodeOrdering = QuadTreeBuilder.nodeOrdering(maxBounds);
+        NodeOrdering diffNodeOrdering = IndexUtils.nodeOrdering(indexInfo);
 
         boolean reportFeatures = false;
         ContentIdsProducer producer = new ContentIdsProducer(sourceStore, treeIds, deduplicator,
@@ -16,13 +16,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
 import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
@@ -30,17 +31,27 @@ import org.locationtech.geogig.storage.IndexDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
 
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class LocalPackProcessor implements PackProcessor {
 
     private ObjectStore target;
 
     private IndexDatabase targetIndexdb;
 
+    private GeogigScheduler scheduler;
+
     public LocalPackProcessor(@NonNull ObjectStore targetStore,
             @NonNull IndexDatabase targetIndexdb) {
+        this(targetStore, targetIndexdb, GeogigScheduler.defaultInstance());
+    }
+
+    public LocalPackProcessor(@NonNull ObjectStore targetStore,
+            @NonNull IndexDatabase targetIndexdb, @NonNull GeogigScheduler scheduler) {
         this.target = targetStore;
         this.targetIndexdb = targetIndexdb;
+        this.scheduler = scheduler;
     }
 
     public @Override void putAll(Iterator<? extends RevObject> iterator, BulkOpListener listener) {
@@ -63,7 +74,7 @@ public class LocalPackProcessor implements PackProcessor {
             sourceStore.copyIndexTo(indexDef.getIndex(), indexdb);
             return;
         }
-        final ExecutorService producerThread = Executors.newSingleThreadExecutor();
+        final ExecutorService producerThread = scheduler.boundedExecutor(WorkClass.STORAGE_IO, 1);
         Iterator<RevTree> missingContents;
         try {
             final ObjectId oldIndexTreeId = indexDef.getParentIndexTreeId();
@@ -91,4 +102,27 @@ public class LocalPackProcessor implements PackProcessor {
         }
     }
 
+    public @Override void putIndex(@NonNull IndexDef indexDef, @NonNull Iterator<RevTree> contents,
+            @NonNull BulkOpListener listener) {
+
+        final IndexDatabase indexdb = targetIndexdb;
+        final IndexInfo index = indexDef.getIndex();
+        indexdb.putAll(contents, listener);
+
+        final ObjectId parentIndexTreeId = indexDef.getParentIndexTreeId();
+        if (!RevTree.EMPTY_TREE_ID.equals(parentIndexTreeId)
+                && !indexdb.exists(parentIndexTreeId)) {
+            // the new index tree shares its unchanged subtrees with the parent one
+            log.warn("Not updating index {}: parent index tree {} not found. Rebuild the index.",
+                    index, parentIndexTreeId);
+            return;
+        }
+        final IndexInfo targetIndex = indexdb
+                .getIndexInfo(index.getTreeName(), index.getAttributeName())
+                .orElseGet(() -> indexdb.createIndexInfo(index.getTreeName(),
+                        index.getAttributeName(), index.getIndexType(), index.getMetadata()));
+
+        indexdb.addIndexedTree(targetIndex, indexDef.getCanonical(), indexDef.getIndexTreeId());
+    }
+
 }
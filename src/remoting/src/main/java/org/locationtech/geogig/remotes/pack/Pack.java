@@ -40,4 +40,14 @@ public interface Pack {
      * @return
      */
     public List<RefDiff> applyTo(PackProcessor target, ProgressListener progress);
+
+    /**
+     * @return the refs this pack carries the missing objects for, in the order they're applied
+     */
+    public List<RefRequest> getRefs();
+
+    /**
+     * @return the index updates this pack carries for the given ref, in the order they're applied
+     */
+    public List<IndexDef> getIndexes(RefRequest ref);
 }
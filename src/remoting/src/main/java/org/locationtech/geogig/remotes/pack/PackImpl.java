@@ -13,6 +13,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -20,7 +21,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -33,6 +33,8 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.remotes.RefDiff;
 import org.locationtech.geogig.remotes.internal.DeduplicationService;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
 import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -132,7 +134,8 @@ class PackImpl implements Pack {
         final ContentIdsProducer producer = ContentIdsProducer.forCommits(sourceStore,
                 diffRootTreeIds, deduplicator, objectReport);
 
-        final ExecutorService producerThread = Executors.newSingleThreadExecutor();
+        final ExecutorService producerThread = GeogigScheduler.get(source.context().hints())
+                .boundedExecutor(WorkClass.STORAGE_IO, 1);
         try {
             producerThread.submit(producer);
             Iterator<ObjectId> missingContentIds = producer.iterator();
@@ -218,6 +221,15 @@ class PackImpl implements Pack {
         return diffRootTreeIds;
     }
 
+    public @Override List<RefRequest> getRefs() {
+        return Lists.newArrayList(missingCommits.keySet());
+    }
+
+    public @Override List<IndexDef> getIndexes(@NonNull RefRequest ref) {
+        List<IndexDef> indexes = missingIndexes.get(ref);
+        return indexes == null ? Collections.emptyList() : indexes;
+    }
+
     private void applyIndex(PackProcessor target, RefRequest req, Deduplicator deduplicator,
             ProgressListener progress) {
 
@@ -12,6 +12,7 @@ package org.locationtech.geogig.remotes.pack;
 import java.util.Iterator;
 
 import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.remotes.internal.Deduplicator;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -31,4 +32,14 @@ public interface PackProcessor {
     public void putIndex(Pack.IndexDef index, IndexDatabase sourceStore,
             ObjectReporter objectReport, Deduplicator deduplicator);
 
+    /**
+     * Saves the index trees needed to update an index from its
+     * {@link Pack.IndexDef#getParentIndexTreeId() parent index tree} to its
+     * {@link Pack.IndexDef#getIndexTreeId() new index tree}, as they come from a pack that's not
+     * backed by a source index database, like a {@link BundlePack bundle}, creating the index if it
+     * doesn't exist.
+     */
+    public void putIndex(Pack.IndexDef index, Iterator<RevTree> contents,
+            BulkOpListener listener);
+
 }
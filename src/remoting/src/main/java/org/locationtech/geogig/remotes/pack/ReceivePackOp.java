@@ -19,6 +19,7 @@ import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.remotes.RefDiff;
 import org.locationtech.geogig.remotes.TransferSummary;
+import org.locationtech.geogig.repository.GeogigScheduler;
 import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.IndexDatabase;
@@ -49,7 +50,7 @@ public class ReceivePackOp extends AbstractGeoGigOp<List<RefDiff>> {
         Repository repo = repository();
         ObjectDatabase store = repo.context().objectDatabase();
         IndexDatabase index = repo.context().indexDatabase();
-        return new LocalPackProcessor(store, index);
+        return new LocalPackProcessor(store, index, GeogigScheduler.get(repo.context().hints()));
     }
 
     public ReceivePackOp setPack(Pack pack) {
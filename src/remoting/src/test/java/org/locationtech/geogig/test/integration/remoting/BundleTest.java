@@ -0,0 +1,158 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.test.integration.remoting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.remotes.RemoteAddOp;
+import org.locationtech.geogig.porcelain.BranchCreateOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.porcelain.LogOp;
+import org.locationtech.geogig.remotes.FetchOp;
+import org.locationtech.geogig.remotes.PushOp;
+import org.locationtech.geogig.remotes.pack.BundleReader;
+import org.locationtech.geogig.remotes.pack.RefRequest;
+import org.locationtech.geogig.repository.Repository;
+
+import com.google.common.collect.Lists;
+
+public class BundleTest extends RemoteRepositoryTestCase {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    private File bundle;
+
+    protected @Override void setUpInternal() throws Exception {
+        bundle = new File(tmp.getRoot(), "repo.bundle");
+        final String url = bundle.toURI().toString();
+        originRepo.command(RemoteAddOp.class).setName("bundle").setURL(url).call();
+        localRepo.command(RemoteAddOp.class).setName("bundle").setURL(url).call();
+
+        insertAndAdd(originRepo, points1, lines1);
+        originRepo.command(CommitOp.class).setMessage("c1").call();
+        insertAndAdd(originRepo, points2, lines2);
+        originRepo.command(CommitOp.class).setMessage("c2").call();
+    }
+
+    @Test
+    public void testPushAndFetch() {
+        push(originRepo);
+        assertTrue(bundle.exists());
+
+        final Ref master = ref(originRepo, Ref.MASTER);
+        localRepo.command(FetchOp.class).addRemote("bundle").call();
+        assertEquals(master.getObjectId(),
+                ref(localRepo, "refs/remotes/bundle/master").getObjectId());
+
+        List<RevCommit> expected = log(originRepo, master.getObjectId());
+        List<RevCommit> actual = log(localRepo, master.getObjectId());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testBundleContents() {
+        push(originRepo);
+        final Ref master = ref(originRepo, Ref.MASTER);
+        try (BundleReader reader = BundleReader.open(bundle.toPath())) {
+            List<RefRequest> refs = reader.getHeader().getRefs();
+            assertEquals(1, refs.size());
+            assertEquals(Ref.MASTER, refs.get(0).name);
+            assertEquals(master.getObjectId(), refs.get(0).want);
+            assertFalse(refs.get(0).have.isPresent());
+
+            long count = 0;
+            for (Iterator<RevObject> it = reader.objects(); it.hasNext();) {
+                RevObject o = it.next();
+                assertEquals(o, originRepo.context().objectDatabase().get(o.getId()));
+                count++;
+            }
+            assertEquals(reader.size(), count);
+
+            for (RevCommit c : log(originRepo, master.getObjectId())) {
+                assertEquals(Optional.of(c), reader.get(c.getId()));
+                assertEquals(Optional.of(originRepo.context().objectDatabase()
+                        .get(c.getTreeId())), reader.get(c.getTreeId()));
+            }
+            assertFalse(reader.get(ObjectId.valueOf("abc123000000000000000000000000000000000f"))
+                    .isPresent());
+        }
+    }
+
+    @Test
+    public void testPushTwiceThenClone() throws Exception {
+        push(originRepo);
+        insertAndAdd(originRepo, points3);
+        originRepo.command(CommitOp.class).setMessage("c3").call();
+        push(originRepo);
+
+        final Ref master = ref(originRepo, Ref.MASTER);
+        try (BundleReader reader = BundleReader.open(bundle.toPath())) {
+            List<RefRequest> refs = reader.getHeader().getRefs();
+            assertEquals(1, refs.size());
+            assertEquals(master.getObjectId(), refs.get(0).want);
+            // the objects of the first push are kept, the bundle needs no prerequisite
+            assertFalse(refs.get(0).have.isPresent());
+            for (RevCommit c : log(originRepo, master.getObjectId())) {
+                assertEquals(Optional.of(c), reader.get(c.getId()));
+            }
+        }
+
+        cloneOp().setRemoteURI(bundle.toURI()).setCloneURI(localRepo.getLocation()).call();
+        assertEquals(master.getObjectId(), ref(localRepo, Ref.MASTER).getObjectId());
+        assertEquals(log(originRepo, master.getObjectId()),
+                log(localRepo, master.getObjectId()));
+    }
+
+    @Test
+    public void testPushKeepsRefsNotPushed() throws Exception {
+        push(originRepo);
+        originRepo.command(BranchCreateOp.class).setName("branch1").setAutoCheckout(true).call();
+        insertAndAdd(originRepo, points3);
+        originRepo.command(CommitOp.class).setMessage("c3").call();
+        originRepo.command(PushOp.class).setRemote("bundle").addRefSpec("branch1").call();
+
+        final Ref master = ref(originRepo, Ref.MASTER);
+        final Ref branch = ref(originRepo, "refs/heads/branch1");
+        localRepo.command(FetchOp.class).addRemote("bundle").call();
+        assertEquals(master.getObjectId(),
+                ref(localRepo, "refs/remotes/bundle/master").getObjectId());
+        assertEquals(branch.getObjectId(),
+                ref(localRepo, "refs/remotes/bundle/branch1").getObjectId());
+        assertEquals(log(originRepo, branch.getObjectId()),
+                log(localRepo, branch.getObjectId()));
+    }
+
+    private void push(Repository repo) {
+        repo.command(PushOp.class).setRemote("bundle").addRefSpec("master").call();
+    }
+
+    private Ref ref(Repository repo, String name) {
+        return repo.command(RefParse.class).setName(name).call().get();
+    }
+
+    private List<RevCommit> log(Repository repo, ObjectId tip) {
+        return Lists.newArrayList(repo.command(LogOp.class).setUntil(tip).call());
+    }
+}
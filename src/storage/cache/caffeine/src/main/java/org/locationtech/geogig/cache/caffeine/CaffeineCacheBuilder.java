@@ -16,8 +16,12 @@ public class CaffeineCacheBuilder implements SharedCacheBuilder {
 
     private long maxSizeBytes;
 
+    /**
+     * Higher than the off-heap cache builder's priority, so Caffeine remains the default
+     * implementation when both are in the classpath
+     */
     public @Override int getPriority() {
-        return 0;
+        return 1;
     }
 
     public @Override void setMaxSizeBytes(long maxSizeBytes) {
@@ -0,0 +1,55 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import org.locationtech.geogig.storage.cache.CacheManager;
+import org.locationtech.geogig.storage.cache.SharedCache;
+import org.locationtech.geogig.storage.cache.SharedCacheBuilder;
+
+import com.google.common.base.Strings;
+
+/**
+ * Builds an {@link OffHeapSharedCache}.
+ * <p>
+ * Has the lowest priority, so it has to be explicitly enabled by setting the
+ * {@link CacheManager#ENV_VAR SHARED_CACHE_BUILDER} System property or environment variable to
+ * this class name.
+ * <p>
+ * Lazy decoding of cache hits (see {@link OffHeapSharedCache}) is enabled by default, and can be
+ * disabled through the {@code GEOGIG_CACHE_LAZY_DECODE=false} System property or environment
+ * variable, with the System property taking precedence over the environment variable.
+ */
+public class OffHeapCacheBuilder implements SharedCacheBuilder {
+
+    public static final String LAZY_DECODE = "GEOGIG_CACHE_LAZY_DECODE";
+
+    private long maxSizeBytes;
+
+    public @Override int getPriority() {
+        return 0;
+    }
+
+    public @Override void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public @Override SharedCache build() {
+        return new OffHeapSharedCache(maxSizeBytes, isLazyDecode());
+    }
+
+    static boolean isLazyDecode() {
+        String value = System.getProperty(LAZY_DECODE);
+        if (Strings.isNullOrEmpty(value)) {
+            value = System.getenv(LAZY_DECODE);
+        }
+        return Strings.isNullOrEmpty(value) || Boolean.parseBoolean(value);
+    }
+
+}
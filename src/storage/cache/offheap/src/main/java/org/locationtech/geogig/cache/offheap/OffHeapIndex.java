@@ -0,0 +1,296 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntPredicate;
+
+/**
+ * Open addressing hash table stored in a direct {@link ByteBuffer}, mapping a cache key (an
+ * {@code int} prefix plus the three components of a 20-byte {@code ObjectId}) to a {@code long}
+ * location in the slab storage.
+ * <p>
+ * Collisions are resolved through linear probing, and removals use backward shift deletion so
+ * there are no tombstones and lookups never degrade after many insertions and removals.
+ * <p>
+ * Each entry takes {@link #ENTRY_SIZE} bytes with the following layout:
+ *
+ * <pre>
+ * <code>
+ * long location, int prefix, int h1, long h2, long h3
+ * </code>
+ * </pre>
+ *
+ * A {@code location} of zero marks an empty slot, hence callers must never use zero as a valid
+ * location.
+ * <p>
+ * This class is not thread safe, the calling code is responsible of guarding access to it.
+ */
+final class OffHeapIndex {
+
+    static final int ENTRY_SIZE = 32;
+
+    private static final int LOCATION_OFFSET = 0;
+
+    private static final int PREFIX_OFFSET = 8;
+
+    private static final int H1_OFFSET = 12;
+
+    private static final int H2_OFFSET = 16;
+
+    private static final int H3_OFFSET = 24;
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private ByteBuffer table;
+
+    private int capacity;
+
+    private int mask;
+
+    private int size;
+
+    OffHeapIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    OffHeapIndex(int initialCapacity) {
+        allocate(tableSizeFor(Math.max(MIN_CAPACITY, initialCapacity)));
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.size = 0;
+        final long bytes = (long) capacity * ENTRY_SIZE;
+        checkArgument(bytes <= Integer.MAX_VALUE,
+                "capacity %s exceeds the max off-heap index table size", capacity);
+        this.table = ByteBuffer.allocateDirect((int) bytes);
+    }
+
+    private static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(cap - 1);
+        return (n < 0) ? 1 : (n >= (1 << 30)) ? (1 << 30) : n + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of off-heap bytes used by the table
+     */
+    public long sizeBytes() {
+        return (long) capacity * ENTRY_SIZE;
+    }
+
+    /**
+     * @return the location associated to the given key, or {@code 0} if not found
+     */
+    public long get(int prefix, int h1, long h2, long h3) {
+        final int slot = find(prefix, h1, h2, h3);
+        return slot == -1 ? 0L : location(slot);
+    }
+
+    /**
+     * Associates the key to the given location, replacing the previous location if the key was
+     * already present.
+     *
+     * @return the previous location for the key or {@code 0} if it was not present
+     */
+    public long put(int prefix, int h1, long h2, long h3, long location) {
+        if (location == 0L) {
+            throw new IllegalArgumentException("location can't be zero");
+        }
+        if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+            resize(capacity * 2);
+        }
+        int slot = home(h1, h2);
+        long current;
+        while ((current = location(slot)) != 0L) {
+            if (matches(slot, prefix, h1, h2, h3)) {
+                table.putLong(offset(slot) + LOCATION_OFFSET, location);
+                return current;
+            }
+            slot = (slot + 1) & mask;
+        }
+        write(slot, location, prefix, h1, h2, h3);
+        size++;
+        return 0L;
+    }
+
+    /**
+     * Removes the key if it maps to {@code expectedLocation}
+     *
+     * @return {@code true} if the entry was removed
+     */
+    public boolean remove(int prefix, int h1, long h2, long h3, long expectedLocation) {
+        final int slot = find(prefix, h1, h2, h3);
+        if (slot == -1 || location(slot) != expectedLocation) {
+            return false;
+        }
+        delete(slot);
+        return true;
+    }
+
+    /**
+     * Removes the key, whatever location it maps to
+     *
+     * @return the location the key mapped to, or {@code 0} if it wasn't present
+     */
+    public long remove(int prefix, int h1, long h2, long h3) {
+        final int slot = find(prefix, h1, h2, h3);
+        if (slot == -1) {
+            return 0L;
+        }
+        final long location = location(slot);
+        delete(slot);
+        return location;
+    }
+
+    /**
+     * Removes all the entries whose key prefix matches the given predicate
+     *
+     * @return the locations of the removed entries
+     */
+    public long[] removeAll(IntPredicate prefixFilter) {
+        long[] removed = new long[16];
+        int removedCount = 0;
+        final ByteBuffer old = this.table;
+        final int oldCapacity = this.capacity;
+        allocate(oldCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            final int off = slot * ENTRY_SIZE;
+            final long location = old.getLong(off + LOCATION_OFFSET);
+            if (location == 0L) {
+                continue;
+            }
+            final int prefix = old.getInt(off + PREFIX_OFFSET);
+            if (prefixFilter.test(prefix)) {
+                if (removedCount == removed.length) {
+                    long[] grown = new long[removed.length * 2];
+                    System.arraycopy(removed, 0, grown, 0, removedCount);
+                    removed = grown;
+                }
+                removed[removedCount++] = location;
+            } else {
+                insertUnchecked(location, prefix, old.getInt(off + H1_OFFSET),
+                        old.getLong(off + H2_OFFSET), old.getLong(off + H3_OFFSET));
+            }
+        }
+        long[] result = new long[removedCount];
+        System.arraycopy(removed, 0, result, 0, removedCount);
+        return result;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void resize(final int newCapacity) {
+        final ByteBuffer old = this.table;
+        final int oldCapacity = this.capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            final int off = slot * ENTRY_SIZE;
+            final long location = old.getLong(off + LOCATION_OFFSET);
+            if (location != 0L) {
+                insertUnchecked(location, old.getInt(off + PREFIX_OFFSET),
+                        old.getInt(off + H1_OFFSET), old.getLong(off + H2_OFFSET),
+                        old.getLong(off + H3_OFFSET));
+            }
+        }
+    }
+
+    private void insertUnchecked(long location, int prefix, int h1, long h2, long h3) {
+        int slot = home(h1, h2);
+        while (location(slot) != 0L) {
+            slot = (slot + 1) & mask;
+        }
+        write(slot, location, prefix, h1, h2, h3);
+        size++;
+    }
+
+    private int find(int prefix, int h1, long h2, long h3) {
+        int slot = home(h1, h2);
+        while (location(slot) != 0L) {
+            if (matches(slot, prefix, h1, h2, h3)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Backward shift deletion: moves any entry in the probe sequence following {@code slot} that
+     * would be unreachable after the removal one position back.
+     */
+    private void delete(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (location(next) == 0L) {
+                break;
+            }
+            final int off = offset(next);
+            final int home = home(table.getInt(off + H1_OFFSET), table.getLong(off + H2_OFFSET));
+            // whether home is cyclically in (hole, next]
+            final boolean inRange = hole <= next ? (hole < home && home <= next)
+                    : (hole < home || home <= next);
+            if (!inRange) {
+                write(hole, location(next), table.getInt(off + PREFIX_OFFSET),
+                        table.getInt(off + H1_OFFSET), table.getLong(off + H2_OFFSET),
+                        table.getLong(off + H3_OFFSET));
+                hole = next;
+            }
+        }
+        table.putLong(offset(hole) + LOCATION_OFFSET, 0L);
+        size--;
+    }
+
+    private int home(int h1, long h2) {
+        // ObjectIds are SHA-1 hashes, already evenly distributed, but mix in some bits of h2 to
+        // account for ids created by tests with common prefixes
+        int h = h1 ^ (int) (h2 ^ (h2 >>> 32));
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    private int offset(int slot) {
+        return slot * ENTRY_SIZE;
+    }
+
+    private long location(int slot) {
+        return table.getLong(offset(slot) + LOCATION_OFFSET);
+    }
+
+    private boolean matches(int slot, int prefix, int h1, long h2, long h3) {
+        final int off = offset(slot);
+        return table.getInt(off + H1_OFFSET) == h1 //
+                && table.getLong(off + H2_OFFSET) == h2 //
+                && table.getLong(off + H3_OFFSET) == h3 //
+                && table.getInt(off + PREFIX_OFFSET) == prefix;
+    }
+
+    private void write(int slot, long location, int prefix, int h1, long h2, long h3) {
+        final int off = offset(slot);
+        table.putLong(off + LOCATION_OFFSET, location);
+        table.putInt(off + PREFIX_OFFSET, prefix);
+        table.putInt(off + H1_OFFSET, h1);
+        table.putLong(off + H2_OFFSET, h2);
+        table.putLong(off + H3_OFFSET, h3);
+    }
+}
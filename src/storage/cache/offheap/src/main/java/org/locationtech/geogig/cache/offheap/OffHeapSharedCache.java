@@ -0,0 +1,288 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.geogig.storage.cache.CacheIdentifier;
+import org.locationtech.geogig.storage.cache.CacheKey;
+import org.locationtech.geogig.storage.cache.CacheStats;
+import org.locationtech.geogig.storage.cache.SharedCache;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A {@link SharedCache} that keeps the encoded {@link RevObject}s out of the Java heap, in direct
+ * memory slabs, indexed by an open addressing hash table that's also stored off-heap.
+ * <p>
+ * The cache is split in a number of {@link SlabSegment segments}, each one guarded by its own lock
+ * and owning a ring of slabs that are recycled in FIFO order once the segment is full. Since there
+ * are no per-entry objects on the heap, GC pause times don't grow with the cache size.
+ * <p>
+ * When created in {@link #OffHeapSharedCache(long, boolean) lazy decode} mode and using the default
+ * {@link FlatBuffersRevObjectSerializer FlatBuffers} encoding, cache hits return FlatBuffers
+ * backed {@link RevTree}s and {@link RevFeature}s that are zero-copy views over the cached bytes
+ * and decode their fields on demand. To make it safe, slabs with views handed out are not
+ * overwritten when recycled but replaced by new ones, and the old ones are released once the views
+ * are garbage collected. Each segment keeps at most as many of these retired slabs alive as it
+ * has slabs, resorting to decoding copies of the cached bytes while at that limit, so the direct
+ * memory used by the cache is bounded to twice its maximum size.
+ * <p>
+ * Note direct memory is bounded by the {@code -XX:MaxDirectMemorySize} JVM argument, which
+ * defaults to the maximum heap size.
+ *
+ * @since 2.0
+ */
+public class OffHeapSharedCache implements SharedCache {
+
+    private static final RevObjectSerializer ENCODER = new FlatBuffersRevObjectSerializer();
+
+    /**
+     * Segments smaller than this are not worth splitting
+     */
+    static final long MIN_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    static final int MAX_SEGMENTS = 16;
+
+    static final int MIN_SLABS_PER_SEGMENT = 8;
+
+    static final int MAX_SLAB_SIZE = 256 * 1024 * 1024;
+
+    private RevObjectSerializer encoder = ENCODER;
+
+    private final long maxCacheSizeBytes;
+
+    private final boolean lazyDecode;
+
+    private final SlabSegment[] segments;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public OffHeapSharedCache(final long maxCacheSizeBytes) {
+        this(maxCacheSizeBytes, false);
+    }
+
+    /**
+     * @param maxCacheSizeBytes maximum number of bytes to be held by the cache
+     * @param lazyDecode whether cache hits shall return zero-copy FlatBuffers views over the cached
+     *        bytes, instead of decoding a copy of them
+     */
+    public OffHeapSharedCache(final long maxCacheSizeBytes, boolean lazyDecode) {
+        checkArgument(maxCacheSizeBytes >= 0, "Cache size can't be < 0, 0 meaning no cache at all");
+        this.maxCacheSizeBytes = maxCacheSizeBytes;
+        this.lazyDecode = lazyDecode;
+        if (maxCacheSizeBytes == 0L) {
+            this.segments = new SlabSegment[0];
+            return;
+        }
+        final int numSegments = numSegments(maxCacheSizeBytes);
+        final long segmentSize = maxCacheSizeBytes / numSegments;
+        final int numSlabs = (int) Math.max(MIN_SLABS_PER_SEGMENT,
+                (segmentSize + MAX_SLAB_SIZE - 1) / MAX_SLAB_SIZE);
+        final int slabSize = (int) Math.max(SlabSegment.RECORD_HEADER_SIZE + 1,
+                segmentSize / numSlabs);
+
+        this.segments = new SlabSegment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new SlabSegment(numSlabs, slabSize, evictionCount, !lazyDecode);
+        }
+    }
+
+    static int numSegments(long maxCacheSizeBytes) {
+        long n = Math.min(MAX_SEGMENTS, Math.max(1, maxCacheSizeBytes / MIN_SEGMENT_SIZE));
+        return Integer.highestOneBit((int) n);
+    }
+
+    @VisibleForTesting
+    public @Override void setEncoder(RevObjectSerializer encoder) {
+        this.encoder = encoder;
+    }
+
+    private SlabSegment segment(int h1, long h2) {
+        int h = h1 ^ (int) (h2 >>> 32);
+        return segments[(h & 0x7FFFFFFF) % segments.length];
+    }
+
+    public @Override boolean contains(CacheKey key) {
+        if (segments.length == 0) {
+            return false;
+        }
+        ObjectId id = key.id();
+        int h1 = RevObjects.h1(id);
+        long h2 = RevObjects.h2(id);
+        return segment(h1, h2).contains(key.prefix(), h1, h2, RevObjects.h3(id));
+    }
+
+    public @Override void invalidateAll() {
+        for (SlabSegment s : segments) {
+            s.clear();
+        }
+    }
+
+    public @Override void invalidateAll(CacheIdentifier prefix) {
+        final int expectedPrefix = prefix.prefix();
+        for (SlabSegment s : segments) {
+            s.invalidateAll(keyPrefix -> keyPrefix == expectedPrefix);
+        }
+    }
+
+    public @Override void dispose() {
+        invalidateAll();
+    }
+
+    public @Override void invalidate(CacheKey key) {
+        if (segments.length == 0) {
+            return;
+        }
+        ObjectId id = key.id();
+        int h1 = RevObjects.h1(id);
+        long h2 = RevObjects.h2(id);
+        segment(h1, h2).invalidate(key.prefix(), h1, h2, RevObjects.h3(id));
+    }
+
+    public @Override @Nullable RevObject getIfPresent(CacheKey key) {
+        if (segments.length == 0) {
+            return null;
+        }
+        final ObjectId id = key.id();
+        final int h1 = RevObjects.h1(id);
+        final long h2 = RevObjects.h2(id);
+        final SlabSegment segment = segment(h1, h2);
+        if (lazyDecode && encoder instanceof FlatBuffersRevObjectSerializer) {
+            ByteBuffer view = segment.getView(key.prefix(), h1, h2, RevObjects.h3(id));
+            if (view == null) {
+                missCount.increment();
+                return null;
+            }
+            hitCount.increment();
+            return ((FlatBuffersRevObjectSerializer) encoder).read(id, view);
+        }
+        byte[] val = segment.get(key.prefix(), h1, h2, RevObjects.h3(id));
+        if (val == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return decode(id, val);
+    }
+
+    public @Override @Nullable Future<?> put(CacheKey key, RevObject obj) {
+        if (segments.length == 0) {
+            return null;
+        }
+        final ObjectId id = key.id();
+        final int h1 = RevObjects.h1(id);
+        final long h2 = RevObjects.h2(id);
+        final SlabSegment segment = segment(h1, h2);
+        if (segment.contains(key.prefix(), h1, h2, RevObjects.h3(id))) {
+            return null;
+        }
+        byte[] value = encode(obj);
+        if (segment.putIfAbsent(key.prefix(), h1, h2, RevObjects.h3(id), value)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return null;
+    }
+
+    private byte[] encode(RevObject obj) {
+        if (encoder instanceof FlatBuffersRevObjectSerializer) {
+            return ((FlatBuffersRevObjectSerializer) encoder).encode(obj);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+        try {
+            encoder.write(obj, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private RevObject decode(ObjectId id, byte[] val) {
+        try {
+            return encoder.read(id, val, 0, val.length);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public @Override long sizeBytes() {
+        long size = 0;
+        for (SlabSegment s : segments) {
+            size += s.liveBytes();
+        }
+        return size;
+    }
+
+    public @Override long objectCount() {
+        long count = 0;
+        for (SlabSegment s : segments) {
+            count += s.size();
+        }
+        return count;
+    }
+
+    public @Override CacheStats getStats() {
+        final long hits = hitCount.sum();
+        final long misses = missCount.sum();
+        final long evictions = evictionCount.sum();
+        final long requests = hits + misses;
+        return new CacheStats() {
+            public @Override long hitCount() {
+                return hits;
+            }
+
+            public @Override double hitRate() {
+                return requests == 0 ? 1D : (double) hits / requests;
+            }
+
+            public @Override long missCount() {
+                return misses;
+            }
+
+            public @Override double missRate() {
+                return requests == 0 ? 0D : (double) misses / requests;
+            }
+
+            public @Override long evictionCount() {
+                return evictions;
+            }
+        };
+    }
+
+    public @Override String toString() {
+        long size = objectCount();
+        long bytes = sizeBytes();
+        long avg = size == 0 ? 0 : bytes / size;
+        CacheStats stats = getStats();
+        return String.format(
+                "Size: %,d, bytes: %,d, max bytes: %,d, avg: %,d bytes/entry, segments: %d, lazy: %s, hits: %,d, misses: %,d, evictions: %,d",
+                size, bytes, maxCacheSizeBytes, avg, segments.length, lazyDecode, stats.hitCount(),
+                stats.missCount(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,391 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A partition of the {@link OffHeapSharedCache} that stores its entries in a ring of fixed size
+ * direct memory slabs, and indexes them with an {@link OffHeapIndex}.
+ * <p>
+ * Entries are appended to the current slab. When it fills up, the next slab in the ring is
+ * recycled, evicting all the entries still living in it. This gives a FIFO eviction policy with
+ * no per-entry bookkeeping on the Java heap, which is what keeps GC pauses independent of the
+ * cache size.
+ * <p>
+ * Each record in a slab has the following layout:
+ *
+ * <pre>
+ * <code>
+ * int prefix, int h1, long h2, long h3, int length, byte[length] data
+ * </code>
+ * </pre>
+ *
+ * Record locations are encoded as a {@code long} whose high 32 bits are the slab index plus one,
+ * (so a location is never zero), and whose low 32 bits are the record offset inside the slab.
+ * <p>
+ * When created with {@code reuseSlabs == false}, recycled slabs that had {@link #getView views}
+ * handed out are replaced by newly allocated ones instead of being overwritten, so that the views
+ * keep pointing to immutable memory, which is released once the last view is garbage collected.
+ * Views are only handed out over as many slabs as the ring has, counting both the ones in the ring
+ * and the retired ones still alive; past that, {@link #getView} returns heap copies until some
+ * retired slabs are collected, so the direct memory used by a segment never exceeds twice its size.
+ */
+final class SlabSegment {
+
+    static final int RECORD_HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    private static final int LENGTH_OFFSET = 24;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int slabSize;
+
+    private final ByteBuffer[] slabs;
+
+    /**
+     * The offset of the first unused byte in each slab
+     */
+    private final int[] slabLimits;
+
+    private int currentSlab;
+
+    private OffHeapIndex index = new OffHeapIndex();
+
+    private long liveBytes;
+
+    private final LongAdder evictionCount;
+
+    private final boolean reuseSlabs;
+
+    /**
+     * Whether a view has been handed out over each slab since it was last recycled ({@code 1}) or
+     * not ({@code 0}). Set while holding the read lock, cleared while holding the write lock.
+     */
+    private final AtomicIntegerArray viewed;
+
+    /**
+     * Number of slabs in the ring with views handed out
+     */
+    private final AtomicInteger viewedSlabs = new AtomicInteger();
+
+    /**
+     * Slabs replaced while there may still be views over them, weakly referenced to know when
+     * they've been garbage collected
+     */
+    private final List<WeakReference<ByteBuffer>> retired = new ArrayList<>();
+
+    SlabSegment(int numSlabs, int slabSize, LongAdder evictionCount) {
+        this(numSlabs, slabSize, evictionCount, true);
+    }
+
+    SlabSegment(int numSlabs, int slabSize, LongAdder evictionCount, boolean reuseSlabs) {
+        this.reuseSlabs = reuseSlabs;
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[numSlabs];
+        this.slabLimits = new int[numSlabs];
+        this.viewed = new AtomicIntegerArray(numSlabs);
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * @return the largest value that can be stored in this segment
+     */
+    int maxValueSize() {
+        return slabSize - RECORD_HEADER_SIZE;
+    }
+
+    boolean contains(int prefix, int h1, long h2, long h3) {
+        lock.readLock().lock();
+        try {
+            return index.get(prefix, h1, h2, h3) != 0L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the value stored for the key, or {@code null} if not present
+     */
+    @Nullable
+    byte[] get(int prefix, int h1, long h2, long h3) {
+        lock.readLock().lock();
+        try {
+            final long location = index.get(prefix, h1, h2, h3);
+            if (location == 0L) {
+                return null;
+            }
+            final ByteBuffer slab = slabs[slabIndex(location)];
+            final int offset = slabOffset(location);
+            final int length = slab.getInt(offset + LENGTH_OFFSET);
+            byte[] value = new byte[length];
+            ByteBuffer src = slab.duplicate();
+            src.position(offset + RECORD_HEADER_SIZE);
+            src.get(value, 0, length);
+            return value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zero-copy alternative to {@link #get}, only valid if this segment does not
+     * {@code reuseSlabs}. Falls back to returning a copy of the value if the slab it lives in
+     * can't have views handed out without exceeding the retired slabs limit.
+     * 
+     * @return a buffer over the value stored for the key, or {@code null} if not present
+     */
+    @Nullable
+    ByteBuffer getView(int prefix, int h1, long h2, long h3) {
+        if (reuseSlabs) {
+            throw new IllegalStateException("views can't be used if slabs are reused");
+        }
+        lock.readLock().lock();
+        try {
+            final long location = index.get(prefix, h1, h2, h3);
+            if (location == 0L) {
+                return null;
+            }
+            final int slabIndex = slabIndex(location);
+            final ByteBuffer slab = slabs[slabIndex];
+            final int offset = slabOffset(location);
+            final int length = slab.getInt(offset + LENGTH_OFFSET);
+            if (!markViewed(slabIndex)) {
+                byte[] value = new byte[length];
+                ByteBuffer src = slab.duplicate();
+                src.position(offset + RECORD_HEADER_SIZE);
+                src.get(value, 0, length);
+                return ByteBuffer.wrap(value);
+            }
+            ByteBuffer view = slab.asReadOnlyBuffer();
+            view.position(offset + RECORD_HEADER_SIZE);
+            view.limit(offset + RECORD_HEADER_SIZE + length);
+            return view.slice();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flags the slab as having views, as long as the number of slabs with views, including the
+     * retired ones, doesn't exceed the number of slabs in the ring. Called while holding the read
+     * lock, so {@link #retired} doesn't change but there may be concurrent calls.
+     *
+     * @return whether views can be handed out over the slab
+     */
+    private boolean markViewed(int slabIndex) {
+        if (viewed.get(slabIndex) == 1) {
+            return true;
+        }
+        int count;
+        do {
+            count = viewedSlabs.get();
+            if (count + retired.size() >= slabs.length) {
+                return false;
+            }
+        } while (!viewedSlabs.compareAndSet(count, count + 1));
+        if (!viewed.compareAndSet(slabIndex, 0, 1)) {
+            // flagged by a concurrent call in the meantime
+            viewedSlabs.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Adds the value if the key is not already present
+     *
+     * @return {@code true} if the value was added, {@code false} if the key was already present
+     */
+    boolean putIfAbsent(int prefix, int h1, long h2, long h3, byte[] value) {
+        final int recordSize = RECORD_HEADER_SIZE + value.length;
+        if (recordSize > slabSize) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (index.get(prefix, h1, h2, h3) != 0L) {
+                return false;
+            }
+            if (slabs[currentSlab] == null) {
+                slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+            }
+            if (slabLimits[currentSlab] + recordSize > slabSize) {
+                advance();
+            }
+            final ByteBuffer slab = slabs[currentSlab];
+            final int offset = slabLimits[currentSlab];
+            slab.putInt(offset, prefix);
+            slab.putInt(offset + 4, h1);
+            slab.putLong(offset + 8, h2);
+            slab.putLong(offset + 16, h3);
+            slab.putInt(offset + LENGTH_OFFSET, value.length);
+            ByteBuffer dst = slab.duplicate();
+            dst.position(offset + RECORD_HEADER_SIZE);
+            dst.put(value);
+            slabLimits[currentSlab] = offset + recordSize;
+
+            index.put(prefix, h1, h2, h3, location(currentSlab, offset));
+            liveBytes += recordSize;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void invalidate(int prefix, int h1, long h2, long h3) {
+        lock.writeLock().lock();
+        try {
+            long location = index.remove(prefix, h1, h2, h3);
+            if (location != 0L) {
+                liveBytes -= recordSize(location);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void invalidateAll(IntPredicate prefixFilter) {
+        lock.writeLock().lock();
+        try {
+            long[] removed = index.removeAll(prefixFilter);
+            for (long location : removed) {
+                liveBytes -= recordSize(location);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all entries and releases all the slabs, which will be allocated again as needed
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (int i = 0; i < slabs.length; i++) {
+                if (slabs[i] != null && viewed.get(i) == 1) {
+                    retired.add(new WeakReference<>(slabs[i]));
+                }
+                slabs[i] = null;
+                slabLimits[i] = 0;
+                viewed.set(i, 0);
+            }
+            viewedSlabs.set(0);
+            currentSlab = 0;
+            liveBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long liveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of replaced slabs that may still be referenced by views
+     */
+    int retiredSlabs() {
+        lock.writeLock().lock();
+        try {
+            retired.removeIf(ref -> ref.get() == null);
+            return retired.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the write cursor to the next slab in the ring, evicting its live entries if it was
+     * already in use
+     */
+    private void advance() {
+        currentSlab = (currentSlab + 1) % slabs.length;
+        if (slabs[currentSlab] == null) {
+            slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            evict(currentSlab);
+            retired.removeIf(ref -> ref.get() == null);
+            if (viewed.get(currentSlab) == 1) {
+                // leave the old one to the GC, there may still be views over it
+                retired.add(new WeakReference<>(slabs[currentSlab]));
+                slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+                viewed.set(currentSlab, 0);
+                viewedSlabs.decrementAndGet();
+            }
+        }
+    }
+
+    private void evict(final int slabIndex) {
+        final ByteBuffer slab = slabs[slabIndex];
+        final int limit = slabLimits[slabIndex];
+        int offset = 0;
+        long evicted = 0;
+        while (offset < limit) {
+            final int prefix = slab.getInt(offset);
+            final int h1 = slab.getInt(offset + 4);
+            final long h2 = slab.getLong(offset + 8);
+            final long h3 = slab.getLong(offset + 16);
+            final int recordSize = RECORD_HEADER_SIZE + slab.getInt(offset + LENGTH_OFFSET);
+            // only remove the index entry if it still points to this record, it may have been
+            // invalidated and re-added to another slab in the meantime
+            if (index.remove(prefix, h1, h2, h3, location(slabIndex, offset))) {
+                liveBytes -= recordSize;
+                evicted++;
+            }
+            offset += recordSize;
+        }
+        slabLimits[slabIndex] = 0;
+        evictionCount.add(evicted);
+    }
+
+    private int recordSize(long location) {
+        final ByteBuffer slab = slabs[slabIndex(location)];
+        return RECORD_HEADER_SIZE + slab.getInt(slabOffset(location) + LENGTH_OFFSET);
+    }
+
+    private static long location(int slabIndex, int offset) {
+        return ((long) (slabIndex + 1) << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int slabIndex(long location) {
+        return (int) (location >>> 32) - 1;
+    }
+
+    private static int slabOffset(long location) {
+        return (int) location;
+    }
+}
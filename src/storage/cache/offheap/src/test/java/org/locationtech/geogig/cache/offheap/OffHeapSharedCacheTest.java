@@ -0,0 +1,149 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.cache.CacheIdentifier;
+import org.locationtech.geogig.storage.cache.CacheKey;
+import org.locationtech.geogig.storage.cache.SharedCache;
+import org.locationtech.geogig.storage.cache.SharedCacheTest;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+
+public class OffHeapSharedCacheTest extends SharedCacheTest {
+
+    protected @Override SharedCache createCache(int l1Capacity, long maxCacheSizeBytes) {
+        return new OffHeapSharedCache(maxCacheSizeBytes);
+    }
+
+    public @Test void testNumSegments() {
+        assertEquals(1, OffHeapSharedCache.numSegments(1024));
+        assertEquals(1, OffHeapSharedCache.numSegments(OffHeapSharedCache.MIN_SEGMENT_SIZE));
+        assertEquals(2, OffHeapSharedCache.numSegments(3 * OffHeapSharedCache.MIN_SEGMENT_SIZE));
+        assertEquals(16, OffHeapSharedCache.numSegments(Long.MAX_VALUE));
+    }
+
+    public @Test void testEvictsOldestSlabWhenFull() {
+        final long maxSize = 64 * 1024;
+        OffHeapSharedCache cache = new OffHeapSharedCache(maxSize);
+        CacheIdentifier cacheId = new CacheIdentifier(1);
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        try {
+            List<RevTree> trees = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                trees.add(RevObjectTestSupport.INSTANCE.createFeaturesTree(store, "f" + i, 10));
+            }
+            trees.forEach(t -> cache.put(cacheId.create(t.getId()), t));
+
+            assertTrue(cache.getStats().evictionCount() > 0);
+            assertTrue(cache.sizeBytes() <= maxSize);
+            assertEquals(200, cache.objectCount() + cache.getStats().evictionCount());
+
+            RevTree first = trees.get(0);
+            RevTree last = trees.get(trees.size() - 1);
+            assertNull(cache.getIfPresent(cacheId.create(first.getId())));
+            RevObject cached = cache.getIfPresent(cacheId.create(last.getId()));
+            assertNotNull(cached);
+            assertEquals(last, cached);
+        } finally {
+            store.close();
+            cache.dispose();
+        }
+    }
+
+    public @Test void testInvalidate() {
+        OffHeapSharedCache cache = new OffHeapSharedCache(1024 * 1024);
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        try {
+            RevTree tree = RevObjectTestSupport.INSTANCE.createFeaturesTree(store, "f", 10);
+            CacheKey key = new CacheIdentifier(1).create(tree.getId());
+            cache.put(key, tree);
+            assertTrue(cache.contains(key));
+            long sizeBytes = cache.sizeBytes();
+            assertTrue(sizeBytes > 0);
+
+            cache.invalidate(key);
+            assertFalse(cache.contains(key));
+            assertEquals(0L, cache.sizeBytes());
+            assertEquals(0L, cache.objectCount());
+
+            cache.put(key, tree);
+            assertEquals(sizeBytes, cache.sizeBytes());
+            assertEquals(tree, cache.getIfPresent(key));
+        } finally {
+            store.close();
+            cache.dispose();
+        }
+    }
+
+    public @Test void testLazyDecodeViewsSurviveEviction() {
+        final long maxSize = 64 * 1024;
+        OffHeapSharedCache cache = new OffHeapSharedCache(maxSize, true);
+        CacheIdentifier cacheId = new CacheIdentifier(1);
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        try {
+            RevTree first = RevObjectTestSupport.INSTANCE.createFeaturesTree(store, "first", 10);
+            cache.put(cacheId.create(first.getId()), first);
+            RevTree view = (RevTree) cache.getIfPresent(cacheId.create(first.getId()));
+            assertNotNull(view);
+            assertEquals(first, view);
+
+            for (int i = 0; i < 200; i++) {
+                RevTree t = RevObjectTestSupport.INSTANCE.createFeaturesTree(store, "f" + i, 10);
+                cache.put(cacheId.create(t.getId()), t);
+            }
+            assertNull(cache.getIfPresent(cacheId.create(first.getId())));
+            // the view is still valid even though its slab was recycled
+            assertEquals(first.features(), view.features());
+        } finally {
+            store.close();
+            cache.dispose();
+        }
+    }
+
+    public @Test void testRetiredSlabsAreBounded() {
+        SlabSegment segment = new SlabSegment(4, 1024, new LongAdder(), false);
+        List<ByteBuffer> views = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            byte[] value = new byte[100];
+            Arrays.fill(value, (byte) i);
+            assertTrue(segment.putIfAbsent(i, i, i, i, value));
+            // keep every view strongly referenced so no retired slab can be collected
+            views.add(segment.getView(i, i, i, i));
+            values.add(value);
+            assertTrue(segment.retiredSlabs() <= 4);
+        }
+        assertEquals(4, segment.retiredSlabs());
+        for (int i = 0; i < views.size(); i++) {
+            ByteBuffer view = views.get(i);
+            byte[] actual = new byte[view.remaining()];
+            view.get(actual);
+            assertTrue(Arrays.equals(values.get(i), actual));
+        }
+    }
+}
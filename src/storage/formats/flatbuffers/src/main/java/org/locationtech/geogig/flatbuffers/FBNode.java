@@ -33,6 +33,11 @@ abstract @RequiredArgsConstructor class FBNode extends org.locationtech.geogig.m
 
     private final int nodeIndex;
 
+    /**
+     * Lazily decoded node name, as it's the most frequently accessed property when comparing nodes
+     */
+    private String name;
+
     private static class TreeNode extends FBNode {
         public TreeNode(LeafTree tree, int nodeIndex) {
             super(tree, nodeIndex);
@@ -78,7 +83,11 @@ abstract @RequiredArgsConstructor class FBNode extends org.locationtech.geogig.m
     }
 
     public @Override String getName() {
-        return tree.nodesNames(nodeIndex);
+        String n = name;
+        if (n == null) {
+            name = n = tree.nodesNames(nodeIndex);
+        }
+        return n;
     }
 
     public @Override ObjectId getObjectId() {
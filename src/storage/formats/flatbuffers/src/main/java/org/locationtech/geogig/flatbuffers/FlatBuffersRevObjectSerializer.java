@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -115,6 +116,25 @@ public class FlatBuffersRevObjectSerializer implements RevObjectSerializer {
         return flatBuffers.decode(id, data, offset + padding, length - padding);
     }
 
+    /**
+     * Zero-copy read: the returned object is a FlatBuffers view over the given buffer's remaining
+     * bytes, decoding its fields on demand. Hence the buffer contents must not be modified for as
+     * long as the returned object is in use. The buffer's position is not changed.
+     * <p>
+     * Works the same for heap and direct buffers.
+     */
+    public RevObject read(@Nullable ObjectId id, @NonNull ByteBuffer data) {
+        ByteBuffer buffer = data.slice();
+        if (isLengthPrefixed()) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int size = buffer.getInt(0);
+            Preconditions.checkArgument(size == buffer.remaining() - Integer.BYTES);
+            buffer.position(Integer.BYTES);
+            buffer = buffer.slice();
+        }
+        return flatBuffers.decode(id, buffer);
+    }
+
     public byte[] encode(@NonNull RevObject obj) {
         if (obj instanceof FBRevObject) {
             ByteBuffer dataBuffer = ((FBRevObject<?>) obj).getTable().getByteBuffer();
@@ -156,6 +156,10 @@ public class PGRepositoryResolver implements RepositoryResolver {
                 maskPassword(repositoryLocation));
 
         hints = hints.uri(repositoryLocation);
+        if (!hints.get(Hints.DIFF_PREFETCH).isPresent()) {
+            // each tree read is a round trip to the server, batch them up when computing diffs
+            hints.set(Hints.DIFF_PREFETCH, Boolean.TRUE);
+        }
         Context context = GlobalContextBuilder.builder().build(hints);
         Repository repository = Geogig.of(context).getRepository();
         // Ensure the repository exists. If it's null, we might have a non-existing repo URI
@@ -191,13 +195,13 @@ public class PGRepositoryResolver implements RepositoryResolver {
     public @Override ObjectDatabase resolveObjectDatabase(@NonNull URI repoURI, Hints hints) {
         ConfigDatabase configDatabase = resolveConfigDatabase(repoURI, null, false);
         Environment env = parseRequireRepositorySet(repoURI);
-        return new PGObjectDatabase(configDatabase, env);
+        return new PGObjectDatabase(configDatabase, env, hints);
     }
 
     public @Override IndexDatabase resolveIndexDatabase(@NonNull URI repoURI, Hints hints) {
         ConfigDatabase configDatabase = resolveConfigDatabase(repoURI, null, false);
         Environment env = parseRequireRepositorySet(repoURI);
-        return new PGIndexDatabase(configDatabase, env);
+        return new PGIndexDatabase(configDatabase, env, hints);
     }
 
     public @Override RefDatabase resolveRefDatabase(@NonNull URI repoURI, Hints hints) {
@@ -35,6 +35,8 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.storage.AbstractStore;
 import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.impl.GraphGenerations;
+import org.locationtech.geogig.storage.impl.GraphGenerations.Levels;
 import org.locationtech.geogig.storage.postgresql.config.Environment;
 import org.locationtech.geogig.storage.postgresql.config.PGId;
 import org.locationtech.geogig.storage.postgresql.config.TableNames;
@@ -168,6 +170,7 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
                 }
                 updated = updated || !isDuplicate;
             }
+            GraphGenerations.update(commitId, new ConnectionGenerations(cx));
             cx.commit();
             return updated;
         } catch (SQLException e) {
@@ -181,10 +184,16 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
     }
 
     void put(Connection cx, Stream<RevCommit> commits) throws SQLException {
+        final List<RevCommit> inserted = commits.collect(Collectors.toList());
         if (Version.V9_5_0.lowerOrEqualTo(this.serverVersion)) {
-            putWithUpsert(cx, commits);
+            putWithUpsert(cx, inserted.stream());
         } else {
-            putWithoutUpsert(cx, commits);
+            putWithoutUpsert(cx, inserted.stream());
+        }
+        // levels are propagated to descendants, so the order of the commits doesn't matter
+        ConnectionGenerations generations = new ConnectionGenerations(cx);
+        for (RevCommit c : inserted) {
+            GraphGenerations.update(c.getId(), generations);
         }
     }
 
@@ -361,6 +370,10 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
 
         Queue<PGId> q = Lists.newLinkedList();
         try (Connection cx = env.getConnection()) {
+            Levels levels = levels(PGId.valueOf(commitId), cx);
+            if (levels != null) {
+                return levels.getDepth();
+            }
             Iterables.addAll(q, outgoing(PGId.valueOf(commitId), cx));
 
             List<PGId> next = Lists.newArrayList();
@@ -386,6 +399,131 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
         return depth;
     }
 
+    public @Override int getGeneration(ObjectId commitId) {
+        try (Connection cx = env.getConnection()) {
+            Levels levels = levels(PGId.valueOf(commitId), cx);
+            return levels == null ? GENERATION_UNKNOWN : levels.getGeneration();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public @Override void updateGeneration(ObjectId commitId) {
+        try (Connection cx = env.getConnection()) {
+            cx.setAutoCommit(false);
+            try {
+                Preconditions.checkArgument(exists(PGId.valueOf(commitId), cx),
+                        "Graph Object does not exist: %s", commitId);
+                GraphGenerations.update(commitId, new ConnectionGenerations(cx));
+                cx.commit();
+            } catch (SQLException | RuntimeException e) {
+                cx.rollback();
+                throw e;
+            } finally {
+                cx.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the persisted generation number and depth of the node, or {@code null} if unknown
+     */
+    private @Nullable Levels levels(final PGId node, final Connection cx) throws SQLException {
+        final String sql = format(
+                "SELECT key, val FROM %s WHERE nid = CAST(ROW(?,?,?) AS OBJECTID) AND key IN (?, ?)",
+                PROPS);
+        String generation = null, depth = null;
+        try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, node))) {
+            node.setArgs(ps, 1);
+            ps.setString(4, GraphGenerations.GENERATION_PROPERTY);
+            ps.setString(5, GraphGenerations.DEPTH_PROPERTY);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (GraphGenerations.GENERATION_PROPERTY.equals(rs.getString(1))) {
+                        generation = rs.getString(2);
+                    } else {
+                        depth = rs.getString(2);
+                    }
+                }
+            }
+        }
+        return Levels.valueOf(generation, depth);
+    }
+
+    private void setLevels(final PGId node, final Levels levels, final Connection cx)
+            throws SQLException {
+        final String delete = format(
+                "DELETE FROM %s WHERE nid = CAST(ROW(?,?,?) AS OBJECTID) AND key IN (?, ?)",
+                PROPS);
+        final String insert = format(
+                "INSERT INTO %s (nid,key,val) VALUES (ROW(?,?,?), ?, ?), (ROW(?,?,?), ?, ?)",
+                PROPS);
+        try (PreparedStatement ds = cx.prepareStatement(log(delete, LOG, node))) {
+            node.setArgs(ds, 1);
+            ds.setString(4, GraphGenerations.GENERATION_PROPERTY);
+            ds.setString(5, GraphGenerations.DEPTH_PROPERTY);
+            ds.executeUpdate();
+        }
+        try (PreparedStatement is = cx.prepareStatement(log(insert, LOG, node, levels))) {
+            node.setArgs(is, 1);
+            is.setString(4, GraphGenerations.GENERATION_PROPERTY);
+            is.setString(5, String.valueOf(levels.getGeneration()));
+            node.setArgs(is, 6);
+            is.setString(9, GraphGenerations.DEPTH_PROPERTY);
+            is.setString(10, String.valueOf(levels.getDepth()));
+            is.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads and writes {@link Levels} using the given connection, so that they're updated in the
+     * same transaction as the graph edges
+     */
+    private class ConnectionGenerations implements GraphGenerations.Graph {
+
+        private final Connection cx;
+
+        ConnectionGenerations(Connection cx) {
+            this.cx = cx;
+        }
+
+        public @Override List<ObjectId> parents(ObjectId commitId) {
+            try {
+                return ImmutableList.copyOf(Iterables
+                        .transform(outgoing(PGId.valueOf(commitId), cx), PGId::toObjectId));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public @Override List<ObjectId> children(ObjectId commitId) {
+            try {
+                return ImmutableList.copyOf(Iterables
+                        .transform(incoming(PGId.valueOf(commitId), cx), PGId::toObjectId));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public @Override Levels get(ObjectId commitId) {
+            try {
+                return levels(PGId.valueOf(commitId), cx);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public @Override void set(ObjectId commitId, Levels levels) {
+            try {
+                setLevels(PGId.valueOf(commitId), levels, cx);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     /**
      * Assigns a property key/value pair to a node.
      */
@@ -515,22 +653,26 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
      * specified node is the "destination" of the relationship.
      */
     Iterable<PGId> incoming(final PGId node) {
+        try (Connection cx = env.getConnection()) {
+            return incoming(node, cx);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    Iterable<PGId> incoming(final PGId node, final Connection cx) throws SQLException {
         final String sql = format(
                 "SELECT ((src).h1), ((src).h2),((src).h3) FROM %s WHERE dst = CAST(ROW(?,?,?) AS OBJECTID)",
                 EDGES);
 
         List<PGId> incoming = new ArrayList<>(2);
-        try (Connection cx = env.getConnection()) {
-            try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, node))) {
-                node.setArgs(ps, 1);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        incoming.add(PGId.valueOf(rs, 1));
-                    }
+        try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, node))) {
+            node.setArgs(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    incoming.add(PGId.valueOf(rs, 1));
                 }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
         return incoming;
     }
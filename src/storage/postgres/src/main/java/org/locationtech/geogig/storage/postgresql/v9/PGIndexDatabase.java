@@ -32,6 +32,7 @@ import java.util.Optional;
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.IndexInfo;
 import org.locationtech.geogig.repository.IndexInfo.IndexType;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
@@ -65,6 +66,11 @@ public class PGIndexDatabase extends PGObjectStore implements IndexDatabase {
         super(configdb, env);
     }
 
+    public PGIndexDatabase(final ConfigDatabase configdb, final Environment env,
+            final @Nullable Hints hints) {
+        super(configdb, env, hints);
+    }
+
     protected @Override String getCacheIdentifier(ConnectionConfig connectionConfig) {
         final String cacheIdentifier = connectionConfig.toURI().toString() + "#index";
         return cacheIdentifier;
@@ -471,7 +477,7 @@ public class PGIndexDatabase extends PGObjectStore implements IndexDatabase {
                 return;
             }
         }
-        new IndexDuplicator(this, target).run();
+        new IndexDuplicator(this, target, null, scheduler).run();
     }
 
     private void fastCopyIndexesPG94(PGIndexDatabase pgtarget) {
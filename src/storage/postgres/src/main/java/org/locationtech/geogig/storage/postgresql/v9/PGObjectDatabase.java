@@ -14,9 +14,11 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.storage.ConfigDatabase;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
@@ -40,6 +42,11 @@ public class PGObjectDatabase extends PGObjectStore implements ObjectDatabase {
         super(configdb, env);
     }
 
+    public PGObjectDatabase(final ConfigDatabase configdb, final Environment env,
+            final @Nullable Hints hints) {
+        super(configdb, env, hints);
+    }
+
     protected @Override String getCacheIdentifier(ConnectionConfig connectionConfig) {
         final String cacheIdentifier = connectionConfig.toURI().toString() + "#objects";
         return cacheIdentifier;
@@ -41,9 +41,7 @@ import java.util.Spliterators;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.StreamSupport;
 
@@ -58,6 +56,9 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.RevTag;
 import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.storage.AbstractStore;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 import org.locationtech.geogig.storage.BulkOpListener;
@@ -80,7 +81,6 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.NonNull;
 
@@ -113,11 +113,28 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
 
     private SharedResourceReference resources;
 
+    private final @Nullable Hints hints;
+
+    /**
+     * The scheduler resolved from the repository hints when the store is opened
+     */
+    protected GeogigScheduler scheduler;
+
     public PGObjectStore(final @NonNull ConfigDatabase configdb, final @NonNull Environment env) {
+        this(configdb, env, null);
+    }
+
+    /**
+     * @param hints the repository hints the {@link GeogigScheduler} is resolved from, the
+     *        {@link GeogigScheduler#defaultInstance() default} one if {@code null}
+     */
+    public PGObjectStore(final @NonNull ConfigDatabase configdb, final @NonNull Environment env,
+            final @Nullable Hints hints) {
         super(env.isReadOnly());
         Preconditions.checkNotNull(env.getRepositoryName(), "Repository name not set");
         this.configdb = configdb;
         this.env = env;
+        this.hints = hints;
     }
 
     public @Override void open() {
@@ -155,6 +172,8 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
         final ConnectionConfig connectionConfig = env.getConnectionConfig();
         this.resources = SHARED_RESOURCES.acquire(connectionConfig);
         resources.trySetThreadPoolSize(threadPoolSize);
+        resources.trySetScheduler(hints);
+        this.scheduler = GeogigScheduler.get(hints);
 
         this.sharedCache = CacheManager.INSTANCE.acquire(getCacheIdentifier(connectionConfig));
         super.open();
@@ -524,7 +543,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
         GetAllOp<T> getAllOp = new GetAllOp<T>(ids, listener, this, type);
         // Avoid deadlocking by running the task synchronously if we are already in one of the
         // threads on the executor.
-        if (Thread.currentThread().getThreadGroup().equals(resources.threadGroup)) {
+        if (resources.isExecutorThread()) {
             try {
                 List<T> objects = getAllOp.call();
                 return Futures.immediateFuture(objects);
@@ -533,7 +552,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
                 throw new RuntimeException(e);
             }
         }
-        Future<List<T>> future = resources.executor().submit(getAllOp);
+        Future<List<T>> future = resources.submit(getAllOp);
         return future;
     }
 
@@ -544,7 +563,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
         GetObjectOp<T> getAllOp = new GetObjectOp<T>(nodes, listener, this, type);
         // Avoid deadlocking by running the task synchronously if we are already in one of the
         // threads on the executor.
-        if (Thread.currentThread().getThreadGroup().equals(resources.threadGroup)) {
+        if (resources.isExecutorThread()) {
             try {
                 List<ObjectInfo<T>> objects = getAllOp.call();
                 return Futures.immediateFuture(objects);
@@ -553,7 +572,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
                 throw new RuntimeException(e);
             }
         }
-        Future<List<ObjectInfo<T>>> future = resources.executor().submit(getAllOp);
+        Future<List<ObjectInfo<T>>> future = resources.submit(getAllOp);
         return future;
     }
 
@@ -771,7 +790,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
                 tasks.add(task);
             }
             try {
-                List<Future<Void>> results = resources.executor().invokeAll(tasks);
+                List<Future<Void>> results = resources.invokeAll(tasks);
                 Throwable error = abortFlag.get();
                 if (null != error) {
                     try {
@@ -882,14 +901,14 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
 
         private int threadPoolSize;
 
-        private final ThreadGroup threadGroup;
-
-        private final ConnectionConfig config;
+        private GeogigScheduler scheduler;
 
-        SharedResourceReference(ThreadGroup threadGroup, ConnectionConfig config) {
-            this.threadGroup = threadGroup;
-            this.config = config;
-        }
+        /**
+         * Marks the scheduler threads running tasks for this database, which are shared with other
+         * subsystems and hence can't be identified by thread group
+         */
+        private final ThreadLocal<Boolean> executorThread = ThreadLocal
+                .withInitial(() -> Boolean.FALSE);
 
         public int threadPoolSize() {
             checkState(threadPoolSize > 0, "threadPoolSize was not set");
@@ -903,27 +922,59 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
             }
         }
 
-        public ExecutorService executor() {
+        /**
+         * The resources are shared by all the stores on the same database, so the scheduler of
+         * the first one to open is the one its executor runs on, and is retained until the
+         * resources are disconnected
+         */
+        public synchronized void trySetScheduler(@Nullable Hints hints) {
+            if (this.scheduler == null) {
+                this.scheduler = GeogigScheduler.acquire(hints);
+            }
+        }
+
+        public boolean isExecutorThread() {
+            return executorThread.get().booleanValue();
+        }
+
+        public <T> Future<T> submit(Callable<T> task) {
+            return executor().submit(track(task));
+        }
+
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException {
+            List<Callable<T>> tracked = new ArrayList<>(tasks.size());
+            tasks.forEach(t -> tracked.add(track(t)));
+            return executor().invokeAll(tracked);
+        }
+
+        private <T> Callable<T> track(Callable<T> task) {
+            return () -> {
+                executorThread.set(Boolean.TRUE);
+                try {
+                    return task.call();
+                } finally {
+                    executorThread.remove();
+                }
+            };
+        }
+
+        private ExecutorService executor() {
             if (executor == null) {
                 createExecutorService();
             }
             return executor;
         }
 
+        /**
+         * Uses a view of the scheduler's storage-io executor that runs at most
+         * {@code threadPoolSize} tasks for this database at a time
+         */
         private synchronized void createExecutorService() {
             if (executor != null) {
                 return;
             }
-            final ThreadFactory threadFactory = new ThreadFactory() {
-                public Thread newThread(Runnable r) {
-                    return new Thread(threadGroup, r);
-                }
-            };
-            String poolName = String.format("GeoGig PG ODB pool for %s:%d/%s", config.getServer(),
-                    config.getPortNumber(), config.getDatabaseName()) + "-%d";
-            this.executor = Executors.newFixedThreadPool(threadPoolSize,
-                    new ThreadFactoryBuilder().setThreadFactory(threadFactory)
-                            .setNameFormat(poolName).setDaemon(true).build());
+            this.executor = scheduler.boundedExecutor(WorkClass.STORAGE_IO, threadPoolSize);
         }
 
     }
@@ -935,17 +986,16 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
             extends ConnectionManager<ConnectionConfig, SharedResourceReference> {
 
         protected @Override SharedResourceReference connect(ConnectionConfig config) {
-            final String threadGroupName = String.format("PG ODB threads for %s:%d/%s",
-                    config.getServer(), config.getPortNumber(), config.getDatabaseName());
-            final ThreadGroup threadGroup = new ThreadGroup(threadGroupName);
-            SharedResourceReference ref = new SharedResourceReference(threadGroup, config);
-            return ref;
+            return new SharedResourceReference();
         }
 
         protected @Override void disconnect(SharedResourceReference ref) {
             if (ref.executor != null) {
                 ref.executor.shutdownNow();
             }
+            if (ref.scheduler != null) {
+                ref.scheduler.release();
+            }
         }
     }
 
@@ -39,6 +39,13 @@ public class PGIndexDatabaseConformanceIT extends IndexDatabaseConformanceTest {
         return db;
     }
 
+    /**
+     * The index objects tables are shared by all the repositories in the database
+     */
+    protected @Override boolean supportsGetAllIds() {
+        return false;
+    }
+
     public @Test void testCopyIndexesToSameDatabase() {
         Environment newRepoConfig = testConfig.getEnvironment().withRepository("targetRepo");
         testCopyIndexesToSameDatabase(newRepoConfig);
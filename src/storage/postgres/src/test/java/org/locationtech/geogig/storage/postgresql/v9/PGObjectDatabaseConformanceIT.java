@@ -33,4 +33,11 @@ public class PGObjectDatabaseConformanceIT extends ObjectDatabaseConformanceTest
         db.open();
         return db;
     }
+
+    /**
+     * The objects tables are shared by all the repositories in the database
+     */
+    protected @Override boolean supportsGetAllIds() {
+        return false;
+    }
 }
@@ -56,6 +56,13 @@ public class PGObjectStoreConformanceIT extends ObjectStoreConformanceTest {
         return db;
     }
 
+    /**
+     * The objects tables are shared by all the repositories in the database
+     */
+    protected @Override boolean supportsGetAllIds() {
+        return false;
+    }
+
     @After
     public void closeConfigDb() throws IOException {
         if (configdb != null) {
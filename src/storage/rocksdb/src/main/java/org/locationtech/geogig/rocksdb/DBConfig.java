@@ -23,6 +23,8 @@ class DBConfig {
 
     private final boolean readOnly;
 
+    private final boolean secondary;
+
     private ImmutableMap<String, String> defaultMetadata;
 
     private Set<String> columnFamilyNames;
@@ -31,10 +33,25 @@ class DBConfig {
         this(dbpath, readOnly, Collections.emptyMap(), Collections.emptySet());
     }
 
+    public DBConfig(String dbpath, boolean readOnly, boolean secondary) {
+        this(dbpath, readOnly, secondary, Collections.emptyMap(), Collections.emptySet());
+    }
+
     public DBConfig(String dbpath, boolean readOnly, Map<String, String> defaultMetadata,
             Set<String> columnFamilyNames) {
+        this(dbpath, readOnly, false, defaultMetadata, columnFamilyNames);
+    }
+
+    /**
+     * @param secondary whether to open the database as a read only secondary instance that can
+     *        {@link DBHandle#catchUpWithPrimary() catch up} with the changes made by the primary
+     *        instance, possibly in another process. Implies {@code readOnly}.
+     */
+    public DBConfig(String dbpath, boolean readOnly, boolean secondary,
+            Map<String, String> defaultMetadata, Set<String> columnFamilyNames) {
         this.dbpath = dbpath;
-        this.readOnly = readOnly;
+        this.readOnly = readOnly || secondary;
+        this.secondary = secondary;
         this.columnFamilyNames = columnFamilyNames;
         this.defaultMetadata = ImmutableMap.copyOf(defaultMetadata);
     }
@@ -60,15 +77,17 @@ class DBConfig {
             return false;
         }
         DBConfig other = (DBConfig) o;
-        return dbpath.equals(other.dbpath) && readOnly == other.readOnly;
+        return dbpath.equals(other.dbpath) && readOnly == other.readOnly
+                && secondary == other.secondary;
     }
 
     public @Override int hashCode() {
-        return 31 * dbpath.hashCode() + (readOnly ? 1 : 0);
+        return 31 * dbpath.hashCode() + (readOnly ? 1 : 0) + (secondary ? 2 : 0);
     }
 
     public @Override String toString() {
-        return "rocksdb[path: " + dbpath + ", readonly: " + readOnly + "]";
+        return "rocksdb[path: " + dbpath + ", readonly: " + readOnly + ", secondary: " + secondary
+                + "]";
     }
 
     public String getDbPath() {
@@ -78,4 +97,8 @@ class DBConfig {
     public boolean isReadOnly() {
         return readOnly;
     }
+
+    public boolean isSecondary() {
+        return secondary;
+    }
 }
@@ -9,14 +9,21 @@
  */
 package org.locationtech.geogig.rocksdb;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
@@ -25,6 +32,8 @@ import lombok.NonNull;
 
 class DBHandle {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DBHandle.class);
+
     final org.rocksdb.DBOptions options;
 
     private final RocksDB db;
@@ -43,6 +52,11 @@ class DBHandle {
 
     private Map<String, ColumnFamilyHandle> extraColumns;
 
+    /**
+     * Private directory of a {@link DBConfig#isSecondary() secondary} instance, deleted on close
+     */
+    private @Nullable Path secondaryPath;
+
     /**
      * A reference to the RocksDB instance. This needs to be closed after it's used to free up the
      * reference.
@@ -91,6 +105,30 @@ class DBHandle {
         extraColumns.values().forEach((c) -> close(c));
         close(options);
         close(db);
+        if (secondaryPath != null) {
+            try (Stream<Path> files = Files.walk(secondaryPath)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            } catch (IOException e) {
+                LOG.warn("Error deleting secondary instance directory {}", secondaryPath, e);
+            }
+        }
+    }
+
+    void setSecondaryPath(Path secondaryPath) {
+        this.secondaryPath = secondaryPath;
+    }
+
+    /**
+     * Makes a {@link DBConfig#isSecondary() secondary} instance catch up with the changes made by
+     * the primary instance since it was opened or last caught up.
+     */
+    public void catchUpWithPrimary() {
+        Preconditions.checkState(config.isSecondary(), "not a secondary instance: %s", config);
+        try (RocksDBReference dbRef = getReference()) {
+            dbRef.db().tryCatchUpWithPrimary();
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -111,7 +149,8 @@ class DBHandle {
         try {
             nativeObject.close();
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.warn("Error closing {} of {}", nativeObject.getClass().getSimpleName(), config,
+                    e);
         }
     }
 
@@ -0,0 +1,127 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.pack.PackfileObjectStore;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+
+import lombok.NonNull;
+
+/**
+ * {@link ObjectDatabase} storing revision objects in memory mapped
+ * {@link PackfileObjectStore pack files}, while the blob store and the commit graph are kept in
+ * RocksDB as with {@link RocksdbObjectDatabase}.
+ * 
+ * @since 2.0
+ */
+public class PackfileObjectDatabase extends PackfileObjectStore implements ObjectDatabase {
+
+    private RocksdbBlobStore blobs;
+
+    private RocksdbGraphDatabase graph;
+
+    public PackfileObjectDatabase(@NonNull File dbdir, boolean readOnly) {
+        super(dbdir, RocksdbSerializationProxy.INSTANCE, readOnly);
+    }
+
+    public @Override RocksdbBlobStore getBlobStore() {
+        return blobs;
+    }
+
+    public @Override GraphDatabase getGraphDatabase() {
+        return graph;
+    }
+
+    public @Override synchronized void open() {
+        if (isOpen()) {
+            return;
+        }
+        super.open();
+        try {
+            File blobsDir = new File(getDirectory(), "blobs");
+            File graphDir = new File(getDirectory().getParentFile(), "graph.rocksdb");
+            blobsDir.mkdir();
+            graphDir.mkdir();
+            this.blobs = new RocksdbBlobStore(blobsDir, isReadOnly());
+            this.graph = new RocksdbGraphDatabase(graphDir, isReadOnly());
+            this.graph.open();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public @Override synchronized void close() {
+        if (!isOpen()) {
+            return;
+        }
+        try {
+            super.close();
+        } finally {
+            RocksdbBlobStore blobs = this.blobs;
+            RocksdbGraphDatabase graph = this.graph;
+            this.blobs = null;
+            this.graph = null;
+            try {
+                Closeables.close(blobs, true);
+                Closeables.close(graph, true);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Overrides to add graphdb commit to parents mappings on commits
+     */
+    public @Override boolean put(final RevObject object) {
+        final boolean added = super.put(object);
+        if (added && TYPE.COMMIT.equals(object.getType())) {
+            RevCommit c = (RevCommit) object;
+            graph.put(c.getId(), c.getParentIds());
+        }
+        return added;
+    }
+
+    protected @Override void putAll(Stream<RevObject> stream, BulkOpListener listener) {
+        Set<ObjectId> visitedCommits = Sets.newConcurrentHashSet();
+        Consumer<RevObject> trackCommits = (o) -> {
+            if (TYPE.COMMIT == o.getType()) {
+                visitedCommits.add(o.getId());
+            }
+        };
+        stream = stream.peek(trackCommits);
+        try {
+            super.putAll(stream, listener);
+        } finally {
+            if (!visitedCommits.isEmpty()) {
+                Iterator<RevCommit> inserted = super.getAll(visitedCommits,
+                        BulkOpListener.NOOP_LISTENER, RevCommit.class);
+                graph.putAll(() -> inserted);
+            }
+        }
+    }
+}
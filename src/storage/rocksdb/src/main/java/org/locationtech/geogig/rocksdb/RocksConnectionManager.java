@@ -10,6 +10,8 @@
 package org.locationtech.geogig.rocksdb;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -100,10 +102,22 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
             }
 
             DBHandle dbHandle;
+            @Nullable
+            Path secondaryPath = null;
             if (readOnly) {
                 List<ColumnFamilyHandle> colFamiliesTarget = new ArrayList<>();
                 Preconditions.checkState(dbExists, "database does not exist: %s", path);
-                db = RocksDB.openReadOnly(dbOptions, path, colDescriptors, colFamiliesTarget);
+                if (dbconfig.isSecondary()) {
+                    // secondary instances keep their own info logs apart from the primary's
+                    secondaryPath = Files.createTempDirectory("geogig-rocksdb-secondary");
+                    // required by secondary instances, that can't reopen table files
+                    dbOptions.setMaxOpenFiles(-1);
+                    db = RocksDB.openAsSecondary(dbOptions, path, secondaryPath.toString(),
+                            colDescriptors, colFamiliesTarget);
+                } else {
+                    db = RocksDB.openReadOnly(dbOptions, path, colDescriptors,
+                            colFamiliesTarget);
+                }
                 if (metadataExists) {
                     metadata = colFamiliesTarget.get(colFamilyNames.indexOf("metadata"));
                 }
@@ -115,6 +129,10 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                     }
                 }
                 dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                if (secondaryPath != null) {
+                    dbHandle.setSecondaryPath(secondaryPath);
+                    SecondaryCatchUpPoller.INSTANCE.register(dbHandle);
+                }
             } else {
                 if (!dbExists) {
                     colDescriptors.add(newColDescriptor("default"));
@@ -199,6 +217,9 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
 
     protected @Override void disconnect(DBHandle connection) {
         LOG.debug("closing {}", connection.config);
+        if (connection.config.isSecondary()) {
+            SecondaryCatchUpPoller.INSTANCE.unregister(connection);
+        }
         connection.close();
     }
 
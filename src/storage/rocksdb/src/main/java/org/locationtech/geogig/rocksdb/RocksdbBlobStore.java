@@ -32,6 +32,8 @@ class RocksdbBlobStore implements TransactionBlobStore, Closeable {
 
     private final boolean readOnly;
 
+    private final boolean secondary;
+
     private DBHandle dbhandle;
 
     private boolean closed = false;
@@ -39,8 +41,13 @@ class RocksdbBlobStore implements TransactionBlobStore, Closeable {
     private static final String NO_TRANSACTION = "DEFAULT";
 
     RocksdbBlobStore(final File dbdir, final boolean readOnly) {
+        this(dbdir, readOnly, false);
+    }
+
+    RocksdbBlobStore(final File dbdir, final boolean readOnly, final boolean secondary) {
         this.dbdir = dbdir;
-        this.readOnly = readOnly;
+        this.readOnly = readOnly || secondary;
+        this.secondary = secondary;
     }
 
     public synchronized void close() {
@@ -59,7 +66,7 @@ class RocksdbBlobStore implements TransactionBlobStore, Closeable {
                 if (dbhandle == null) {
                     String dbpath = dbdir.getAbsolutePath();
                     boolean readOnly = this.readOnly;
-                    DBConfig address = new DBConfig(dbpath, readOnly);
+                    DBConfig address = new DBConfig(dbpath, readOnly, secondary);
                     this.dbhandle = RocksConnectionManager.INSTANCE.acquire(address);
                 }
             }
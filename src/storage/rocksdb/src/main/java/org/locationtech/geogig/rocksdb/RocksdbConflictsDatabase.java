@@ -60,10 +60,25 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
 
     private ConcurrentMap<String/* TxID */, DBHandle> dbsByTransaction = new ConcurrentHashMap<>();
 
+    private final boolean secondary;
+
     public RocksdbConflictsDatabase(@NonNull File baseDirectory) {
-        super(false);
-        checkArgument(baseDirectory.exists() && baseDirectory.canWrite());
+        this(baseDirectory, false);
+    }
+
+    /**
+     * @param secondary whether to open the conflicts databases as read only secondary instances
+     *        that follow the changes made by the writer process
+     */
+    public RocksdbConflictsDatabase(@NonNull File baseDirectory, boolean secondary) {
+        super(secondary);
+        checkArgument(secondary || (baseDirectory.exists() && baseDirectory.canWrite()));
         this.baseDirectory = baseDirectory;
+        this.secondary = secondary;
+    }
+
+    private void checkNotSecondary() {
+        Preconditions.checkState(!secondary, "Database is read only");
     }
 
     public @Override synchronized void close() {
@@ -106,7 +121,7 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
         DBHandle dbHandle = dbsByTransaction.get(id);
         if (dbHandle == null) {
             String dbpath = dbPath(txId);
-            DBConfig address = new DBConfig(dbpath, false);
+            DBConfig address = new DBConfig(dbpath, secondary, secondary);
             dbHandle = RocksConnectionManager.INSTANCE.acquire(address);
             this.dbsByTransaction.put(id, dbHandle);
         }
@@ -119,6 +134,7 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
     }
 
     public @Override void removeConflicts(@Nullable String txId) {
+        checkNotSecondary();
         if (dbExists(txId)) {
             String hanldeId = txId == null ? NULL_TX_ID : txId;
             DBHandle dbHandle = this.dbsByTransaction.remove(hanldeId);
@@ -250,6 +266,7 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
     }
 
     public @Override void addConflicts(@Nullable String txId, Iterable<Conflict> conflicts) {
+        checkNotSecondary();
         try (RocksDBReference dbRef = getOrCreateDb(txId)) {
             ConflictSerializer serializer = new ConflictSerializer();
             try (WriteBatch batch = new WriteBatch()) {
@@ -269,6 +286,7 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
     }
 
     public @Override void removeConflict(@Nullable String txId, String path) {
+        checkNotSecondary();
         Optional<RocksDBReference> dbRefOpt = getDb(txId);
         if (!dbRefOpt.isPresent()) {
             return;
@@ -281,6 +299,7 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
     }
 
     public @Override void removeConflicts(@Nullable String txId, Iterable<String> paths) {
+        checkNotSecondary();
         Optional<RocksDBReference> dbRefOpt = getDb(txId);
         if (!dbRefOpt.isPresent()) {
             return;
@@ -319,6 +338,7 @@ public class RocksdbConflictsDatabase extends AbstractStore implements Conflicts
     }
 
     public @Override void removeByPrefix(@Nullable String txId, @Nullable String pathPrefix) {
+        checkNotSecondary();
         Optional<RocksDBReference> dbRefOpt = getDb(txId);
         if (!dbRefOpt.isPresent()) {
             return;
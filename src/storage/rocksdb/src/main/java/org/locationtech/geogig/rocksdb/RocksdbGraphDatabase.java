@@ -29,6 +29,8 @@ import org.locationtech.geogig.rocksdb.DBHandle.RocksDBReference;
 import org.locationtech.geogig.storage.AbstractStore;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.datastream.Varint;
+import org.locationtech.geogig.storage.impl.GraphGenerations;
+import org.locationtech.geogig.storage.impl.GraphGenerations.Levels;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
@@ -59,17 +61,28 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
 
     private final File dbdir;
 
+    private final boolean secondary;
+
     private DBHandle dbhandle;
 
     public RocksdbGraphDatabase(@NonNull File dbdir, boolean readOnly) {
-        super(readOnly);
+        this(dbdir, readOnly, false);
+    }
+
+    /**
+     * @param secondary whether to open the database as a read only secondary instance that
+     *        follows the changes made by the writer process
+     */
+    public RocksdbGraphDatabase(@NonNull File dbdir, boolean readOnly, boolean secondary) {
+        super(readOnly || secondary);
         this.dbdir = dbdir;
+        this.secondary = secondary;
     }
 
     public @Override synchronized void open() {
         if (!isOpen()) {
             String dbpath = dbdir.getAbsolutePath();
-            DBConfig opts = new DBConfig(dbpath, isReadOnly());
+            DBConfig opts = new DBConfig(dbpath, isReadOnly(), secondary);
             this.dbhandle = RocksConnectionManager.INSTANCE.acquire(opts);
             super.open();
         }
@@ -187,6 +200,9 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
         } catch (RocksDBException e) {
             throw new RuntimeException(e);
         }
+        // called even if not updated, the commit may have been a parent placeholder and now be a
+        // root
+        GraphGenerations.update(commitId, new BatchGenerations(dbref, batch));
         return updated;
     }
 
@@ -215,6 +231,10 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
         try (RocksDBReference dbRef = dbhandle.getReference()) {
             Queue<ObjectId> q = Lists.newLinkedList();
             NodeData node = getNodeInternal(dbRef, commitId, true, null);
+            Levels levels = node.levels();
+            if (levels != null) {
+                return levels.getDepth();
+            }
             Iterables.addAll(q, node.outgoing);
 
             List<ObjectId> next = Lists.newArrayList();
@@ -239,6 +259,25 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
         return depth;
     }
 
+    public @Override int getGeneration(ObjectId commitId) {
+        NodeData node = getNodeInternal(commitId, false);
+        Levels levels = node == null ? null : node.levels();
+        return levels == null ? GENERATION_UNKNOWN : levels.getGeneration();
+    }
+
+    public @Override void updateGeneration(ObjectId commitId) {
+        try (WriteBatchWithIndex batch = new WriteBatchWithIndex(); //
+                RocksDBReference dbRef = dbhandle.getReference();
+                WriteOptions wo = new WriteOptions()) {
+            wo.setSync(true);
+            getNodeInternal(dbRef, commitId, true, batch);// fail if it doesn't exist
+            GraphGenerations.update(commitId, new BatchGenerations(dbRef, batch));
+            dbRef.db().write(wo, batch);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public @Override void setProperty(ObjectId commitId, String propertyName,
             String propertyValue) {
         NodeData node = getNodeInternal(commitId, true);
@@ -319,6 +358,49 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
         }
     }
 
+    /**
+     * Reads and writes {@link Levels} through a write batch, so that uncommitted nodes are visible
+     */
+    private class BatchGenerations implements GraphGenerations.Graph {
+
+        private final RocksDBReference dbRef;
+
+        private final WriteBatchWithIndex batch;
+
+        BatchGenerations(RocksDBReference dbRef, WriteBatchWithIndex batch) {
+            this.dbRef = dbRef;
+            this.batch = batch;
+        }
+
+        public @Override List<ObjectId> parents(ObjectId commitId) {
+            NodeData node = getNodeInternal(dbRef, commitId, false, batch);
+            return node == null ? Collections.emptyList() : node.outgoing;
+        }
+
+        public @Override List<ObjectId> children(ObjectId commitId) {
+            NodeData node = getNodeInternal(dbRef, commitId, false, batch);
+            return node == null ? Collections.emptyList() : node.incoming;
+        }
+
+        public @Override Levels get(ObjectId commitId) {
+            NodeData node = getNodeInternal(dbRef, commitId, false, batch);
+            return node == null ? null : node.levels();
+        }
+
+        public @Override void set(ObjectId commitId, Levels levels) {
+            NodeData node = getNodeInternal(dbRef, commitId, true, batch);
+            node.properties.put(GraphGenerations.GENERATION_PROPERTY,
+                    String.valueOf(levels.getGeneration()));
+            node.properties.put(GraphGenerations.DEPTH_PROPERTY,
+                    String.valueOf(levels.getDepth()));
+            try {
+                batch.put(commitId.getRawValue(), BINDING.objectToEntry(node));
+            } catch (RocksDBException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private class RocksGraphNode extends GraphNode {
         NodeData node;
 
@@ -512,6 +594,11 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
             this(id, ImmutableList.<ObjectId> of());
         }
 
+        public @Nullable Levels levels() {
+            return Levels.valueOf(properties.get(GraphGenerations.GENERATION_PROPERTY),
+                    properties.get(GraphGenerations.DEPTH_PROPERTY));
+        }
+
         public boolean isSparse() {
             return properties.containsKey(SPARSE_FLAG)
                     ? Boolean.valueOf(properties.get(SPARSE_FLAG))
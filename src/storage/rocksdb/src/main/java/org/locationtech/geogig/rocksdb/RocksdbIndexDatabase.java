@@ -55,6 +55,10 @@ public class RocksdbIndexDatabase extends RocksdbObjectStore implements IndexDat
         super(dbdir, readOnly);
     }
 
+    public RocksdbIndexDatabase(@NonNull File dbdir, boolean readOnly, boolean secondary) {
+        super(dbdir, readOnly, secondary);
+    }
+
     public @Override synchronized void open() {
         if (!isOpen()) {
             super.open(Sets.newHashSet("indexMetadata", "indexMappings"));
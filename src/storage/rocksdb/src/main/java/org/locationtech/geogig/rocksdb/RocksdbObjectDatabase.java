@@ -39,6 +39,10 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
         super(dbdir, readOnly);
     }
 
+    public RocksdbObjectDatabase(@NonNull File dbdir, boolean readOnly, boolean secondary) {
+        super(dbdir, readOnly, secondary);
+    }
+
     public @Override RocksdbBlobStore getBlobStore() {
         return blobs;
     }
@@ -57,8 +61,8 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
             File graphDir = new File(super.dbDirectory.getParentFile(), "graph.rocksdb");
             blobsDir.mkdir();
             graphDir.mkdir();
-            this.blobs = new RocksdbBlobStore(blobsDir, isReadOnly());
-            this.graph = new RocksdbGraphDatabase(graphDir, isReadOnly());
+            this.blobs = new RocksdbBlobStore(blobsDir, isReadOnly(), secondary);
+            this.graph = new RocksdbGraphDatabase(graphDir, isReadOnly(), secondary);
             this.graph.open();
         } catch (RuntimeException e) {
             close();
@@ -69,13 +69,31 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
 
     protected final @NonNull File dbDirectory;
 
+    protected final boolean secondary;
+
     protected DBHandle dbhandle;
 
     private ReadOptions bulkReadOptions;
 
     public RocksdbObjectStore(@NonNull File dbdir, boolean readOnly) {
-        super(RocksdbSerializationProxy.INSTANCE, readOnly);
+        this(dbdir, readOnly, false);
+    }
+
+    /**
+     * @param secondary whether to open the database as a read only secondary instance that
+     *        follows the changes made by the writer process, instead of a static read only view
+     */
+    public RocksdbObjectStore(@NonNull File dbdir, boolean readOnly, boolean secondary) {
+        super(RocksdbSerializationProxy.INSTANCE, readOnly || secondary);
         this.dbDirectory = dbdir;
+        this.secondary = secondary;
+    }
+
+    /**
+     * @return whether this is a read only secondary instance
+     */
+    public boolean isSecondary() {
+        return secondary;
     }
 
     public @Override synchronized void open() {
@@ -89,7 +107,7 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         Map<String, String> defaultMetadata = ImmutableMap.of("version",
                 RocksdbRepositoryResolver.VERSION, "serializer", "proxy");
 
-        DBConfig address = new DBConfig(dbDirectory.getAbsolutePath(), isReadOnly(),
+        DBConfig address = new DBConfig(dbDirectory.getAbsolutePath(), isReadOnly(), secondary,
                 defaultMetadata, columnFamilyNames);
         this.dbhandle = RocksConnectionManager.INSTANCE.acquire(address);
 
@@ -141,7 +159,11 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
             throws IllegalArgumentException {
 
         byte[] bytes = getRawInternal(id.getRawValue());
-
+        if (bytes == null && failIfNotFound && secondary) {
+            // the ref pointing to it may have been updated before the next catch up poll
+            dbhandle.catchUpWithPrimary();
+            bytes = getRawInternal(id.getRawValue());
+        }
         if (bytes != null) {
             return new ByteArrayInputStream(bytes);
         }
@@ -277,6 +299,37 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         }
     }
 
+    public @Override AutoCloseableIterator<ObjectId> getAllIds() {
+        checkOpen();
+        final RocksDBReference dbRef = dbhandle.getReference();
+        final RocksIterator it = dbRef.db().newIterator();
+        it.seekToFirst();
+        return new AutoCloseableIterator<ObjectId>() {
+            private boolean closed;
+
+            public @Override boolean hasNext() {
+                return !closed && it.isValid();
+            }
+
+            public @Override ObjectId next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ObjectId id = ObjectId.create(it.key());
+                it.next();
+                return id;
+            }
+
+            public @Override void close() {
+                if (!closed) {
+                    closed = true;
+                    it.close();
+                    dbRef.close();
+                }
+            }
+        };
+    }
+
     protected @Override List<ObjectId> lookUpInternal(byte[] idprefix) {
         checkOpen();
         List<ObjectId> matches = new ArrayList<>(2);
@@ -12,6 +12,7 @@ package org.locationtech.geogig.rocksdb;
 import java.io.File;
 import java.net.URI;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.Hints;
 import org.locationtech.geogig.repository.Platform;
@@ -38,6 +39,23 @@ public class RocksdbRepositoryResolver extends FileRepositoryResolver {
      */
     public static final String VERSION = "1";
 
+    /**
+     * Hint or system property that, when set to {@link #PACKFILE_OBJECTS_FORMAT}, makes new
+     * repositories store their objects in {@link PackfileObjectDatabase pack files} instead of
+     * RocksDB. Existing repositories keep using the format they were created with.
+     */
+    public static final String OBJECTS_FORMAT = "geogig.objects.format";
+
+    public static final String PACKFILE_OBJECTS_FORMAT = "packfile";
+
+    /**
+     * Boolean hint or system property that makes the repository open its RocksDB databases as
+     * read only secondary instances, so that any number of reader processes can serve a repository
+     * while a single writer process keeps the primary instances. Secondary instances catch up with
+     * the primary ones whenever the repository refs change.
+     */
+    public static final String SECONDARY = "geogig.rocksdb.secondary";
+
     public @Override ConfigDatabase resolveConfigDatabase(@NonNull URI repoURI,
             @NonNull Context repoContext, boolean rootUri) {
         Hints hints = new Hints().uri(repoURI);
@@ -46,26 +64,49 @@ public class RocksdbRepositoryResolver extends FileRepositoryResolver {
     }
 
     public @Override ObjectDatabase resolveObjectDatabase(@NonNull URI repoURI, Hints hints) {
-        File dbdir = new File(resolveDotGeogigDirectory(repoURI), "objects.rocksdb");
+        final File dotGeogig = resolveDotGeogigDirectory(repoURI);
+        final File dbdir = new File(dotGeogig, "objects.rocksdb");
+        final File packdir = new File(dotGeogig, "objects.pack");
         boolean readOnly = Hints.isRepoReadOnly(hints);
-        return new RocksdbObjectDatabase(dbdir, readOnly);
+        if (packdir.exists() || (!dbdir.exists() && isPackfileFormatRequested(hints))) {
+            return new PackfileObjectDatabase(packdir, readOnly);
+        }
+        return new RocksdbObjectDatabase(dbdir, readOnly, isSecondary(hints));
+    }
+
+    private boolean isSecondary(@Nullable Hints hints) {
+        if (hints != null && hints.get(SECONDARY).isPresent()) {
+            return hints.getBoolean(SECONDARY);
+        }
+        return Boolean.getBoolean(SECONDARY);
+    }
+
+    private boolean isPackfileFormatRequested(@Nullable Hints hints) {
+        Object format = hints == null ? null : hints.get(OBJECTS_FORMAT).orElse(null);
+        if (format == null) {
+            format = System.getProperty(OBJECTS_FORMAT);
+        }
+        return PACKFILE_OBJECTS_FORMAT.equals(format);
     }
 
     public @Override IndexDatabase resolveIndexDatabase(@NonNull URI repoURI, Hints hints) {
         File dbdir = new File(resolveDotGeogigDirectory(repoURI), "index.rocksdb");
         boolean readOnly = Hints.isRepoReadOnly(hints);
-        return new RocksdbIndexDatabase(dbdir, readOnly);
+        return new RocksdbIndexDatabase(dbdir, readOnly, isSecondary(hints));
     }
 
     public @Override RefDatabase resolveRefDatabase(@NonNull URI repoURI, Hints hints) {
         File refsdir = resolveDotGeogigDirectory(repoURI);
-        boolean readOnly = Hints.isRepoReadOnly(hints);
+        boolean readOnly = Hints.isRepoReadOnly(hints) || isSecondary(hints);
         return new FileRefDatabase(refsdir, readOnly);
     }
 
     public @Override ConflictsDatabase resolveConflictsDatabase(@NonNull URI repoURI, Hints hints) {
         File dbdir = new File(resolveDotGeogigDirectory(repoURI), "conflicts.rocksdb");
-        dbdir.mkdir();
-        return new RocksdbConflictsDatabase(dbdir);
+        final boolean secondary = isSecondary(hints);
+        if (!secondary) {
+            dbdir.mkdir();
+        }
+        return new RocksdbConflictsDatabase(dbdir, secondary);
     }
 }
@@ -0,0 +1,192 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.repository.GeogigScheduler;
+import org.locationtech.geogig.repository.GeogigScheduler.WorkClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps {@link DBConfig#isSecondary() secondary} RocksDB instances up to date with their primary
+ * instance by polling the refs of the repository they belong to, and making all the repository's
+ * secondary instances {@link DBHandle#catchUpWithPrimary() catch up} when any ref changes.
+ * <p>
+ * Ref changes are the signal that the writer process finished a command whose objects are already
+ * in the primary databases, so catching up on them gives readers a consistent view without
+ * continuously replaying the primary's write ahead log.
+ * <p>
+ * The polling interval defaults to {@link #DEFAULT_POLL_INTERVAL_MILLIS} and can be changed
+ * through the {@link #POLL_INTERVAL_PROPERTY} system property. Polls run on the
+ * {@link WorkClass#STORAGE_IO storage-io} executor of the {@link GeogigScheduler}.
+ */
+class SecondaryCatchUpPoller {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SecondaryCatchUpPoller.class);
+
+    static final String POLL_INTERVAL_PROPERTY = "geogig.rocksdb.secondary.pollInterval";
+
+    static final long DEFAULT_POLL_INTERVAL_MILLIS = 2_000;
+
+    private static final List<String> HEAD_REFS = Arrays.asList(Ref.HEAD, Ref.WORK_HEAD,
+            Ref.STAGE_HEAD, Ref.MERGE_HEAD, Ref.ORIG_HEAD, Ref.CHERRY_PICK_HEAD);
+
+    static final SecondaryCatchUpPoller INSTANCE = new SecondaryCatchUpPoller(
+            Long.getLong(POLL_INTERVAL_PROPERTY, DEFAULT_POLL_INTERVAL_MILLIS));
+
+    /**
+     * The secondary instances of a repository and the last seen state of its refs
+     */
+    private static class WatchedRepository {
+        final @Nullable File directory;
+
+        final Set<DBHandle> handles = new CopyOnWriteArraySet<>();
+
+        volatile Map<String, String> refs;
+
+        WatchedRepository(@Nullable File directory) {
+            this.directory = directory;
+            this.refs = readRefs(directory);
+        }
+    }
+
+    private final long pollIntervalMillis;
+
+    private final Map<String, WatchedRepository> repositories = new ConcurrentHashMap<>();
+
+    private Future<?> task;
+
+    SecondaryCatchUpPoller(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public synchronized void register(DBHandle handle) {
+        final @Nullable File repoDir = findRepositoryDirectory(handle.config.getDbPath());
+        final String key = repoDir == null ? "" : repoDir.getAbsolutePath();
+        repositories.computeIfAbsent(key, k -> new WatchedRepository(repoDir)).handles.add(handle);
+        if (task == null && pollIntervalMillis > 0) {
+            task = GeogigScheduler.defaultInstance().scheduleWithFixedDelay(WorkClass.STORAGE_IO,
+                    this::pollQuietly, pollIntervalMillis, pollIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void unregister(DBHandle handle) {
+        repositories.values().removeIf(repo -> {
+            repo.handles.remove(handle);
+            return repo.handles.isEmpty();
+        });
+        if (repositories.isEmpty() && task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            LOG.warn("Error polling for repository changes", e);
+        }
+    }
+
+    /**
+     * Makes the secondary instances of the repositories whose refs changed since the last poll
+     * catch up with their primary instances. Instances whose repository directory is unknown
+     * catch up on every poll.
+     */
+    void poll() {
+        for (WatchedRepository repo : repositories.values()) {
+            final Map<String, String> refs = readRefs(repo.directory);
+            if (repo.directory == null || !refs.equals(repo.refs)) {
+                repo.refs = refs;
+                for (DBHandle handle : repo.handles) {
+                    try {
+                        handle.catchUpWithPrimary();
+                    } catch (IllegalStateException closed) {
+                        LOG.trace("ignoring closed secondary instance {}", handle.config);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Error catching up {} with primary", handle.config, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the {@code .geogig} directory the database at {@code dbPath} belongs to, as the
+     *         closest ancestor directory containing a {@code HEAD} ref, or {@code null}
+     */
+    static @Nullable File findRepositoryDirectory(String dbPath) {
+        for (File dir = new File(dbPath).getParentFile(); dir != null; dir = dir.getParentFile()) {
+            if (new File(dir, Ref.HEAD).isFile()) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the contents of all the ref files in {@code repoDir}, keyed by path
+     */
+    private static Map<String, String> readRefs(@Nullable File repoDir) {
+        Map<String, String> refs = new HashMap<>();
+        if (repoDir == null) {
+            return refs;
+        }
+        Path root = repoDir.toPath();
+        for (String name : HEAD_REFS) {
+            read(root.resolve(name), root, refs);
+        }
+        Path refsDir = root.resolve("refs");
+        if (Files.isDirectory(refsDir)) {
+            try (Stream<Path> files = Files.walk(refsDir)) {
+                List<Path> refFiles = files.filter(Files::isRegularFile)
+                        .collect(Collectors.toList());
+                refFiles.forEach(f -> read(f, root, refs));
+            } catch (IOException | UncheckedIOException e) {
+                // refs changing while walking the tree, next poll will catch up
+                refs.put("", String.valueOf(System.nanoTime()));
+            }
+        }
+        return refs;
+    }
+
+    private static void read(Path file, Path root, Map<String, String> target) {
+        try {
+            if (Files.isRegularFile(file)) {
+                String contents = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                target.put(root.relativize(file).toString(), contents);
+            }
+        } catch (IOException e) {
+            // deleted concurrently
+        }
+    }
+}
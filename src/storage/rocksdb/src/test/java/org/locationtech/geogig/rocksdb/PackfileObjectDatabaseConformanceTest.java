@@ -0,0 +1,36 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.storage.impl.ObjectDatabaseConformanceTest;
+
+public class PackfileObjectDatabaseConformanceTest extends ObjectDatabaseConformanceTest {
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private File dbdir;
+
+    public @Before @Override void setUp() throws Exception {
+        this.dbdir = new File(folder.newFolder(".geogig"), "objects.pack");
+        super.setUp();
+    }
+
+    protected @Override PackfileObjectDatabase createOpen(boolean readOnly) {
+        PackfileObjectDatabase database = new PackfileObjectDatabase(dbdir, readOnly);
+        database.open();
+        return database;
+    }
+
+}
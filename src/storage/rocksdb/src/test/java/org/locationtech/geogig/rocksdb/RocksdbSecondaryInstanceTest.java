@@ -0,0 +1,98 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+
+public class RocksdbSecondaryInstanceTest {
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private File dotGeogig;
+
+    private RocksdbObjectStore primary;
+
+    private RocksdbObjectStore secondary;
+
+    public @Before void before() throws IOException {
+        dotGeogig = folder.newFolder(".geogig");
+        new File(dotGeogig, "refs/heads").mkdirs();
+        setRef("HEAD", "ref: refs/heads/master");
+        File dbdir = new File(dotGeogig, "objects.rocksdb");
+        primary = new RocksdbObjectStore(dbdir, false);
+        primary.open();
+        primary.put(RevObjectTestSupport.feature("initial"));
+        secondary = new RocksdbObjectStore(dbdir, false, true);
+        secondary.open();
+    }
+
+    public @After void after() {
+        if (secondary != null) {
+            secondary.close();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+
+    private void setRef(String name, String value) throws IOException {
+        Files.write(new File(dotGeogig, name).toPath(), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSecondaryIsReadOnly() {
+        assertTrue(secondary.isReadOnly());
+        assertTrue(secondary.isSecondary());
+        RevFeature f = RevObjectTestSupport.feature("f1");
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> secondary.put(f));
+        assertTrue(e.getMessage().contains("read only"));
+    }
+
+    @Test
+    public void testCatchUpOnRefChange() throws IOException {
+        RevFeature f = RevObjectTestSupport.feature("f1");
+        assertTrue(primary.put(f));
+        setRef("refs/heads/master", f.getId().toString());
+
+        SecondaryCatchUpPoller.INSTANCE.poll();
+        assertTrue(secondary.exists(f.getId()));
+        assertEquals(f, secondary.get(f.getId()));
+    }
+
+    @Test
+    public void testCatchUpOnMissingObject() {
+        RevFeature f = RevObjectTestSupport.feature("f1");
+        assertTrue(primary.put(f));
+        // no ref change, but get() fails only after catching up with the primary
+        assertEquals(f, secondary.get(f.getId()));
+    }
+
+    @Test
+    public void testFindRepositoryDirectory() {
+        File dbdir = new File(new File(dotGeogig, "objects.rocksdb"), "blobs");
+        assertEquals(dotGeogig, SecondaryCatchUpPoller.findRepositoryDirectory(dbdir.getPath()));
+    }
+}
@@ -0,0 +1,162 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.rocksdb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.locationtech.geogig.model.ObjectId;
+
+/**
+ * A set of fixed size keys made of one or more packed {@link ObjectId}s, stored in a single open
+ * addressing (linear probing) hash table backed by a {@code byte[]}, hence with no per entry
+ * object overhead.
+ * <p>
+ * Object ids are uniformly distributed hashes, so the hash code of a key is computed out of the
+ * first bytes of each of its object ids. Not thread safe.
+ */
+class PackedIdSet {
+
+    private static final double LOAD_FACTOR = 0.6;
+
+    private final int keySize;
+
+    private byte[] table;
+
+    private boolean[] used;
+
+    private int capacity;
+
+    private int size;
+
+    PackedIdSet(int keySize, int initialCapacity) {
+        checkArgument(keySize > 0 && keySize % ObjectId.NUM_BYTES == 0,
+                "keySize shall be a multiple of %s", ObjectId.NUM_BYTES);
+        this.keySize = keySize;
+        allocate(tableSize(initialCapacity));
+    }
+
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit(Math.max(16, (int) (entries / LOAD_FACTOR)) - 1) << 1;
+    }
+
+    private void allocate(int slots) {
+        this.capacity = slots;
+        this.table = new byte[slots * keySize];
+        this.used = new boolean[slots];
+        this.size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return an estimate of the heap used by this set, in bytes
+     */
+    public long sizeInBytes() {
+        return (long) capacity * (keySize + 1);
+    }
+
+    public boolean contains(byte[] key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return {@code true} if the key was added, {@code false} if it already existed
+     */
+    public boolean add(byte[] key) {
+        checkArgument(key.length == keySize);
+        int index = indexOf(key);
+        if (index >= 0) {
+            return false;
+        }
+        final int slot = -(index + 1);
+        System.arraycopy(key, 0, table, slot * keySize, keySize);
+        used[slot] = true;
+        size++;
+        if (size > capacity * LOAD_FACTOR) {
+            rehash(capacity * 2);
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Calls {@code consumer} with each key, the argument is reused between calls
+     */
+    public void forEach(Consumer<byte[]> consumer) {
+        byte[] key = new byte[keySize];
+        for (int slot = 0; slot < capacity; slot++) {
+            if (used[slot]) {
+                System.arraycopy(table, slot * keySize, key, 0, keySize);
+                consumer.accept(key);
+            }
+        }
+    }
+
+    /**
+     * @return the slot index of the key if found, or {@code -(insertionSlot + 1)} otherwise
+     */
+    private int indexOf(byte[] key) {
+        final int mask = capacity - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (equals(key, slot)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(slot + 1);
+    }
+
+    private int hash(byte[] key) {
+        int h = 0;
+        for (int offset = 0; offset < keySize; offset += ObjectId.NUM_BYTES) {
+            h = 31 * h + (((key[offset] & 0xFF) << 24) | ((key[offset + 1] & 0xFF) << 16)
+                    | ((key[offset + 2] & 0xFF) << 8) | (key[offset + 3] & 0xFF));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean equals(byte[] key, int slot) {
+        final int offset = slot * keySize;
+        for (int i = 0; i < keySize; i++) {
+            if (table[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int newCapacity) {
+        final byte[] oldTable = this.table;
+        final boolean[] oldUsed = this.used;
+        final int oldCapacity = this.capacity;
+        allocate(newCapacity);
+        byte[] key = new byte[keySize];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            if (oldUsed[slot]) {
+                System.arraycopy(oldTable, slot * keySize, key, 0, keySize);
+                add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.rocksdb;
+
+import org.locationtech.geogig.remotes.internal.DeduplicationService;
+import org.locationtech.geogig.remotes.internal.Deduplicator;
+
+/**
+ * {@link DeduplicationService} whose deduplicators keep up to
+ * {@link #DEFAULT_MAX_HEAP_ENTRIES} visited ids in memory and spill the rest to a temporary
+ * rocksdb database.
+ */
+public class RocksdbDeduplicationService implements DeduplicationService {
+
+    /**
+     * Default maximum number of ids held in memory by each deduplicator, can be overridden through
+     * the {@code geogig.dedup.maxHeapEntries} System property
+     */
+    public static final int DEFAULT_MAX_HEAP_ENTRIES = Integer
+            .getInteger("geogig.dedup.maxHeapEntries", 1_000_000);
+
+    public @Override Deduplicator createDeduplicator() {
+        return new RocksdbDeduplicator(DEFAULT_MAX_HEAP_ENTRIES);
+    }
+}
@@ -0,0 +1,241 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.rocksdb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.remotes.internal.Deduplicator;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import com.google.common.base.Throwables;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link Deduplicator} that keeps visited ids in compact {@link PackedIdSet in-memory sets} until
+ * they reach a given number of entries, and then spills them to a temporary rocksdb database,
+ * bounding its heap usage regardless of the number of visited ids.
+ * <p>
+ * Ids are partitioned in a number of stripes, each one guarded by its own lock and spilled
+ * independently, so that concurrent visitors rarely contend.
+ */
+@Slf4j
+class RocksdbDeduplicator implements Deduplicator {
+
+    private static final int STRIPES = 16;
+
+    private static final int SINGLE_KEY_SIZE = ObjectId.NUM_BYTES;
+
+    private static final int PAIR_KEY_SIZE = 2 * ObjectId.NUM_BYTES;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int maxStripeEntries;
+
+    private final Stripe[] stripes;
+
+    private volatile RocksdbHandle dbHandle;
+
+    private WriteOptions writeOptions;
+
+    private volatile ReadOptions readOptions;
+
+    private volatile boolean spilled;
+
+    private volatile boolean released;
+
+    private class Stripe {
+
+        private final PackedIdSet singles = new PackedIdSet(SINGLE_KEY_SIZE, 1024);
+
+        private final PackedIdSet pairs = new PackedIdSet(PAIR_KEY_SIZE, 1024);
+
+        synchronized boolean contains(byte[] key) {
+            checkState(!released, "deduplicator released");
+            return set(key).contains(key) || stored(key);
+        }
+
+        synchronized boolean add(byte[] key) {
+            checkState(!released, "deduplicator released");
+            PackedIdSet set = set(key);
+            if (set.contains(key) || stored(key)) {
+                return false;
+            }
+            set.add(key);
+            if (singles.size() + pairs.size() >= maxStripeEntries) {
+                spill();
+            }
+            return true;
+        }
+
+        private PackedIdSet set(byte[] key) {
+            return key.length == SINGLE_KEY_SIZE ? singles : pairs;
+        }
+
+        private void spill() {
+            RocksdbHandle db = db();
+            try (WriteBatch batch = new WriteBatch()) {
+                singles.forEach(key -> put(batch, key));
+                pairs.forEach(key -> put(batch, key));
+                db.db.write(writeOptions, batch);
+            } catch (RocksDBException e) {
+                throw new RuntimeException(e);
+            }
+            spilled = true;
+            singles.clear();
+            pairs.clear();
+        }
+
+        synchronized void clear() {
+            singles.clear();
+            pairs.clear();
+        }
+    }
+
+    RocksdbDeduplicator(int maxHeapEntries) {
+        checkArgument(maxHeapEntries > 0, "maxHeapEntries shall be > 0");
+        this.maxStripeEntries = Math.max(1, maxHeapEntries / STRIPES);
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static void put(WriteBatch batch, byte[] key) {
+        try {
+            batch.put(key, EMPTY);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return whether the key was spilled to the database, called while holding the lock of the
+     *         key's stripe, which is the only one that could have spilled it
+     */
+    private boolean stored(byte[] key) {
+        if (!spilled) {
+            return false;
+        }
+        final RocksdbHandle handle = this.dbHandle;
+        try {
+            return handle != null && handle.db.get(readOptions, key) != null;
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized RocksdbHandle db() {
+        if (dbHandle == null) {
+            Path directory = null;
+            try {
+                directory = Files.createTempDirectory("geogig-tmp-dedup");
+                dbHandle = RocksdbHandle.create(directory, options -> {
+                    // most lookups are for ids not yet visited, use a bloom filter to avoid
+                    // disk reads for them
+                    BlockBasedTableConfig tableFormatConfig = new BlockBasedTableConfig();
+                    tableFormatConfig.setFilterPolicy(new BloomFilter());
+                    options.setTableFormatConfig(tableFormatConfig);
+                });
+            } catch (Exception e) {
+                if (directory != null) {
+                    RocksdbHandle.delete(directory.toFile());
+                }
+                Throwables.throwIfUnchecked(e);
+                throw new RuntimeException(e);
+            }
+            log.debug("Spilling deduplicator to {}", directory);
+            // no need for durability, the database is discarded on release()
+            writeOptions = new WriteOptions();
+            writeOptions.setDisableWAL(true);
+            writeOptions.setSync(false);
+            readOptions = new ReadOptions();
+        }
+        return dbHandle;
+    }
+
+    private Stripe stripe(byte[] key) {
+        // the last byte of the last id, first bytes are used for hashing inside the stripe
+        return stripes[key[key.length - 1] & (STRIPES - 1)];
+    }
+
+    private static byte[] key(ObjectId left, ObjectId right) {
+        if (left.isNull()) {
+            return right.getRawValue();
+        }
+        byte[] key = new byte[PAIR_KEY_SIZE];
+        left.getRawValue(key);
+        System.arraycopy(right.getRawValue(), 0, key, ObjectId.NUM_BYTES, ObjectId.NUM_BYTES);
+        return key;
+    }
+
+    public @Override boolean isDuplicate(ObjectId id) {
+        return isDuplicate(ObjectId.NULL, id);
+    }
+
+    public @Override boolean isDuplicate(ObjectId left, ObjectId right) {
+        byte[] key = key(left, right);
+        return stripe(key).contains(key);
+    }
+
+    public @Override boolean visit(ObjectId id) {
+        return visit(ObjectId.NULL, id);
+    }
+
+    public @Override boolean visit(ObjectId left, ObjectId right) {
+        byte[] key = key(left, right);
+        return stripe(key).add(key);
+    }
+
+    public @Override void removeDuplicates(List<ObjectId> ids) {
+        Iterator<ObjectId> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            if (isDuplicate(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public @Override void reset() {
+        for (Stripe s : stripes) {
+            s.clear();
+        }
+        disposeDb();
+    }
+
+    public @Override void release() {
+        released = true;
+        reset();
+    }
+
+    private synchronized void disposeDb() {
+        spilled = false;
+        if (dbHandle != null) {
+            readOptions.close();
+            writeOptions.close();
+            dbHandle.dispose();
+            dbHandle = null;
+            readOptions = null;
+            writeOptions = null;
+        }
+    }
+}
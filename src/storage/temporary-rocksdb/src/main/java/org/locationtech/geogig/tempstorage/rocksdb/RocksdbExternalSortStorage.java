@@ -0,0 +1,135 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.rocksdb;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ExternalSortStorage;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteOptions;
+
+import com.google.common.base.Throwables;
+
+/**
+ * {@link ExternalSortStorage} backed by a temporary rocksdb database, created upon the first
+ * {@link #put} and deleted on {@link #dispose()}.
+ * <p>
+ * Rocksdb iterates keys in unsigned lexicographical order, as required by the
+ * {@code ExternalSortStorage} contract.
+ */
+class RocksdbExternalSortStorage implements ExternalSortStorage {
+
+    private RocksdbHandle dbHandle;
+
+    private WriteOptions writeOptions;
+
+    private synchronized RocksdbHandle db() {
+        if (dbHandle == null) {
+            Path directory = null;
+            try {
+                directory = Files.createTempDirectory("geogig-tmp-sort-store");
+                dbHandle = RocksdbHandle.create(directory);
+            } catch (Exception e) {
+                if (directory != null) {
+                    RocksdbHandle.delete(directory.toFile());
+                }
+                Throwables.throwIfUnchecked(e);
+                throw new RuntimeException(e);
+            }
+            // no need for durability, the database is discarded on dispose()
+            writeOptions = new WriteOptions();
+            writeOptions.setDisableWAL(true);
+            writeOptions.setSync(false);
+        }
+        return dbHandle;
+    }
+
+    public @Override void put(byte[] key, byte[] value) {
+        RocksdbHandle handle = db();
+        try {
+            handle.db.put(writeOptions, key, value);
+        } catch (RocksDBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public @Override AutoCloseableIterator<byte[]> values(final byte[] keyPrefix) {
+        final RocksdbHandle handle;
+        synchronized (this) {
+            if (dbHandle == null) {
+                return AutoCloseableIterator.emptyIterator();
+            }
+            handle = dbHandle;
+        }
+        final ReadOptions readOptions = new ReadOptions();
+        readOptions.setFillCache(false);
+        final RocksIterator it = handle.db.newIterator(readOptions);
+        it.seek(keyPrefix);
+
+        return new AutoCloseableIterator<byte[]>() {
+
+            private boolean closed;
+
+            public @Override boolean hasNext() {
+                if (closed) {
+                    return false;
+                }
+                boolean hasNext = it.isValid() && startsWith(it.key(), keyPrefix);
+                if (!hasNext) {
+                    close();
+                }
+                return hasNext;
+            }
+
+            public @Override byte[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                byte[] value = it.value();
+                it.next();
+                return value;
+            }
+
+            public @Override void close() {
+                if (!closed) {
+                    closed = true;
+                    it.close();
+                    readOptions.close();
+                }
+            }
+        };
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public @Override synchronized void dispose() {
+        if (dbHandle != null) {
+            writeOptions.close();
+            dbHandle.dispose();
+            dbHandle = null;
+            writeOptions = null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.rocksdb;
+
+import org.locationtech.geogig.storage.ExternalSortStorage;
+import org.locationtech.geogig.storage.ExternalSortStorageFactory;
+
+public class RocksdbExternalSortStorageFactory implements ExternalSortStorageFactory {
+
+    /**
+     * @return {@code 1}, next highest priority than (heap) default one
+     */
+    public @Override int getPriority() {
+        return 1;
+    }
+
+    public @Override ExternalSortStorage newInstance() {
+        return new RocksdbExternalSortStorage();
+    }
+}
@@ -11,6 +11,7 @@ package org.locationtech.geogig.tempstorage.rocksdb;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.rocksdb.CompressionType;
@@ -70,6 +71,15 @@ class RocksdbHandle {
     }
 
     public static RocksdbHandle create(Path targetDir) {
+        return create(targetDir, options -> {
+        });
+    }
+
+    /**
+     * @param customizer allows to tune the database options for a specific use case, called
+     *        before opening the database
+     */
+    public static RocksdbHandle create(Path targetDir, Consumer<Options> customizer) {
         RocksDB.loadLibrary();
 
         final String os = System.getProperty("os.name");
@@ -91,6 +101,7 @@ class RocksdbHandle {
                 // embedded in rocksdb fat jar
                 // .setCompactionStyle(CompactionStyle.LEVEL)
                 .setCompressionType(CompressionType.NO_COMPRESSION);
+        customizer.accept(options);
 
         RocksDB db;
         final String path = targetDir.toAbsolutePath().toString();
@@ -0,0 +1,104 @@
+/* Copyright (c) 2020 Gabriel Roldan
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.remotes.internal.DeduplicationService;
+import org.locationtech.geogig.remotes.internal.Deduplicator;
+
+public class RocksdbDeduplicatorTest {
+
+    private RocksdbDeduplicator deduplicator;
+
+    @After
+    public void after() {
+        if (deduplicator != null) {
+            deduplicator.release();
+        }
+    }
+
+    public @Test void testServiceLookup() {
+        Deduplicator dedup = DeduplicationService.create();
+        try {
+            assertTrue(dedup instanceof RocksdbDeduplicator);
+        } finally {
+            dedup.release();
+        }
+    }
+
+    public @Test void testInMemory() {
+        test(1_000_000, 1000);
+    }
+
+    public @Test void testSpilled() {
+        test(100, 10_000);
+    }
+
+    private void test(int maxHeapEntries, int count) {
+        deduplicator = new RocksdbDeduplicator(maxHeapEntries);
+        List<ObjectId> ids = ids(count);
+        for (ObjectId id : ids) {
+            assertFalse(deduplicator.isDuplicate(id));
+            assertTrue(deduplicator.visit(id));
+            assertTrue(deduplicator.isDuplicate(id));
+        }
+        for (ObjectId id : ids) {
+            assertFalse(deduplicator.visit(id));
+            assertTrue(deduplicator.isDuplicate(ObjectId.NULL, id));
+        }
+        // pairs are independent of single ids
+        for (int i = 1; i < count; i++) {
+            ObjectId left = ids.get(i - 1), right = ids.get(i);
+            assertFalse(deduplicator.isDuplicate(left, right));
+            assertTrue(deduplicator.visit(left, right));
+            assertFalse(deduplicator.isDuplicate(right, left));
+        }
+        for (int i = 1; i < count; i++) {
+            assertFalse(deduplicator.visit(ids.get(i - 1), ids.get(i)));
+        }
+
+        List<ObjectId> mixed = new ArrayList<>(ids.subList(0, 10));
+        List<ObjectId> unvisited = ids(20).subList(10, 20);
+        mixed.addAll(unvisited);
+        deduplicator.removeDuplicates(mixed);
+        assertEquals(unvisited, mixed);
+
+        deduplicator.reset();
+        ids.forEach(id -> assertFalse(deduplicator.isDuplicate(id)));
+    }
+
+    public @Test void testConcurrentVisits() {
+        deduplicator = new RocksdbDeduplicator(1000);
+        List<ObjectId> ids = ids(20_000);
+        long visited = IntStream.range(0, 4).parallel()
+                .mapToLong(i -> ids.stream().filter(deduplicator::visit).count()).sum();
+        assertEquals(ids.size(), visited);
+    }
+
+    private List<ObjectId> ids(int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        String prefix = String.valueOf(System.nanoTime());
+        for (int i = 0; i < count; i++) {
+            ids.add(RevObjectTestSupport.hashString(prefix + i));
+        }
+        return ids;
+    }
+}